@@ -0,0 +1,91 @@
+package benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import utils.CommandHandler;
+import utils.RepoGenerator;
+
+/**
+ * Fixtures shared by the benchmarks. Lit keeps its repository in .lit under the working
+ * directory, so every benchmark works in the directory the jmh task runs in (build/jmh), and its
+ * setup starts from an empty repository there. Fixtures write their objects with
+ * Content.writeObject, which prints nothing; benchmarks of commands that report on System.out
+ * discard it for the whole trial, so no timed call pays for swapping streams.
+ *
+ * All content comes from seeded Randoms or RepoGenerator, so a benchmark sees the same data in
+ * every run.
+ */
+final class BenchmarkRepo {
+
+    private BenchmarkRepo() {
+    }
+
+    // an empty repository in the working directory, without the files a generated one checked out
+    static void init() throws Exception {
+        List<Path> stale = new ArrayList<>();
+        try (Stream<Path> list = Files.list(Paths.get(""))) {
+            list.filter(path -> path.getFileName().toString().matches("\\.lit|dir\\d+")).forEach(stale::add);
+        }
+        for (Path top : stale) {
+            try (Stream<Path> walk = Files.walk(top)) {
+                for (Path path : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(path);
+                }
+            }
+        }
+        CommandHandler.handleInit();
+    }
+
+    // generates a history into the fresh repository, see RepoGenerator
+    static RepoGenerator.Result generate(RepoGenerator generator) throws Exception {
+        return generator.generate(null);
+    }
+
+    /**
+     * Discards System.out until the returned original stream is set back, for a trial of a
+     * benchmark whose timed method prints.
+     */
+    static PrintStream discardOutput() {
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return original;
+    }
+
+    // lines of source-like text, with some repeated lines such as braces
+    static String text(Random random, int lines) {
+        StringBuilder text = new StringBuilder(lines * 40);
+        for (int i = 0; i < lines; i++) {
+            if (random.nextInt(8) == 0) {
+                text.append("}\n");
+            } else {
+                text.append("    value").append(random.nextInt(1_000_000)).append(" = compute(")
+                    .append(random.nextInt(1000)).append(");\n");
+            }
+        }
+        return text.toString();
+    }
+
+    static String sha1(byte[] content) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(content);
+            StringBuilder hex = new StringBuilder(40);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
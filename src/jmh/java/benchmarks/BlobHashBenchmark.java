@@ -0,0 +1,50 @@
+package benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import objects.BlobObject;
+
+/**
+ * Reading a working directory file and hashing it as a blob, as add and status do for every file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BlobHashBenchmark {
+
+    private static final String FILE = "blob.bin";
+
+    @Param({"1024", "65536", "1048576"})
+    public int size;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkRepo.init();
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        Files.write(Paths.get(FILE), content);
+    }
+
+    @Benchmark
+    public String hashBlob() {
+        return new BlobObject(FILE).getSha1();
+    }
+}
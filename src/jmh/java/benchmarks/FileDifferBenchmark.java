@@ -0,0 +1,76 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import utils.DiffAlgorithm;
+import utils.DiffResult;
+import utils.FileDiffer;
+import utils.RawText;
+
+/**
+ * Line diffs of one file, by size, share of changed lines and algorithm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FileDifferBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int lines;
+
+    // share of lines replaced, deleted or inserted
+    @Param({"0.001", "0.01"})
+    public double changeRate;
+
+    @Param({"MYERS", "HISTOGRAM"})
+    public DiffAlgorithm algorithm;
+
+    private String original;
+    private String revised;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(lines);
+        original = BenchmarkRepo.text(random, lines);
+        RawText text = RawText.of(original);
+        StringBuilder changed = new StringBuilder(original.length());
+        for (int i = 0; i < text.size(); i++) {
+            if (random.nextDouble() >= changeRate) {
+                changed.append(text.line(i)).append('\n');
+                continue;
+            }
+            switch (random.nextInt(3)) {
+                case 0: // replaced
+                    changed.append("    changed").append(i).append(";\n");
+                    break;
+                case 1: // inserted before
+                    changed.append("    inserted").append(i).append(";\n").append(text.line(i)).append('\n');
+                    break;
+                default: // deleted
+                    break;
+            }
+        }
+        revised = changed.toString();
+    }
+
+    @Benchmark
+    public DiffResult calculateDiff() {
+        return new FileDiffer(algorithm).calculateDiff(original, revised);
+    }
+}
@@ -0,0 +1,63 @@
+package benchmarks;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import utils.MergeUtils;
+import utils.ReferenceManager;
+import utils.RepoGenerator;
+
+/**
+ * Finding the merge base of main and a topic branch in a generated history with several topics
+ * that are merged into main now and then.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class HistoryBenchmark {
+
+    @Param({"1000", "10000"})
+    public int commits;
+
+    private String main;
+    private String topic;
+    private PrintStream stdout;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkRepo.init();
+        BenchmarkRepo.generate(new RepoGenerator().seed(1).files(100).depth(1).fileSize(256, 0.5, 4096)
+                .commits(commits).branches(4).mergeRate(0.02).churn(0.02).checkout(false));
+        ReferenceManager refs = new ReferenceManager();
+        main = refs.getBranchCommit("main");
+        topic = refs.getBranchCommit("topic-1");
+        // the walk reports its progress on System.out
+        stdout = BenchmarkRepo.discardOutput();
+    }
+
+    @TearDown
+    public void restoreOutput() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public String findCommonAncestor() throws Exception {
+        return MergeUtils.findCommonAncestor(main, topic);
+    }
+}
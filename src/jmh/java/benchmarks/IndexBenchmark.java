@@ -0,0 +1,61 @@
+package benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import objects.IndexEntry;
+import utils.IndexManager;
+
+/**
+ * Reading and writing the index, which nearly every command does once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class IndexBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int entries;
+
+    private IndexManager index;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkRepo.init();
+        List<IndexEntry> indexEntries = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            String sha = BenchmarkRepo.sha1(("file " + i).getBytes(StandardCharsets.UTF_8));
+            indexEntries.add(new IndexEntry("100644", sha, "src/module" + (i % 100) + "/pkg" + (i % 7) + "/File" + i + ".java"));
+        }
+        index = new IndexManager();
+        index.setEntries(indexEntries);
+        index.writeIndex();
+    }
+
+    @Benchmark
+    public int readIndex() throws Exception {
+        return new IndexManager().getIndexEntries().size();
+    }
+
+    @Benchmark
+    public void writeIndex() throws Exception {
+        index.writeIndex();
+    }
+}
@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import utils.CommandHandler;
+import utils.Pathspec;
+import utils.RepoGenerator;
+
+/**
+ * Status of a clean checkout of a generated repository: walking the working directory, hashing
+ * every file and comparing it with the index and HEAD.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class StatusBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int files;
+
+    private PrintStream stdout;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkRepo.init();
+        BenchmarkRepo.generate(new RepoGenerator().seed(1).files(files).depth(3).fileSize(1024, 1.0, 65536)
+                .commits(10).churn(0.001));
+        stdout = BenchmarkRepo.discardOutput();
+    }
+
+    @TearDown
+    public void restoreOutput() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public void status() throws Exception {
+        CommandHandler.handleStatus(Pathspec.ALL);
+    }
+}
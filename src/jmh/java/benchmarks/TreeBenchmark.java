@@ -0,0 +1,79 @@
+package benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import objects.TreeEntry;
+import objects.TreeObject;
+import utils.Content;
+import utils.ObjectLoader;
+import utils.TreeIterator;
+
+/**
+ * Serializing a tree object (sorting, encoding and hashing its entries) and reading one back,
+ * both into TreeEntry objects and with the allocation-free cursor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TreeBenchmark {
+
+    @Param({"16", "256", "4096"})
+    public int entries;
+
+    private List<TreeEntry> treeEntries;
+    private String treeSha;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkRepo.init();
+        Random random = new Random(entries);
+        treeEntries = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            String sha = BenchmarkRepo.sha1(("object " + i).getBytes(StandardCharsets.UTF_8));
+            boolean tree = random.nextInt(5) == 0;
+            treeEntries.add(new TreeEntry(tree ? "040000" : "100644", tree ? "tree" : "blob", sha,
+                    "entry-" + Integer.toString(random.nextInt(Integer.MAX_VALUE), 36) + "-" + i));
+        }
+        TreeObject tree = new TreeObject(new ArrayList<>(treeEntries));
+        treeSha = tree.getSha1Id();
+        Content.writeObject(treeSha, tree.serializeContentToBytes());
+    }
+
+    @Benchmark
+    public String serializeTree() {
+        return new TreeObject(new ArrayList<>(treeEntries)).getSha1Id();
+    }
+
+    @Benchmark
+    public TreeObject loadTree() throws Exception {
+        return ObjectLoader.loadTree(treeSha);
+    }
+
+    @Benchmark
+    public void iterateTree(Blackhole blackhole) throws Exception {
+        TreeIterator tree = TreeIterator.forTree(treeSha);
+        while (tree.next()) {
+            blackhole.consume(tree.nameLength());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import objects.CommitObject;
+import utils.MergeUtils;
+import utils.ObjectLoader;
+import utils.RepoGenerator;
+import utils.TreeDiffResult;
+
+/**
+ * Comparing the trees of a generated commit and its parent, in which a share of the files
+ * changed. Unchanged subtrees are skipped by SHA-1, so the cost should follow the number of
+ * changes more than the tree size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TreeDiffBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int files;
+
+    @Param({"0.001", "0.01"})
+    public double churn;
+
+    private String before;
+    private String after;
+
+    @Setup
+    public void setup() throws Exception {
+        BenchmarkRepo.init();
+        RepoGenerator.Result result = BenchmarkRepo.generate(new RepoGenerator().seed(1).files(files).depth(3)
+                .fileSize(256, 0.5, 4096).commits(2).churn(churn).checkout(false));
+        CommitObject head = ObjectLoader.loadCommit(result.head);
+        after = head.getTreeSha1();
+        before = ObjectLoader.loadCommit(head.getParentSha1s().get(0)).getTreeSha1();
+    }
+
+    @Benchmark
+    public TreeDiffResult diffTrees() throws Exception {
+        return MergeUtils.diffTrees(before, after);
+    }
+}
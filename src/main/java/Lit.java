@@ -1,11 +1,17 @@
 import commands.AddCommand;
 import commands.BranchCommand;
 import commands.CommitCommand;
+import commands.CountObjectsCommand;
 import commands.DiffCommand;
+import commands.FsckCommand;
+import commands.GcCommand;
+import commands.GenerateCommand;
 import commands.InitCommand;
 import commands.LogCommand;
 import commands.MergeCommand;
+import commands.MergeTreeCommand;
 import commands.RmCommand;
+import commands.SparseCheckoutCommand;
 import commands.StatusCommand;
 import commands.SwitchCommand;
 import picocli.CommandLine;
@@ -25,9 +31,15 @@ import picocli.CommandLine.Command;
         SwitchCommand.class,
         RmCommand.class,
         MergeCommand.class,
+        MergeTreeCommand.class,
         StatusCommand.class,
         LogCommand.class,
-        DiffCommand.class
+        DiffCommand.class,
+        GcCommand.class,
+        CountObjectsCommand.class,
+        FsckCommand.class,
+        SparseCheckoutCommand.class,
+        GenerateCommand.class
     }
 )
 public class Lit implements Runnable {
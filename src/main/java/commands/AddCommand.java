@@ -1,5 +1,6 @@
 package commands;
 
+import java.util.List;
 import java.util.concurrent.Callable;
 
 import picocli.CommandLine.Command;
@@ -13,15 +14,15 @@ import utils.CommandHandler;
 public class AddCommand implements Callable<Integer> {
 
     @Parameters(
-        index = "0", // The first parameter after the command name
-        description = "The path to the file to add."
+        arity = "1..*",
+        description = "Files to add, or pathspecs (directories and globs such as 'src/**/*.java') selecting the files to add."
     )
-    private String filePath; 
+    private List<String> pathspecs;
 
     @Override
     public Integer call() throws Exception {
-        // calling the existing method with the filePath from user
-        CommandHandler.handleAdd(filePath);
+        // calling the existing method with the pathspecs from user
+        CommandHandler.handleAdd(pathspecs);
         return 0; 
     }
 }
\ No newline at end of file
@@ -6,15 +6,19 @@ import picocli.CommandLine.Command;
 import picocli.CommandLine.Parameters;
 import utils.CommandHandler;
 
-@Command(name = "branch", description = "Create a new branch.")
+@Command(name = "branch", description = "Create a new branch, or list branches when no name is given.")
 public class BranchCommand implements Callable<Integer> {
 
-    @Parameters(index = "0", description = "The name of the branch to create.")
+    @Parameters(index = "0", arity = "0..1", description = "The name of the branch to create.")
     private String branchName;
 
     @Override
     public Integer call() throws Exception {
-        CommandHandler.handleBranch(branchName);
+        if (branchName == null) {
+            CommandHandler.handleBranchList();
+        } else {
+            CommandHandler.handleBranch(branchName);
+        }
         return 0;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,19 @@
+package commands;
+
+import java.util.concurrent.Callable;
+
+import picocli.CommandLine.Command;
+import utils.CommandHandler;
+
+@Command(
+    name = "count-objects",
+    description = "Count objects and show how many of them are reachable."
+)
+public class CountObjectsCommand implements Callable<Integer> {
+
+    @Override
+    public Integer call() throws Exception {
+        CommandHandler.handleCountObjects();
+        return 0;
+    }
+}
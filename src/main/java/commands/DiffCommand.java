@@ -1,9 +1,18 @@
 package commands;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
 import utils.CommandHandler;
+import utils.DiffAlgorithm;
+import utils.DiffOptions;
+import utils.Pathspec;
+import utils.RenameDetector;
 
 @Command(
     name = "diff",
@@ -11,17 +20,81 @@ import utils.CommandHandler;
 )
 public class DiffCommand implements Callable<Integer> {
 
-    @Parameters(index = "0", arity = "0..2", description = "The commit(s) or file to diff.")
-    private String[] params = {};
+    @Parameters(arity = "0..*", paramLabel = "<commit> [--] <pathspec>",
+            description = "Up to two commits to diff, then, after --, the paths to limit the diff to.")
+    private List<String> params = new ArrayList<>();
+
+    @Spec
+    private CommandSpec spec;
+
+    @Option(names = {"-M", "--find-renames"}, paramLabel = "<n>",
+            description = "Minimum similarity in percent for a deleted and an added file to show as a rename (default: ${DEFAULT-VALUE}).")
+    private int renameThreshold = RenameDetector.DEFAULT_THRESHOLD;
+
+    @Option(names = {"-C", "--find-copies"}, description = "Also show added files that copy a deleted or modified file.")
+    private boolean findCopies;
+
+    @Option(names = "--no-renames", description = "Show renamed files as deleted and added.")
+    private boolean noRenames;
+
+    @Option(names = {"-U", "--unified"}, paramLabel = "<n>",
+            description = "Number of unchanged lines shown around each change (default: ${DEFAULT-VALUE}).")
+    private int context = DiffOptions.DEFAULT_CONTEXT;
+
+    @Option(names = "--diff-algorithm", paramLabel = "<algorithm>",
+            description = "myers or histogram (default: histogram for large files, myers otherwise).")
+    private String algorithm;
+
+    @Option(names = "--stat", description = "Show the number of inserted and deleted lines per file.")
+    private boolean stat;
+
+    @Option(names = "--name-only", description = "Show only the paths of changed files.")
+    private boolean nameOnly;
+
+    @Option(names = "--name-status", description = "Show the paths of changed files and how they changed.")
+    private boolean nameStatus;
+
+    @Option(names = {"-j", "--jobs"}, description = "Number of threads that load and diff files.")
+    private int jobs = Runtime.getRuntime().availableProcessors();
 
     @Override
     public Integer call() throws Exception {
-        if (params.length == 0) {
-            CommandHandler.handleDiffIndexAndWorkingDir();
-        } else if (params.length == 1) {
-            CommandHandler.handleDiffCommitAndWorkingDir(params[0]);
-        } else if (params.length == 2) {
-            CommandHandler.handleDiffCommits(params[0], params[1]);
+        DiffOptions.Format format = nameOnly ? DiffOptions.Format.NAME_ONLY
+            : nameStatus ? DiffOptions.Format.NAME_STATUS
+            : stat ? DiffOptions.Format.STAT
+            : DiffOptions.Format.PATCH;
+        DiffOptions options = new DiffOptions()
+            .format(format)
+            .context(context)
+            .threads(Math.max(1, jobs))
+            .renameDetector(noRenames ? null : new RenameDetector(renameThreshold, findCopies, jobs));
+        if (algorithm != null) {
+            try {
+                options.algorithm(DiffAlgorithm.parse(algorithm));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Error: unknown diff algorithm '" + algorithm + "' (use myers or histogram).");
+                return 1;
+            }
+        }
+
+        // picocli drops the "--", so the pathspecs are counted from where it was in the arguments
+        List<String> args = spec.commandLine().getParseResult().originalArgs();
+        int separator = args.indexOf("--");
+        int pathCount = separator < 0 ? 0 : args.size() - separator - 1;
+        List<String> commits = params.subList(0, params.size() - pathCount);
+        try {
+            options.pathspec(Pathspec.parse(params.subList(params.size() - pathCount, params.size())));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        }
+
+        if (commits.size() == 0) {
+            CommandHandler.handleDiffIndexAndWorkingDir(options);
+        } else if (commits.size() == 1) {
+            CommandHandler.handleDiffCommitAndWorkingDir(commits.get(0), options);
+        } else if (commits.size() == 2) {
+            CommandHandler.handleDiffCommits(commits.get(0), commits.get(1), options);
         } else {
             System.err.println("Error: Invalid number of arguments for 'diff' command.");
             return 1;
@@ -0,0 +1,25 @@
+package commands;
+
+import java.util.concurrent.Callable;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import utils.CommandHandler;
+
+@Command(
+    name = "fsck",
+    description = "Verify the integrity and connectivity of the objects in the repository."
+)
+public class FsckCommand implements Callable<Integer> {
+
+    @Option(names = {"-j", "--jobs"}, description = "Number of threads used to hash and walk objects.")
+    private int jobs = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = "--no-dangling", description = "Do not list objects that nothing refers to.")
+    private boolean noDangling;
+
+    @Override
+    public Integer call() throws Exception {
+        return CommandHandler.handleFsck(jobs, !noDangling) ? 0 : 1;
+    }
+}
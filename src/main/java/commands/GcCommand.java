@@ -0,0 +1,33 @@
+package commands;
+
+import java.util.concurrent.Callable;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import utils.CommandHandler;
+import utils.GarbageCollector;
+
+@Command(
+    name = "gc",
+    description = "Prune unreachable objects and optimize the local repository."
+)
+public class GcCommand implements Callable<Integer> {
+
+    @Option(names = "--grace-seconds", description = "Keep unreachable objects modified within this many seconds (default: two weeks).")
+    private long graceSeconds = GarbageCollector.DEFAULT_GRACE_SECONDS;
+
+    @Option(names = "--prune-now", description = "Prune every unreachable object regardless of its age.")
+    private boolean pruneNow;
+
+    @Option(names = {"-j", "--jobs"}, description = "Number of threads used to mark reachable objects.")
+    private int jobs = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = {"-n", "--dry-run"}, description = "Only report what would be pruned.")
+    private boolean dryRun;
+
+    @Override
+    public Integer call() throws Exception {
+        CommandHandler.handleGc(pruneNow ? 0 : graceSeconds, jobs, dryRun);
+        return 0;
+    }
+}
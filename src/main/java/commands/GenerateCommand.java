@@ -0,0 +1,71 @@
+package commands;
+
+import java.util.concurrent.Callable;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import utils.CommandHandler;
+import utils.RepoGenerator;
+
+@Command(
+    name = "generate",
+    description = "Generate a synthetic history into an empty repository, for scale tests and benchmarks."
+)
+public class GenerateCommand implements Callable<Integer> {
+
+    @Option(names = "--seed", description = "Seed of every random choice; the same options and seed give the same history.")
+    private long seed = 1;
+
+    @Option(names = "--files", description = "Number of files in the first commit (default: 1000).")
+    private int files = 1000;
+
+    @Option(names = "--depth", description = "Depth of the directory tree the files are spread over (default: 2).")
+    private int depth = 2;
+
+    @Option(names = "--fan-out", description = "Subdirectories per directory (default: 10).")
+    private int fanOut = 10;
+
+    @Option(names = "--file-size", description = "Median file size in bytes (default: 2048).")
+    private int fileSize = 2048;
+
+    @Option(names = "--size-spread", description = "Spread of the log-normal file sizes; 0 makes all files the same size (default: 1.0).")
+    private double sizeSpread = 1.0;
+
+    @Option(names = "--max-file-size", description = "Largest file size in bytes (default: 1048576).")
+    private int maxFileSize = 1024 * 1024;
+
+    @Option(names = "--commits", description = "Number of commits, including the first and the merges (default: 100).")
+    private int commits = 100;
+
+    @Option(names = "--branches", description = "Number of topic branches besides main (default: 0).")
+    private int branches;
+
+    @Option(names = "--merge-rate", description = "Chance that a topic with changes is merged into main instead of committed to (default: 0.1).")
+    private double mergeRate = 0.1;
+
+    @Option(names = "--churn", description = "Share of the files each later commit changes (default: 0.01).")
+    private double churn = 0.01;
+
+    @Option(names = "--no-checkout", description = "Do not write main into the working directory and index.")
+    private boolean noCheckout;
+
+    @Option(names = {"-j", "--jobs"}, description = "Number of threads used to write the first commit's files.")
+    private int jobs = Runtime.getRuntime().availableProcessors();
+
+    @Override
+    public Integer call() throws Exception {
+        RepoGenerator generator = new RepoGenerator()
+                .seed(seed)
+                .files(files)
+                .depth(depth)
+                .fanOut(fanOut)
+                .fileSize(fileSize, sizeSpread, maxFileSize)
+                .commits(commits)
+                .branches(branches)
+                .mergeRate(mergeRate)
+                .churn(churn)
+                .checkout(!noCheckout)
+                .threads(jobs);
+        return CommandHandler.handleGenerate(generator) ? 0 : 1;
+    }
+}
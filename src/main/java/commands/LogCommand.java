@@ -3,6 +3,7 @@ package commands;
 import java.util.concurrent.Callable;
 
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
 import utils.CommandHandler;
 
 @Command(
@@ -11,9 +12,12 @@ import utils.CommandHandler;
 )
 public class LogCommand implements Callable<Integer> {
 
+    @Option(names = "--follow", paramLabel = "<file>", description = "Only show commits that changed the file, following it across renames.")
+    private String followPath;
+
     @Override
     public Integer call() throws Exception {
-        CommandHandler.handleLog();
+        CommandHandler.handleLog(followPath);
         return 0;
     }
-}
\ No newline at end of file
+}
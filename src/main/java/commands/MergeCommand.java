@@ -8,6 +8,7 @@ import picocli.CommandLine.Parameters;
 import utils.CommandHandler;
 import utils.MergeResult;
 import utils.MergeUtils;
+import utils.ReachabilityBitmaps;
 import utils.ReferenceManager;
 
 @Command(
@@ -53,7 +54,7 @@ public class MergeCommand implements Callable<Integer> {
         }
         
         // Handle the case of a fast-forward merge where no new commit is needed.
-        if (headCommitSha.equals(MergeUtils.findCommonAncestor(headCommitSha, otherCommitSha))) {
+        if (ReachabilityBitmaps.load().isAncestor(headCommitSha, otherCommitSha)) {
             System.out.println("Fast-forwarding...");
             refManager.updateHead(otherCommitSha);
             CommandHandler.handleSwitch(branchName);
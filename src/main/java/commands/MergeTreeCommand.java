@@ -0,0 +1,25 @@
+package commands;
+
+import java.util.concurrent.Callable;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Parameters;
+import utils.CommandHandler;
+
+@Command(
+    name = "merge-tree",
+    description = "Merge two branches in the object database and print the resulting tree, without touching the working directory or the index."
+)
+public class MergeTreeCommand implements Callable<Integer> {
+
+    @Parameters(index = "0", description = "The branch or commit merged into.")
+    private String ours;
+
+    @Parameters(index = "1", description = "The branch or commit to merge.")
+    private String theirs;
+
+    @Override
+    public Integer call() throws Exception {
+        return CommandHandler.handleMergeTree(ours, theirs) ? 0 : 1;
+    }
+}
@@ -0,0 +1,32 @@
+package commands;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import utils.CommandHandler;
+
+@Command(
+    name = "sparse-checkout",
+    description = "Limit the working directory to a set of directories (set <dir>..., list, disable)."
+)
+public class SparseCheckoutCommand implements Callable<Integer> {
+
+    @Parameters(index = "0", description = "set, list or disable.")
+    private String action;
+
+    @Parameters(index = "1..*", arity = "0..*", description = "Directories to check out, for 'set'.")
+    private List<String> directories = new ArrayList<>();
+
+    @Option(names = {"-j", "--jobs"}, description = "Number of threads that write files into the working directory.")
+    private int jobs = Runtime.getRuntime().availableProcessors();
+
+    @Override
+    public Integer call() throws Exception {
+        CommandHandler.handleSparseCheckout(action, directories, jobs);
+        return 0;
+    }
+}
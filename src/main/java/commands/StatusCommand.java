@@ -1,9 +1,13 @@
 package commands;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
 
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Parameters;
 import utils.CommandHandler;
+import utils.Pathspec;
 
 @Command(
     name = "status",
@@ -11,9 +15,19 @@ import utils.CommandHandler;
 )
 public class StatusCommand implements Callable<Integer> {
 
+    @Parameters(arity = "0..*", paramLabel = "<pathspec>", description = "Only show the status of these paths.")
+    private List<String> pathspecs = new ArrayList<>();
+
     @Override
     public Integer call() throws Exception {
-        CommandHandler.handleStatus();
+        Pathspec pathspec;
+        try {
+            pathspec = Pathspec.parse(pathspecs);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        }
+        CommandHandler.handleStatus(pathspec);
         return 0; 
     }
 }
\ No newline at end of file
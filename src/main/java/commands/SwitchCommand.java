@@ -3,6 +3,7 @@ package commands;
 import java.util.concurrent.Callable;
 
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 import utils.CommandHandler;
 
@@ -12,9 +13,12 @@ public class SwitchCommand implements Callable<Integer> {
     @Parameters(index = "0", description = "The branch or commit to switch to.")
     private String targetRef;
 
+    @Option(names = {"-j", "--jobs"}, description = "Number of threads that write files into the working directory.")
+    private int jobs = Runtime.getRuntime().availableProcessors();
+
     @Override
     public Integer call() throws Exception {
-        CommandHandler.handleSwitch(targetRef);
+        CommandHandler.handleSwitch(targetRef, jobs);
         return 0;
     }
 }
\ No newline at end of file
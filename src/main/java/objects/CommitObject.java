@@ -5,6 +5,7 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.List;
 
 import utils.Content;
@@ -16,6 +17,7 @@ public class CommitObject {
     private final String authorName;
     private final String authorEmail;
     private final long authorTimestamp;
+    private final String timezone;
     private final String commitMessage;
     private final String commitSha1;
 
@@ -34,12 +36,26 @@ public class CommitObject {
 
     // new constructor for multiple parents
     public CommitObject(String treeSha1, List<String> parentSha1s, String authorName, String authorEmail, String commitMessage) {
+        this(treeSha1, parentSha1s, authorName, authorEmail, commitMessage, Instant.now().getEpochSecond(),
+                ZoneId.systemDefault().getRules().getOffset(Instant.now()));
+    }
+
+    /**
+     * Constructs a commit with a given time, so that the same content always gives the same SHA-1,
+     * e.g. for generated repositories.
+     *
+     * @param authorTimestamp seconds since the epoch
+     * @param timezone        offset recorded next to the timestamp
+     */
+    public CommitObject(String treeSha1, List<String> parentSha1s, String authorName, String authorEmail, String commitMessage,
+                        long authorTimestamp, ZoneOffset timezone) {
         this.treeSha1 = treeSha1;
         this.parentSha1s = parentSha1s;
         this.authorName = authorName;
         this.authorEmail = authorEmail;
         this.commitMessage = commitMessage;
-        this.authorTimestamp = Instant.now().getEpochSecond();
+        this.authorTimestamp = authorTimestamp;
+        this.timezone = timezone.toString();
         this.commitSha1 = calculateCommitSha1();
     }
 
@@ -47,7 +63,7 @@ public class CommitObject {
      * Serializes the commit data into the format used by Git for hashing.
      * @return The commit content as a byte array.
      */
-    private byte[] serializeContentToBytes() {
+    public byte[] serializeContentToBytes() {
         StringBuilder content = new StringBuilder();
         content.append("tree ").append(this.treeSha1).append("\n");
 
@@ -61,7 +77,6 @@ public class CommitObject {
         }
 
         // Use a consistent format for author
-        String timezone = ZoneId.systemDefault().getRules().getOffset(Instant.now()).toString();
         content.append("author ").append(this.authorName).append(" <").append(this.authorEmail).append("> ").append(this.authorTimestamp).append(" ").append(timezone).append("\n");
         content.append("committer ").append(this.authorName).append(" <").append(this.authorEmail).append("> ").append(this.authorTimestamp).append(" ").append(timezone).append("\n");
         
@@ -128,7 +143,6 @@ public class CommitObject {
     
     public String getAuthor() {
         // The author string is fully constructed in the constructor, so we just need to return it
-        String timezone = ZoneId.systemDefault().getRules().getOffset(Instant.now()).toString();
         return String.format("%s <%s> %d %s", this.authorName, this.authorEmail, this.authorTimestamp, timezone);
     }
 
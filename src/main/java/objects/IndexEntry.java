@@ -4,8 +4,27 @@ public class IndexEntry {
     private final String mode;
     private final String sha1;
     private final String filePath; // Relative path to the repository root
+    private final boolean skipWorktree; // outside the sparse-checkout cone, so not in the working directory
+    private final int stage; // 0 for a normal entry; 1, 2 and 3 for the base, ours and theirs of a conflict
+
+    public static final int STAGE_BASE = 1;
+    public static final int STAGE_OURS = 2;
+    public static final int STAGE_THEIRS = 3;
 
     public IndexEntry(String mode, String sha1, String filePath) {
+        this(mode, sha1, filePath, false, 0);
+    }
+
+    public IndexEntry(String mode, String sha1, String filePath, boolean skipWorktree) {
+        this(mode, sha1, filePath, skipWorktree, 0);
+    }
+
+    // one side of an unresolved merge conflict at filePath
+    public IndexEntry(String mode, String sha1, String filePath, int stage) {
+        this(mode, sha1, filePath, false, stage);
+    }
+
+    private IndexEntry(String mode, String sha1, String filePath, boolean skipWorktree, int stage) {
         if (mode == null || mode.isEmpty()) {
             throw new IllegalArgumentException("Mode cannot be null or empty.");
         }
@@ -15,10 +34,15 @@ public class IndexEntry {
         if (filePath == null || filePath.isEmpty()) {
             throw new IllegalArgumentException("File path cannot be null or empty.");
         }
+        if (stage < 0 || stage > STAGE_THEIRS) {
+            throw new IllegalArgumentException("Stage must be between 0 and 3.");
+        }
 
         this.mode = mode;
         this.sha1 = sha1;
         this.filePath = filePath;
+        this.skipWorktree = skipWorktree;
+        this.stage = stage;
     }
 
     public String getMode() {
@@ -37,17 +61,53 @@ public class IndexEntry {
         return "0".equals(sha1);
     }
 
+    public boolean isSkipWorktree() {
+        return skipWorktree;
+    }
+
+    public int getStage() {
+        return stage;
+    }
+
+    public boolean isConflicted() {
+        return stage != 0;
+    }
+
+    public IndexEntry withSkipWorktree(boolean skip) {
+        return skip == skipWorktree ? this : new IndexEntry(mode, sha1, filePath, skip, stage);
+    }
+
+    // entries with flags get a leading "+<flags>" field, e.g. "+s 100644 <sha1> docs/guide.md",
+    // where a digit is the conflict stage, e.g. "+2 100644 <sha1> src/Main.java"
     @Override
     public String toString() {
-        return String.format("%s %s %s", mode, sha1, filePath);
+        String line = String.format("%s %s %s", mode, sha1, filePath);
+        String flags = (skipWorktree ? "s" : "") + (stage != 0 ? String.valueOf(stage) : "");
+        return flags.isEmpty() ? line : "+" + flags + " " + line;
     }
 
     public static IndexEntry fromString(String line) {
+        boolean skipWorktree = false;
+        int stage = 0;
+        if (line.startsWith("+")) {
+            int space = line.indexOf(' ');
+            if (space < 0) {
+                throw new IllegalArgumentException("Invalid index entry format: " + line);
+            }
+            for (char flag : line.substring(1, space).toCharArray()) {
+                if (flag == 's') {
+                    skipWorktree = true;
+                } else if (flag >= '1' && flag <= '3') {
+                    stage = flag - '0';
+                }
+            }
+            line = line.substring(space + 1);
+        }
         String[] parts = line.split(" ", 3); // Split into 3 parts: mode, sha1, filePath
         if (parts.length != 3) {
             throw new IllegalArgumentException("Invalid index entry format: " + line);
         }
-        return new IndexEntry(parts[0], parts[1], parts[2]);
+        return new IndexEntry(parts[0], parts[1], parts[2], skipWorktree, stage);
     }
 
     @Override
@@ -55,13 +115,13 @@ public class IndexEntry {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         IndexEntry that = (IndexEntry) o;
-        // Two IndexEntries are considered equal if their file paths are the same.
+        // Two IndexEntries are considered equal if their file paths (and conflict stages) are the same.
         // This is crucial for updating entries based on file path.
-        return filePath.equals(that.filePath);
+        return filePath.equals(that.filePath) && stage == that.stage;
     }
 
     @Override
     public int hashCode() {
-        return filePath.hashCode();
+        return filePath.hashCode() * 31 + stage;
     }
 }
\ No newline at end of file
@@ -31,7 +31,10 @@ public class TreeObject {
         return entries;
     }
 
-    private byte[] serializeContentToBytes() {
+    /**
+     * @return the tree as it is stored in the object database
+     */
+    public byte[] serializeContentToBytes() {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
 
         try {
@@ -0,0 +1,92 @@
+package utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tells binary files from text before their content is loaded, so that diff and merge never turn
+ * an image or an archive into a string.
+ *
+ * Only the start of a file is read: it is binary if that part has a NUL byte or is not valid
+ * UTF-8. Files larger than BIG_FILE_THRESHOLD are treated as binary without looking: diff and merge
+ * load both sides of a text file as Strings and intern every line, which takes several times the
+ * file size in memory and, for a generated file or a data dump, minutes of diffing for output nobody
+ * reads. Such files get the one-line "Binary files differ" treatment and keep one side when merged.
+ * A blob's SHA-1 identifies its content, so the answer is cached by SHA-1 and each blob is read at
+ * most once per process.
+ */
+public class BinaryDetector {
+
+    // bytes read from the start of a file to classify it
+    public static final int SNIFF_LENGTH = 8000;
+
+    // larger files are never loaded as text, whatever they contain
+    public static final long BIG_FILE_THRESHOLD = 32L * 1024 * 1024;
+
+    private static final int MAX_CACHED = 100_000;
+    private static final Map<String, Boolean> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * @return true if the first length bytes of content have a NUL byte or are not valid UTF-8;
+     *         a character cut off at the end does not count as invalid
+     */
+    public static boolean isBinary(byte[] content, int length) {
+        for (int i = 0; i < length; i++) {
+            if (content[i] == 0) {
+                return true;
+            }
+        }
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer in = ByteBuffer.wrap(content, 0, length);
+        CharBuffer out = CharBuffer.allocate(Math.max(16, length));
+        CoderResult result = decoder.decode(in, out, false);
+        return result.isError();
+    }
+
+    // whether the stored blob with the given SHA-1 is binary
+    public static boolean isBinaryBlob(String sha) throws IOException {
+        return isBinary(sha, ObjectLoader.objectPath(sha));
+    }
+
+    // whether a working directory file, whose content hashes to sha, is binary
+    public static boolean isBinaryFile(Path file, String sha) throws IOException {
+        return isBinary(sha, file);
+    }
+
+    private static boolean isBinary(String sha, Path file) throws IOException {
+        Boolean cached = CACHE.get(sha);
+        if (cached != null) {
+            return cached;
+        }
+        boolean binary = Files.size(file) > BIG_FILE_THRESHOLD || sniff(file);
+        if (CACHE.size() >= MAX_CACHED) {
+            CACHE.clear();
+        }
+        CACHE.put(sha, binary);
+        return binary;
+    }
+
+    private static boolean sniff(Path file) throws IOException {
+        byte[] buffer = new byte[SNIFF_LENGTH];
+        int length = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while (length < buffer.length && (n = in.read(buffer, length, buffer.length - length)) > 0) {
+                length += n;
+            }
+        }
+        return isBinary(buffer, length);
+    }
+}
@@ -4,16 +4,31 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.stream.Stream;
- 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+import objects.BlobObject;
 import objects.CommitObject;
 import objects.IndexEntry;
 import objects.TreeEntry;
-import objects.TreeObject; 
 
 public class CheckoutManager {
 
     public static void checkout(String targetRef) throws IOException, IllegalArgumentException {
+        checkout(targetRef, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Switches the working directory, index and HEAD to targetRef.
+     *
+     * @param workers number of threads that write files into the working directory
+     */
+    public static void checkout(String targetRef, int workers) throws IOException, IllegalArgumentException {
         Path currentWorkingDir = Paths.get("").toAbsolutePath();
         Path litPath = currentWorkingDir.resolve(".lit");
 
@@ -25,10 +40,10 @@ public class CheckoutManager {
 
         String targetCommitSha;
         boolean isTargetBranch = false;
-        Path branchPathFromRef = litPath.resolve("refs").resolve("heads").resolve(targetRef); // Potential branch path
+        String branchCommit = refManager.getBranchCommit(targetRef); // loose or packed branch, null if none
 
-        if (Files.exists(branchPathFromRef) && Files.isRegularFile(branchPathFromRef)) {
-            targetCommitSha = Files.readString(branchPathFromRef).trim();
+        if (branchCommit != null) {
+            targetCommitSha = branchCommit;
             if (targetCommitSha.isEmpty()) {
                 throw new IllegalArgumentException("Branch '" + targetRef + "' exists but points to no commit.");
             }
@@ -47,80 +62,191 @@ public class CheckoutManager {
             throw new IOException("Could not load target commit object: " + targetCommitSha);
         }
         String targetTreeSha = targetCommit.getTreeSha1();
-        TreeObject targetTree = ObjectLoader.loadTree(targetTreeSha);
-        if (targetTree == null) {
-            throw new IOException("Could not load target tree object: " + targetTreeSha + " from commit " + targetCommitSha);
-        }
 
-
-        // Working Directory Reconciliation 
-        System.out.println("Clearing working directory (excluding .lit folder)...");
-        // Iterate through all items in the current working directory
-        try (Stream<Path> walk = Files.list(currentWorkingDir)) {
-            walk.filter(p -> !p.equals(litPath) && !p.equals(Paths.get(currentWorkingDir.toString(), ".git"))) // Exclude .lit and potential .git folders
-                .forEach(p -> {
-                    try {
-                        if (Files.isDirectory(p)) {
-                            WorkingDirManager.deleteDirectory(p); // Recursively delete directories
-                        } else {
-                            WorkingDirManager.deleteFile(p);      // Delete individual files
-                        }
-                    } catch (IOException | RuntimeException e) {
-                        System.err.println("Error deleting " + p + " during checkout: " + e.getMessage());
-                    }
-                });
+        IndexManager indexManager = new IndexManager();
+        if (indexManager.hasConflicts()) {
+            // switching would drop the conflict stages along with the half-merged files
+            throw new IOException("You need to resolve your current index first:\n  "
+                    + String.join("\n  ", indexManager.getConflictedPaths()));
+        }
+        SparseCheckout sparse = SparseCheckout.load(litPath);
+        String currentCommitSha = refManager.getHeadCommit();
+
+        if (currentCommitSha == null) {
+            // Nothing is checked out yet, so every file of the target is new
+            System.out.println("Populating working directory from commit: " + targetCommitSha);
+            List<IndexEntry> entries = new ArrayList<>();
+            try (CheckoutPipeline pipeline = new CheckoutPipeline(workers)) {
+                populate(targetTreeSha, "", currentWorkingDir, sparse, pipeline, entries);
+                pipeline.finish();
+            }
+            indexManager.setEntries(entries);
+        } else {
+            // Only the paths that differ between the two trees are written or deleted
+            String currentTreeSha = ObjectLoader.loadCommit(currentCommitSha).getTreeSha1();
+            TreeDiffResult changes = MergeUtils.diffTrees(currentTreeSha, targetTreeSha);
+            checkForLocalChanges(changes, currentTreeSha, indexManager, sparse, currentWorkingDir);
+            System.out.println("Updating working directory: " + changes.getAddedFiles().size() + " added, "
+                    + changes.getModifiedFiles().size() + " modified, " + changes.getDeletedFiles().size() + " deleted.");
+            applyChanges(changes, indexManager, sparse, currentWorkingDir, workers);
         }
-
-        System.out.println("Reconstructing working directory from commit: " + targetCommitSha);
-        // Recursively reconstruct the working directory based on the targetTree
-        reconstructWorkingDirectory(targetTree, currentWorkingDir);
-
 
         // Update HEAD and Index 
         System.out.println("Updating HEAD...");
         // For now, updating HEAD based on whether targetRef was a branch or direct SHA.
         refManager.setHead(targetRef, isTargetBranch);
 
-        System.out.println("Rebuilding index...");
-        // Rebuild the index based on the new tree.
-        IndexManager indexManager = new IndexManager(); // Loads existing index (now mostly empty)
-        // Clear the current index in memory before rebuilding from the tree
-        indexManager.getIndexEntries().clear(); // Clear existing entries in memory
-        rebuildIndexFromTree(targetTree, indexManager, Paths.get("")); // Pass empty path for initial relative path
-
         indexManager.writeIndex(); 
 
         System.out.println("Switched to '" + targetRef + "' successfully.");
     }
 
-    private static void reconstructWorkingDirectory(TreeObject tree, Path currentPath) throws IOException {
-        for (TreeEntry entry : tree.getEntries()) {
-            Path entryPath = currentPath.resolve(entry.getName());
-            if (entry.getType().equals("blob")) {
-                // It's a file, write its content to the working directory
-                WorkingDirManager.writeBlobToWorkingDir(entry.getObjectSha1Id(), entryPath);
-            } else if (entry.getType().equals("tree")) {
-                // It's a subdirectory, create it and recurse
-                Files.createDirectories(entryPath); // Ensure directory exists
-                TreeObject subTree = ObjectLoader.loadTree(entry.getObjectSha1Id());
-                reconstructWorkingDirectory(subTree, entryPath); // Recursive call for subtree
+    // Refuses the checkout if it would overwrite or delete work that is not in the current commit:
+    // a changed path that is staged or edited differently, or an untracked file where one is added.
+    private static void checkForLocalChanges(TreeDiffResult changes, String currentTreeSha, IndexManager indexManager,
+                                             SparseCheckout sparse, Path workingDir) throws IOException {
+        Map<String, IndexEntry> index = indexManager.getEntryMap();
+        Map<String, String> currentShas = new HashMap<>();
+        Map<String, String> targetShas = new HashMap<>();
+        for (TreeDiffResult.TreeEntryWithPath deleted : changes.getDeletedFiles()) {
+            currentShas.put(deleted.getFullPath(), deleted.getEntry().getObjectSha1Id());
+        }
+        for (TreeDiffResult.TreeEntryWithPath modified : changes.getModifiedFiles()) {
+            targetShas.put(modified.getFullPath(), modified.getEntry().getObjectSha1Id());
+            currentShas.put(modified.getFullPath(), TreeIterator.findBlob(currentTreeSha, modified.getFullPath()));
+        }
+        for (TreeDiffResult.TreeEntryWithPath added : changes.getAddedFiles()) {
+            targetShas.put(added.getFullPath(), added.getEntry().getObjectSha1Id());
+        }
+
+        List<String> conflicts = new ArrayList<>();
+        Set<String> paths = new TreeSet<>(currentShas.keySet());
+        paths.addAll(targetShas.keySet());
+        for (String path : paths) {
+            if (!sparse.includesFile(path)) {
+                continue; // outside the cone, so the working directory is not touched
+            }
+            String current = currentShas.get(path);
+            String target = targetShas.get(path);
+            IndexEntry staged = index.get(path);
+            // a committed removal stays in the index as a "0" entry, which matches a path the commit lacks
+            String stagedSha = staged == null || staged.getSha1().equals("0") ? null : staged.getSha1();
+            if (staged != null && !Objects.equals(stagedSha, current) && !Objects.equals(stagedSha, target)) {
+                conflicts.add(path);
+                continue;
+            }
+            Path file = workingDir.resolve(path);
+            if (Files.isRegularFile(file)) {
+                String actual = new BlobObject(file.toString()).getSha1();
+                if (!actual.equals(current) && !actual.equals(target)) {
+                    conflicts.add(path);
+                }
             }
         }
+
+        if (!conflicts.isEmpty()) {
+            throw new IOException("Your local changes to the following files would be overwritten by checkout:\n  "
+                    + String.join("\n  ", conflicts) + "\nPlease commit them or remove them before you switch.");
+        }
     }
 
-    private static void rebuildIndexFromTree(TreeObject tree, IndexManager indexManager, Path currentRelativePath) throws IOException {
-        for (TreeEntry entry : tree.getEntries()) {
-            Path entryRelativePath = currentRelativePath.resolve(entry.getName());
-            String gitStylePath = entryRelativePath.toString().replace("\\", "/"); // Ensure Git-style path separators
-
-            if (entry.getType().equals("blob")) {
-                // Add blob entry to index
-                indexManager.addEntry(new IndexEntry(entry.getMode(), entry.getObjectSha1Id(), gitStylePath));
-            } else if (entry.getType().equals("tree")) {
-                // Recursively rebuild index for subtree
-                TreeObject subTree = ObjectLoader.loadTree(entry.getObjectSha1Id());
-                rebuildIndexFromTree(subTree, indexManager, entryRelativePath);
+    private static void applyChanges(TreeDiffResult changes, IndexManager indexManager, SparseCheckout sparse,
+                                     Path workingDir, int workers) throws IOException {
+        Map<String, IndexEntry> index = indexManager.getEntryMap();
+
+        // deletions first, so a file replaced by a directory (or the other way round) is out of the way
+        for (TreeDiffResult.TreeEntryWithPath deleted : changes.getDeletedFiles()) {
+            if (sparse.includesFile(deleted.getFullPath())) {
+                Path file = workingDir.resolve(deleted.getFullPath());
+                WorkingDirManager.deleteFile(file);
+                WorkingDirManager.deleteEmptyParents(file.getParent(), workingDir);
+            }
+            index.remove(deleted.getFullPath());
+        }
+
+        List<TreeDiffResult.TreeEntryWithPath> writes = new ArrayList<>(changes.getModifiedFiles());
+        writes.addAll(changes.getAddedFiles());
+        try (CheckoutPipeline pipeline = new CheckoutPipeline(Math.min(workers, Math.max(1, writes.size())))) {
+            for (TreeDiffResult.TreeEntryWithPath write : writes) {
+                TreeEntry entry = write.getEntry();
+                boolean inCone = sparse.includesFile(write.getFullPath());
+                if (inCone) {
+                    pipeline.submit(entry.getObjectSha1Id(), workingDir.resolve(write.getFullPath()));
+                }
+                index.put(write.getFullPath(), new IndexEntry(entry.getMode(), entry.getObjectSha1Id(), write.getFullPath(), !inCone));
             }
+            pipeline.finish();
         }
+
+        // every entry outside the changed paths is kept exactly as it was
+        indexManager.setEntries(new ArrayList<>(index.values()));
+    }
+
+    // walks a tree, queueing every file in the sparse cone for the workers and collecting the index entries;
+    // a pipeline of null means the whole tree is outside the cone and only gets skip-worktree entries
+    private static void populate(String treeSha, String prefix, Path workingDir, SparseCheckout sparse,
+                                 CheckoutPipeline pipeline, List<IndexEntry> entries) throws IOException {
+        TreeIterator tree = TreeIterator.forTree(treeSha);
+        while (tree.next()) {
+            String path = prefix + tree.getName();
+            if (tree.isBlob()) {
+                boolean inCone = pipeline != null && sparse.includesFile(path);
+                if (inCone) {
+                    pipeline.submit(tree.getObjectSha1Id(), workingDir.resolve(path));
+                }
+                entries.add(new IndexEntry(tree.getModeString(), tree.getObjectSha1Id(), path, !inCone));
+            } else {
+                boolean descend = pipeline != null && sparse.mayIncludeDirectory(path);
+                populate(tree.getObjectSha1Id(), path + "/", workingDir, sparse, descend ? pipeline : null, entries);
+            }
+        }
+    }
+
+    /**
+     * Brings the working directory in line with the current sparse-checkout cone: files that left
+     * the cone are removed and flagged skip-worktree, files that entered it are written out. A file
+     * with local modifications is never removed; it keeps its entry as it is and a warning is printed.
+     *
+     * @return the number of files written plus the number removed
+     */
+    public static int applySparseCheckout(int workers) throws IOException {
+        Path workingDir = Paths.get("").toAbsolutePath();
+        SparseCheckout sparse = SparseCheckout.load(workingDir.resolve(".lit"));
+        IndexManager indexManager = new IndexManager();
+        List<IndexEntry> entries = new ArrayList<>();
+        int removed = 0;
+        int written;
+
+        try (CheckoutPipeline pipeline = new CheckoutPipeline(workers)) {
+            for (IndexEntry entry : indexManager.getIndexEntries()) {
+                if (entry.isDeleted()) {
+                    entries.add(entry);
+                    continue;
+                }
+                boolean inCone = sparse.includesFile(entry.getFilePath());
+                Path file = workingDir.resolve(entry.getFilePath());
+                if (inCone && entry.isSkipWorktree()) {
+                    if (!Files.exists(file)) {
+                        pipeline.submit(entry.getSha1(), file);
+                    }
+                    entry = entry.withSkipWorktree(false);
+                } else if (!inCone && !entry.isSkipWorktree()) {
+                    if (Files.isRegularFile(file) && !new BlobObject(file.toString()).getSha1().equals(entry.getSha1())) {
+                        System.err.println("warning: not removing '" + entry.getFilePath() + "': it has local modifications.");
+                    } else {
+                        WorkingDirManager.deleteFile(file);
+                        WorkingDirManager.deleteEmptyParents(file.getParent(), workingDir);
+                        entry = entry.withSkipWorktree(true);
+                        removed++;
+                    }
+                }
+                entries.add(entry);
+            }
+            written = pipeline.finish();
+        }
+
+        indexManager.setEntries(entries);
+        indexManager.writeIndex();
+        return written + removed;
     }
-}
\ No newline at end of file
+}
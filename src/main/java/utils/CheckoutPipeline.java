@@ -0,0 +1,143 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes blobs into the working directory on a pool of worker threads.
+ *
+ * The caller walks the trees and submits one work item per file; the items go through a bounded
+ * queue, so a huge checkout never holds more than a few hundred pending paths in memory and the
+ * walker simply blocks while the workers catch up. Each worker reads the object, creates the
+ * parent directories and writes the file, so reads and writes of different files overlap instead
+ * of waiting on one thread's syscalls.
+ *
+ * Usage:
+ *   try (CheckoutPipeline pipeline = new CheckoutPipeline(threads)) {
+ *       pipeline.submit(blobSha, path);   // for every file
+ *       pipeline.finish();                // waits and reports the first failure
+ *   }
+ */
+public class CheckoutPipeline implements AutoCloseable {
+
+    private static final int QUEUE_SLOTS_PER_WORKER = 64;
+
+    private static class WorkItem {
+        final String blobSha1;
+        final Path target;
+
+        WorkItem(String blobSha1, Path target) {
+            this.blobSha1 = blobSha1;
+            this.target = target;
+        }
+    }
+
+    // tells a worker that no more items will arrive
+    private static final WorkItem END = new WorkItem(null, null);
+
+    private final BlockingQueue<WorkItem> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+    private final AtomicInteger written = new AtomicInteger();
+    private boolean finished;
+
+    public CheckoutPipeline(int threads) {
+        int count = Math.max(1, threads);
+        this.queue = new ArrayBlockingQueue<>(count * QUEUE_SLOTS_PER_WORKER);
+        for (int i = 0; i < count; i++) {
+            Thread worker = new Thread(this::work, "lit-checkout-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Queues a file to be written, blocking while the queue is full.
+     *
+     * @throws IOException if a worker has already failed, so the caller stops walking early
+     */
+    public void submit(String blobSha1, Path target) throws IOException {
+        rethrowFailure();
+        try {
+            queue.put(new WorkItem(blobSha1, target));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while queueing checkout work.", e);
+        }
+    }
+
+    /**
+     * Waits until every queued file is written.
+     *
+     * @return the number of files written
+     * @throws IOException the first error any worker ran into
+     */
+    public int finish() throws IOException {
+        stopWorkers();
+        rethrowFailure();
+        return written.get();
+    }
+
+    private void work() {
+        while (true) {
+            WorkItem item;
+            try {
+                item = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (item == END) {
+                return;
+            }
+            if (failure.get() != null) {
+                continue; // drain the queue so the producer is never left blocked
+            }
+            try {
+                WorkingDirManager.writeBlobToWorkingDir(item.blobSha1, item.target);
+                written.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                failure.compareAndSet(null, e instanceof IOException
+                        ? (IOException) e
+                        : new IOException("Failed to write " + item.target + ": " + e.getMessage(), e));
+            }
+        }
+    }
+
+    private void stopWorkers() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        try {
+            for (int i = 0; i < workers.size(); i++) {
+                queue.put(END);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.forEach(Thread::interrupt);
+            throw new IOException("Interrupted while waiting for checkout workers.", e);
+        }
+    }
+
+    private void rethrowFailure() throws IOException {
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    // stops the workers if finish() was not reached, e.g. because the tree walk failed
+    @Override
+    public void close() throws IOException {
+        stopWorkers();
+    }
+}
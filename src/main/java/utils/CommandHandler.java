@@ -1,12 +1,25 @@
 package utils;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -73,6 +86,15 @@ public class CommandHandler {
             return;
         }
         
+        // Paths outside the sparse-checkout cone are not part of the working directory
+        String indexPath = currentDirectory.relativize(absoluteFilePath).toString().replace("\\", "/");
+        IndexEntry existing = new IndexManager().getEntryMap().get(indexPath);
+        if (existing != null && existing.isSkipWorktree()) {
+            System.err.println("Error: '" + filePathString + "' is outside the sparse-checkout cone; "
+                    + "add its directory with 'lit sparse-checkout set' first.");
+            return;
+        }
+
         // Create BlobObject and get its SHA-1
         BlobObject blob = new BlobObject(filePathString);
         String blobSha1 = blob.getSha1();
@@ -102,6 +124,56 @@ public class CommandHandler {
         System.out.println("File '" + filePathString + "' staged successfully with SHA-1: " + blobSha1);
     }
 
+    /**
+     * Stages every new or modified file that the pathspecs select, e.g. "lit add src/api" or
+     * "lit add '*.java'". Only the directories the pathspecs can reach are walked, and the index is
+     * written once at the end. A single existing file is added as by handleAdd(String).
+     */
+    public static void handleAdd(List<String> pathspecs) throws IOException {
+        if (pathspecs.size() == 1 && Files.isRegularFile(Paths.get(pathspecs.get(0)))) {
+            handleAdd(pathspecs.get(0));
+            return;
+        }
+        Path litPath = Paths.get("").toAbsolutePath().resolve(".lit");
+        if (!Files.exists(litPath) || !Files.isDirectory(litPath)) {
+            System.err.println("Error: Not a Lit repository (or any of the parent directories): .lit");
+            return;
+        }
+
+        Pathspec pathspec;
+        try {
+            pathspec = Pathspec.parse(pathspecs);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            return;
+        }
+        Set<String> files = listFilesRecursive(Paths.get("").toAbsolutePath(), pathspec);
+        if (files.isEmpty()) {
+            System.err.println("Error: pathspec '" + String.join(" ", pathspecs) + "' did not match any files.");
+            return;
+        }
+
+        IndexManager indexManager = new IndexManager();
+        Map<String, IndexEntry> entries = new HashMap<>(indexManager.getEntryMap());
+        int staged = 0;
+        for (String path : files) {
+            IndexEntry existing = entries.get(path);
+            if (existing != null && existing.isSkipWorktree()) {
+                continue; // outside the sparse-checkout cone
+            }
+            BlobObject blob = new BlobObject(path);
+            String blobSha1 = blob.getSha1();
+            if (existing != null && !existing.isDeleted() && blobSha1.equals(existing.getSha1())) {
+                continue; // already staged as it is
+            }
+            blob.save();
+            indexManager.addEntry(new IndexEntry("100644", blobSha1, path));
+            staged++;
+        }
+        indexManager.writeIndex();
+        System.out.println("Staged " + staged + (staged == 1 ? " file." : " files."));
+    }
+
     public static void handleRm(String filePathString) throws IOException {
         Path litPath = Paths.get("").toAbsolutePath().resolve(".lit");
         if (!Files.exists(litPath) || !Files.isDirectory(litPath)) {
@@ -127,7 +199,8 @@ public class CommandHandler {
         
         // Check if file is in the index
         boolean fileInIndex = indexManager.getIndexEntries().stream()
-                .anyMatch(entry -> entry.getFilePath().equals(gitStylePath));
+                .anyMatch(entry -> entry.getFilePath().equals(gitStylePath))
+                || indexManager.getConflictStages(gitStylePath) != null; // removing resolves a conflict
         
         if (!fileInIndex) {
             System.err.println("Error: pathspec '" + filePathString + "' did not match any files in index.");
@@ -158,11 +231,50 @@ public class CommandHandler {
         refManager.createBranch(branchName); // Call the createBranch method in ReferenceManager
     }
 
+    // lists branches with how far each one is ahead of / behind the current HEAD
+    public static void handleBranchList() throws IOException {
+        Path litPath = Paths.get("").toAbsolutePath().resolve(".lit");
+        if (!Files.exists(litPath) || !Files.isDirectory(litPath)) {
+            System.err.println("fatal: not a lit repository (or any of the parent directories)");
+            return;
+        }
+
+        ReferenceManager refManager = new ReferenceManager();
+        String currentBranch = refManager.getCurrentBranch();
+        String headCommitSha = refManager.getHeadCommit();
+
+        ReachabilityBitmaps bitmaps = ReachabilityBitmaps.load();
+        ReachabilityBitmaps.Reachable headReach = headCommitSha != null
+                ? bitmaps.reachableFrom(List.of(headCommitSha))
+                : null;
+
+        List<String> branches = refManager.getAllBranches();
+        Collections.sort(branches);
+        for (String branch : branches) {
+            String sha = refManager.getBranchCommit(branch);
+            String marker = branch.equals(currentBranch) ? "* " : "  ";
+            if (sha == null || sha.isEmpty()) {
+                System.out.println(marker + branch + " (no commits)");
+                continue;
+            }
+            StringBuilder line = new StringBuilder(marker).append(branch).append(" ").append(sha, 0, 7);
+            if (headReach != null && !sha.equals(headCommitSha)) {
+                int[] aheadBehind = bitmaps.aheadBehind(bitmaps.reachableFrom(List.of(sha)), headReach);
+                line.append(" [ahead ").append(aheadBehind[0]).append(", behind ").append(aheadBehind[1]).append("]");
+            }
+            System.out.println(line);
+        }
+    }
+
     public static void handleCommit(String message) throws IOException {
         Path indexPath = Paths.get(".lit/index");
         IndexManager indexManager = new IndexManager();
         List<IndexEntry> indexEntries = indexManager.getIndexEntries();
 
+        if (refuseUnmerged(indexManager)) {
+            return;
+        }
+
         if (indexEntries.isEmpty()) {
             System.out.println("Nothing to commit, working tree clean");
             return;
@@ -184,8 +296,15 @@ public class CommandHandler {
         newCommit.save();
         String newCommitSha = newCommit.getSha1();
 
-        refManager.updateHead(newCommitSha);
-        
+        // fails instead of silently dropping a commit made concurrently on the same branch
+        refManager.updateHead(newCommitSha, parentCommitSha != null ? parentCommitSha : "");
+
+        // the conflicts of the last merge are resolved by a commit that landed, so remember how
+        int recorded = new Rerere(Paths.get("").toAbsolutePath().resolve(".lit")).recordResolutions(indexManager);
+        if (recorded > 0) {
+            System.out.println("Recorded resolution for " + recorded + " conflicted file(s).");
+        }
+
         // Clean up deletion markers from index after successful commit
         List<IndexEntry> remainingEntries = indexEntries.stream()
                 .filter(entry -> !entry.isDeleted())
@@ -196,20 +315,36 @@ public class CommandHandler {
                 Files.delete(indexPath);
             }
         } else {
-            indexManager.getIndexEntries().clear();
-            remainingEntries.forEach(indexManager::addEntry);
+            indexManager.setEntries(remainingEntries);
             indexManager.writeIndex();
         }
 
         System.out.println("Commit " + newCommitSha + " created.");
     }
 
+    // commits cannot be made while the index still has conflict stages; prints the unmerged paths
+    private static boolean refuseUnmerged(IndexManager indexManager) {
+        if (!indexManager.hasConflicts()) {
+            return false;
+        }
+        System.err.println("error: Committing is not possible because you have unmerged files.");
+        for (String path : indexManager.getConflictedPaths()) {
+            System.err.println("  " + path);
+        }
+        System.err.println("hint: Fix them up in the work tree, and then use 'lit add <file>' as appropriate.");
+        return true;
+    }
+
     public static void handleSwitch(String targetRef) throws IOException, IllegalArgumentException {
+        handleSwitch(targetRef, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static void handleSwitch(String targetRef, int workers) throws IOException, IllegalArgumentException {
         Path litPath = Paths.get("").toAbsolutePath().resolve(".lit");
         if (!Files.exists(litPath) || !Files.isDirectory(litPath)) {
             throw new IOException("Error: Not a Lit repository (or any of the parent directories): .lit");
         }
-        CheckoutManager.checkout(targetRef);
+        CheckoutManager.checkout(targetRef, workers);
     }
 
     public static void handleMergeCommit(String message, String otherBranchName) throws IOException {
@@ -222,21 +357,66 @@ public class CommandHandler {
             return;
         }
 
+        IndexManager indexManager = new IndexManager();
+        if (refuseUnmerged(indexManager)) {
+            return;
+        }
+
+        // the merge left its result in the index, so the commit records the index rather than HEAD's tree
         List<String> parents = List.of(currentBranchSha, otherBranchSha);
-        CommitObject currentCommit = ObjectLoader.loadCommit(currentBranchSha);
-        String treeSha = currentCommit.getTreeSha1();
+        TreeObject rootTree = new TreeBuilder().buildTreeFromIndex(indexManager.getIndexEntries());
+        rootTree.save();
+        String treeSha = rootTree.getSha1Id();
 
         String authorName = "User Name";
         String authorEmail = "user@example.com";
         CommitObject mergeCommit = new CommitObject(treeSha, parents, authorName, authorEmail, message);
         
         mergeCommit.save();
-        refManager.updateHead(mergeCommit.getSha1());
+        refManager.updateHead(mergeCommit.getSha1(), currentBranchSha);
 
         System.out.println("Merged " + otherBranchName + " into current branch. New merge commit: " + mergeCommit.getSha1());
     }
 
+    /**
+     * Merges two branches or commits without a working directory, printing the merged tree's SHA-1
+     * followed by one line per conflict.
+     *
+     * @return true if the merge has no conflicts
+     */
+    public static boolean handleMergeTree(String ours, String theirs) throws IOException {
+        Path litPath = Paths.get("").toAbsolutePath().resolve(".lit");
+        if (!Files.exists(litPath) || !Files.isDirectory(litPath)) {
+            System.err.println("fatal: not a lit repository (or any of the parent directories)");
+            return false;
+        }
+
+        ReferenceManager refManager = new ReferenceManager();
+        String oursSha = refManager.getBranchCommit(ours);
+        String theirsSha = refManager.getBranchCommit(theirs);
+        oursSha = oursSha == null ? ours : oursSha;
+        theirsSha = theirsSha == null ? theirs : theirsSha;
+        for (String sha : List.of(oursSha, theirsSha)) {
+            if (!sha.matches("[0-9a-fA-F]{40}") || !Files.exists(ObjectLoader.objectPath(sha))) {
+                System.err.println("Error: Could not find one or both commits.");
+                return false;
+            }
+        }
+
+        MergeResult result = MergeUtils.mergeInMemory(oursSha, theirsSha, ours, theirs);
+        System.out.println(result.getTreeSha());
+        for (MergeConflict conflict : result.getConflicts()) {
+            System.out.println(conflict);
+        }
+        return result.isSuccess();
+    }
+
     public static void handleStatus() throws IOException {
+        handleStatus(Pathspec.ALL);
+    }
+
+    // with a pathspec, only the selected paths are compared, and nothing outside them is read
+    public static void handleStatus(Pathspec pathspec) throws IOException {
         Path litPath = Paths.get("").toAbsolutePath().resolve(".lit");
         if (!Files.exists(litPath) || !Files.isDirectory(litPath)) {
             System.err.println("fatal: not a lit repository (or any of the parent directories)");
@@ -252,17 +432,17 @@ public class CommandHandler {
         if (headCommitSha != null) {
             CommitObject headCommit = ObjectLoader.loadCommit(headCommitSha);
             if (headCommit != null) {
-                TreeObject headTree = ObjectLoader.loadTree(headCommit.getTreeSha1());
-                headTreeEntries = headTree.getEntries().stream()
-                    .collect(Collectors.toMap(
-                        TreeEntry::getName,
-                        TreeEntry::getObjectSha1Id
-                    ));
+                // every file of HEAD in the pathspec, including those in subdirectories
+                headTreeEntries = new HashMap<>();
+                for (Map.Entry<String, TreeEntry> file : MergeUtils.listFiles(headCommit.getTreeSha1(), pathspec).entrySet()) {
+                    headTreeEntries.put(file.getKey(), file.getValue().getObjectSha1Id());
+                }
             }
         }
 
         // map of current index entries for easy lookup
         Map<String, IndexEntry> indexMap = indexManager.getIndexEntries().stream()
+            .filter(entry -> pathspec.matches(entry.getFilePath()))
             .collect(Collectors.toMap(
                 IndexEntry::getFilePath, 
                 entry -> entry
@@ -270,14 +450,20 @@ public class CommandHandler {
 
         // all the files in the working directory
         Path currentDirectory = Paths.get("").toAbsolutePath();
-        Set<String> workingDirFiles = listFilesRecursive(currentDirectory);
+        Set<String> workingDirFiles = listFilesRecursive(currentDirectory, pathspec);
         
         boolean isClean = true;
-        // Check for unmerged paths (conflicts)
-        if (ConflictHandler.hasUnresolvedConflicts()) {
+        // Check for unmerged paths (conflicts), which the index records as stages
+        List<String> conflictedPaths = indexManager.getConflictedPaths().stream()
+            .filter(pathspec::matches)
+            .collect(Collectors.toList());
+        if (!conflictedPaths.isEmpty()) {
             System.out.println("Unmerged paths:");
-            System.out.println("  (fix conflicts and run \"lit commit\")");
-            // conflicthandler would list the files here
+            System.out.println("  (fix conflicts and run \"lit add <file>\", then \"lit commit\")");
+            for (String path : conflictedPaths) {
+                System.out.println("  " + describeConflict(indexManager.getConflictStages(path)) + path);
+                indexMap.put(path, null); // neither untracked nor a staged change
+            }
             isClean = false;
         }
 
@@ -287,6 +473,9 @@ public class CommandHandler {
         Set<String> stagedFiles = indexMap.keySet();
         for (String filePath : stagedFiles) {
             IndexEntry entry = indexMap.get(filePath);
+            if (entry == null || entry.isSkipWorktree()) {
+                continue; // outside the sparse-checkout cone, always identical to HEAD
+            }
 
             // Staged for deletion
             if (entry.isDeleted()) {
@@ -325,7 +514,7 @@ public class CommandHandler {
                 IndexEntry indexEntry = indexMap.get(filePath);
 
                 // File is in the index but modified in the working directory
-                if (indexEntry != null && !workingFileSha.equals(indexEntry.getSha1())) {
+                if (indexEntry != null && !indexEntry.isSkipWorktree() && !workingFileSha.equals(indexEntry.getSha1())) {
                     System.out.println("  modified:   " + filePath);
                     isClean = false;
                 }
@@ -350,21 +539,211 @@ public class CommandHandler {
         }
     }
 
-    // Helper to get a set of all file paths in the current directory and subdirectories.
-    private static Set<String> listFilesRecursive(Path rootDir) throws IOException {
-        Set<String> filePaths = new java.util.HashSet<>();
-        try (Stream<Path> walk = Files.walk(rootDir)) {
-            walk.filter(Files::isRegularFile)
-                .filter(p -> !p.startsWith(rootDir.resolve(".lit")))
-                .forEach(path -> {
-                    String relativePath = rootDir.relativize(path).toString().replace("\\", "/");
-                    filePaths.add(relativePath);
-                });
+    // how the two sides of a conflict differ, padded like the other status labels
+    private static String describeConflict(IndexEntry[] stages) {
+        boolean base = stages[0] != null;
+        boolean ours = stages[1] != null;
+        boolean theirs = stages[2] != null;
+        if (ours && theirs) {
+            return base ? "both modified:   " : "both added:      ";
+        }
+        if (ours) {
+            return base ? "deleted by them: " : "added by us:     ";
+        }
+        return base ? "deleted by us:   " : "added by them:   ";
+    }
+
+    public static void handleSparseCheckout(String action, List<String> directories, int workers) throws IOException {
+        Path litPath = Paths.get("").toAbsolutePath().resolve(".lit");
+        if (!Files.exists(litPath) || !Files.isDirectory(litPath)) {
+            System.err.println("fatal: not a lit repository (or any of the parent directories)");
+            return;
+        }
+
+        switch (action) {
+            case "list":
+                SparseCheckout.load(litPath).getCones().forEach(System.out::println);
+                return;
+            case "set":
+                if (directories.isEmpty()) {
+                    System.err.println("Error: 'sparse-checkout set' needs at least one directory.");
+                    return;
+                }
+                SparseCheckout.write(litPath, directories);
+                break;
+            case "disable":
+                SparseCheckout.disable(litPath);
+                break;
+            default:
+                System.err.println("Error: unknown sparse-checkout action '" + action + "' (use set, list or disable).");
+                return;
+        }
+        int updated = CheckoutManager.applySparseCheckout(workers);
+        System.out.println("Updated " + updated + " paths in the working directory.");
+    }
+
+    public static void handleGc(long graceSeconds, int threads, boolean dryRun) throws IOException {
+        Path litPath = Paths.get("").toAbsolutePath().resolve(".lit");
+        if (!Files.exists(litPath) || !Files.isDirectory(litPath)) {
+            System.err.println("fatal: not a lit repository (or any of the parent directories)");
+            return;
+        }
+
+        GarbageCollector.Result result = GarbageCollector.collect(graceSeconds, threads, dryRun);
+        System.out.println("Marked " + result.reachable + " reachable objects using " + threads
+                + " threads in " + result.markMillis + " ms.");
+        System.out.println((dryRun ? "Would prune " : "Pruned ") + result.pruned + " unreachable objects ("
+                + result.prunedBytes + " bytes reclaimed).");
+        if (result.keptRecent > 0) {
+            System.out.println("Kept " + result.keptRecent + " unreachable objects newer than the grace period.");
+        }
+        if (result.prunedTemporary > 0) {
+            System.out.println((dryRun ? "Would remove " : "Removed ") + result.prunedTemporary
+                    + " temporary files left by interrupted writes.");
+        }
+        if (dryRun) {
+            return;
+        }
+
+        ReferenceManager refManager = new ReferenceManager();
+        System.out.println("Packed " + refManager.packRefs() + " refs.");
+        ReachabilityBitmaps bitmaps = ReachabilityBitmaps.write(refManager.getAllCommitTips());
+        System.out.println("Wrote reachability bitmaps: " + bitmaps.getObjectCount() + " objects, "
+                + bitmaps.getBitmapCount() + " commit bitmaps.");
+    }
+
+    public static void handleCountObjects() throws IOException {
+        Path litPath = Paths.get("").toAbsolutePath().resolve(".lit");
+        if (!Files.exists(litPath) || !Files.isDirectory(litPath)) {
+            System.err.println("fatal: not a lit repository (or any of the parent directories)");
+            return;
+        }
+
+        // the same listing gc uses, so temporary files of interrupted writes are not counted
+        List<Path> looseObjects = GarbageCollector.listObjectFiles();
+        long looseCount = looseObjects.size();
+        long looseBytes = 0;
+        for (Path path : looseObjects) {
+            looseBytes += Files.size(path);
+        }
+
+        ReachabilityBitmaps bitmaps = ReachabilityBitmaps.load();
+        ReachabilityBitmaps.Reachable reachable = bitmaps.reachableFrom(new ReferenceManager().getAllCommitTips());
+
+        System.out.println("count: " + looseCount);
+        System.out.println("size: " + (looseBytes / 1024) + " KiB");
+        System.out.println("in-bitmap-index: " + bitmaps.getObjectCount()
+                + " (commits " + bitmaps.getTypeBitmap(ReachabilityBitmaps.TYPE_COMMIT).cardinality()
+                + ", trees " + bitmaps.getTypeBitmap(ReachabilityBitmaps.TYPE_TREE).cardinality()
+                + ", blobs " + bitmaps.getTypeBitmap(ReachabilityBitmaps.TYPE_BLOB).cardinality() + ")");
+        System.out.println("reachable: " + reachable.size());
+        System.out.println("unreachable: " + Math.max(0, looseCount - reachable.size()));
+    }
+
+    /**
+     * Verifies every object and the connectivity of the history.
+     *
+     * @return true if no corrupt, missing or broken objects were found (dangling objects are not errors)
+     */
+    public static boolean handleFsck(int threads, boolean showDangling) throws IOException {
+        Path litPath = Paths.get("").toAbsolutePath().resolve(".lit");
+        if (!Files.exists(litPath) || !Files.isDirectory(litPath)) {
+            System.err.println("fatal: not a lit repository (or any of the parent directories)");
+            return false;
         }
+
+        // progress goes to stderr and rewrites one line, so it stays out of piped output
+        IntegrityChecker.Result result = IntegrityChecker.check(threads, progress ->
+                System.err.print(String.format("\rChecking objects: %d/%d (%.0f objects/s, %.1f MB/s)",
+                        progress.done, progress.total, progress.objectsPerSecond(), progress.megabytesPerSecond())));
+        System.err.println();
+
+        for (Map.Entry<String, String> corrupt : result.corrupt.entrySet()) {
+            System.out.println("corrupt object " + corrupt.getKey() + " (content hashes to " + corrupt.getValue() + ")");
+        }
+        for (Map.Entry<String, String> broken : result.broken.entrySet()) {
+            System.out.println("broken object " + broken.getKey() + " (" + broken.getValue() + ")");
+        }
+        for (Map.Entry<String, String> missing : result.missing.entrySet()) {
+            System.out.println("missing " + missing.getValue() + " " + missing.getKey());
+        }
+        if (showDangling) {
+            for (String dangling : result.dangling) {
+                System.out.println("dangling object " + dangling);
+            }
+        }
+
+        System.out.println("Checked " + result.objects + " objects (" + (result.bytes / 1024) + " KiB) using "
+                + threads + " threads: hashing " + result.hashMillis + " ms, connectivity " + result.walkMillis + " ms.");
+        return !result.hasErrors();
+    }
+
+    /**
+     * Generates a synthetic history into the repository in the current directory, initializing it
+     * first if there is none. The repository must not have any commits yet.
+     */
+    public static boolean handleGenerate(RepoGenerator generator) throws IOException {
+        if (!Files.isDirectory(Paths.get(".lit"))) {
+            handleInit();
+        }
+
+        RepoGenerator.Result result;
+        try {
+            result = generator.generate(progress ->
+                    System.err.print(String.format("\rGenerating %s: %d/%d (%.1f s)",
+                            progress.phase, progress.done, progress.total, progress.elapsedMillis / 1000.0)));
+        } catch (IOException e) {
+            System.err.println();
+            System.err.println("Error: " + e.getMessage());
+            return false;
+        }
+        System.err.println();
+
+        System.out.println("Generated " + result.commits + " commits (" + result.merges + " merges) over "
+                + result.files + " files with " + result.changes + " later changes in " + result.millis + " ms.");
+        System.out.println("main is at " + result.head);
+        return true;
+    }
+
+    // Helper to get a set of all file paths in the current directory and subdirectories.
+    // files of the working directory that pathspec selects; .lit and directories outside the pathspec are not entered
+    private static Set<String> listFilesRecursive(Path rootDir, Pathspec pathspec) throws IOException {
+        Set<String> filePaths = new TreeSet<>();
+        Path litDir = rootDir.resolve(".lit");
+        Files.walkFileTree(rootDir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (dir.equals(litDir) || !pathspec.mayMatchDirectory(relativePath(rootDir, dir))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                String path = relativePath(rootDir, file);
+                if (attrs.isRegularFile() && pathspec.matches(path)) {
+                    filePaths.add(path);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
         return filePaths;
     }
 
+    private static String relativePath(Path rootDir, Path path) {
+        return rootDir.relativize(path).toString().replace("\\", "/");
+    }
+
     public static void handleLog() throws IOException {
+        handleLog(null);
+    }
+
+    /**
+     * Shows the first-parent history of HEAD. With followPath, only the commits that changed that
+     * file are shown, and the file is followed to its old name across renames.
+     */
+    public static void handleLog(String followPath) throws IOException {
         Path litPath = Paths.get("").toAbsolutePath().resolve(".lit");
         if (!Files.exists(litPath) || !Files.isDirectory(litPath)) {
             System.err.println("fatal: not a lit repository (or any of the parent directories)");
@@ -379,6 +758,8 @@ public class CommandHandler {
             return;
         }
 
+        String path = followPath == null ? null : followPath.replace("\\", "/");
+        RenameDetector renameDetector = new RenameDetector();
         while (currentCommitSha != null) {
             CommitObject commit = ObjectLoader.loadCommit(currentCommitSha);
             if (commit == null) {
@@ -386,10 +767,46 @@ public class CommandHandler {
                 break;
             }
 
-            System.out.println("Commit " + commit.getSha1());
+            String renamedFrom = null;
+            boolean created = false;
+            if (path != null) {
+                String parentSha = commit.getParentSha1s() != null && !commit.getParentSha1s().isEmpty()
+                    ? commit.getParentSha1s().get(0) : null;
+                String parentTree = parentSha == null ? null : ObjectLoader.loadCommit(parentSha).getTreeSha1();
+                String blobSha = TreeIterator.findBlob(commit.getTreeSha1(), path);
+                String parentBlobSha = parentTree == null ? null : TreeIterator.findBlob(parentTree, path);
+
+                if (blobSha == null || blobSha.equals(parentBlobSha)) {
+                    // the file is not changed here; skip the commit
+                    currentCommitSha = parentSha;
+                    continue;
+                }
+                if (parentBlobSha == null && parentTree != null) {
+                    // the file appears in this commit; it may have been renamed from another path
+                    TreeDiffResult changes = MergeUtils.diffTrees(parentTree, commit.getTreeSha1());
+                    renameDetector.detect(changes, parentTree);
+                    for (TreeDiffResult.RenamedFile renamed : changes.getRenamedFiles()) {
+                        if (!renamed.isCopy() && renamed.getTarget().getFullPath().equals(path)) {
+                            renamedFrom = renamed.getSource().getFullPath();
+                        }
+                    }
+                }
+                created = parentBlobSha == null && renamedFrom == null;
+            }
+
+            System.out.println("Commit " + currentCommitSha);
             System.out.println("Author: " + commit.getAuthor()); 
             System.out.println("Date: " + commit.getAuthorTimestamp());
             System.out.println("\n    " + commit.getCommitMessage() + "\n");
+            if (renamedFrom != null) {
+                System.out.println("    renamed from " + renamedFrom + "\n");
+            }
+            if (created) {
+                break; // the file starts here, there is nothing older to follow
+            }
+            if (renamedFrom != null) {
+                path = renamedFrom;
+            }
 
             // Move to the first parent to continue the traversal
             if (commit.getParentSha1s() != null && !commit.getParentSha1s().isEmpty()) {
@@ -402,122 +819,214 @@ public class CommandHandler {
 
     // Handles the 'diff' command with no arguments: compares the index and the working directory
     public static void handleDiffIndexAndWorkingDir() throws IOException {
-        System.out.println("Comparing index with working directory...");
+        handleDiffIndexAndWorkingDir(new DiffOptions());
+    }
+
+    public static void handleDiffIndexAndWorkingDir(DiffOptions options) throws IOException {
+        if (options.getFormat() == DiffOptions.Format.PATCH) {
+            System.out.println("Comparing index with working directory...");
+        }
         IndexManager indexManager = new IndexManager();
         List<IndexEntry> indexEntries = indexManager.getIndexEntries();
-        FileDiffer fileDiffer = new FileDiffer();
 
-        boolean hasDiff = false;
+        List<DiffEntry> changes = new ArrayList<>();
+        Pathspec pathspec = options.getPathspec();
         for (IndexEntry entry : indexEntries) {
+            if (entry.isSkipWorktree() || entry.isDeleted() || !pathspec.matches(entry.getFilePath())) {
+                continue;
+            }
             Path filePath = Paths.get(entry.getFilePath());
-            if (Files.exists(filePath)) {
-                String indexContent = new String(ObjectLoader.loadBlob(entry.getSha1()));
-                String workingContent = new String(Files.readAllBytes(filePath));
-
-                DiffResult diffResult = fileDiffer.calculateDiff(indexContent, workingContent);
-                if (diffResult.hasChanges()) {
-                    System.out.println("--- a/" + entry.getFilePath());
-                    System.out.println("+++ b/" + entry.getFilePath());
-                    diffResult.getDiffLines().forEach(line -> System.out.println(line.type == ChangeType.ADDED ? "+" + line.text : "-" + line.text));
-                    System.out.println();
-                    hasDiff = true;
-                }
+            if (!Files.exists(filePath)) {
+                changes.add(DiffEntry.deleted(entry.getFilePath(), entry.getMode(), entry.getSha1()));
+                continue;
+            }
+            String workingSha = new BlobObject(entry.getFilePath()).getSha1();
+            if (!workingSha.equals(entry.getSha1())) {
+                changes.add(DiffEntry.modified(entry.getFilePath(), entry.getMode(), entry.getMode(),
+                        entry.getSha1(), workingSha).inWorkingDir(filePath));
             }
         }
-        if (!hasDiff) {
-            System.out.println("No changes found.");
-        }
+        printDiff(changes, options);
     }
 
     //Handles 'diff' with one argument: compares a commit and the working directory
     public static void handleDiffCommitAndWorkingDir(String commitOrBranch) throws IOException {
-        System.out.println("Comparing " + commitOrBranch + " with working directory...");
-        ReferenceManager refManager = new ReferenceManager();
-        String commitSha = refManager.getBranchCommit(commitOrBranch);
-        if (commitSha == null) {
-            // Assume it's a direct SHA
-            commitSha = commitOrBranch;
-        }
+        handleDiffCommitAndWorkingDir(commitOrBranch, new DiffOptions());
+    }
 
-        CommitObject commit = ObjectLoader.loadCommit(commitSha);
+    public static void handleDiffCommitAndWorkingDir(String commitOrBranch, DiffOptions options) throws IOException {
+        if (options.getFormat() == DiffOptions.Format.PATCH) {
+            System.out.println("Comparing " + commitOrBranch + " with working directory...");
+        }
+        CommitObject commit = ObjectLoader.loadCommit(resolveCommit(commitOrBranch));
         if (commit == null) {
             System.err.println("Error: Commit '" + commitOrBranch + "' not found.");
             return;
         }
 
-        TreeObject tree = ObjectLoader.loadTree(commit.getTreeSha1());
-        FileDiffer fileDiffer = new FileDiffer();
-
-        boolean hasDiff = false;
-        for (TreeEntry entry : tree.getEntries()) {
-            if ("blob".equals(entry.getType())) {
-                Path filePath = Paths.get(entry.getName());
-                if (Files.exists(filePath)) {
-                    String commitContent = new String(ObjectLoader.loadBlob(entry.getObjectSha1Id()));
-                    String workingContent = new String(Files.readAllBytes(filePath));
-
-                    DiffResult diffResult = fileDiffer.calculateDiff(commitContent, workingContent);
-                    if (diffResult.hasChanges()) {
-                        System.out.println("--- a/" + entry.getName());
-                        System.out.println("+++ b/" + entry.getName());
-                        diffResult.getDiffLines().forEach(line -> System.out.println(line.type == ChangeType.ADDED ? "+" + line.text : "-" + line.text));
-                        System.out.println();
-                        hasDiff = true;
-                    }
+        // every file of the commit in the pathspec, including those in subdirectories
+        List<DiffEntry> changes = new ArrayList<>();
+        for (Map.Entry<String, TreeEntry> file : MergeUtils.listFiles(commit.getTreeSha1(), options.getPathspec()).entrySet()) {
+            String path = file.getKey();
+            TreeEntry entry = file.getValue();
+            Path filePath = Paths.get(path);
+            if (Files.exists(filePath)) {
+                String workingSha = new BlobObject(path).getSha1();
+                if (!workingSha.equals(entry.getObjectSha1Id())) {
+                    changes.add(DiffEntry.modified(path, entry.getMode(), entry.getMode(),
+                            entry.getObjectSha1Id(), workingSha).inWorkingDir(filePath));
                 }
             }
         }
-        if (!hasDiff) {
-            System.out.println("No changes found.");
-        }
+        printDiff(changes, options);
     }
 
     // Handles 'diff' with two arguments: compares two commits
     public static void handleDiffCommits(String commit1, String commit2) throws IOException {
-        System.out.println("Comparing commits " + commit1 + " and " + commit2 + "...");
-        ReferenceManager refManager = new ReferenceManager();
-        
-        String sha1 = refManager.getBranchCommit(commit1);
-        if (sha1 == null) {
-            sha1 = commit1;
-        }
-        
-        String sha2 = refManager.getBranchCommit(commit2);
-        if (sha2 == null) {
-            sha2 = commit2;
-        }
+        handleDiffCommits(commit1, commit2, new DiffOptions());
+    }
 
-        CommitObject commitObj1 = ObjectLoader.loadCommit(sha1);
-        CommitObject commitObj2 = ObjectLoader.loadCommit(sha2);
+    public static void handleDiffCommits(String commit1, String commit2, DiffOptions options) throws IOException {
+        if (options.getFormat() == DiffOptions.Format.PATCH) {
+            System.out.println("Comparing commits " + commit1 + " and " + commit2 + "...");
+        }
+        CommitObject commitObj1 = ObjectLoader.loadCommit(resolveCommit(commit1));
+        CommitObject commitObj2 = ObjectLoader.loadCommit(resolveCommit(commit2));
 
         if (commitObj1 == null || commitObj2 == null) {
             System.err.println("Error: Could not find one or both commits.");
             return;
         }
 
-        TreeObject tree1 = ObjectLoader.loadTree(commitObj1.getTreeSha1());
-        TreeObject tree2 = ObjectLoader.loadTree(commitObj2.getTreeSha1());
-        FileDiffer fileDiffer = new FileDiffer();
+        TreeDiffResult diffResult = MergeUtils.diffTrees(commitObj1.getTreeSha1(), commitObj2.getTreeSha1(),
+                options.getPathspec());
+        // a list of paths shows a renamed file as its new path either way, so renames need not be found
+        if (options.getRenameDetector() != null && options.getFormat() != DiffOptions.Format.NAME_ONLY) {
+            options.getRenameDetector().detect(diffResult, commitObj1.getTreeSha1());
+        }
 
-        TreeDiffResult diffResult = MergeUtils.diffTrees(tree1.getSha1Id(), tree2.getSha1Id());
-        
-        boolean hasDiff = false;
+        List<DiffEntry> changes = new ArrayList<>();
+        for (TreeDiffResult.RenamedFile renamed : diffResult.getRenamedFiles()) {
+            TreeEntry source = renamed.getSource().getEntry();
+            TreeEntry target = renamed.getTarget().getEntry();
+            changes.add(new DiffEntry(renamed.isCopy() ? DiffEntry.Status.COPIED : DiffEntry.Status.RENAMED,
+                    renamed.getSource().getFullPath(), renamed.getTarget().getFullPath(),
+                    source.getMode(), target.getMode(), source.getObjectSha1Id(), target.getObjectSha1Id(),
+                    renamed.getScore()));
+        }
         for (TreeDiffResult.TreeEntryWithPath entry : diffResult.getModifiedFiles()) {
-            String filePath = entry.getFullPath();
-            String content1 = new String(ObjectLoader.loadBlob(entry.getEntry().getObjectSha1Id()));
-            String content2 = new String(ObjectLoader.loadBlob(ObjectLoader.loadTree(tree2.getSha1Id()).getEntries().stream().filter(e -> e.getName().equals(entry.getEntry().getName())).findFirst().get().getObjectSha1Id()));
-            
-            DiffResult fileDiff = fileDiffer.calculateDiff(content1, content2);
-            if (fileDiff.hasChanges()) {
-                System.out.println("--- a/" + filePath);
-                System.out.println("+++ b/" + filePath);
-                fileDiff.getDiffLines().forEach(line -> System.out.println(line.type == ChangeType.ADDED ? "+" + line.text : "-" + line.text));
-                System.out.println();
-                hasDiff = true;
-            }
+            // modified entries carry the new blob, the old one is looked up by path in the first tree
+            String oldBlobSha = TreeIterator.findBlob(commitObj1.getTreeSha1(), entry.getFullPath());
+            changes.add(DiffEntry.modified(entry.getFullPath(), entry.getEntry().getMode(), entry.getEntry().getMode(),
+                    oldBlobSha, entry.getEntry().getObjectSha1Id()));
+        }
+        for (TreeDiffResult.TreeEntryWithPath entry : diffResult.getAddedFiles()) {
+            changes.add(DiffEntry.added(entry.getFullPath(), entry.getEntry().getMode(), entry.getEntry().getObjectSha1Id()));
+        }
+        for (TreeDiffResult.TreeEntryWithPath entry : diffResult.getDeletedFiles()) {
+            changes.add(DiffEntry.deleted(entry.getFullPath(), entry.getEntry().getMode(), entry.getEntry().getObjectSha1Id()));
         }
-        if (!hasDiff) {
-            System.out.println("No changes found.");
+        printDiff(changes, options);
+    }
+
+    // HEAD, a branch name or a commit SHA-1
+    private static String resolveCommit(String name) throws IOException {
+        ReferenceManager refManager = new ReferenceManager();
+        if ("HEAD".equals(name)) {
+            return refManager.getHeadCommit();
+        }
+        String sha = refManager.getBranchCommit(name);
+        return sha != null ? sha : name;
+    }
+
+    // writes the changed files in path order in the chosen format, through one buffer for the whole output;
+    // the files are loaded and diffed on options.getThreads() threads
+    private static void printDiff(List<DiffEntry> changes, DiffOptions options) throws IOException {
+        changes.sort(Comparator.comparing(DiffEntry::getPath));
+        BufferedWriter out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+
+        switch (options.getFormat()) {
+            case NAME_ONLY:
+                for (DiffEntry change : changes) {
+                    out.write(change.getPath() + "\n");
+                }
+                break;
+            case NAME_STATUS:
+                for (DiffEntry change : changes) {
+                    char code = change.getStatus().getCode();
+                    if (change.getStatus() == DiffEntry.Status.RENAMED || change.getStatus() == DiffEntry.Status.COPIED) {
+                        out.write(code + String.format("%03d", change.getScore()) + "\t" + change.getOldPath() + "\t" + change.getNewPath() + "\n");
+                    } else {
+                        out.write(code + "\t" + change.getPath() + "\n");
+                    }
+                }
+                break;
+            case STAT:
+                DiffStat stat = new DiffStat();
+                new ParallelDiff(options.getThreads()).<Consumer<DiffStat>>run(changes, change -> {
+                    if (change.getScore() == 100) {
+                        return s -> s.add(change, 0, 0); // an exact rename or copy has nothing to count
+                    }
+                    if (isBinary(change)) {
+                        long oldSize = change.getOldSha() == null ? 0 : Files.size(ObjectLoader.objectPath(change.getOldSha()));
+                        long newSize = change.getNewSha() == null ? 0 : Files.size(change.getWorkingFile() != null
+                                ? change.getWorkingFile() : ObjectLoader.objectPath(change.getNewSha()));
+                        return s -> s.addBinary(change, oldSize, newSize);
+                    }
+                    int[] counts = DiffStat.countLines(loadOld(change), loadNew(change));
+                    return s -> s.add(change, counts[0], counts[1]);
+                }, adder -> 0, (change, adder) -> adder.accept(stat));
+                if (!changes.isEmpty()) {
+                    stat.write(out);
+                }
+                break;
+            default:
+                // each file is rendered on its own by a worker, and written out in path order
+                FileDiffer fileDiffer = new FileDiffer(options.getAlgorithm(),
+                        new DiffCache(Paths.get("").toAbsolutePath().resolve(".lit")));
+                new ParallelDiff(options.getThreads()).run(changes, change -> {
+                    StringWriter text = new StringWriter();
+                    UnifiedDiffWriter writer = new UnifiedDiffWriter(text, options.getContext());
+                    writer.writeFileHeader(change);
+                    // an exact rename has nothing to show beyond its header
+                    if (change.getStatus() != DiffEntry.Status.MODIFIED && change.getScore() == 100) {
+                        return text.toString();
+                    }
+                    if (isBinary(change)) {
+                        writer.writeBinary(change);
+                    } else {
+                        writer.writeHunks(change, fileDiffer.calculateDiff(change.getOldSha(), loadOld(change),
+                                change.getNewSha(), loadNew(change)));
+                    }
+                    return text.toString();
+                }, String::length, (change, text) -> out.write(text));
+                if (changes.isEmpty()) {
+                    out.write("No changes found.\n");
+                }
+                break;
+        }
+        out.flush();
+    }
+
+    // binary files are only sniffed, never loaded as text
+    private static boolean isBinary(DiffEntry change) throws IOException {
+        if (change.getOldSha() != null && BinaryDetector.isBinaryBlob(change.getOldSha())) {
+            return true;
+        }
+        if (change.getWorkingFile() != null) {
+            return BinaryDetector.isBinaryFile(change.getWorkingFile(), change.getNewSha());
+        }
+        return change.getNewSha() != null && BinaryDetector.isBinaryBlob(change.getNewSha());
+    }
+
+    private static String loadOld(DiffEntry change) throws IOException {
+        return change.getOldSha() == null ? "" : new String(ObjectLoader.loadBlob(change.getOldSha()), StandardCharsets.UTF_8);
+    }
+
+    private static String loadNew(DiffEntry change) throws IOException {
+        if (change.getWorkingFile() != null) {
+            return new String(Files.readAllBytes(change.getWorkingFile()), StandardCharsets.UTF_8);
         }
+        return change.getNewSha() == null ? "" : new String(ObjectLoader.loadBlob(change.getNewSha()), StandardCharsets.UTF_8);
     }
 }
\ No newline at end of file
@@ -1,122 +1,118 @@
 package utils;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 
 import objects.CommitObject;
-import objects.TreeEntry;
-import objects.TreeObject;
 
 
 public class ConflictHandler {
     
     /**
-     * basically writes the file to the working directory with conflict markers during merge confilt
+     * merges a file that changed on both sides and writes the result to the working directory.
+     * when both versions exist they are merged line by line against the ancestor, so only the
+     * overlapping regions get conflict markers; a file deleted on one side still conflicts as a whole.
+     * binary files are never merged or loaded as text: the working directory keeps our version
+     * (theirs if we deleted it) and the file is left conflicted.
      * 
      * @param filePath path of the conflicted file
      * @param headCommitSha SHA-1 of the HEAD commit
      * @param otherCommitSha SHA-1 of the other branch's commit
      * @param ancestorCommitSha SHA-1 of the common ancestor commit
      * @param otherBranchName name of the branch being merged
+     * @return true if the file merged without conflicts
      * @throws IOException If there's an error reading blobs or writing files
      */
-    public static void handleConflict(String filePath, String headCommitSha, 
+    public static boolean handleConflict(String filePath, String headCommitSha, 
                                      String otherCommitSha, String ancestorCommitSha,
                                      String otherBranchName) throws IOException {
         
+        return mergeBlobs(filePath,
+                          findBlobInCommit(ancestorCommitSha, filePath),
+                          findBlobInCommit(headCommitSha, filePath),
+                          findBlobInCommit(otherCommitSha, filePath),
+                          otherBranchName);
+    }
+
+    /**
+     * same as handleConflict, with the three versions given as blob SHA-1s (null where a side has no
+     * file). used when a file was renamed, so the versions do not all live at filePath.
+     */
+    public static boolean mergeBlobs(String filePath, String ancestorBlobSha, String headBlobSha,
+                                     String otherBlobSha, String otherBranchName) throws IOException {
+        
         System.out.println("Handling conflict for: " + filePath);
         
+        Path targetPath = Path.of(filePath);
+        if (isBinary(ancestorBlobSha) || isBinary(headBlobSha) || isBinary(otherBlobSha)) {
+            System.out.println("Cannot merge binary file: " + filePath);
+            WorkingDirManager.writeBlobToWorkingDir(headBlobSha != null ? headBlobSha : otherBlobSha, targetPath);
+            return false;
+        }
+
         // get the file content from each version
-        String headContent = getFileContentFromCommit(headCommitSha, filePath);
-        String otherContent = getFileContentFromCommit(otherCommitSha, filePath);
-        String ancestorContent = getFileContentFromCommit(ancestorCommitSha, filePath);
+        String headContent = getBlobContent(headBlobSha);
+        String otherContent = getBlobContent(otherBlobSha);
+        String ancestorContent = getBlobContent(ancestorBlobSha);
+
+        // both sides kept the file, so merge their edits line by line
+        if (headContent != null && otherContent != null) {
+            LineMerger.Result merged = LineMerger.merge(ancestorContent, headContent, otherContent,
+                                                        "HEAD", otherBranchName);
+            writeConflictedFile(targetPath, merged.getContent());
+            if (merged.isClean()) {
+                System.out.println("Auto-merged: " + filePath);
+            }
+            return merged.isClean();
+        }
         
         // build the conflicted file content with markers
         String conflictedContent = buildConflictedContent(filePath, headContent, 
                                                          otherContent, otherBranchName);
         
         // write the conflicted file to the working directory
-        Path targetPath = Path.of(filePath);
         writeConflictedFile(targetPath, conflictedContent);
+        return false;
     }
     
     /**
-     * gets file content from a specific commit
+     * finds the blob of a file in a specific commit
      * 
      * @param commitSha commit SHA-1
      * @param filePath file path
-     * @return file content as a string, or null if file doesn't exist in that commit
+     * @return blob SHA-1, or null if file doesn't exist in that commit
      */
-    private static String getFileContentFromCommit(String commitSha, String filePath) 
+    private static String findBlobInCommit(String commitSha, String filePath) 
             throws IOException {
         
         if (commitSha == null) {
             return null; 
         }
         
-        // load the commit and its tree
+        // load the commit
         CommitObject commit = ObjectLoader.loadCommit(commitSha);
         if (commit == null) {
             return null;
         }
         
-        TreeObject rootTree = ObjectLoader.loadTree(commit.getTreeSha1());
-        if (rootTree == null) {
-            return null;
-        }
-        
         // find the blob SHA for this file path
-        String blobSha = findBlobShaInTree(rootTree, filePath);
-        if (blobSha == null) {
-            return null; // File doesn't exist in this commit
-        }
-        
-        // load the blob content
-        byte[] blobContent = ObjectLoader.loadBlob(blobSha);
-        return new String(blobContent);
+        return TreeIterator.findBlob(commit.getTreeSha1(), filePath);
     }
-    
-    /**
-     * searches for a file's blob SHA in a tree structure using recursion
-     * 
-     * @param tree The tree to search in
-     * @param filePath The file path to find
-     * @return blob SHA-1 if found, null otherwise
-     */
-    private static String findBlobShaInTree(TreeObject tree, String filePath) 
-            throws IOException {
-        
-        String[] pathParts = filePath.split("/");
-        return findBlobShaInTreeRecursive(tree, pathParts, 0);
+
+    private static boolean isBinary(String blobSha) throws IOException {
+        return blobSha != null && BinaryDetector.isBinaryBlob(blobSha);
     }
-    
-    private static String findBlobShaInTreeRecursive(TreeObject tree, String[] pathParts, 
-                                                     int currentIndex) throws IOException {
-        if (currentIndex >= pathParts.length) {
-            return null;
-        }
-        
-        String currentPart = pathParts[currentIndex];
-        
-        for (TreeEntry entry : tree.getEntries()) {
-            if (entry.getName().equals(currentPart)) {
-                if (currentIndex == pathParts.length - 1) {
-                    // should be the file we are looking for
-                    if (entry.getType().equals("blob")) {
-                        return entry.getObjectSha1Id();
-                    }
-                } else {
-                    if (entry.getType().equals("tree")) {
-                        TreeObject subTree = ObjectLoader.loadTree(entry.getObjectSha1Id());
-                        return findBlobShaInTreeRecursive(subTree, pathParts, currentIndex + 1);
-                    }
-                }
-            }
+
+    // blob content as a string, or null if there is no blob
+    private static String getBlobContent(String blobSha) throws IOException {
+        if (blobSha == null) {
+            return null; // File doesn't exist on that side
         }
-        
-        return null; 
+        byte[] blobContent = ObjectLoader.loadBlob(blobSha);
+        return new String(blobContent, StandardCharsets.UTF_8);
     }
     
     /**
@@ -184,12 +180,13 @@ public class ConflictHandler {
     }
     
     /**
-     * checks if there are any unresolved conflicts in the working directory.
+     * checks if there are any unresolved conflicts, i.e. paths a merge left with conflict stages in
+     * the index that have not been staged again with add. only the index is read, not the files.
      * this can be used to prevent commits when conflicts exist.
      * 
      * @return true if conflicts exist, false otherwise
      */
     public static boolean hasUnresolvedConflicts() throws IOException {
-        return false; // Placeholder
+        return new IndexManager().hasConflicts();
     }
 }
\ No newline at end of file
@@ -3,6 +3,10 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class Content {
 
@@ -17,6 +21,18 @@ public class Content {
      * and the file is named with the remaining characters.
      */
     public static void saveObject(String sha1, byte[] data) throws IOException {
+        if (writeObject(sha1, data)) {
+            System.out.println("Saved object: " + sha1);
+        }
+    }
+
+    /**
+     * Stores an object like saveObject, but without printing anything, for callers that write
+     * many objects at once.
+     *
+     * @return true if the object was written, false if it was already there
+     */
+    public static boolean writeObject(String sha1, byte[] data) throws IOException {
         if (sha1 == null || sha1.isEmpty() || data == null) {
             throw new IllegalArgumentException("Invalid object data or SHA-1 for saving.");
         }
@@ -32,8 +48,20 @@ public class Content {
         }
 
         if (!Files.exists(objectFile)) {
-            Files.write(objectFile, data);
-            System.out.println("Saved object: " + sha1);
+            // written under a unique temporary name and renamed into place, so concurrent writers of the
+            // same object never expose a partially written file; created with CREATE_NEW rather than
+            // createTempFile, which would make the object readable by its owner only
+            Path tempFile = subDir.resolve(fileName + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                Files.write(tempFile, data, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                Files.move(tempFile, objectFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            return true;
         }
+        // refresh the timestamp so 'lit gc' treats an object that is being reused as recent
+        Files.setLastModifiedTime(objectFile, FileTime.fromMillis(System.currentTimeMillis()));
+        return false;
     }
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package utils;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The line diff algorithms FileDiffer can use.
+ */
+public enum DiffAlgorithm {
+    /** Myers' shortest edit script. */
+    MYERS {
+        @Override
+        public List<Edit> diff(int[] a, int[] b) {
+            return MyersDiff.diff(a, b);
+        }
+    },
+    /** Anchors on rare lines first; faster on large files and often easier to read. */
+    HISTOGRAM {
+        @Override
+        public List<Edit> diff(int[] a, int[] b) {
+            return HistogramDiff.diff(a, b);
+        }
+    };
+
+    public abstract List<Edit> diff(int[] a, int[] b);
+
+    // case-insensitive lookup for command line options, e.g. "histogram"
+    public static DiffAlgorithm parse(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,217 @@
+package utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of line diffs between two blobs, in .lit/cache/diff/v2.
+ *
+ * Blobs never change, so the edits between two of them are fixed once the algorithm is: the
+ * entry for (old SHA-1, new SHA-1, algorithm) is stored at diff/<2 hex>/<old>-<new>-<algorithm>
+ * and a repeated diff reads it back instead of interning and comparing the lines again. An entry
+ * only holds the edit ranges, as varints relative to the end of the previous edit, so it is a few
+ * bytes per hunk; the texts are still loaded to print the hunks. Context lines are added when the
+ * hunks are written and are not part of the key.
+ *
+ * The cache is kept under a size limit by evicting the entries that were used least recently:
+ * reading an entry touches its modification time, and when the total goes over the limit the
+ * oldest entries are deleted until it is below three quarters of it. Entries are written under a
+ * temporary name and renamed into place, so concurrent diffs can share the cache, and an entry
+ * that cannot be read is treated as missing.
+ *
+ * The directory name carries the version of the entries: edits depend on what counts as the same
+ * line, so when that changes (v2 made a missing final newline part of the last line) the version
+ * goes up and older entries are never read.
+ */
+public class DiffCache {
+
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    static final String FORMAT_VERSION = "v2";
+
+    // diffs of smaller files are cheaper to compute again than to read back
+    static final int MIN_LINES = 256;
+
+    private final Path dir;
+    private final long maxBytes;
+    private long totalBytes = -1; // counted on the first store
+
+    public DiffCache(Path litPath) {
+        this(litPath, DEFAULT_MAX_BYTES);
+    }
+
+    public DiffCache(Path litPath, long maxBytes) {
+        this.dir = litPath.resolve("cache").resolve("diff").resolve(FORMAT_VERSION);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the cached edits of the diff from oldSha to newSha, or null if there are none
+     */
+    public List<Edit> get(String oldSha, String newSha, String algorithm) {
+        Path entry = entryPath(oldSha, newSha, algorithm);
+        try {
+            byte[] data = Files.readAllBytes(entry);
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return decode(data);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            return null; // a damaged entry is computed again and overwritten
+        }
+    }
+
+    public void put(String oldSha, String newSha, String algorithm, List<Edit> edits) {
+        Path entry = entryPath(oldSha, newSha, algorithm);
+        byte[] data = encode(edits);
+        try {
+            Files.createDirectories(entry.getParent());
+            Path tempFile = Files.createTempFile(entry.getParent(), entry.getFileName().toString(), ".tmp");
+            try {
+                Files.write(tempFile, data);
+                Files.move(tempFile, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            added(data.length);
+        } catch (IOException e) {
+            // the cache only saves time; a diff that cannot be stored is still correct
+        }
+    }
+
+    private synchronized void added(long bytes) throws IOException {
+        if (totalBytes < 0) {
+            totalBytes = 0;
+            for (Path entry : entries()) {
+                totalBytes += size(entry);
+            }
+        } else {
+            totalBytes += bytes;
+        }
+        if (totalBytes > maxBytes) {
+            evict(maxBytes / 4 * 3);
+        }
+    }
+
+    // deletes the least recently used entries until the cache holds at most target bytes
+    private void evict(long target) throws IOException {
+        Map<Path, FileTime> lastUsed = new HashMap<>();
+        totalBytes = 0;
+        for (Path entry : entries()) {
+            lastUsed.put(entry, lastUsed(entry));
+            totalBytes += size(entry);
+        }
+        List<Path> oldestFirst = new ArrayList<>(lastUsed.keySet());
+        oldestFirst.sort(Comparator.comparing(lastUsed::get));
+        for (Path entry : oldestFirst) {
+            if (totalBytes <= target) {
+                break;
+            }
+            long size = size(entry);
+            if (Files.deleteIfExists(entry)) {
+                totalBytes -= size;
+            }
+        }
+    }
+
+    private List<Path> entries() throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> walk = Files.walk(dir, 2)) {
+            return walk.filter(path -> Files.isRegularFile(path) && !path.toString().endsWith(".tmp"))
+                       .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static long size(Path entry) {
+        try {
+            return Files.size(entry);
+        } catch (IOException e) {
+            return 0; // removed by another process
+        }
+    }
+
+    private static FileTime lastUsed(Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private Path entryPath(String oldSha, String newSha, String algorithm) {
+        return dir.resolve(oldSha.substring(0, 2)).resolve(oldSha + "-" + newSha + "-" + algorithm);
+    }
+
+    // each edit as four varints: its start after the end of the previous one, and its lengths
+    static byte[] encode(List<Edit> edits) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4 + edits.size() * 6);
+        writeVarint(out, edits.size());
+        int endA = 0;
+        int endB = 0;
+        for (Edit edit : edits) {
+            writeVarint(out, edit.beginA - endA);
+            writeVarint(out, edit.lengthA());
+            writeVarint(out, edit.beginB - endB);
+            writeVarint(out, edit.lengthB());
+            endA = edit.endA;
+            endB = edit.endB;
+        }
+        return out.toByteArray();
+    }
+
+    static List<Edit> decode(byte[] data) {
+        int[] position = {0};
+        int count = readVarint(data, position);
+        List<Edit> edits = new ArrayList<>(Math.min(count, data.length));
+        int endA = 0;
+        int endB = 0;
+        for (int i = 0; i < count; i++) {
+            int beginA = endA + readVarint(data, position);
+            endA = beginA + readVarint(data, position);
+            int beginB = endB + readVarint(data, position);
+            endB = beginB + readVarint(data, position);
+            edits.add(new Edit(beginA, endA, beginB, endB));
+        }
+        if (position[0] != data.length) {
+            throw new IllegalArgumentException("Trailing bytes in diff cache entry.");
+        }
+        return edits;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] position) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = data[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long in diff cache entry.");
+    }
+}
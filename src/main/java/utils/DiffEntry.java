@@ -0,0 +1,112 @@
+package utils;
+
+import java.nio.file.Path;
+
+/**
+ * One file in a diff: its path and blob on each side, and how it changed. The old side is null for
+ * an added file and the new side for a deleted one. A new side that was read from the working
+ * directory keeps the file's path, as its blob is not in the object database.
+ */
+public class DiffEntry {
+
+    public enum Status {
+        ADDED('A'),
+        DELETED('D'),
+        MODIFIED('M'),
+        RENAMED('R'),
+        COPIED('C');
+
+        private final char code;
+
+        Status(char code) {
+            this.code = code;
+        }
+
+        // the letter shown by --name-status
+        public char getCode() {
+            return code;
+        }
+    }
+
+    private final Status status;
+    private final String oldPath;
+    private final String newPath;
+    private final String oldMode;
+    private final String newMode;
+    private final String oldSha;
+    private final String newSha;
+    private final int score;
+    private Path workingFile;
+
+    public DiffEntry(Status status, String oldPath, String newPath, String oldMode, String newMode,
+                     String oldSha, String newSha, int score) {
+        this.status = status;
+        this.oldPath = oldPath;
+        this.newPath = newPath;
+        this.oldMode = oldMode;
+        this.newMode = newMode;
+        this.oldSha = oldSha;
+        this.newSha = newSha;
+        this.score = score;
+    }
+
+    public static DiffEntry added(String path, String mode, String sha) {
+        return new DiffEntry(Status.ADDED, null, path, null, mode, null, sha, 0);
+    }
+
+    public static DiffEntry deleted(String path, String mode, String sha) {
+        return new DiffEntry(Status.DELETED, path, null, mode, null, sha, null, 0);
+    }
+
+    public static DiffEntry modified(String path, String oldMode, String newMode, String oldSha, String newSha) {
+        return new DiffEntry(Status.MODIFIED, path, path, oldMode, newMode, oldSha, newSha, 0);
+    }
+
+    // marks the new side as read from the working directory
+    public DiffEntry inWorkingDir(Path file) {
+        this.workingFile = file;
+        return this;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getOldPath() {
+        return oldPath;
+    }
+
+    public String getNewPath() {
+        return newPath;
+    }
+
+    // the path the entry is listed and sorted by: the new path, or the old one for a deletion
+    public String getPath() {
+        return newPath != null ? newPath : oldPath;
+    }
+
+    public String getOldMode() {
+        return oldMode;
+    }
+
+    public String getNewMode() {
+        return newMode;
+    }
+
+    public String getOldSha() {
+        return oldSha;
+    }
+
+    public String getNewSha() {
+        return newSha;
+    }
+
+    // similarity in percent of a rename or copy
+    public int getScore() {
+        return score;
+    }
+
+    public Path getWorkingFile() {
+        return workingFile;
+    }
+}
@@ -0,0 +1,92 @@
+package utils;
+
+/**
+ * Options of the diff command, shared by the index, working directory and commit diffs.
+ */
+public class DiffOptions {
+
+    public static final int DEFAULT_CONTEXT = 3;
+
+    /** What is printed for each changed file. */
+    public enum Format {
+        /** the unified diff of the file's contents */
+        PATCH,
+        /** the number of inserted and deleted lines */
+        STAT,
+        /** only the path; no blob is read */
+        NAME_ONLY,
+        /** the path and how it changed (A, D, M, R or C); no blob is read */
+        NAME_STATUS
+    }
+
+    private int context = DEFAULT_CONTEXT;
+    private Format format = Format.PATCH;
+    private DiffAlgorithm algorithm; // null to choose by file size
+    private RenameDetector renameDetector = new RenameDetector();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Pathspec pathspec = Pathspec.ALL;
+
+    // number of unchanged lines shown around each change (-U)
+    public DiffOptions context(int context) {
+        if (context < 0) {
+            throw new IllegalArgumentException("Context must not be negative.");
+        }
+        this.context = context;
+        return this;
+    }
+
+    public DiffOptions format(Format format) {
+        this.format = format;
+        return this;
+    }
+
+    public DiffOptions algorithm(DiffAlgorithm algorithm) {
+        this.algorithm = algorithm;
+        return this;
+    }
+
+    // pairs up renamed files between commits; null shows them as deleted and added
+    public DiffOptions renameDetector(RenameDetector renameDetector) {
+        this.renameDetector = renameDetector;
+        return this;
+    }
+
+    // number of threads that load and diff files
+    public DiffOptions threads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1.");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    // limits the diff to some paths; the rest of the trees, index and working directory is not read
+    public DiffOptions pathspec(Pathspec pathspec) {
+        this.pathspec = pathspec;
+        return this;
+    }
+
+    public int getContext() {
+        return context;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public DiffAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public RenameDetector getRenameDetector() {
+        return renameDetector;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public Pathspec getPathspec() {
+        return pathspec;
+    }
+}
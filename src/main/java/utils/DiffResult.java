@@ -1,23 +1,71 @@
 package utils; 
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * class to hold the structured result of a file comparison.
+ * changes are kept as line ranges (Edits) into the two texts; the per-line view is only built
+ * when getDiffLines() is called.
  */
 public class DiffResult {
-    private final List<DiffLine> diffLines;
+    private final RawText original;
+    private final RawText revised;
+    private final List<Edit> edits;
 
-    public DiffResult(List<DiffLine> diffLines) {
-        this.diffLines = diffLines;
+    public DiffResult(RawText original, RawText revised, List<Edit> edits) {
+        this.original = original;
+        this.revised = revised;
+        this.edits = edits;
     }
 
+    public RawText getOriginal() {
+        return original;
+    }
+
+    public RawText getRevised() {
+        return revised;
+    }
+
+    // changed regions in increasing order: lines [beginA, endA) of the original became [beginB, endB)
+    public List<Edit> getEdits() {
+        return edits;
+    }
+
+    /**
+     * every deleted and added line, deletions of a region before its additions.
+     */
     public List<DiffLine> getDiffLines() {
+        List<DiffLine> diffLines = new ArrayList<>();
+        for (Edit edit : edits) {
+            for (int i = edit.beginA; i < edit.endA; i++) {
+                diffLines.add(new DiffLine(ChangeType.DELETED, original.line(i)));
+            }
+            for (int i = edit.beginB; i < edit.endB; i++) {
+                diffLines.add(new DiffLine(ChangeType.ADDED, revised.line(i)));
+            }
+        }
         return diffLines;
     }
 
+    public int getDeletedLineCount() {
+        int count = 0;
+        for (Edit edit : edits) {
+            count += edit.lengthA();
+        }
+        return count;
+    }
+
+    public int getAddedLineCount() {
+        int count = 0;
+        for (Edit edit : edits) {
+            count += edit.lengthB();
+        }
+        return count;
+    }
+
     public boolean hasChanges() {
-        return !diffLines.isEmpty();
+        return !edits.isEmpty();
     }
 }
 
@@ -32,4 +80,4 @@ class DiffLine {
         this.type = type;
         this.text = text;
     }
-}
\ No newline at end of file
+}
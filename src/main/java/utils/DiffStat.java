@@ -0,0 +1,140 @@
+package utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts of inserted and deleted lines per file, as shown by diff --stat:
+ *
+ *    src/App.java | 12 ++++++++----
+ *    1 file changed, 8 insertions(+), 4 deletions(-)
+ *
+ * The counts come from one hashing pass over both versions instead of a line diff: every line is
+ * interned, the lines of the new version cancel out equal lines of the old one, and what is left
+ * on each side was deleted or inserted. A line that only moved therefore counts as unchanged,
+ * which is the one way the numbers can be lower than those of the full diff.
+ *
+ * Binary files have no lines; their sizes are shown instead ("Bin 1204 -> 1310 bytes").
+ */
+public class DiffStat {
+
+    private static final int BAR_WIDTH = 50;
+
+    private final List<DiffEntry> entries = new ArrayList<>();
+    private final List<int[]> counts = new ArrayList<>();
+    private final List<long[]> binarySizes = new ArrayList<>(); // old and new size, or null for text
+
+    /**
+     * @return the number of inserted and deleted lines, in that order
+     */
+    public static int[] countLines(String oldContent, String newContent) {
+        RawText oldText = RawText.of(oldContent);
+        RawText newText = RawText.of(newContent);
+        LineInterner interner = new LineInterner();
+        int[] oldIds = interner.intern(oldText);
+        int[] newIds = interner.intern(newText);
+
+        int[] balance = new int[interner.size()];
+        for (int id : oldIds) {
+            balance[id]++;
+        }
+        for (int id : newIds) {
+            balance[id]--;
+        }
+        int insertions = 0;
+        int deletions = 0;
+        for (int count : balance) {
+            if (count > 0) {
+                deletions += count;
+            } else {
+                insertions -= count;
+            }
+        }
+        return new int[] {insertions, deletions};
+    }
+
+    public void add(DiffEntry entry, int insertions, int deletions) {
+        entries.add(entry);
+        counts.add(new int[] {insertions, deletions});
+        binarySizes.add(null);
+    }
+
+    public void addBinary(DiffEntry entry, long oldSize, long newSize) {
+        entries.add(entry);
+        counts.add(new int[2]);
+        binarySizes.add(new long[] {oldSize, newSize});
+    }
+
+    public void write(Writer out) throws IOException {
+        List<String> names = new ArrayList<>();
+        int nameWidth = 0;
+        int maxChanges = 0;
+        int insertions = 0;
+        int deletions = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            DiffEntry entry = entries.get(i);
+            boolean moved = entry.getOldPath() != null && entry.getNewPath() != null
+                    && !entry.getOldPath().equals(entry.getNewPath());
+            String name = moved ? entry.getOldPath() + " => " + entry.getNewPath() : entry.getPath();
+            names.add(name);
+            nameWidth = Math.max(nameWidth, name.length());
+            maxChanges = Math.max(maxChanges, counts.get(i)[0] + counts.get(i)[1]);
+            insertions += counts.get(i)[0];
+            deletions += counts.get(i)[1];
+        }
+        int countWidth = String.valueOf(maxChanges).length();
+
+        for (int i = 0; i < entries.size(); i++) {
+            int added = counts.get(i)[0];
+            int deleted = counts.get(i)[1];
+            StringBuilder line = new StringBuilder(" ").append(names.get(i));
+            pad(line, nameWidth - names.get(i).length());
+            line.append(" | ");
+            long[] sizes = binarySizes.get(i);
+            if (sizes != null) {
+                out.write(line.append("Bin ").append(sizes[0]).append(" -> ").append(sizes[1]).append(" bytes\n").toString());
+                continue;
+            }
+            String total = String.valueOf(added + deleted);
+            pad(line, countWidth - total.length());
+            line.append(total);
+            if (added + deleted > 0) {
+                line.append(' ');
+                // long bars are scaled down, but a change never disappears from its bar
+                if (maxChanges > BAR_WIDTH) {
+                    added = scale(added, maxChanges);
+                    deleted = scale(deleted, maxChanges);
+                }
+                repeat(line, '+', added);
+                repeat(line, '-', deleted);
+            }
+            out.write(line.append('\n').toString());
+        }
+
+        StringBuilder summary = new StringBuilder(" ").append(entries.size())
+                .append(entries.size() == 1 ? " file changed" : " files changed");
+        if (insertions > 0 || deletions == 0) {
+            summary.append(", ").append(insertions).append(insertions == 1 ? " insertion(+)" : " insertions(+)");
+        }
+        if (deletions > 0 || insertions == 0) {
+            summary.append(", ").append(deletions).append(deletions == 1 ? " deletion(-)" : " deletions(-)");
+        }
+        out.write(summary.append('\n').toString());
+    }
+
+    private static int scale(int count, int maxChanges) {
+        return count == 0 ? 0 : Math.max(1, (int) ((long) count * BAR_WIDTH / maxChanges));
+    }
+
+    private static void pad(StringBuilder line, int spaces) {
+        repeat(line, ' ', spaces);
+    }
+
+    private static void repeat(StringBuilder line, char c, int times) {
+        for (int i = 0; i < times; i++) {
+            line.append(c);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package utils;
+
+/**
+ * One region that differs between two sequences A and B: the lines [beginA, endA) of A were
+ * replaced by the lines [beginB, endB) of B. An empty A range is an insertion and an empty B
+ * range is a deletion. Everything between two edits is the same on both sides.
+ */
+public class Edit {
+
+    public final int beginA;
+    public final int endA;
+    public final int beginB;
+    public final int endB;
+
+    public Edit(int beginA, int endA, int beginB, int endB) {
+        this.beginA = beginA;
+        this.endA = endA;
+        this.beginB = beginB;
+        this.endB = endB;
+    }
+
+    public int lengthA() {
+        return endA - beginA;
+    }
+
+    public int lengthB() {
+        return endB - beginB;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Edit)) {
+            return false;
+        }
+        Edit other = (Edit) o;
+        return beginA == other.beginA && endA == other.endA && beginB == other.beginB && endB == other.endB;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((beginA * 31 + endA) * 31 + beginB) * 31 + endB;
+    }
+
+    @Override
+    public String toString() {
+        return "Edit[" + beginA + "-" + endA + "," + beginB + "-" + endB + "]";
+    }
+}
@@ -0,0 +1,391 @@
+package utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Compressed bitmap using "Enhanced Word-Aligned Hybrid" run-length encoding.
+ *
+ * The bitmap is a sequence of 64 bit words. Each marker word describes a run of clean words
+ * (all zeros or all ones) followed by a number of literal words that are stored verbatim:
+ *
+ *   bit 0       value of the clean words in the run
+ *   bits 1-32   number of clean words
+ *   bits 33-63  number of literal words that follow the marker
+ *
+ * Bits can only be appended in increasing order. The logical operations work directly on the
+ * compressed form, so two long runs are combined in a single step without expanding them.
+ */
+public class EwahBitmap {
+
+    private static final long MAX_RUN = 0xFFFFFFFFL;
+    private static final int MAX_LITERALS = 0x7FFFFFFF;
+    private static final long ALL_ONES = ~0L;
+
+    private long[] words = new long[4];
+    private int size;            // number of words in use
+    private int markerPos;       // position of the marker currently being extended
+    private long logicalWords;   // number of uncompressed words described so far
+    private int sizeInBits;
+
+    // pending word for set(); flushed when a higher word is touched
+    private long pendingWord;
+    private int pendingIndex = -1;
+
+    public EwahBitmap() {
+        words[0] = 0L;
+        size = 1;
+        markerPos = 0;
+    }
+
+    public static EwahBitmap fromBitSet(BitSet bits) {
+        EwahBitmap bitmap = new EwahBitmap();
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            bitmap.set(i);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Sets a bit. Bits must be set in strictly increasing order, and before the bitmap is read.
+     */
+    public void set(int bit) {
+        if (bit < sizeInBits) {
+            throw new IllegalArgumentException("Bits must be set in increasing order: " + bit);
+        }
+        int wordIndex = bit >>> 6;
+        if (wordIndex != pendingIndex) {
+            long nextWord = flushPending();
+            if (wordIndex < nextWord) {
+                throw new IllegalStateException("Cannot set bits in a word that has already been compressed: " + bit);
+            }
+            if (wordIndex > nextWord) {
+                addRun(false, wordIndex - nextWord);
+            }
+            pendingIndex = wordIndex;
+            pendingWord = 0L;
+        }
+        pendingWord |= 1L << (bit & 63);
+        sizeInBits = bit + 1;
+    }
+
+    // writes the pending word and returns the index of the next logical word
+    private long flushPending() {
+        if (pendingIndex >= 0) {
+            addWord(pendingWord);
+            pendingIndex = -1;
+        }
+        return logicalWords;
+    }
+
+    private void addWord(long word) {
+        if (word == 0L) {
+            addRun(false, 1);
+        } else if (word == ALL_ONES) {
+            addRun(true, 1);
+        } else {
+            addLiteral(word);
+        }
+    }
+
+    private void addRun(boolean bit, long count) {
+        while (count > 0) {
+            long marker = words[markerPos];
+            long runLength = runLength(marker);
+            boolean extendable = literalCount(marker) == 0
+                    && (runLength == 0 || runBit(marker) == bit)
+                    && runLength < MAX_RUN;
+            if (!extendable) {
+                newMarker();
+                continue;
+            }
+            long added = Math.min(count, MAX_RUN - runLength);
+            words[markerPos] = marker(bit, runLength + added, 0);
+            logicalWords += added;
+            count -= added;
+        }
+    }
+
+    private void addLiteral(long word) {
+        long marker = words[markerPos];
+        if (literalCount(marker) == MAX_LITERALS) {
+            newMarker();
+            marker = words[markerPos];
+        }
+        words[markerPos] = marker(runBit(marker), runLength(marker), literalCount(marker) + 1);
+        logicalWords++;
+        push(word);
+    }
+
+    private void newMarker() {
+        markerPos = size;
+        push(0L);
+    }
+
+    private void push(long word) {
+        if (size == words.length) {
+            long[] grown = new long[words.length * 2];
+            System.arraycopy(words, 0, grown, 0, size);
+            words = grown;
+        }
+        words[size++] = word;
+    }
+
+    private static long marker(boolean bit, long runLength, int literals) {
+        return (bit ? 1L : 0L) | (runLength << 1) | ((long) literals << 33);
+    }
+
+    private static boolean runBit(long marker) {
+        return (marker & 1L) != 0;
+    }
+
+    private static long runLength(long marker) {
+        return (marker >>> 1) & MAX_RUN;
+    }
+
+    private static int literalCount(long marker) {
+        return (int) (marker >>> 33);
+    }
+
+    public int sizeInBits() {
+        return sizeInBits;
+    }
+
+    // number of 64 bit words the compressed form occupies
+    public int sizeInWords() {
+        return size + (pendingIndex >= 0 ? 1 : 0);
+    }
+
+    public int cardinality() {
+        seal();
+        int count = 0;
+        int pos = 0;
+        while (pos < size) {
+            long marker = words[pos];
+            if (runBit(marker)) {
+                count += (int) (runLength(marker) * 64);
+            }
+            int literals = literalCount(marker);
+            for (int i = 1; i <= literals; i++) {
+                count += Long.bitCount(words[pos + i]);
+            }
+            pos += literals + 1;
+        }
+        return count;
+    }
+
+    public boolean get(int bit) {
+        seal();
+        long wordIndex = bit >>> 6;
+        long logical = 0;
+        int pos = 0;
+        while (pos < size) {
+            long marker = words[pos];
+            long runLength = runLength(marker);
+            if (wordIndex < logical + runLength) {
+                return runBit(marker);
+            }
+            logical += runLength;
+            int literals = literalCount(marker);
+            if (wordIndex < logical + literals) {
+                long word = words[pos + 1 + (int) (wordIndex - logical)];
+                return (word & (1L << (bit & 63))) != 0;
+            }
+            logical += literals;
+            pos += literals + 1;
+        }
+        return false;
+    }
+
+    public void forEach(IntConsumer action) {
+        seal();
+        int base = 0;
+        int pos = 0;
+        while (pos < size) {
+            long marker = words[pos];
+            long runLength = runLength(marker);
+            if (runBit(marker)) {
+                int end = base + (int) (runLength * 64);
+                for (int i = base; i < end; i++) {
+                    action.accept(i);
+                }
+            }
+            base += (int) (runLength * 64);
+            int literals = literalCount(marker);
+            for (int i = 1; i <= literals; i++) {
+                long word = words[pos + i];
+                while (word != 0) {
+                    action.accept(base + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+                base += 64;
+            }
+            pos += literals + 1;
+        }
+    }
+
+    public BitSet toBitSet() {
+        BitSet bits = new BitSet(sizeInBits);
+        forEach(bits::set);
+        return bits;
+    }
+
+    public EwahBitmap and(EwahBitmap other) {
+        return combine(this, other, (a, b) -> a & b, false, false);
+    }
+
+    public EwahBitmap or(EwahBitmap other) {
+        return combine(this, other, (a, b) -> a | b, true, true);
+    }
+
+    public EwahBitmap andNot(EwahBitmap other) {
+        return combine(this, other, (a, b) -> a & ~b, true, false);
+    }
+
+    // folds the pending word of set() into the compressed words
+    private void seal() {
+        if (pendingIndex >= 0) {
+            flushPending();
+        }
+    }
+
+    /**
+     * Walks both bitmaps word by word. Runs on both sides are combined in one step; a run on one
+     * side is only expanded against the literal words of the other side.
+     */
+    private static EwahBitmap combine(EwahBitmap left, EwahBitmap right, LongBinaryOperator op,
+                                      boolean keepLeftTail, boolean keepRightTail) {
+        left.seal();
+        right.seal();
+        EwahBitmap result = new EwahBitmap();
+        WordReader a = new WordReader(left);
+        WordReader b = new WordReader(right);
+
+        while (a.hasWords() && b.hasWords()) {
+            if (a.inRun() && b.inRun()) {
+                long n = Math.min(a.runRemaining, b.runRemaining);
+                long word = op.applyAsLong(a.runWord(), b.runWord());
+                result.addRun(word != 0L, n);
+                a.skip(n);
+                b.skip(n);
+            } else {
+                result.addWord(op.applyAsLong(a.word(), b.word()));
+                a.skip(1);
+                b.skip(1);
+            }
+        }
+        if (keepLeftTail) {
+            copyTail(a, result);
+        }
+        if (keepRightTail) {
+            copyTail(b, result);
+        }
+        result.sizeInBits = Math.max(left.sizeInBits, right.sizeInBits);
+        return result;
+    }
+
+    private static void copyTail(WordReader reader, EwahBitmap result) {
+        while (reader.hasWords()) {
+            if (reader.inRun()) {
+                long n = reader.runRemaining;
+                result.addRun(reader.runBit, n);
+                reader.skip(n);
+            } else {
+                result.addWord(reader.word());
+                reader.skip(1);
+            }
+        }
+    }
+
+    /**
+     * Sequential view of the logical words of a sealed bitmap.
+     */
+    private static class WordReader {
+        private final long[] words;
+        private final int size;
+        private int pos;               // position of the next marker to load
+        private boolean runBit;
+        private long runRemaining;
+        private int literalPos;        // position of the next literal word
+        private int literalRemaining;
+
+        WordReader(EwahBitmap bitmap) {
+            this.words = bitmap.words;
+            this.size = bitmap.size;
+            this.pos = 0;
+        }
+
+        boolean hasWords() {
+            while (runRemaining == 0 && literalRemaining == 0) {
+                if (pos >= size) {
+                    return false;
+                }
+                long marker = words[pos];
+                runBit = EwahBitmap.runBit(marker);
+                runRemaining = EwahBitmap.runLength(marker);
+                literalRemaining = EwahBitmap.literalCount(marker);
+                literalPos = pos + 1;
+                pos += literalRemaining + 1;
+            }
+            return true;
+        }
+
+        boolean inRun() {
+            return runRemaining > 0;
+        }
+
+        long runWord() {
+            return runBit ? ALL_ONES : 0L;
+        }
+
+        long word() {
+            return inRun() ? runWord() : words[literalPos];
+        }
+
+        void skip(long n) {
+            if (runRemaining > 0) {
+                runRemaining -= n;
+            } else {
+                literalPos++;
+                literalRemaining--;
+            }
+        }
+    }
+
+    public void serialize(DataOutputStream out) throws IOException {
+        seal();
+        out.writeInt(sizeInBits);
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(words[i]);
+        }
+    }
+
+    public static EwahBitmap deserialize(DataInputStream in) throws IOException {
+        EwahBitmap bitmap = new EwahBitmap();
+        bitmap.sizeInBits = in.readInt();
+        int wordCount = in.readInt();
+        if (wordCount < 1) {
+            throw new IOException("Malformed bitmap: no marker word.");
+        }
+        bitmap.words = new long[wordCount];
+        for (int i = 0; i < wordCount; i++) {
+            bitmap.words[i] = in.readLong();
+        }
+        bitmap.size = wordCount;
+        int pos = 0;
+        while (pos < wordCount) {
+            bitmap.markerPos = pos;
+            bitmap.logicalWords += runLength(bitmap.words[pos]) + literalCount(bitmap.words[pos]);
+            pos += literalCount(bitmap.words[pos]) + 1;
+        }
+        if (pos != wordCount) {
+            throw new IOException("Malformed bitmap: literal words run past the end.");
+        }
+        return bitmap;
+    }
+}
@@ -1,52 +1,78 @@
 package utils;
 
-import com.github.difflib.DiffUtils;
-import com.github.difflib.patch.AbstractDelta;
-import com.github.difflib.patch.Patch;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections; 
 import java.util.List;
+import java.util.Locale;
 
 /*
  * Takes two strings as input (the original and new file contents)
- * Then uses java-diff-utils library to do comparison
- * Library returns Patch object which is its own way of representing changes
- * For loop iterates through Patch object and translates it into DiffLines object (my own simplified obj)
- * Returns DiffResult which is basially bundled up object with bunch of DiffLines
+ * Then interns their lines into integer ids, so equal lines are found by comparing ints
+ * The ids are diffed with Myers, or with the histogram algorithm for large files
+ * Returns DiffResult, which keeps the two texts and the changed line ranges (Edits)
+ * instead of one object per changed line
+ * When the contents are blobs with known SHA-1s, the edits are looked up in a DiffCache first
  */
 
 public class FileDiffer {
 
+    // files with more lines than this are diffed with the histogram algorithm unless one is chosen
+    static final int LARGE_FILE_LINES = 10_000;
+
+    private final DiffAlgorithm algorithm; // null to choose by file size
+    private final DiffCache cache;         // null to always compute
+
+    public FileDiffer() {
+        this(null);
+    }
+
+    public FileDiffer(DiffAlgorithm algorithm) {
+        this(algorithm, null);
+    }
+
+    public FileDiffer(DiffAlgorithm algorithm, DiffCache cache) {
+        this.algorithm = algorithm;
+        this.cache = cache;
+    }
+
     public DiffResult calculateDiff(String originalContent, String revisedContent) {
-        //handle empty strings explicitly to avoid the .split() issue.
-        List<String> originalLines = originalContent.isEmpty()
-            ? Collections.emptyList()
-            : Arrays.asList(originalContent.split("\n"));
-
-        List<String> revisedLines = revisedContent.isEmpty()
-            ? Collections.emptyList()
-            : Arrays.asList(revisedContent.split("\n"));
-
-        Patch<String> patch = DiffUtils.diff(originalLines, revisedLines);
-        List<DiffLine> diffLines = new ArrayList<>();
-
-        for (AbstractDelta<String> delta : patch.getDeltas()) {
-            switch (delta.getType()) {
-                case INSERT:
-                    delta.getTarget().getLines().forEach(line -> diffLines.add(new DiffLine(ChangeType.ADDED, line)));
-                    break;
-                case DELETE:
-                    delta.getSource().getLines().forEach(line -> diffLines.add(new DiffLine(ChangeType.DELETED, line)));
-                    break;
-                case CHANGE:
-                    delta.getSource().getLines().forEach(line -> diffLines.add(new DiffLine(ChangeType.DELETED, line)));
-                    delta.getTarget().getLines().forEach(line -> diffLines.add(new DiffLine(ChangeType.ADDED, line)));
-                    break;
-                default:
-                    break;
+        return calculateDiff(null, originalContent, null, revisedContent);
+    }
+
+    /**
+     * Same as calculateDiff(String, String), for contents that hash to the given SHA-1s; the
+     * edits are taken from the cache if it has them, and stored in it otherwise.
+     */
+    public DiffResult calculateDiff(String originalSha, String originalContent, String revisedSha, String revisedContent) {
+        RawText original = RawText.of(originalContent);
+        RawText revised = RawText.of(revisedContent);
+
+        DiffAlgorithm chosen = algorithm;
+        if (chosen == null) {
+            boolean large = Math.max(original.size(), revised.size()) > LARGE_FILE_LINES;
+            chosen = large ? DiffAlgorithm.HISTOGRAM : DiffAlgorithm.MYERS;
+        }
+        boolean cacheable = cache != null && originalSha != null && revisedSha != null
+                && original.size() + revised.size() >= DiffCache.MIN_LINES;
+        String key = chosen.name().toLowerCase(Locale.ROOT);
+        if (cacheable) {
+            List<Edit> cached = cache.get(originalSha, revisedSha, key);
+            if (cached != null && fits(cached, original, revised)) {
+                return new DiffResult(original, revised, cached);
             }
         }
-        return new DiffResult(diffLines);
+
+        LineInterner interner = new LineInterner();
+        int[] originalIds = interner.intern(original);
+        int[] revisedIds = interner.intern(revised);
+        List<Edit> edits = chosen.diff(originalIds, revisedIds);
+        if (cacheable) {
+            cache.put(originalSha, revisedSha, key, edits);
+        }
+        return new DiffResult(original, revised, edits);
+    }
+
+    // a cached entry that does not match the texts is ignored, as if it were missing
+    private static boolean fits(List<Edit> edits, RawText original, RawText revised) {
+        return edits.isEmpty() || (edits.get(edits.size() - 1).endA <= original.size()
+                && edits.get(edits.size() - 1).endB <= revised.size());
     }
-}
\ No newline at end of file
+}
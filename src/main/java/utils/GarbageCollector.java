@@ -0,0 +1,167 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import objects.IndexEntry;
+
+/**
+ * Mark-and-sweep garbage collection of loose objects.
+ *
+ * Everything reachable from the branches, HEAD and the index is marked by a ReachabilityWalker.
+ * Any other object in .lit/objects is deleted, but only once it is older than the grace period.
+ * The grace period protects objects that another command has just written but not yet
+ * referenced (a blob saved by 'add' before the index is written, for example).
+ *
+ * Temporary files that an interrupted object write left behind (see Content.saveObject) are
+ * deleted once they are older than the grace period as well, since no writer still owns them.
+ */
+public class GarbageCollector {
+
+    public static final long DEFAULT_GRACE_SECONDS = 14L * 24 * 60 * 60;
+
+    public static class Result {
+        public int reachable;
+        public int pruned;
+        public long prunedBytes;
+        public int keptRecent;      // unreachable, but still inside the grace period
+        public int prunedTemporary; // abandoned temporary files of interrupted object writes
+        public long markMillis;
+    }
+
+    /**
+     * Marks and sweeps the object store.
+     *
+     * @param graceSeconds unreachable objects modified more recently than this are kept
+     * @param threads number of marking threads
+     * @param dryRun only report what would be deleted
+     */
+    public static Result collect(long graceSeconds, int threads, boolean dryRun) throws IOException {
+        Result result = new Result();
+        Set<String> reachable = markReachable(threads, result);
+
+        long cutoff = System.currentTimeMillis() - graceSeconds * 1000;
+        for (Path objectFile : listObjectFiles()) {
+            String sha = objectFile.getParent().getFileName().toString() + objectFile.getFileName().toString();
+            if (reachable.contains(sha)) {
+                continue;
+            }
+            if (Files.getLastModifiedTime(objectFile).toMillis() > cutoff) {
+                result.keptRecent++;
+                continue;
+            }
+            long size = Files.size(objectFile);
+            if (!dryRun) {
+                Files.deleteIfExists(objectFile);
+            }
+            result.pruned++;
+            result.prunedBytes += size;
+        }
+
+        for (Path tempFile : listTemporaryFiles()) {
+            if (Files.getLastModifiedTime(tempFile).toMillis() > cutoff) {
+                continue; // possibly still being written
+            }
+            long size = Files.size(tempFile);
+            if (!dryRun) {
+                Files.deleteIfExists(tempFile);
+            }
+            result.prunedTemporary++;
+            result.prunedBytes += size;
+        }
+
+        if (!dryRun) {
+            removeEmptyFanoutDirectories();
+        }
+        return result;
+    }
+
+    private static Set<String> markReachable(int threads, Result result) throws IOException {
+        long start = System.currentTimeMillis();
+        ReferenceManager refManager = new ReferenceManager();
+        Set<String> tips = refManager.getAllCommitTips();
+
+        List<String> indexBlobs = new ArrayList<>();
+        for (IndexEntry entry : new IndexManager().getAllEntries()) {
+            if (!entry.isDeleted()) {
+                indexBlobs.add(entry.getSha1());
+            }
+        }
+
+        // tips that already have a bitmap are marked in one go; the walk stops at them
+        ReachabilityWalker walker = new ReachabilityWalker(threads);
+        ReachabilityBitmaps bitmaps = ReachabilityBitmaps.load();
+        for (String tip : tips) {
+            EwahBitmap bitmap = bitmaps.bitmapFor(tip);
+            if (bitmap != null) {
+                List<String> known = new ArrayList<>();
+                bitmap.forEach(position -> known.add(bitmaps.idAt(position)));
+                walker.seed(known);
+            }
+        }
+
+        Set<String> reachable = walker.walk(tips, indexBlobs);
+        result.reachable = reachable.size();
+        result.markMillis = System.currentTimeMillis() - start;
+        return reachable;
+    }
+
+    /**
+     * Lists the loose object files, i.e. .lit/objects/[2 hex]/[38 hex].
+     */
+    public static List<Path> listObjectFiles() throws IOException {
+        return listFanoutFiles(name -> name.matches("[0-9a-f]{38}"));
+    }
+
+    /**
+     * Lists the temporary files of object writes, .lit/objects/[2 hex]/[38 hex][random].tmp.
+     */
+    static List<Path> listTemporaryFiles() throws IOException {
+        return listFanoutFiles(name -> name.endsWith(".tmp"));
+    }
+
+    private static List<Path> listFanoutFiles(Predicate<String> name) throws IOException {
+        Path objectsDir = Paths.get(".lit", "objects");
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(objectsDir)) {
+            return files;
+        }
+        try (Stream<Path> fanout = Files.list(objectsDir)) {
+            for (Path dir : (Iterable<Path>) fanout::iterator) {
+                if (!Files.isDirectory(dir) || !dir.getFileName().toString().matches("[0-9a-f]{2}")) {
+                    continue;
+                }
+                try (Stream<Path> objects = Files.list(dir)) {
+                    objects.filter(p -> name.test(p.getFileName().toString()))
+                           .forEach(files::add);
+                }
+            }
+        }
+        return files;
+    }
+
+    private static void removeEmptyFanoutDirectories() throws IOException {
+        Path objectsDir = Paths.get(".lit", "objects");
+        try (Stream<Path> fanout = Files.list(objectsDir)) {
+            for (Path dir : (Iterable<Path>) fanout::iterator) {
+                if (!Files.isDirectory(dir) || !dir.getFileName().toString().matches("[0-9a-f]{2}")) {
+                    continue;
+                }
+                boolean empty;
+                try (Stream<Path> entries = Files.list(dir)) {
+                    empty = !entries.findAny().isPresent();
+                }
+                if (empty) {
+                    Files.deleteIfExists(dir);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Histogram diff, an extension of patience diff, on sequences of interned line ids.
+ *
+ * Each region of the two sequences is split at the longest common run that contains the rarest
+ * line: lines are counted in the region of a, and only matches through lines that occur few times
+ * are considered, preferring the rarest and then the longest. The parts before and after the run
+ * are split the same way. Anchoring on rare lines (a method signature rather than a closing brace)
+ * gives diffs that follow the structure of the code, and every step is a linear scan, so large
+ * files with scattered changes are fast.
+ *
+ * A region whose lines are all too common to anchor on is handed to MyersDiff.
+ */
+public class HistogramDiff {
+
+    // lines occurring more often than this in a region are not used as anchors
+    private static final int MAX_CHAIN = 64;
+
+    private final int[] a;
+    private final int[] b;
+    private final int[] count; // occurrences of each id in the current region of a
+    private final int[] head;  // first position of each id in the current region of a, or -1
+    private final int[] next;  // next position of the same id in the region, by position in a, or -1
+    private final List<Edit> edits = new ArrayList<>();
+
+    // the common run found by findAnchor
+    private int anchorA;
+    private int anchorB;
+    private int anchorLength;
+
+    private HistogramDiff(int[] a, int[] b) {
+        this.a = a;
+        this.b = b;
+        int ids = 0;
+        for (int id : a) {
+            ids = Math.max(ids, id + 1);
+        }
+        this.count = new int[ids];
+        this.head = new int[ids];
+        this.next = new int[a.length];
+        Arrays.fill(head, -1);
+    }
+
+    /**
+     * Computes an edit script that turns a into b.
+     *
+     * @return the differing regions in increasing order, with adjacent regions joined
+     */
+    public static List<Edit> diff(int[] a, int[] b) {
+        HistogramDiff diff = new HistogramDiff(a, b);
+        diff.compare();
+        return diff.edits;
+    }
+
+    private void compare() {
+        // regions are kept on a stack rather than recursed into, as a long file can split many times;
+        // the region before an anchor is pushed last so that edits come out in order
+        Deque<int[]> regions = new ArrayDeque<>();
+        regions.push(new int[] {0, a.length, 0, b.length});
+        while (!regions.isEmpty()) {
+            int[] region = regions.pop();
+            int aLo = region[0];
+            int aHi = region[1];
+            int bLo = region[2];
+            int bHi = region[3];
+
+            while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+                aLo++;
+                bLo++;
+            }
+            while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+                aHi--;
+                bHi--;
+            }
+            if (aLo == aHi || bLo == bHi) {
+                if (aLo < aHi || bLo < bHi) {
+                    MyersDiff.addEdit(edits, aLo, aHi, bLo, bHi);
+                }
+                continue;
+            }
+
+            int found = findAnchor(aLo, aHi, bLo, bHi);
+            if (found > 0) {
+                regions.push(new int[] {anchorA + anchorLength, aHi, anchorB + anchorLength, bHi});
+                regions.push(new int[] {aLo, anchorA, bLo, anchorB});
+            } else if (found < 0) {
+                MyersDiff.diff(a, b, aLo, aHi, bLo, bHi, edits);
+            } else {
+                MyersDiff.addEdit(edits, aLo, aHi, bLo, bHi); // nothing in common
+            }
+        }
+    }
+
+    /**
+     * Finds the common run of a[aLo, aHi) and b[bLo, bHi) through the rarest line of a.
+     *
+     * @return 1 if a run was found, 0 if the regions have no line in common, and -1 if they only
+     *         share lines too common to anchor on
+     */
+    private int findAnchor(int aLo, int aHi, int bLo, int bHi) {
+        for (int i = aHi - 1; i >= aLo; i--) {
+            int id = a[i];
+            next[i] = head[id];
+            head[id] = i;
+            count[id]++;
+        }
+
+        boolean tooCommon = false;
+        int bestCount = MAX_CHAIN;
+        anchorLength = 0;
+        for (int j = bLo; j < bHi; ) {
+            int id = b[j];
+            int occurrences = id < count.length ? count[id] : 0;
+            if (occurrences == 0 || occurrences > bestCount) {
+                tooCommon |= occurrences > MAX_CHAIN;
+                j++;
+                continue;
+            }
+
+            int nextJ = j + 1;
+            for (int i = head[id]; i >= 0; i = next[i]) {
+                // grow the match in both directions, noting the rarest line in it
+                int as = i;
+                int bs = j;
+                int ae = i + 1;
+                int be = j + 1;
+                int rarest = occurrences;
+                while (as > aLo && bs > bLo && a[as - 1] == b[bs - 1]) {
+                    as--;
+                    bs--;
+                    rarest = Math.min(rarest, count[a[as]]);
+                }
+                while (ae < aHi && be < bHi && a[ae] == b[be]) {
+                    rarest = Math.min(rarest, count[a[ae]]);
+                    ae++;
+                    be++;
+                }
+                nextJ = Math.max(nextJ, be);
+                if (rarest < bestCount || (rarest == bestCount && ae - as > anchorLength)) {
+                    bestCount = rarest;
+                    anchorA = as;
+                    anchorB = bs;
+                    anchorLength = ae - as;
+                }
+                // later occurrences inside this match would only find the same run
+                while (next[i] >= 0 && next[i] < ae) {
+                    i = next[i];
+                }
+            }
+            j = nextJ;
+        }
+
+        for (int i = aLo; i < aHi; i++) {
+            count[a[i]] = 0;
+            head[a[i]] = -1;
+        }
+        if (anchorLength > 0) {
+            return 1;
+        }
+        return tooCommon ? -1 : 0;
+    }
+}
@@ -5,13 +5,18 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors; 
+import java.util.Map;
+import java.util.TreeMap;
 
 import objects.IndexEntry; 
 
 public class IndexManager {
-    private List<IndexEntry> indexEntries;
+    // stage 0 entries by path, in index order
+    private Map<String, IndexEntry> indexEntries;
+    // unresolved conflicts by path: the base, ours and theirs entries (null where a side has no file)
+    private final Map<String, IndexEntry[]> conflicts;
     private Path indexPath;
 
     public IndexManager() throws IOException {
@@ -19,7 +24,8 @@ public class IndexManager {
         Path currentDirectory = Paths.get("").toAbsolutePath();
         Path litPath = currentDirectory.resolve(".lit");
         this.indexPath = litPath.resolve("index");
-        this.indexEntries = new ArrayList<>(); // Initialize with an empty list
+        this.indexEntries = new LinkedHashMap<>(); // Initialize with an empty index
+        this.conflicts = new TreeMap<>();
 
         // Attempt to read existing index entries
         readIndex();
@@ -30,56 +36,119 @@ public class IndexManager {
             // Read all lines from the index file
             List<String> lines = Files.readAllLines(indexPath);
 
-            // Parse each line into an IndexEntry and add to the list
+            // Parse each line into an IndexEntry and add it to the entries or the conflicts
             for (String line : lines) {
                 try {
                     IndexEntry entry = IndexEntry.fromString(line);
-                    indexEntries.add(entry);
+                    if (entry.isConflicted()) {
+                        conflicts.computeIfAbsent(entry.getFilePath(), path -> new IndexEntry[3])[entry.getStage() - 1] = entry;
+                    } else {
+                        indexEntries.put(entry.getFilePath(), entry);
+                    }
                 } catch (IllegalArgumentException e) {
                     System.err.println("Warning: Skipping malformed index entry: " + line + " - " + e.getMessage());
                     // Continue processing other lines even if one is malformed
                 }
             }
         }
-        // If the file doesn't exist, indexEntries remains an empty ArrayList.
+        // If the file doesn't exist, the index stays empty.
     }
 
+    // adds or replaces the entry for a path; staging a path also marks its conflict as resolved
     public void addEntry(IndexEntry newEntry) {
-        // Iterate through existing entries to find if this file path already exists
-        boolean found = false;
-        for (int i = 0; i < indexEntries.size(); i++) {
-            if (indexEntries.get(i).getFilePath().equals(newEntry.getFilePath())) {
-                // If found, remove the old entry and add the new one
-                indexEntries.set(i, newEntry); // Replace existing entry
-                found = true;
-                break;
+        indexEntries.put(newEntry.getFilePath(), newEntry);
+        conflicts.remove(newEntry.getFilePath());
+    }
+
+    /**
+     * Records an unresolved conflict at path as stages 1 to 3, in place of its normal entry, until
+     * the path is staged again with addEntry or removed. Sides without a file are null.
+     */
+    public void addConflict(String path, IndexEntry base, IndexEntry ours, IndexEntry theirs) {
+        IndexEntry[] stages = new IndexEntry[3];
+        IndexEntry[] sides = {base, ours, theirs};
+        for (int i = 0; i < sides.length; i++) {
+            if (sides[i] != null) {
+                stages[i] = new IndexEntry(sides[i].getMode(), sides[i].getSha1(), path, i + 1);
             }
         }
-        if (!found) {
-            // If not found, add the new entry to the list
-            indexEntries.add(newEntry);
-        }
+        indexEntries.remove(path);
+        conflicts.put(path, stages);
     }
 
     public void writeIndex() throws IOException {
-        // Convert the list of IndexEntry objects to a list of strings
-        // using the toString() method implemented in IndexEntry.
-        List<String> linesToWrite = indexEntries.stream()
-                                              .map(IndexEntry::toString)
-                                              .collect(Collectors.toList());
+        // Convert the entries to lines using the toString() method implemented in IndexEntry,
+        // with the conflict stages of each unmerged path after the normal entries.
+        List<String> linesToWrite = new ArrayList<>(indexEntries.size());
+        for (IndexEntry entry : indexEntries.values()) {
+            linesToWrite.add(entry.toString());
+        }
+        for (IndexEntry[] stages : conflicts.values()) {
+            for (IndexEntry stage : stages) {
+                if (stage != null) {
+                    linesToWrite.add(stage.toString());
+                }
+            }
+        }
 
         // Write all lines to the index file, overwriting existing content.
         // Files.write creates the file if it doesn't exist.
         Files.write(indexPath, linesToWrite);
     }
 
-    // getter to inspect the current entries for debugging or other commands
+    // getter to inspect the current (stage 0) entries for debugging or other commands
     public List<IndexEntry> getIndexEntries() {
-        return new ArrayList<>(indexEntries); // Return a copy to prevent external modification
+        return new ArrayList<>(indexEntries.values()); // Return a copy to prevent external modification
+    }
+
+    // every entry including conflict stages, e.g. to find the blobs the index keeps alive
+    public List<IndexEntry> getAllEntries() {
+        List<IndexEntry> entries = getIndexEntries();
+        for (IndexEntry[] stages : conflicts.values()) {
+            for (IndexEntry stage : stages) {
+                if (stage != null) {
+                    entries.add(stage);
+                }
+            }
+        }
+        return entries;
     }
     
+    // entries keyed by path, in index order; changes to the map are not written back
+    public Map<String, IndexEntry> getEntryMap() {
+        return new LinkedHashMap<>(indexEntries);
+    }
+
+    public boolean hasConflicts() {
+        return !conflicts.isEmpty();
+    }
+
+    // unmerged paths in sorted order
+    public List<String> getConflictedPaths() {
+        return new ArrayList<>(conflicts.keySet());
+    }
+
+    /**
+     * The conflict stages recorded for path: the base, ours and theirs entries, null where a side
+     * has no file. Returns null if path has no unresolved conflict.
+     */
+    public IndexEntry[] getConflictStages(String path) {
+        IndexEntry[] stages = conflicts.get(path);
+        return stages == null ? null : stages.clone();
+    }
+
+    // replaces every entry in memory, e.g. after a checkout, dropping any conflicts; call writeIndex() to save
+    public void setEntries(List<IndexEntry> entries) {
+        this.indexEntries = new LinkedHashMap<>();
+        for (IndexEntry entry : entries) {
+            indexEntries.put(entry.getFilePath(), entry);
+        }
+        conflicts.clear();
+    }
+
     // remove entry helper
     public void removeEntry(String filePathToRemove) {
-    this.indexEntries.removeIf(entry -> entry.getFilePath().equals(filePathToRemove));
+        indexEntries.remove(filePathToRemove);
+        conflicts.remove(filePathToRemove);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,217 @@
+package utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import objects.IndexEntry;
+
+/**
+ * Verifies the object store, in two passes.
+ *
+ * The hash pass re-hashes every loose object on a pool of worker threads and compares the result
+ * with the file name. Files are streamed through a per-thread buffer, so large blobs are never
+ * held in memory. The connectivity pass walks from the branches, HEAD and the index with a
+ * tolerant ReachabilityWalker, which parses every commit and tree it reaches and records the
+ * objects that are missing or malformed. Objects that exist but were not reached are dangling.
+ */
+public class IntegrityChecker {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long PROGRESS_INTERVAL_MILLIS = 1000;
+
+    public static class Result {
+        public int objects;
+        public long bytes;
+        public long hashMillis;
+        public long walkMillis;
+        public final Map<String, String> corrupt = new TreeMap<>();  // sha -> actual hash
+        public final Map<String, String> missing = new TreeMap<>();  // sha -> expected type
+        public final Map<String, String> broken = new TreeMap<>();   // sha -> problem
+        public final List<String> dangling = new ArrayList<>();
+
+        public boolean hasErrors() {
+            return !corrupt.isEmpty() || !missing.isEmpty() || !broken.isEmpty();
+        }
+    }
+
+    /**
+     * Snapshot of the hash pass, handed to the progress callback roughly once a second.
+     */
+    public static class Progress {
+        public final int done;
+        public final int total;
+        public final long bytes;
+        public final long elapsedMillis;
+
+        Progress(int done, int total, long bytes, long elapsedMillis) {
+            this.done = done;
+            this.total = total;
+            this.bytes = bytes;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public double objectsPerSecond() {
+            return elapsedMillis == 0 ? 0 : done * 1000.0 / elapsedMillis;
+        }
+
+        public double megabytesPerSecond() {
+            return elapsedMillis == 0 ? 0 : bytes / (1024.0 * 1024.0) * 1000.0 / elapsedMillis;
+        }
+    }
+
+    /**
+     * Checks every loose object and the connectivity of the history.
+     *
+     * @param threads number of hashing and walking threads
+     * @param progress called periodically during the hash pass, and once at the end; may be null
+     */
+    public static Result check(int threads, Consumer<Progress> progress) throws IOException {
+        Result result = new Result();
+        List<Path> files = GarbageCollector.listObjectFiles();
+        result.objects = files.size();
+
+        hashObjects(files, Math.max(1, threads), progress, result);
+        Set<String> reachable = walkHistory(threads, result);
+
+        for (Path file : files) {
+            String sha = shaOf(file);
+            if (!reachable.contains(sha)) {
+                result.dangling.add(sha);
+            }
+        }
+        Collections.sort(result.dangling);
+        return result;
+    }
+
+    private static void hashObjects(List<Path> files, int threads, Consumer<Progress> progress, Result result)
+            throws IOException {
+        long start = System.currentTimeMillis();
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        AtomicLong bytes = new AtomicLong();
+        Map<String, String> corrupt = Collections.synchronizedMap(result.corrupt);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "lit-fsck");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<?>> workers = new ArrayList<>();
+        try {
+            // each worker pulls files off a shared cursor, so a few huge blobs cannot stall a thread's share
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> {
+                    MessageDigest digest = newDigest();
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    int i;
+                    while ((i = next.getAndIncrement()) < files.size()) {
+                        Path file = files.get(i);
+                        digest.reset();
+                        try (InputStream in = Files.newInputStream(file)) {
+                            int n;
+                            while ((n = in.read(buffer)) > 0) {
+                                digest.update(buffer, 0, n);
+                                bytes.addAndGet(n);
+                            }
+                        }
+                        String actual = bytesToHex(digest.digest());
+                        String expected = shaOf(file);
+                        if (!actual.equals(expected)) {
+                            corrupt.put(expected, actual);
+                        }
+                        done.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> worker : workers) {
+                while (true) {
+                    try {
+                        worker.get(PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                        break;
+                    } catch (TimeoutException e) {
+                        if (progress != null) {
+                            progress.accept(new Progress(done.get(), files.size(), bytes.get(),
+                                    System.currentTimeMillis() - start));
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while hashing objects.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        result.bytes = bytes.get();
+        result.hashMillis = System.currentTimeMillis() - start;
+        if (progress != null) {
+            progress.accept(new Progress(done.get(), files.size(), result.bytes, result.hashMillis));
+        }
+    }
+
+    private static Set<String> walkHistory(int threads, Result result) throws IOException {
+        long start = System.currentTimeMillis();
+        List<String> indexBlobs = new ArrayList<>();
+        for (IndexEntry entry : new IndexManager().getAllEntries()) {
+            if (!entry.isDeleted()) {
+                indexBlobs.add(entry.getSha1());
+            }
+        }
+
+        ReachabilityWalker walker = new ReachabilityWalker(threads, true);
+        Set<String> reachable = walker.walk(new ReferenceManager().getAllCommitTips(), indexBlobs);
+        result.missing.putAll(walker.getMissing());
+        result.broken.putAll(walker.getBroken());
+        result.walkMillis = System.currentTimeMillis() - start;
+        return reachable;
+    }
+
+    private static String shaOf(Path objectFile) {
+        return objectFile.getParent().getFileName().toString() + objectFile.getFileName().toString();
+    }
+
+    private static String bytesToHex(byte[] hash) {
+        StringBuilder hexString = new StringBuilder();
+        for (byte b : hash) {
+            String hex = Integer.toHexString(0xff & b);
+            if (hex.length() == 1) {
+                hexString.append('0');
+            }
+            hexString.append(hex);
+        }
+        return hexString.toString();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+}
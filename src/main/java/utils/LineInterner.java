@@ -0,0 +1,127 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maps lines of text to small integer ids, so that the diff algorithms compare ints instead of
+ * strings. Equal lines get equal ids as long as they go through the same interner, so every
+ * version of a file taking part in one diff or merge must share an instance.
+ *
+ * Lines are looked up in an open-addressing hash table that points back at the first occurrence
+ * of each distinct line, so interning a RawText compares ranges of the original string and never
+ * copies a line.
+ */
+public class LineInterner {
+
+    private int[] slots = new int[1024]; // id + 1 of the line hashed to each slot, 0 when empty
+    private String[] texts = new String[256];
+    private int[] starts = new int[256];
+    private int[] ends = new int[256];
+    private int[] hashes = new int[256];
+    private int size;
+
+    public int[] intern(List<String> lines) {
+        int[] result = new int[lines.size()];
+        for (int i = 0; i < result.length; i++) {
+            String line = lines.get(i);
+            result[i] = id(line, 0, line.length());
+        }
+        return result;
+    }
+
+    /**
+     * Interns the lines of text together with their '\n', like splitLines does, so that a last line
+     * without one gets a different id than the same line with one: adding or removing only the
+     * final newline is then an edit of that line.
+     */
+    public int[] intern(RawText text) {
+        String content = text.getContent();
+        int[] result = new int[text.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = id(content, text.start(i), Math.min(text.end(i) + 1, content.length()));
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int id(String text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        int mask = slots.length - 1;
+        int length = end - start;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return add(slot, text, start, end, hash);
+            }
+            int id = entry - 1;
+            if (hashes[id] == hash && ends[id] - starts[id] == length
+                    && texts[id].regionMatches(starts[id], text, start, length)) {
+                return id;
+            }
+        }
+    }
+
+    private int add(int slot, String text, int start, int end, int hash) {
+        if (size == texts.length) {
+            int capacity = size * 2;
+            texts = Arrays.copyOf(texts, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+        }
+        int id = size++;
+        texts[id] = text;
+        starts[id] = start;
+        ends[id] = end;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    // keeps the table at most half full
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = spread(hashes[id]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    // String.hashCode() is weak in its low bits for short lines that differ at the end
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Splits text into lines, each keeping its '\n'. Only the last line can lack one, so a file
+     * with and without a trailing newline differ in their last line and joining the lines gives
+     * back the original text.
+     */
+    public static List<String> splitLines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int newline = text.indexOf('\n', start);
+            int end = newline < 0 ? text.length() : newline + 1;
+            lines.add(text.substring(start, end));
+            start = end;
+        }
+        return lines;
+    }
+}
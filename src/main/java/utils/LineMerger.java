@@ -0,0 +1,168 @@
+package utils;
+
+import java.util.List;
+
+/**
+ * Line-level three-way merge (diff3) of two versions of a file that share a base version.
+ *
+ * Both sides are diffed against the base, and the edits are walked in base order. An edit made by
+ * only one side is taken as is. Edits of the two sides that overlap or touch in the base are
+ * grouped into one region: if both sides produced the same lines there it is taken once,
+ * otherwise the region becomes a conflict and only that region is wrapped in markers. Lines are
+ * interned once, so the diffs and the comparisons of conflicting regions all work on ints.
+ */
+public class LineMerger {
+
+    public static class Result {
+        private final String content;
+        private final int conflicts;
+
+        Result(String content, int conflicts) {
+            this.content = content;
+            this.conflicts = conflicts;
+        }
+
+        /** The merged text, with conflict markers around the regions that could not be merged. */
+        public String getContent() {
+            return content;
+        }
+
+        public int getConflictCount() {
+            return conflicts;
+        }
+
+        public boolean isClean() {
+            return conflicts == 0;
+        }
+    }
+
+    /**
+     * Merges ours and theirs, both derived from base. A file added on both sides is merged with an
+     * empty base.
+     *
+     * @param oursLabel   label for the "<<<<<<<" marker, e.g. "HEAD"
+     * @param theirsLabel label for the ">>>>>>>" marker, e.g. the branch name
+     */
+    public static Result merge(String base, String ours, String theirs, String oursLabel, String theirsLabel) {
+        List<String> baseLines = LineInterner.splitLines(base == null ? "" : base);
+        List<String> ourLines = LineInterner.splitLines(ours);
+        List<String> theirLines = LineInterner.splitLines(theirs);
+
+        LineInterner interner = new LineInterner();
+        int[] baseIds = interner.intern(baseLines);
+        int[] ourIds = interner.intern(ourLines);
+        int[] theirIds = interner.intern(theirLines);
+
+        List<Edit> ourEdits = MyersDiff.diff(baseIds, ourIds);
+        List<Edit> theirEdits = MyersDiff.diff(baseIds, theirIds);
+
+        StringBuilder merged = new StringBuilder(Math.max(ours.length(), theirs.length()));
+        int conflicts = 0;
+        int basePos = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < ourEdits.size() || j < theirEdits.size()) {
+            // start a region at the edit that comes first in the base
+            boolean startWithOurs = j >= theirEdits.size()
+                    || (i < ourEdits.size() && ourEdits.get(i).beginA <= theirEdits.get(j).beginA);
+            int firstOurs = i;
+            int firstTheirs = j;
+            int regionStart;
+            int regionEnd;
+            if (startWithOurs) {
+                regionStart = ourEdits.get(i).beginA;
+                regionEnd = ourEdits.get(i).endA;
+                i++;
+            } else {
+                regionStart = theirEdits.get(j).beginA;
+                regionEnd = theirEdits.get(j).endA;
+                j++;
+            }
+
+            // pull in every edit of either side that overlaps or touches the region
+            boolean grown = true;
+            while (grown) {
+                grown = false;
+                if (i < ourEdits.size() && ourEdits.get(i).beginA <= regionEnd) {
+                    regionEnd = Math.max(regionEnd, ourEdits.get(i).endA);
+                    i++;
+                    grown = true;
+                }
+                if (j < theirEdits.size() && theirEdits.get(j).beginA <= regionEnd) {
+                    regionEnd = Math.max(regionEnd, theirEdits.get(j).endA);
+                    j++;
+                    grown = true;
+                }
+            }
+
+            appendLines(merged, baseLines, basePos, regionStart);
+            basePos = regionEnd;
+
+            boolean oursChanged = i > firstOurs;
+            boolean theirsChanged = j > firstTheirs;
+            if (!theirsChanged) {
+                int[] range = sideRange(ourEdits, firstOurs, i, regionStart, regionEnd);
+                appendLines(merged, ourLines, range[0], range[1]);
+            } else if (!oursChanged) {
+                int[] range = sideRange(theirEdits, firstTheirs, j, regionStart, regionEnd);
+                appendLines(merged, theirLines, range[0], range[1]);
+            } else {
+                int[] ourRange = sideRange(ourEdits, firstOurs, i, regionStart, regionEnd);
+                int[] theirRange = sideRange(theirEdits, firstTheirs, j, regionStart, regionEnd);
+                if (sameLines(ourIds, ourRange, theirIds, theirRange)) {
+                    appendLines(merged, ourLines, ourRange[0], ourRange[1]);
+                } else {
+                    conflicts++;
+                    merged.append("<<<<<<< ").append(oursLabel).append('\n');
+                    appendLinesTerminated(merged, ourLines, ourRange[0], ourRange[1]);
+                    merged.append("=======\n");
+                    appendLinesTerminated(merged, theirLines, theirRange[0], theirRange[1]);
+                    merged.append(">>>>>>> ").append(theirsLabel).append('\n');
+                }
+            }
+        }
+        appendLines(merged, baseLines, basePos, baseLines.size());
+        return new Result(merged.toString(), conflicts);
+    }
+
+    /**
+     * Maps the base region [regionStart, regionEnd) to the matching lines of one side, given the
+     * side's edits [from, to) inside the region. Outside its edits a side equals the base, so the
+     * unchanged margins of the region shift by the same amount as the edits next to them.
+     */
+    private static int[] sideRange(List<Edit> edits, int from, int to, int regionStart, int regionEnd) {
+        Edit first = edits.get(from);
+        Edit last = edits.get(to - 1);
+        return new int[] {
+            first.beginB - (first.beginA - regionStart),
+            last.endB + (regionEnd - last.endA)
+        };
+    }
+
+    private static boolean sameLines(int[] ours, int[] ourRange, int[] theirs, int[] theirRange) {
+        if (ourRange[1] - ourRange[0] != theirRange[1] - theirRange[0]) {
+            return false;
+        }
+        for (int k = 0; k < ourRange[1] - ourRange[0]; k++) {
+            if (ours[ourRange[0] + k] != theirs[theirRange[0] + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void appendLines(StringBuilder out, List<String> lines, int from, int to) {
+        for (int k = from; k < to; k++) {
+            out.append(lines.get(k));
+        }
+    }
+
+    // inside conflict markers a missing final newline would glue the last line to the next marker
+    private static void appendLinesTerminated(StringBuilder out, List<String> lines, int from, int to) {
+        appendLines(out, lines, from, to);
+        if (to > from && !lines.get(to - 1).endsWith("\n")) {
+            out.append('\n');
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exclusive lock on a file under .lit, in the form of a sibling "<name>.lock" file.
+ *
+ * Creating the lock file fails if it already exists, so only one writer can hold it. The new
+ * content is written to the lock file and flushed to disk, and commit() renames it over the target
+ * in one atomic step: readers see either the old or the new content, never a partial write.
+ * Closing a lock that was not committed deletes it and leaves the target untouched.
+ */
+public class LockFile implements AutoCloseable {
+
+    private final Path target;
+    private final Path lock;
+    private boolean committed;
+
+    private LockFile(Path target, Path lock) {
+        this.target = target;
+        this.lock = lock;
+    }
+
+    /**
+     * Takes the lock for target.
+     *
+     * @throws IOException if another process holds it
+     */
+    public static LockFile acquire(Path target) throws IOException {
+        Path lock = target.resolveSibling(target.getFileName() + ".lock");
+        try {
+            Files.createFile(lock);
+        } catch (FileAlreadyExistsException e) {
+            throw new IOException("Unable to lock '" + target + "': " + lock + " already exists. "
+                    + "Another lit process may be running; if not, remove the lock file.");
+        }
+        return new LockFile(target, lock);
+    }
+
+    public Path getTarget() {
+        return target;
+    }
+
+    /**
+     * Writes the new content to the lock file and forces it to disk.
+     */
+    public void write(byte[] content) throws IOException {
+        try (FileChannel channel = FileChannel.open(lock, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Renames the lock file over the target, which also releases the lock.
+     */
+    public void commit() throws IOException {
+        Files.move(lock, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        committed = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            Files.deleteIfExists(lock);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package utils;
+
+/**
+ * One path that a three-way merge could not resolve on its own, with the blob (or tree) each side
+ * has there. A side that has nothing at the path has a null SHA-1.
+ */
+public class MergeConflict {
+
+    public enum Type {
+        CONTENT,        // both sides edited the same lines of a file
+        ADD_ADD,        // both sides added the file with different content
+        MODIFY_DELETE,  // one side edited the file, the other deleted it
+        FILE_DIRECTORY  // one side has a file where the other has a directory
+    }
+
+    private final String path;
+    private final Type type;
+    private final String baseSha;
+    private final String oursSha;
+    private final String theirsSha;
+
+    public MergeConflict(String path, Type type, String baseSha, String oursSha, String theirsSha) {
+        this.path = path;
+        this.type = type;
+        this.baseSha = baseSha;
+        this.oursSha = oursSha;
+        this.theirsSha = theirsSha;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getBaseSha() {
+        return baseSha;
+    }
+
+    public String getOursSha() {
+        return oursSha;
+    }
+
+    public String getTheirsSha() {
+        return theirsSha;
+    }
+
+    @Override
+    public String toString() {
+        return "CONFLICT (" + type.name().toLowerCase().replace('_', '/') + "): " + path;
+    }
+}
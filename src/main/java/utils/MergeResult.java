@@ -6,18 +6,33 @@ import java.util.List;
 /**
  * A data class to hold the results of a three-way merge operation.
  * It indicates whether the merge was successful (no conflicts) and provides a list
- * of any files that are in a conflicted state.
+ * of any files that are in a conflicted state. An in-memory merge also carries the
+ * SHA-1 of the merged tree and a description of each conflict.
  */
 public class MergeResult {
 
     private final boolean successful;
     private final List<String> conflictedFiles;
+    private final String treeSha;
+    private final List<MergeConflict> conflicts;
 
     // list of file paths that have conflicts, successful merge if the list is empty.
 
     public MergeResult(List<String> conflictedFiles) {
         this.conflictedFiles = conflictedFiles;
         this.successful = conflictedFiles.isEmpty();
+        this.treeSha = null;
+        this.conflicts = new ArrayList<>();
+    }
+
+    public MergeResult(String treeSha, List<MergeConflict> conflicts) {
+        this.treeSha = treeSha;
+        this.conflicts = conflicts;
+        this.conflictedFiles = new ArrayList<>();
+        for (MergeConflict conflict : conflicts) {
+            conflictedFiles.add(conflict.getPath());
+        }
+        this.successful = conflicts.isEmpty();
     }
 
     public boolean isSuccess() {
@@ -27,4 +42,13 @@ public class MergeResult {
     public List<String> getConflictedFiles() {
         return new ArrayList<>(conflictedFiles); // returns a copy
     }
-}
\ No newline at end of file
+
+    // SHA-1 of the merged tree, with conflicted files holding their conflict markers; null for a working directory merge
+    public String getTreeSha() {
+        return treeSha;
+    }
+
+    public List<MergeConflict> getConflicts() {
+        return new ArrayList<>(conflicts);
+    }
+}
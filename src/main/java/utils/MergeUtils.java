@@ -1,20 +1,23 @@
 package utils;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.Set;
-import java.util.stream.Collectors;
 
+import objects.BlobObject;
 import objects.CommitObject;
 import objects.IndexEntry;
 import objects.TreeEntry;
-import objects.TreeObject; 
 
 public class MergeUtils {
 
@@ -79,68 +82,96 @@ public class MergeUtils {
     }
 
     public static TreeDiffResult diffTrees(String baseTreeSha, String otherTreeSha) throws IOException {
+        return diffTrees(baseTreeSha, otherTreeSha, Pathspec.ALL);
+    }
+
+    // the changes between two trees at the paths pathspec selects; other subtrees are never read
+    public static TreeDiffResult diffTrees(String baseTreeSha, String otherTreeSha, Pathspec pathspec) throws IOException {
         TreeDiffResult result = new TreeDiffResult();
-        // First, load the actual TreeObjects from their SHA-1 hashes.
-        TreeObject baseTree = ObjectLoader.loadTree(baseTreeSha);
-        TreeObject otherTree = ObjectLoader.loadTree(otherTreeSha);
-
-        // Flatten each tree into a map of {filepath -> TreeEntry} to make comparison easy.
-        Map<String, TreeEntry> baseFiles = flattenTreeToMap(baseTree);
-        Map<String, TreeEntry> otherFiles = flattenTreeToMap(otherTree);
-
-        for (Map.Entry<String, TreeEntry> baseEntry : baseFiles.entrySet()) {
-            String filePath = baseEntry.getKey();
-            TreeEntry baseFile = baseEntry.getValue();
-
-            // Check if the file from the base tree exists in the new tree
-            if (!otherFiles.containsKey(filePath)) {
-                // If it doesn't, its deleted
-                result.addDeletedFile(baseFile, filePath);
-            } else {
-                // if the file exists in both trees, now checking if its modified
-                TreeEntry otherFile = otherFiles.get(filePath);
+        diffTrees(baseTreeSha, otherTreeSha, "", pathspec, result);
+        return result;
+    }
 
-                // Compare the SHA-1 hashes. If they are different, the file content is modified.
-                if (!baseFile.getObjectSha1Id().equals(otherFile.getObjectSha1Id())) {
-                    result.addModifiedFile(otherFile, filePath); 
-                }
-            }
+    /**
+     * Lists every file of a tree that pathspec selects, by full path, in tree order. Subtrees that
+     * the pathspec cannot reach are not read.
+     */
+    public static Map<String, TreeEntry> listFiles(String treeSha, Pathspec pathspec) throws IOException {
+        Map<String, TreeEntry> files = new LinkedHashMap<>();
+        TreeIterator tree = TreeIterator.forTree(treeSha);
+        while (tree.next()) {
+            collectFiles(tree, "", pathspec, (entry, fullPath) -> files.put(fullPath, entry));
         }
+        return files;
+    }
 
-        for (Map.Entry<String, TreeEntry> otherEntry : otherFiles.entrySet()) {
-            String filePath = otherEntry.getKey();
-            TreeEntry otherFile = otherEntry.getValue();
-
-            // If a file from the new tree doesnt exist in the base tree, its a new added file.
-            if (!baseFiles.containsKey(filePath)) {
-                result.addAddedFile(otherFile, filePath);
+    // Walks both trees side by side in name order. Subtrees with the same SHA-1 are skipped without
+    // being read, and a TreeEntry is only materialized for paths that actually changed.
+    private static void diffTrees(String baseTreeSha, String otherTreeSha, String prefix, Pathspec pathspec,
+                                  TreeDiffResult result) throws IOException {
+        if (baseTreeSha.equals(otherTreeSha)) {
+            return;
+        }
+        TreeIterator base = TreeIterator.forTree(baseTreeSha);
+        TreeIterator other = TreeIterator.forTree(otherTreeSha);
+        boolean hasBase = base.next();
+        boolean hasOther = other.next();
+
+        while (hasBase || hasOther) {
+            int cmp = !hasBase ? 1 : !hasOther ? -1 : TreeIterator.compareNames(base, other);
+
+            if (cmp < 0) {
+                // only in the base tree, so it was deleted
+                collectFiles(base, prefix, pathspec, result::addDeletedFile);
+                hasBase = base.next();
+            } else if (cmp > 0) {
+                // only in the other tree, so it was added
+                collectFiles(other, prefix, pathspec, result::addAddedFile);
+                hasOther = other.next();
+            } else {
+                if (!base.sameObject(other)) {
+                    String path = prefix + base.getName();
+                    if (base.isTree() && other.isTree()) {
+                        if (pathspec.mayMatchDirectory(path)) {
+                            diffTrees(base.getObjectSha1Id(), other.getObjectSha1Id(), path + "/", pathspec, result);
+                        }
+                    } else if (base.isBlob() && other.isBlob()) {
+                        if (pathspec.matches(path)) {
+                            result.addModifiedFile(other.toTreeEntry(), path);
+                        }
+                    } else {
+                        // a file was replaced by a directory or the other way round
+                        collectFiles(base, prefix, pathspec, result::addDeletedFile);
+                        collectFiles(other, prefix, pathspec, result::addAddedFile);
+                    }
+                }
+                hasBase = base.next();
+                hasOther = other.next();
             }
         }
-        
-        return result;
     }
 
+    private interface FileCollector {
+        void accept(TreeEntry entry, String fullPath);
+    }
 
-    //A recursive helper method to flatten a TreeObject into a map of file paths to their TreeEntry objects.
-    private static void flattenTree(TreeObject tree, Path currentPath, Map<String, TreeEntry> fileMap) throws IOException {
-        for (TreeEntry entry : tree.getEntries()) {
-            Path newPath = currentPath.resolve(entry.getName());
-            
-            if ("blob".equals(entry.getType())) {
-                // Adding only blobs to the map
-                fileMap.put(newPath.toString().replace("\\", "/"), entry);
-            } else if ("tree".equals(entry.getType())) {
-                // If it's a subdirectory (tree), we need to recurse deeper
-                TreeObject subTree = ObjectLoader.loadTree(entry.getObjectSha1Id());
-                flattenTree(subTree, newPath, fileMap); // Recursive call
+    // reports the entry at the cursor, or every file below it if it is a subtree, as far as pathspec selects them
+    private static void collectFiles(TreeIterator cursor, String prefix, Pathspec pathspec, FileCollector collector)
+            throws IOException {
+        String path = prefix + cursor.getName();
+        if (cursor.isBlob()) {
+            if (pathspec.matches(path)) {
+                collector.accept(cursor.toTreeEntry(), path);
             }
+            return;
+        }
+        if (!pathspec.mayMatchDirectory(path)) {
+            return;
+        }
+        TreeIterator subTree = TreeIterator.forTree(cursor.getObjectSha1Id());
+        while (subTree.next()) {
+            collectFiles(subTree, path + "/", pathspec, collector);
         }
-    }
-    
-    private static Map<String, TreeEntry> flattenTreeToMap(TreeObject tree) throws IOException {
-        Map<String, TreeEntry> fileMap = new HashMap<>();
-        flattenTree(tree, Paths.get(""), fileMap);
-        return fileMap;
     }
 
     // for a three-way merge between two commits
@@ -178,86 +209,272 @@ public class MergeUtils {
         CommitObject otherCommit = ObjectLoader.loadCommit(otherCommitSha);
         CommitObject ancestorCommit = ObjectLoader.loadCommit(ancestorSha);
 
-        String headTreeSha = headCommit.getTreeSha1();
-        String otherTreeSha = otherCommit.getTreeSha1();
-        String ancestorTreeSha = ancestorCommit.getTreeSha1();
-
-        // changes for each branch relative to the ancestor
-        TreeDiffResult headChanges = diffTrees(ancestorTreeSha, headTreeSha);
-        TreeDiffResult otherChanges = diffTrees(ancestorTreeSha, otherTreeSha);
+        // line up files one side renamed and the other edited, so they merge instead of conflicting
+        RenamedTrees trees = followRenames(ancestorCommit.getTreeSha1(), headCommit.getTreeSha1(), otherCommit.getTreeSha1());
 
         IndexManager indexManager = new IndexManager();
         List<String> conflictedFiles = new ArrayList<>();
+        Path root = Paths.get("").toAbsolutePath();
+        Rerere rerere = new Rerere(root.resolve(".lit"));
+        rerere.clearPending();
+        Set<String> written = new HashSet<>(); // paths the walk wrote into the working directory
+
+        // one walk over the three trees; subtrees that two sides share are never opened
+        TreeMerger treeMerger = new TreeMerger(new TreeMerger.Listener() {
+            @Override
+            public void takeTheirs(String file, TreeEntry ours, TreeEntry theirs) throws IOException {
+                written.add(file);
+                if (theirs == null) {
+                    System.out.println("MERGE: Deleting '" + file + "'");
+                    Path target = root.resolve(file);
+                    WorkingDirManager.deleteFile(target);
+                    WorkingDirManager.deleteEmptyParents(target.getParent(), root);
+                    indexManager.removeEntry(file);
+                    return;
+                }
+                System.out.println((ours == null ? "MERGE: Adding '" : "MERGE: Modifying '") + file + "'");
+                WorkingDirManager.writeBlobToWorkingDir(theirs.getObjectSha1Id(), Paths.get(file));
+                indexManager.addEntry(new IndexEntry(theirs.getMode(), theirs.getObjectSha1Id(), file));
+            }
+
+            @Override
+            public TreeEntry conflict(String file, TreeEntry base, TreeEntry ours, TreeEntry theirs) {
+                written.add(file);
+                if (isTree(base) || isTree(ours) || isTree(theirs)) {
+                    // a file on one side and a directory on the other; the working directory keeps ours
+                    System.out.println("CONFLICT (file/directory): '" + file + "' requires resolution.");
+                    conflictedFiles.add(file);
+                    indexManager.addConflict(file, stage(base), stage(ours), stage(theirs));
+                    return null;
+                }
 
-        // map of the "other" branch's files for easy access to TreeEntry objects
-        Map<String, TreeEntry> otherFilesMap = otherChanges.getAllFilesAsMap();
-
-        // sets of filepaths for efficient lookup
-        Set<String> headAdded = headChanges.getAddedFiles().stream().map(TreeDiffResult.TreeEntryWithPath::getFullPath).collect(Collectors.toSet());
-        Set<String> headModified = headChanges.getModifiedFiles().stream().map(TreeDiffResult.TreeEntryWithPath::getFullPath).collect(Collectors.toSet());
-        Set<String> headDeleted = headChanges.getDeletedFiles().stream().map(TreeDiffResult.TreeEntryWithPath::getFullPath).collect(Collectors.toSet());
-
-        Set<String> otherAdded = otherChanges.getAddedFiles().stream().map(TreeDiffResult.TreeEntryWithPath::getFullPath).collect(Collectors.toSet());
-        Set<String> otherModified = otherChanges.getModifiedFiles().stream().map(TreeDiffResult.TreeEntryWithPath::getFullPath).collect(Collectors.toSet());
-        Set<String> otherDeleted = otherChanges.getDeletedFiles().stream().map(TreeDiffResult.TreeEntryWithPath::getFullPath).collect(Collectors.toSet());
-
-        // all unique file paths from both sets of changes combined into a master list.
-        Set<String> allChangedFiles = new HashSet<>();
-        allChangedFiles.addAll(headChanges.getAllFilePaths()); // helper method to be added
-        allChangedFiles.addAll(otherChanges.getAllFilePaths());
-
-        // analyzing file changes
-        for (String file : allChangedFiles) {
-            boolean isModifiedInHead = headModified.contains(file);
-            boolean isModifiedInOther = otherModified.contains(file);
-            boolean isDeletedInHead = headDeleted.contains(file);
-            boolean isDeletedInOther = otherDeleted.contains(file);
-            boolean isAddedInHead = headAdded.contains(file);
-            boolean isAddedInOther = otherAdded.contains(file);
-
-            // conflict if a file modified is in both branches
-            if ((isModifiedInHead && isModifiedInOther) ||
-                (isModifiedInHead && isDeletedInOther) ||
-                (isDeletedInHead && isModifiedInOther) ||
-                (isAddedInHead && isAddedInOther)) {
-                
-                System.out.println("CONFLICT: '" + file + "' requires resolution.");
-                conflictedFiles.add(file);
-                
-                // calling the ConflictHandler to write the conflicted file
+                // calling the ConflictHandler to merge the file, with markers around any conflicting lines
+                boolean merged = false;
                 try {
-                    ConflictHandler.handleConflict(file, headCommitSha, otherCommitSha, 
-                                                ancestorSha, otherBranchName);
+                    merged = ConflictHandler.mergeBlobs(file, sha(base), sha(ours), sha(theirs), otherBranchName);
+                    // the same hunks may have been resolved in an earlier merge
+                    if (!merged && ours != null && theirs != null && !BinaryDetector.isBinaryBlob(ours.getObjectSha1Id())
+                            && !BinaryDetector.isBinaryBlob(theirs.getObjectSha1Id()) && rerere.resolveFile(root, file)) {
+                        System.out.println("Resolved '" + file + "' using previous resolution.");
+                        merged = true;
+                    }
                 } catch (IOException e) {
                     System.err.println("Error handling conflict for file " + file + ": " + e.getMessage());
                     // keep processing other files even if one fails
                 }
-                
-                continue;
-            }
 
-            else if (isAddedInOther) {
-                System.out.println("MERGE: Adding '" + file + "'");
-                TreeEntry entry = otherFilesMap.get(file);
-                WorkingDirManager.writeBlobToWorkingDir(entry.getObjectSha1Id(), Paths.get(file));
-                indexManager.addEntry(new IndexEntry(entry.getMode(), entry.getObjectSha1Id(), file));
-            } 
-            else if (isModifiedInOther) {
-                System.out.println("MERGE: Modifying '" + file + "'");
-                TreeEntry entry = otherFilesMap.get(file);
-                WorkingDirManager.writeBlobToWorkingDir(entry.getObjectSha1Id(), Paths.get(file));
-                indexManager.addEntry(new IndexEntry(entry.getMode(), entry.getObjectSha1Id(), file));
+                if (merged) {
+                    // the edits did not overlap, so the merged file is staged like any other change
+                    BlobObject blob = new BlobObject(file);
+                    blob.save();
+                    indexManager.addEntry(new IndexEntry("100644", blob.getSha1(), file));
+                } else {
+                    System.out.println("CONFLICT: '" + file + "' requires resolution.");
+                    conflictedFiles.add(file);
+                    // the three versions go into the index, where status and commit find them
+                    indexManager.addConflict(file, stage(base), stage(ours), stage(theirs));
+                }
+                return null;
             }
-            else if (isDeletedInOther) {
-                System.out.println("MERGE: Deleting '" + file + "'");
-                WorkingDirManager.deleteFile(Paths.get(file));
-                indexManager.removeEntry(file); // Assumes IndexManager has this method
+        });
+        treeMerger.merge(trees.base, trees.ours, trees.theirs);
+
+        // the working directory still has our edited copies at the paths the other branch renamed away from
+        Map<String, IndexEntry> staged = indexManager.getEntryMap();
+        for (Map.Entry<String, String> moved : trees.movedInOurs.entrySet()) {
+            System.out.println("MERGE: Renaming '" + moved.getKey() + "' -> '" + moved.getValue() + "'");
+            if (!written.contains(moved.getValue())) {
+                // the other branch only renamed the file, so our edit is the result and moves as is
+                String blobSha = TreeIterator.findBlob(trees.ours, moved.getValue());
+                IndexEntry old = staged.get(moved.getKey());
+                WorkingDirManager.writeBlobToWorkingDir(blobSha, Paths.get(moved.getValue()));
+                indexManager.addEntry(new IndexEntry(old != null ? old.getMode() : "100644", blobSha, moved.getValue()));
             }
+            Path target = root.resolve(moved.getKey());
+            WorkingDirManager.deleteFile(target);
+            WorkingDirManager.deleteEmptyParents(target.getParent(), root);
+            indexManager.removeEntry(moved.getKey());
         }
+
         indexManager.writeIndex();
         System.out.println("\n--- Merge processing complete! ---");
 
         return new MergeResult(conflictedFiles);
     }
+
+    /**
+     * Merges two commits purely in the object database: the merged tree, including the blobs of
+     * conflicted files with their conflict markers, is written as objects and nothing in the
+     * working directory or the index is read or changed. Each call only uses its own state, so
+     * many merges can run at the same time, e.g. to find out which branches would conflict.
+     *
+     * @return the SHA-1 of the merged tree and the conflicts, if any
+     * @throws IOException if the commits have no common ancestor or objects cannot be read
+     */
+    public static MergeResult mergeInMemory(String oursCommitSha, String theirsCommitSha,
+                                            String oursLabel, String theirsLabel) throws IOException {
+        String ancestorSha = findCommonAncestor(oursCommitSha, theirsCommitSha);
+        if (ancestorSha == null) {
+            throw new IOException("No common ancestor between " + oursCommitSha + " and " + theirsCommitSha + ".");
+        }
+        String oursTree = ObjectLoader.loadCommit(oursCommitSha).getTreeSha1();
+        String theirsTree = ObjectLoader.loadCommit(theirsCommitSha).getTreeSha1();
+        List<MergeConflict> conflicts = new ArrayList<>();
+
+        if (ancestorSha.equals(theirsCommitSha)) {
+            return new MergeResult(oursTree, conflicts);
+        }
+        if (ancestorSha.equals(oursCommitSha)) {
+            return new MergeResult(theirsTree, conflicts);
+        }
+        RenamedTrees trees = followRenames(ObjectLoader.loadCommit(ancestorSha).getTreeSha1(), oursTree, theirsTree);
+        Rerere rerere = new Rerere(Paths.get("").toAbsolutePath().resolve(".lit"));
+
+        TreeMerger treeMerger = new TreeMerger(new TreeMerger.Listener() {
+            @Override
+            public void takeTheirs(String file, TreeEntry ours, TreeEntry theirs) {
+                // the merged tree takes the entry as is; there is no working directory to update
+            }
+
+            @Override
+            public TreeEntry conflict(String file, TreeEntry base, TreeEntry ours, TreeEntry theirs) throws IOException {
+                String baseSha = base == null ? null : base.getObjectSha1Id();
+                String oursSha = ours == null ? null : ours.getObjectSha1Id();
+                String theirsSha = theirs == null ? null : theirs.getObjectSha1Id();
+
+                if (isTree(base) || isTree(ours) || isTree(theirs)) {
+                    conflicts.add(new MergeConflict(file, MergeConflict.Type.FILE_DIRECTORY, baseSha, oursSha, theirsSha));
+                    return ours;
+                }
+                if (ours == null || theirs == null) {
+                    // the edited version stays in the tree so the edit is not lost
+                    conflicts.add(new MergeConflict(file, MergeConflict.Type.MODIFY_DELETE, baseSha, oursSha, theirsSha));
+                    return ours != null ? ours : theirs;
+                }
+
+                MergeConflict.Type type = base == null ? MergeConflict.Type.ADD_ADD : MergeConflict.Type.CONTENT;
+                if ((baseSha != null && BinaryDetector.isBinaryBlob(baseSha))
+                        || BinaryDetector.isBinaryBlob(oursSha) || BinaryDetector.isBinaryBlob(theirsSha)) {
+                    // binary files are not merged line by line; the merged tree keeps our version whole
+                    conflicts.add(new MergeConflict(file, type, baseSha, oursSha, theirsSha));
+                    return ours;
+                }
+
+                LineMerger.Result merged = LineMerger.merge(
+                        base == null ? null : new String(ObjectLoader.loadBlob(baseSha), StandardCharsets.UTF_8),
+                        new String(ObjectLoader.loadBlob(oursSha), StandardCharsets.UTF_8),
+                        new String(ObjectLoader.loadBlob(theirsSha), StandardCharsets.UTF_8),
+                        oursLabel, theirsLabel);
+                String result = merged.getContent();
+                if (!merged.isClean()) {
+                    // a recorded resolution is applied, but no new one is recorded without a working directory
+                    String resolved = rerere.resolve(result);
+                    if (resolved != null) {
+                        result = resolved;
+                    } else {
+                        conflicts.add(new MergeConflict(file, type, baseSha, oursSha, theirsSha));
+                    }
+                }
+                byte[] content = result.getBytes(StandardCharsets.UTF_8);
+                String blobSha = sha1Hex(content);
+                Content.saveObject(blobSha, content);
+                return new TreeEntry(ours.getMode(), "blob", blobSha, ours.getName());
+            }
+        }, true);
+
+        String mergedTree = treeMerger.merge(trees.base, trees.ours, trees.theirs);
+        return new MergeResult(mergedTree, conflicts);
+    }
+
+    // the three trees of a merge, after followRenames moved renamed files into place
+    private static class RenamedTrees {
+        String base;
+        String ours;
+        String theirs;
+        final Map<String, String> movedInOurs = new TreeMap<>(); // old path -> new path
+
+        RenamedTrees(String base, String ours, String theirs) {
+            this.base = base;
+            this.ours = ours;
+            this.theirs = theirs;
+        }
+    }
+
+    /**
+     * Finds files that one side renamed while the other side edited them at the old path. In
+     * copies of the base tree and of the editing side's tree, the file is moved to the new path,
+     * so the tree walk sees all three versions at the new path and merges their contents instead
+     * of reporting a delete against an edit. Only trees along the moved paths are rewritten.
+     */
+    private static RenamedTrees followRenames(String baseTree, String oursTree, String theirsTree) throws IOException {
+        RenamedTrees trees = new RenamedTrees(baseTree, oursTree, theirsTree);
+        RenameDetector detector = new RenameDetector();
+
+        TreeDiffResult theirChanges = diffTrees(baseTree, theirsTree);
+        detector.detect(theirChanges, baseTree);
+        for (TreeDiffResult.RenamedFile renamed : theirChanges.getRenamedFiles()) {
+            String moved = moveEditedFile(trees, renamed, trees.ours);
+            if (moved != null) {
+                trees.ours = moved;
+                trees.movedInOurs.put(renamed.getSource().getFullPath(), renamed.getTarget().getFullPath());
+            }
+        }
+
+        TreeDiffResult ourChanges = diffTrees(baseTree, oursTree);
+        detector.detect(ourChanges, baseTree);
+        for (TreeDiffResult.RenamedFile renamed : ourChanges.getRenamedFiles()) {
+            String moved = moveEditedFile(trees, renamed, trees.theirs);
+            if (moved != null) {
+                trees.theirs = moved;
+            }
+        }
+        return trees;
+    }
+
+    // moves the other side's edited version of a renamed file (and the base version) to the new path;
+    // returns the other side's new tree, or null if there is nothing to follow
+    private static String moveEditedFile(RenamedTrees trees, TreeDiffResult.RenamedFile renamed, String otherTree) throws IOException {
+        if (renamed.isCopy()) {
+            return null;
+        }
+        String oldPath = renamed.getSource().getFullPath();
+        String newPath = renamed.getTarget().getFullPath();
+        TreeEntry baseEntry = renamed.getSource().getEntry();
+        String otherSha = TreeIterator.findBlob(otherTree, oldPath);
+        if (otherSha == null || otherSha.equals(baseEntry.getObjectSha1Id())
+                || TreeIterator.findBlob(otherTree, newPath) != null
+                || !baseEntry.getObjectSha1Id().equals(TreeIterator.findBlob(trees.base, oldPath))) {
+            return null; // not edited on the other side, or the paths are already taken
+        }
+        trees.base = TreeBuilder.editTree(TreeBuilder.editTree(trees.base, oldPath, null), newPath, baseEntry);
+        TreeEntry otherEntry = new TreeEntry(baseEntry.getMode(), "blob", otherSha, baseEntry.getName());
+        return TreeBuilder.editTree(TreeBuilder.editTree(otherTree, oldPath, null), newPath, otherEntry);
+    }
+
+    // a file side of a conflict as an index entry; directories and missing sides have no stage
+    private static IndexEntry stage(TreeEntry entry) {
+        return entry == null || isTree(entry) ? null : new IndexEntry(entry.getMode(), entry.getObjectSha1Id(), entry.getName());
+    }
+
+    private static String sha(TreeEntry entry) {
+        return entry == null ? null : entry.getObjectSha1Id();
+    }
+
+    private static String sha1Hex(byte[] content) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(content);
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static boolean isTree(TreeEntry entry) {
+        return entry != null && entry.getType().equals("tree");
+    }
 }
 
@@ -0,0 +1,177 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Myers' O(ND) difference algorithm on sequences of interned line ids, in its linear-space form.
+ *
+ * Instead of keeping every diagonal of every round to trace the path back, each step searches
+ * from both ends at once until the two searches meet in the "middle snake", and then recurses on
+ * the halves before and after it. Memory stays proportional to the length of the inputs, no
+ * matter how different they are. Common prefixes and suffixes are stripped before every search,
+ * which on typical source edits leaves only a few lines for the actual algorithm.
+ */
+public class MyersDiff {
+
+    private final int[] a;
+    private final int[] b;
+    private final List<Edit> edits;
+
+    private MyersDiff(int[] a, int[] b, List<Edit> edits) {
+        this.a = a;
+        this.b = b;
+        this.edits = edits;
+    }
+
+    /**
+     * Computes a shortest edit script that turns a into b.
+     *
+     * @return the differing regions in increasing order, with adjacent regions joined
+     */
+    public static List<Edit> diff(int[] a, int[] b) {
+        List<Edit> edits = new ArrayList<>();
+        diff(a, b, 0, a.length, 0, b.length, edits);
+        return edits;
+    }
+
+    // diffs a[aLo, aHi) against b[bLo, bHi), appending to edits, which must all lie before the range
+    static void diff(int[] a, int[] b, int aLo, int aHi, int bLo, int bHi, List<Edit> edits) {
+        new MyersDiff(a, b, edits).compare(aLo, aHi, bLo, bHi);
+    }
+
+    private void compare(int aLo, int aHi, int bLo, int bHi) {
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            aLo++;
+            bLo++;
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            aHi--;
+            bHi--;
+        }
+        if (aLo == aHi || bLo == bHi) {
+            if (aLo < aHi || bLo < bHi) {
+                addEdit(aLo, aHi, bLo, bHi);
+            }
+            return;
+        }
+
+        long split = middleSnake(aLo, aHi, bLo, bHi);
+        if (split < 0) {
+            addEdit(aLo, aHi, bLo, bHi);
+            return;
+        }
+        int x = aLo + (int) (split >>> 32);
+        int y = bLo + (int) split;
+        compare(aLo, x, bLo, y);
+        compare(x, aHi, y, bHi);
+    }
+
+    /**
+     * Finds a point on a shortest path through the edit graph of a[aLo, aHi) and b[bLo, bHi),
+     * by running the forward and the reverse search in lockstep until their furthest reaching
+     * paths overlap. Both ranges are non-empty and their first and last elements differ.
+     *
+     * @return the offsets (x relative to aLo, y relative to bLo) packed as x << 32 | y
+     */
+    private long middleSnake(int aLo, int aHi, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int maxD = (n + m + 1) / 2;
+        int offset = maxD;
+        int length = 2 * maxD + 2;
+        // furthest x reached on each diagonal k = x - y, from the start and from the end
+        int[] forward = new int[length];
+        int[] reverse = new int[length];
+        java.util.Arrays.fill(forward, -1);
+        java.util.Arrays.fill(reverse, -1);
+        forward[offset + 1] = 0;
+        reverse[offset + 1] = 0;
+
+        int delta = n - m;
+        // with an odd delta the forward search is the one that closes the gap
+        boolean forwardMeets = (delta & 1) != 0;
+        // diagonals that ran off the edge of the graph are excluded from later rounds
+        int kForwardStart = 0;
+        int kForwardEnd = 0;
+        int kReverseStart = 0;
+        int kReverseEnd = 0;
+
+        for (int d = 0; d < maxD; d++) {
+            for (int k = -d + kForwardStart; k <= d - kForwardEnd; k += 2) {
+                int index = offset + k;
+                int x;
+                if (k == -d || (k != d && forward[index - 1] < forward[index + 1])) {
+                    x = forward[index + 1];
+                } else {
+                    x = forward[index - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && a[aLo + x] == b[bLo + y]) {
+                    x++;
+                    y++;
+                }
+                forward[index] = x;
+                if (x > n) {
+                    kForwardEnd += 2;
+                } else if (y > m) {
+                    kForwardStart += 2;
+                } else if (forwardMeets) {
+                    int reverseIndex = offset + delta - k;
+                    if (reverseIndex >= 0 && reverseIndex < length && reverse[reverseIndex] != -1) {
+                        if (x >= n - reverse[reverseIndex]) {
+                            return ((long) x << 32) | y;
+                        }
+                    }
+                }
+            }
+
+            for (int k = -d + kReverseStart; k <= d - kReverseEnd; k += 2) {
+                int index = offset + k;
+                int x;
+                if (k == -d || (k != d && reverse[index - 1] < reverse[index + 1])) {
+                    x = reverse[index + 1];
+                } else {
+                    x = reverse[index - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && a[aHi - x - 1] == b[bHi - y - 1]) {
+                    x++;
+                    y++;
+                }
+                reverse[index] = x;
+                if (x > n) {
+                    kReverseEnd += 2;
+                } else if (y > m) {
+                    kReverseStart += 2;
+                } else if (!forwardMeets) {
+                    int forwardIndex = offset + delta - k;
+                    if (forwardIndex >= 0 && forwardIndex < length && forward[forwardIndex] != -1) {
+                        int forwardX = forward[forwardIndex];
+                        int forwardY = forwardX - (forwardIndex - offset);
+                        if (forwardX >= n - x) {
+                            return ((long) forwardX << 32) | forwardY;
+                        }
+                    }
+                }
+            }
+        }
+        return -1; // nothing in common at all
+    }
+
+    private void addEdit(int aLo, int aHi, int bLo, int bHi) {
+        addEdit(edits, aLo, aHi, bLo, bHi);
+    }
+
+    // appends an edit, joining it to the last one if they are adjacent
+    static void addEdit(List<Edit> edits, int aLo, int aHi, int bLo, int bHi) {
+        if (!edits.isEmpty()) {
+            Edit last = edits.get(edits.size() - 1);
+            if (last.endA == aLo && last.endB == bLo) {
+                edits.set(edits.size() - 1, new Edit(last.beginA, aHi, last.beginB, bHi));
+                return;
+            }
+        }
+        edits.add(new Edit(aLo, aHi, bLo, bHi));
+    }
+}
@@ -1,10 +1,11 @@
 package utils;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.DateTimeException;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -19,9 +20,7 @@ public class ObjectLoader {
             throw new IllegalArgumentException("Invalid SHA-1 hash format: " + sha1);
         }
 
-        String dirName = sha1.substring(0, 2);
-        String fileName = sha1.substring(2);
-        Path objectFilePath = Paths.get(".lit", "objects", dirName, fileName);
+        Path objectFilePath = objectPath(sha1);
 
         if (!Files.exists(objectFilePath)) {
             throw new IOException("Object not found: " + sha1 + " at " + objectFilePath.toAbsolutePath());
@@ -30,6 +29,11 @@ public class ObjectLoader {
         return Files.readAllBytes(objectFilePath);
     }
 
+    // location of a loose object: .lit/objects/<first 2 hex chars>/<remaining 38>
+    public static Path objectPath(String sha1) {
+        return Paths.get(".lit", "objects", sha1.substring(0, 2), sha1.substring(2));
+    }
+
    public static CommitObject loadCommit(String commitSha1) throws IOException, IllegalArgumentException {
         // Validate SHA-1 format
         if (commitSha1 == null || commitSha1.length() != 40 || !commitSha1.matches("[0-9a-fA-F]{40}")) {
@@ -44,6 +48,7 @@ public class ObjectLoader {
         String authorName = null;
         String authorEmail = null;
         long timestamp = 0;
+        ZoneOffset timezone = null;
         String commitMessage = "";
 
         String[] lines = contentString.split("\n");
@@ -66,6 +71,11 @@ public class ObjectLoader {
                     authorName = authorLine.substring(0, emailStart).trim();
                     authorEmail = authorLine.substring(emailStart + 1, emailEnd);
                     timestamp = Long.parseLong(authorLine.substring(timestampStart, timestampEnd));
+                    try {
+                        timezone = ZoneOffset.of(authorLine.substring(timestampEnd + 1).trim());
+                    } catch (DateTimeException e) {
+                        timezone = null; // unknown offset, the commit is read with the current time as before
+                    }
                 }
             } else if (line.trim().isEmpty() && messageStartIndex == -1) {
                 messageStartIndex = i + 1;
@@ -84,8 +94,14 @@ public class ObjectLoader {
             throw new IOException("Malformed commit object: Missing essential fields for SHA-1 " + commitSha1);
         }
 
-        CommitObject commit = new CommitObject(treeSha1, parentSha1s, authorName, authorEmail, commitMessage);
-        commit.setAuthorTimestamp(timestamp);
+        CommitObject commit;
+        if (timezone != null) {
+            // keeps the recorded time, so log shows when the commit was made
+            commit = new CommitObject(treeSha1, parentSha1s, authorName, authorEmail, commitMessage, timestamp, timezone);
+        } else {
+            commit = new CommitObject(treeSha1, parentSha1s, authorName, authorEmail, commitMessage);
+            commit.setAuthorTimestamp(timestamp);
+        }
 
         return commit;
     }
@@ -95,58 +111,17 @@ public class ObjectLoader {
             throw new IllegalArgumentException("Invalid tree SHA-1 format: " + treeSha1);
         }
 
-        byte[] rawContent = readObject(treeSha1);
+        // the cursor parses entries in place and decodes names as UTF-8
+        TreeIterator iterator = TreeIterator.forTree(treeSha1);
         List<TreeEntry> entries = new ArrayList<>();
-
-        ByteArrayInputStream bis = new ByteArrayInputStream(rawContent);
-        
-        while (bis.available() > 0) {
-            StringBuilder modeBuilder = new StringBuilder();
-            int b;
-            while ((b = bis.read()) != -1 && b != ' ') {
-                modeBuilder.append((char) b);
-            }
-            String mode = modeBuilder.toString();
-            if (mode.isEmpty()) {
-                throw new IOException("Malformed tree object: Empty mode found for tree SHA-1 " + treeSha1);
-            }
-
-            StringBuilder nameBuilder = new StringBuilder();
-            while ((b = bis.read()) != -1 && b != 0x00) {
-                nameBuilder.append((char) b);
-            }
-            String name = nameBuilder.toString();
-            if (name.isEmpty()) {
-                throw new IOException("Malformed tree object: Empty name found for tree SHA-1 " + treeSha1);
-            }
-
-            byte[] sha1Bytes = new byte[20];
-            int bytesRead = bis.read(sha1Bytes, 0, 20);
-            if (bytesRead != 20) {
-                throw new IOException("Malformed tree object: Incomplete SHA-1 hash for entry in tree SHA-1 " + treeSha1);
-            }
-            String objectSha1Id = bytesToHex(sha1Bytes);
-
-            String type = mode.startsWith("100") ? "blob" : "tree";
-            entries.add(new TreeEntry(mode, type, objectSha1Id, name));
+        while (iterator.next()) {
+            entries.add(iterator.toTreeEntry());
         }
 
         TreeObject tree = new TreeObject(entries);
 
         return tree;
     }
-    //  helper for converting bytes to hex 
-    private static String bytesToHex(byte[] hash) {
-        StringBuilder hexString = new StringBuilder(2 * hash.length);
-        for (byte b : hash) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) {
-                hexString.append('0');
-            }
-            hexString.append(hex);
-        }
-        return hexString.toString();
-    }
 
     public static byte[] loadBlob(String blobSha1) throws IOException, IllegalArgumentException {
         if (blobSha1 == null || blobSha1.length() != 40 || !blobSha1.matches("[0-9a-fA-F]{40}")) {
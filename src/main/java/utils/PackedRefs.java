@@ -0,0 +1,195 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * The ref table stored in .lit/packed-refs.
+ *
+ * The file holds one "sha refname" line per ref, sorted by ref name, after a header line:
+ *
+ *   # pack-refs with: sorted
+ *   3f786850e387550fdab836ed7e6dc881de23001b refs/heads/feature
+ *   89e6c98d92887913cadf06b2adb97f26cde4849b refs/heads/main
+ *
+ * Once parsed, the names and ids are kept in two parallel arrays and looked up with a binary
+ * search. The parsed table is cached per repository and reused for as long as the file's
+ * modification time, size and file key are unchanged. The file is only ever replaced by an atomic
+ * rename, so any rewrite gives it a new file key even when it lands in the same timestamp tick.
+ *
+ * A loose file under .lit/refs takes precedence over the packed entry of the same name, so updating
+ * a ref never has to rewrite this file.
+ */
+public class PackedRefs {
+
+    static final String HEADER = "# pack-refs with: sorted";
+    private static final PackedRefs EMPTY = new PackedRefs(new String[0], new String[0]);
+
+    private static final Map<Path, Snapshot> cache = new ConcurrentHashMap<>();
+
+    private final String[] names; // sorted
+    private final String[] shas;  // shas[i] belongs to names[i]
+
+    // the parsed table together with the file attributes it was read under
+    private static class Snapshot {
+        final long modified;
+        final long size;
+        final Object fileKey;
+        final PackedRefs refs;
+
+        Snapshot(BasicFileAttributes attributes, PackedRefs refs) {
+            this.modified = attributes.lastModifiedTime().toMillis();
+            this.size = attributes.size();
+            this.fileKey = attributes.fileKey();
+            this.refs = refs;
+        }
+
+        boolean matches(BasicFileAttributes attributes) {
+            return modified == attributes.lastModifiedTime().toMillis()
+                    && size == attributes.size()
+                    && Objects.equals(fileKey, attributes.fileKey());
+        }
+    }
+
+    private PackedRefs(String[] names, String[] shas) {
+        this.names = names;
+        this.shas = shas;
+    }
+
+    /**
+     * Returns the packed refs of the repository at litPath, parsing the file only if it has changed
+     * since the last call.
+     */
+    public static PackedRefs load(Path litPath) throws IOException {
+        Path file = litPath.resolve("packed-refs");
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            cache.remove(file);
+            return EMPTY;
+        }
+
+        Snapshot snapshot = cache.get(file);
+        if (snapshot != null && snapshot.matches(attributes)) {
+            return snapshot.refs;
+        }
+        PackedRefs refs = parse(file);
+        cache.put(file, new Snapshot(attributes, refs));
+        return refs;
+    }
+
+    private static PackedRefs parse(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        List<String> names = new ArrayList<>(lines.size());
+        List<String> shas = new ArrayList<>(lines.size());
+        boolean sorted = true;
+        for (String line : lines) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int space = line.indexOf(' ');
+            if (space != 40 || !line.substring(0, 40).matches("[0-9a-fA-F]{40}")) {
+                throw new IOException("Malformed line in packed-refs: " + line);
+            }
+            String name = line.substring(space + 1);
+            if (!names.isEmpty() && names.get(names.size() - 1).compareTo(name) >= 0) {
+                sorted = false;
+            }
+            names.add(name);
+            shas.add(line.substring(0, 40).toLowerCase());
+        }
+
+        if (!sorted) {
+            // written by hand or by something else; sort once so lookups can still binary search
+            SortedMap<String, String> table = new TreeMap<>();
+            for (int i = 0; i < names.size(); i++) {
+                table.put(names.get(i), shas.get(i));
+            }
+            return fromMap(table);
+        }
+        return new PackedRefs(names.toArray(new String[0]), shas.toArray(new String[0]));
+    }
+
+    private static PackedRefs fromMap(SortedMap<String, String> table) {
+        return new PackedRefs(table.keySet().toArray(new String[0]), table.values().toArray(new String[0]));
+    }
+
+    /**
+     * Rewrites packed-refs under packed-refs.lock: the current table is read while the lock is
+     * held, passed to edit, and the result is written sorted by name, flushed to disk once and
+     * renamed into place.
+     *
+     * @throws IOException if another process holds the lock
+     */
+    public static PackedRefs update(Path litPath, Consumer<SortedMap<String, String>> edit) throws IOException {
+        Path file = litPath.resolve("packed-refs");
+        try (LockFile lock = LockFile.acquire(file)) {
+            SortedMap<String, String> table = new TreeMap<>(load(litPath).toMap());
+            edit.accept(table);
+
+            StringBuilder content = new StringBuilder(HEADER).append('\n');
+            for (Map.Entry<String, String> entry : table.entrySet()) {
+                content.append(entry.getValue()).append(' ').append(entry.getKey()).append('\n');
+            }
+            lock.write(content.toString().getBytes(StandardCharsets.UTF_8));
+            lock.commit();
+
+            // the next load() re-reads the file rather than trusting attributes that another writer may already have changed
+            cache.remove(file);
+            return fromMap(table);
+        }
+    }
+
+    /**
+     * Returns the commit SHA-1 of a full ref name such as "refs/heads/main", or null.
+     */
+    public String lookup(String refName) {
+        int i = Arrays.binarySearch(names, refName);
+        return i >= 0 ? shas[i] : null;
+    }
+
+    /**
+     * Returns the packed ref names that start with prefix, in sorted order.
+     */
+    public List<String> namesWithPrefix(String prefix) {
+        int i = Arrays.binarySearch(names, prefix);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        List<String> result = new ArrayList<>();
+        for (; i < names.length && names[i].startsWith(prefix); i++) {
+            result.add(names[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the whole table as a sorted name -> SHA-1 map.
+     */
+    public SortedMap<String, String> toMap() {
+        SortedMap<String, String> table = new TreeMap<>();
+        for (int i = 0; i < names.length; i++) {
+            table.put(names[i], shas[i]);
+        }
+        return Collections.unmodifiableSortedMap(table);
+    }
+
+    public int size() {
+        return names.length;
+    }
+}
@@ -0,0 +1,174 @@
+package utils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.ToLongFunction;
+
+/**
+ * Computes the diffs of many files on a pool of worker threads and hands the results back in the
+ * order of the list, so the output is the same however the work was scheduled.
+ *
+ * Workers take files off a shared cursor. A result that is done before the ones ahead of it is
+ * held until the caller has consumed them, and the held results are bounded in two ways: workers
+ * never run more than a window of files ahead of the caller, and stop taking files while the held
+ * results weigh more than a budget. The file the caller waits for has always been taken already,
+ * so the workers cannot all stall; at worst the pool runs one file at a time until the caller
+ * catches up. The memory in flight is therefore the budget plus one file per thread, even for a
+ * diff of ten thousand files.
+ */
+public class ParallelDiff {
+
+    // results held for the caller, in chars of rendered text, before workers stop taking files
+    public static final long DEFAULT_MAX_PENDING = 32L * 1024 * 1024;
+
+    // files a worker may run ahead of the caller, per thread
+    private static final int WINDOW_PER_THREAD = 16;
+
+    public interface Task<T> {
+        T run(DiffEntry entry) throws IOException;
+    }
+
+    public interface Sink<T> {
+        void accept(DiffEntry entry, T result) throws IOException;
+    }
+
+    private final int threads;
+    private final long maxPending;
+
+    public ParallelDiff(int threads) {
+        this(threads, DEFAULT_MAX_PENDING);
+    }
+
+    /**
+     * @param threads    number of worker threads; 1 runs every task on the calling thread
+     * @param maxPending total weight of the results that may wait for the caller
+     */
+    public ParallelDiff(int threads, long maxPending) {
+        this.threads = Math.max(1, threads);
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Runs task for every entry and passes the results to sink on the calling thread, in the
+     * order of entries.
+     *
+     * @param weight the memory a result holds while it waits, in the unit of maxPending
+     */
+    public <T> void run(List<DiffEntry> entries, Task<T> task, ToLongFunction<T> weight, Sink<T> sink)
+            throws IOException {
+        int workers = Math.min(threads, entries.size());
+        if (workers <= 1) {
+            for (DiffEntry entry : entries) {
+                sink.accept(entry, task.run(entry));
+            }
+            return;
+        }
+
+        Queue<T> queue = new Queue<>(entries, workers * WINDOW_PER_THREAD, maxPending);
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "lit-diff");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int w = 0; w < workers; w++) {
+                pool.execute(() -> {
+                    int i;
+                    while ((i = queue.take()) >= 0) {
+                        try {
+                            T result = task.run(entries.get(i));
+                            queue.done(i, result, weight.applyAsLong(result));
+                        } catch (Throwable e) {
+                            queue.fail(e);
+                            return;
+                        }
+                    }
+                });
+            }
+            for (int i = 0; i < entries.size(); i++) {
+                sink.accept(entries.get(i), queue.await(i));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while computing diffs.", e);
+        } finally {
+            queue.fail(null); // stops the workers if the caller gave up early
+            pool.shutdownNow();
+        }
+    }
+
+    // the results between the caller and the workers, guarded by its own monitor
+    private static final class Queue<T> {
+        private final Object[] results;
+        private final long[] weights;
+        private final boolean[] ready;
+        private final int window;
+        private final long maxPending;
+        private int taken;    // next index a worker takes
+        private int consumed; // next index the caller takes
+        private long pending; // weight of the results done but not consumed
+        private boolean stopped;
+        private Throwable failure;
+
+        Queue(List<DiffEntry> entries, int window, long maxPending) {
+            this.results = new Object[entries.size()];
+            this.weights = new long[entries.size()];
+            this.ready = new boolean[entries.size()];
+            this.window = window;
+            this.maxPending = maxPending;
+        }
+
+        // the next index to work on, or -1 when there is none left or the run was stopped
+        synchronized int take() {
+            try {
+                while (!stopped && taken < results.length
+                        && (taken - consumed >= window || pending > maxPending)) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                return -1;
+            }
+            return stopped || taken >= results.length ? -1 : taken++;
+        }
+
+        synchronized void done(int index, T result, long weight) {
+            results[index] = result;
+            weights[index] = weight;
+            ready[index] = true;
+            pending += weight;
+            notifyAll();
+        }
+
+        synchronized void fail(Throwable e) {
+            if (failure == null) {
+                failure = e;
+            }
+            stopped = true;
+            notifyAll();
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized T await(int index) throws IOException, InterruptedException {
+            while (!ready[index] && failure == null) {
+                wait();
+            }
+            if (failure != null) {
+                if (failure instanceof IOException) {
+                    throw (IOException) failure;
+                }
+                if (failure instanceof RuntimeException) {
+                    throw (RuntimeException) failure;
+                }
+                throw new IOException(failure.getMessage(), failure);
+            }
+            T result = (T) results[index];
+            results[index] = null;
+            pending -= weights[index];
+            consumed = index + 1;
+            notifyAll();
+            return result;
+        }
+    }
+}
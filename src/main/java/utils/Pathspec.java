@@ -0,0 +1,186 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Limits a command to some paths, as in "lit status -- src/api" or "lit diff HEAD -- 'docs/*.md'".
+ *
+ * Each spec is a path relative to the repository root. Without wildcards it matches that file or
+ * everything below that directory. With wildcards it is a glob over the whole path: '*' and '?'
+ * match within one path component, and '**' matches across components, so "src/**&#47;*.java" is
+ * every Java file under src. A path is selected if any spec matches it; no specs select everything.
+ *
+ * Every spec is compiled into the literal directory before its first wildcard and, if it has any,
+ * a regex. The literal part lets tree walks, index scans and working directory walks skip whole
+ * directories that no spec can reach, so a scoped command costs in proportion to the subtree.
+ */
+public class Pathspec {
+
+    /** Selects every path. */
+    public static final Pathspec ALL = new Pathspec(new ArrayList<>());
+
+    private static final class Spec {
+        final String base;     // directory every match is in or below, "" for the root
+        final String literal;  // the whole spec when it has no wildcards, else null
+        final Pattern glob;    // the whole spec when it has wildcards, else null
+
+        Spec(String base, String literal, Pattern glob) {
+            this.base = base;
+            this.literal = literal;
+            this.glob = glob;
+        }
+    }
+
+    private final List<Spec> specs;
+
+    private Pathspec(List<Spec> specs) {
+        this.specs = specs;
+    }
+
+    /**
+     * Compiles the given specs; "." and "" stand for the whole repository.
+     *
+     * @throws IllegalArgumentException if a spec is not a valid glob, e.g. has a range like [z-a]
+     */
+    public static Pathspec parse(List<String> patterns) {
+        List<Spec> specs = new ArrayList<>();
+        for (String pattern : patterns) {
+            String spec = normalize(pattern);
+            if (spec.isEmpty()) {
+                return ALL;
+            }
+            int wildcard = firstWildcard(spec);
+            if (wildcard < 0) {
+                specs.add(new Spec(spec, spec, null));
+            } else {
+                int slash = spec.lastIndexOf('/', wildcard);
+                Pattern glob;
+                try {
+                    glob = toRegex(spec);
+                } catch (PatternSyntaxException e) {
+                    throw new IllegalArgumentException("invalid pathspec '" + pattern + "': " + e.getDescription(), e);
+                }
+                specs.add(new Spec(slash < 0 ? "" : spec.substring(0, slash), null, glob));
+            }
+        }
+        return new Pathspec(specs);
+    }
+
+    public boolean isAll() {
+        return specs.isEmpty();
+    }
+
+    /**
+     * Whether the file at path (relative, '/'-separated) is selected.
+     */
+    public boolean matches(String path) {
+        if (isAll()) {
+            return true;
+        }
+        for (Spec spec : specs) {
+            if (spec.literal != null ? isSameOrBelow(path, spec.literal) : spec.glob.matcher(path).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether any file below directory can be selected, i.e. whether a walk has to descend.
+     */
+    public boolean mayMatchDirectory(String directory) {
+        if (isAll() || directory.isEmpty()) {
+            return true;
+        }
+        for (Spec spec : specs) {
+            if (spec.base.isEmpty() || isSameOrBelow(directory, spec.base) || isSameOrBelow(spec.base, directory)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normalize(String pattern) {
+        String spec = pattern.trim().replace('\\', '/');
+        while (spec.startsWith("./")) {
+            spec = spec.substring(2);
+        }
+        while (spec.startsWith("/")) {
+            spec = spec.substring(1);
+        }
+        while (spec.endsWith("/")) {
+            spec = spec.substring(0, spec.length() - 1);
+        }
+        return spec.equals(".") ? "" : spec;
+    }
+
+    private static int firstWildcard(String spec) {
+        for (int i = 0; i < spec.length(); i++) {
+            char c = spec.charAt(i);
+            if (c == '*' || c == '?' || c == '[') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Pattern toRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                i++;
+                if (i + 1 < glob.length() && glob.charAt(i + 1) == '/') {
+                    i++;
+                    regex.append("(?:.*/)?"); // "**/" also matches no directory at all
+                } else {
+                    regex.append(".*");
+                }
+            } else if (c == '*') {
+                regex.append("[^/]*");
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else if (c == '[') {
+                int start = i + 1;
+                boolean negated = start < glob.length() && glob.charAt(start) == '!';
+                if (negated) {
+                    start++;
+                }
+                // a ']' right after the opening bracket is a member of the set, not its end
+                int close = glob.indexOf(']', start + 1);
+                if (close < 0) {
+                    regex.append("\\[");
+                } else {
+                    regex.append(negated ? "[^" : "[").append(setToRegex(glob.substring(start, close))).append(']');
+                    i = close;
+                }
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    // the members of a [...] set, each quoted so that only '-' between two members forms a range
+    private static String setToRegex(String set) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < set.length(); i++) {
+            char c = set.charAt(i);
+            if (c == '-' && i > 0 && i < set.length() - 1) {
+                regex.append('-');
+            } else if (Character.isLetterOrDigit(c)) {
+                regex.append(c);
+            } else {
+                regex.append('\\').append(c);
+            }
+        }
+        return regex.toString();
+    }
+
+    private static boolean isSameOrBelow(String path, String ancestor) {
+        return path.equals(ancestor) || (path.startsWith(ancestor) && path.charAt(ancestor.length()) == '/');
+    }
+}
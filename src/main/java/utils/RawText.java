@@ -0,0 +1,66 @@
+package utils;
+
+/**
+ * The lines of a text, kept as offsets into the original string rather than as one string per
+ * line. Lines exclude their '\n'; a final newline does not start another line, so "a\nb\n" and
+ * "a\nb" both have two lines and only differ in endsWithNewline(). LineInterner tells such last
+ * lines apart, so the diff of the two has an edit.
+ */
+public class RawText {
+
+    private final String content;
+    private final int[] starts; // starts[i] is where line i begins; starts[size] is the end sentinel
+    private final int size;
+
+    private RawText(String content, int[] starts, int size) {
+        this.content = content;
+        this.starts = starts;
+        this.size = size;
+    }
+
+    public static RawText of(String content) {
+        int count = 0;
+        for (int i = 0; i < content.length(); i++) {
+            if (content.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        boolean unterminated = !content.isEmpty() && content.charAt(content.length() - 1) != '\n';
+        int size = count + (unterminated ? 1 : 0);
+
+        int[] starts = new int[size + 1];
+        int line = 1;
+        for (int i = 0; i < content.length() && line < size; i++) {
+            if (content.charAt(i) == '\n') {
+                starts[line++] = i + 1;
+            }
+        }
+        starts[size] = content.length() + (unterminated ? 1 : 0); // as if the last line had a '\n'
+        return new RawText(content, starts, size);
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int start(int line) {
+        return starts[line];
+    }
+
+    // end of the line, excluding its '\n'
+    public int end(int line) {
+        return starts[line + 1] - 1;
+    }
+
+    public String line(int line) {
+        return content.substring(start(line), end(line));
+    }
+
+    public boolean endsWithNewline() {
+        return content.isEmpty() || content.charAt(content.length() - 1) == '\n';
+    }
+}
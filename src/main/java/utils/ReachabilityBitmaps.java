@@ -0,0 +1,458 @@
+package utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import objects.CommitObject;
+
+/**
+ * Reachability bitmaps stored in .lit/bitmaps.
+ *
+ * When the file is written, every object reachable from the given tips gets a position in SHA-1
+ * order, which is the order a pack index lists objects in. Every COMMIT_SPACING-th commit (plus
+ * every tip) then gets an EwahBitmap with one bit set for each object reachable from it, and each
+ * object type gets a bitmap of its own. Reachability, counting and ahead/behind questions become
+ * bitwise operations on those bitmaps.
+ *
+ * Commits created after the file was written are not in it. Queries walk from them until they
+ * reach a bitmapped commit, and return anything that has no position as an "extra" object. When
+ * there is no bitmap file at all, the same code degrades to a plain graph walk.
+ */
+public class ReachabilityBitmaps {
+
+    public static final int TYPE_COMMIT = 0;
+    public static final int TYPE_TREE = 1;
+    public static final int TYPE_BLOB = 2;
+
+    static final int COMMIT_SPACING = 100;
+
+    private static final int MAGIC = 0x4c424d50; // "LBMP"
+    private static final int VERSION = 1;
+    private static final int ID_LENGTH = 20;
+
+    private final byte[] ids;                          // objectCount sorted raw SHA-1s
+    private final int objectCount;
+    private final EwahBitmap[] typeBitmaps;
+    private final Map<Integer, EwahBitmap> commitBitmaps;
+
+    private ReachabilityBitmaps(byte[] ids, EwahBitmap[] typeBitmaps, Map<Integer, EwahBitmap> commitBitmaps) {
+        this.ids = ids;
+        this.objectCount = ids.length / ID_LENGTH;
+        this.typeBitmaps = typeBitmaps;
+        this.commitBitmaps = commitBitmaps;
+    }
+
+    /**
+     * Objects reachable from a set of commits: a bitmap over the indexed positions plus the SHA-1s
+     * of objects that were created after the bitmaps were written.
+     */
+    public static class Reachable {
+        private final EwahBitmap objects;
+        private final Set<String> extraObjects;
+        private final Set<String> extraCommits;
+
+        Reachable(EwahBitmap objects, Set<String> extraObjects, Set<String> extraCommits) {
+            this.objects = objects;
+            this.extraObjects = extraObjects;
+            this.extraCommits = extraCommits;
+        }
+
+        public EwahBitmap getObjects() {
+            return objects;
+        }
+
+        public Set<String> getExtraObjects() {
+            return extraObjects;
+        }
+
+        public Set<String> getExtraCommits() {
+            return extraCommits;
+        }
+
+        public int size() {
+            return objects.cardinality() + extraObjects.size();
+        }
+    }
+
+    public static Path bitmapPath() {
+        return Paths.get(".lit", "bitmaps");
+    }
+
+    /**
+     * Loads .lit/bitmaps. If the file does not exist yet an empty index is returned, which makes
+     * every query fall back to walking the object graph.
+     */
+    public static ReachabilityBitmaps load() throws IOException {
+        Path path = bitmapPath();
+        if (!Files.exists(path)) {
+            return new ReachabilityBitmaps(new byte[0], emptyTypeBitmaps(), new HashMap<>());
+        }
+        byte[] raw = Files.readAllBytes(path);
+        if (raw.length < ID_LENGTH) {
+            throw new IOException("Malformed bitmap file: " + path);
+        }
+        byte[] expected = Arrays.copyOfRange(raw, raw.length - ID_LENGTH, raw.length);
+        byte[] actual = sha1().digest(Arrays.copyOf(raw, raw.length - ID_LENGTH));
+        if (!Arrays.equals(expected, actual)) {
+            throw new IOException("Bitmap file checksum mismatch, run 'lit gc' to rebuild it: " + path);
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw, 0, raw.length - ID_LENGTH))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unsupported bitmap file: " + path);
+            }
+            int count = in.readInt();
+            byte[] ids = new byte[count * ID_LENGTH];
+            in.readFully(ids);
+            EwahBitmap[] types = new EwahBitmap[3];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = EwahBitmap.deserialize(in);
+            }
+            int selected = in.readInt();
+            Map<Integer, EwahBitmap> commitBitmaps = new HashMap<>();
+            for (int i = 0; i < selected; i++) {
+                int position = in.readInt();
+                commitBitmaps.put(position, EwahBitmap.deserialize(in));
+            }
+            return new ReachabilityBitmaps(ids, types, commitBitmaps);
+        }
+    }
+
+    /**
+     * Indexes every object reachable from the tips and writes .lit/bitmaps atomically.
+     *
+     * @return the freshly written index
+     */
+    public static ReachabilityBitmaps write(Collection<String> tips) throws IOException {
+        // 1. find every reachable object and its type
+        Map<String, Integer> types = new HashMap<>();
+        Map<String, List<String>> parents = new HashMap<>();
+        Deque<String> commits = new ArrayDeque<>();
+        for (String tip : tips) {
+            commits.push(tip.toLowerCase());
+        }
+        while (!commits.isEmpty()) {
+            String sha = commits.pop();
+            if (types.putIfAbsent(sha, TYPE_COMMIT) != null) {
+                continue;
+            }
+            CommitObject commit = ObjectLoader.loadCommit(sha);
+            List<String> commitParents = new ArrayList<>();
+            for (String parent : commit.getParentSha1s()) {
+                commitParents.add(parent.toLowerCase());
+                commits.push(parent.toLowerCase());
+            }
+            parents.put(sha, commitParents);
+            collectTree(commit.getTreeSha1().toLowerCase(), types);
+        }
+
+        // 2. positions in SHA-1 order, plus one bitmap per type
+        String[] sorted = types.keySet().toArray(new String[0]);
+        Arrays.sort(sorted);
+        byte[] ids = new byte[sorted.length * ID_LENGTH];
+        EwahBitmap[] typeBitmaps = emptyTypeBitmaps();
+        for (int i = 0; i < sorted.length; i++) {
+            hexToBytes(sorted[i], ids, i * ID_LENGTH);
+            typeBitmaps[types.get(sorted[i])].set(i);
+        }
+
+        // 3. select commits and build their bitmaps parents first, so each walk stops early
+        ReachabilityBitmaps index = new ReachabilityBitmaps(ids, typeBitmaps, new HashMap<>());
+        List<String> order = topologicalOrder(tips, parents);
+        Set<String> tipSet = new HashSet<>();
+        tips.forEach(tip -> tipSet.add(tip.toLowerCase()));
+        for (int i = 0; i < order.size(); i++) {
+            String sha = order.get(i);
+            if (tipSet.contains(sha) || i % COMMIT_SPACING == COMMIT_SPACING - 1) {
+                Reachable reachable = index.reachableFrom(List.of(sha));
+                index.commitBitmaps.put(index.position(sha), reachable.getObjects());
+            }
+        }
+
+        index.save();
+        return index;
+    }
+
+    private static void collectTree(String treeSha, Map<String, Integer> types) throws IOException {
+        if (types.putIfAbsent(treeSha, TYPE_TREE) != null) {
+            return;
+        }
+        TreeIterator tree = TreeIterator.forTree(treeSha);
+        while (tree.next()) {
+            if (tree.isTree()) {
+                collectTree(tree.getObjectSha1Id(), types);
+            } else {
+                types.putIfAbsent(tree.getObjectSha1Id(), TYPE_BLOB);
+            }
+        }
+    }
+
+    // parents before children; iterative so long histories do not overflow the stack
+    private static List<String> topologicalOrder(Collection<String> tips, Map<String, List<String>> parents) {
+        List<String> order = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        Deque<String[]> stack = new ArrayDeque<>();
+        for (String tip : new LinkedHashSet<>(tips)) {
+            stack.push(new String[] {tip.toLowerCase(), "enter"});
+            while (!stack.isEmpty()) {
+                String[] frame = stack.pop();
+                String sha = frame[0];
+                if (frame[1].equals("exit")) {
+                    order.add(sha);
+                    continue;
+                }
+                if (!visited.add(sha)) {
+                    continue;
+                }
+                stack.push(new String[] {sha, "exit"});
+                for (String parent : parents.getOrDefault(sha, List.of())) {
+                    if (!visited.contains(parent)) {
+                        stack.push(new String[] {parent, "enter"});
+                    }
+                }
+            }
+        }
+        return order;
+    }
+
+    private void save() throws IOException {
+        Path path = bitmapPath();
+        Path lock = path.resolveSibling("bitmaps.lock");
+        MessageDigest digest = sha1();
+        try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(lock));
+             DataOutputStream out = new DataOutputStream(new DigestOutputStream(file, digest))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(objectCount);
+            out.write(ids);
+            for (EwahBitmap typeBitmap : typeBitmaps) {
+                typeBitmap.serialize(out);
+            }
+            out.writeInt(commitBitmaps.size());
+            for (Map.Entry<Integer, EwahBitmap> entry : commitBitmaps.entrySet()) {
+                out.writeInt(entry.getKey());
+                entry.getValue().serialize(out);
+            }
+            out.flush();
+            file.write(digest.digest());
+        }
+        Files.move(lock, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public int getObjectCount() {
+        return objectCount;
+    }
+
+    public int getBitmapCount() {
+        return commitBitmaps.size();
+    }
+
+    // the stored bitmap of a commit, or null if the commit was not selected when the file was written
+    public EwahBitmap bitmapFor(String commitSha) {
+        return commitBitmaps.get(position(commitSha.toLowerCase()));
+    }
+
+    public EwahBitmap getTypeBitmap(int type) {
+        return typeBitmaps[type];
+    }
+
+    /**
+     * Binary search for an object's position.
+     *
+     * @return the position, or -1 if the object was not indexed
+     */
+    public int position(String sha1) {
+        if (sha1 == null || sha1.length() != 40) {
+            return -1;
+        }
+        byte[] key = new byte[ID_LENGTH];
+        hexToBytes(sha1, key, 0);
+        int low = 0;
+        int high = objectCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Arrays.compareUnsigned(ids, mid * ID_LENGTH, (mid + 1) * ID_LENGTH, key, 0, ID_LENGTH);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public String idAt(int position) {
+        StringBuilder hex = new StringBuilder(40);
+        for (int i = position * ID_LENGTH; i < (position + 1) * ID_LENGTH; i++) {
+            hex.append(Character.forDigit((ids[i] >>> 4) & 0xf, 16)).append(Character.forDigit(ids[i] & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Everything reachable from the given commits. Bitmapped commits are a single OR; other
+     * commits are walked until the walk runs into a bitmapped one.
+     */
+    public Reachable reachableFrom(Collection<String> commitShas) throws IOException {
+        EwahBitmap covered = new EwahBitmap();
+        List<String> toWalk = new ArrayList<>();
+        for (String sha : commitShas) {
+            EwahBitmap bitmap = commitBitmaps.get(position(sha.toLowerCase()));
+            if (bitmap != null) {
+                covered = covered.or(bitmap);
+            } else {
+                toWalk.add(sha.toLowerCase());
+            }
+        }
+        if (toWalk.isEmpty()) {
+            return new Reachable(covered, new HashSet<>(), new HashSet<>());
+        }
+
+        // positions reached so far, from bitmaps or from the walk itself
+        BitSet seen = covered.toBitSet();
+        BitSet walked = new BitSet(objectCount);
+        Set<String> extraObjects = new HashSet<>();
+        Set<String> extraCommits = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>(toWalk);
+
+        while (!pending.isEmpty()) {
+            String sha = pending.pop();
+            int pos = position(sha);
+            if (pos >= 0) {
+                if (seen.get(pos)) {
+                    continue;
+                }
+                EwahBitmap bitmap = commitBitmaps.get(pos);
+                if (bitmap != null) {
+                    covered = covered.or(bitmap);
+                    bitmap.forEach(seen::set);
+                    continue;
+                }
+                seen.set(pos);
+                walked.set(pos);
+            } else {
+                if (!extraObjects.add(sha)) {
+                    continue;
+                }
+                extraCommits.add(sha);
+            }
+            CommitObject commit = ObjectLoader.loadCommit(sha);
+            markTree(commit.getTreeSha1().toLowerCase(), seen, walked, extraObjects);
+            for (String parent : commit.getParentSha1s()) {
+                pending.push(parent.toLowerCase());
+            }
+        }
+        return new Reachable(covered.or(EwahBitmap.fromBitSet(walked)), extraObjects, extraCommits);
+    }
+
+    private void markTree(String treeSha, BitSet seen, BitSet walked, Set<String> extraObjects) throws IOException {
+        int pos = position(treeSha);
+        if (pos >= 0) {
+            // a tree that is already marked has had its whole subtree marked as well
+            if (seen.get(pos)) {
+                return;
+            }
+            seen.set(pos);
+            walked.set(pos);
+        } else if (!extraObjects.add(treeSha)) {
+            return;
+        }
+        TreeIterator tree = TreeIterator.forTree(treeSha);
+        while (tree.next()) {
+            String child = tree.getObjectSha1Id();
+            if (tree.isTree()) {
+                markTree(child, seen, walked, extraObjects);
+                continue;
+            }
+            int childPos = position(child);
+            if (childPos >= 0) {
+                seen.set(childPos);
+                walked.set(childPos);
+            } else {
+                extraObjects.add(child);
+            }
+        }
+    }
+
+    public boolean contains(Reachable reachable, String sha1) {
+        int pos = position(sha1.toLowerCase());
+        return pos >= 0 ? reachable.getObjects().get(pos) : reachable.getExtraObjects().contains(sha1.toLowerCase());
+    }
+
+    // true if ancestor is the same commit as, or an ancestor of, descendant
+    public boolean isAncestor(String ancestor, String descendant) throws IOException {
+        return contains(reachableFrom(List.of(descendant)), ancestor);
+    }
+
+    /**
+     * Counts the commits reachable from a but not b, and from b but not a.
+     *
+     * @return {ahead, behind}
+     */
+    public int[] aheadBehind(String a, String b) throws IOException {
+        return aheadBehind(reachableFrom(List.of(a)), reachableFrom(List.of(b)));
+    }
+
+    public int[] aheadBehind(Reachable a, Reachable b) {
+        EwahBitmap commits = typeBitmaps[TYPE_COMMIT];
+        int ahead = a.getObjects().andNot(b.getObjects()).and(commits).cardinality()
+                + countMissing(a.getExtraCommits(), b.getExtraObjects());
+        int behind = b.getObjects().andNot(a.getObjects()).and(commits).cardinality()
+                + countMissing(b.getExtraCommits(), a.getExtraObjects());
+        return new int[] {ahead, behind};
+    }
+
+    private static int countMissing(Set<String> from, Set<String> in) {
+        int count = 0;
+        for (String sha : from) {
+            if (!in.contains(sha)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static EwahBitmap[] emptyTypeBitmaps() {
+        return new EwahBitmap[] {new EwahBitmap(), new EwahBitmap(), new EwahBitmap()};
+    }
+
+    private static void hexToBytes(String hex, byte[] out, int offset) {
+        for (int i = 0; i < ID_LENGTH; i++) {
+            out[offset + i] = (byte) ((Character.digit(hex.charAt(i * 2), 16) << 4)
+                                    + Character.digit(hex.charAt(i * 2 + 1), 16));
+        }
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
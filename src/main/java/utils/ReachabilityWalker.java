@@ -0,0 +1,173 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import objects.CommitObject;
+
+/**
+ * Marks every object reachable from a set of roots, using a pool of worker threads.
+ *
+ * Each commit or tree is a separate task that records the objects it refers to in a shared
+ * concurrent set and schedules the ones it has not seen before. Blobs are never read, only
+ * recorded. The walk is iterative (tasks are queued, never nested), so long histories cannot
+ * overflow the stack. A counter of outstanding tasks tells when the walk is complete.
+ *
+ * By default the first unreadable object aborts the walk, which is what gc needs before it deletes
+ * anything. A tolerant walker (used by fsck) records missing and malformed objects instead and
+ * carries on with the rest of the graph.
+ */
+public class ReachabilityWalker {
+
+    private final int threads;
+    private final boolean tolerant;
+    private final Set<String> marked = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> missing = new ConcurrentHashMap<>();  // sha -> expected type
+    private final Map<String, String> broken = new ConcurrentHashMap<>();   // sha -> problem
+
+    private ExecutorService pool;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+    private CountDownLatch done;
+
+    public ReachabilityWalker(int threads) {
+        this(threads, false);
+    }
+
+    public ReachabilityWalker(int threads, boolean tolerant) {
+        this.threads = Math.max(1, threads);
+        this.tolerant = tolerant;
+    }
+
+    // objects that are referenced but do not exist, with the type they were referenced as
+    public Map<String, String> getMissing() {
+        return missing;
+    }
+
+    // objects that exist but could not be parsed as the type they were referenced as
+    public Map<String, String> getBroken() {
+        return broken;
+    }
+
+    /**
+     * Pre-marks objects that are already known to be reachable, for example from a reachability
+     * bitmap. The walk stops as soon as it reaches one of them.
+     */
+    public void seed(Collection<String> reachable) {
+        marked.addAll(reachable);
+    }
+
+    /**
+     * Walks from the given commits and blobs and returns the set of every object reached.
+     *
+     * @throws IOException if any reachable commit or tree cannot be read
+     */
+    public Set<String> walk(Collection<String> commitRoots, Collection<String> blobRoots) throws IOException {
+        for (String blob : blobRoots) {
+            markBlob(blob.toLowerCase());
+        }
+
+        pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "lit-mark");
+            thread.setDaemon(true);
+            return thread;
+        });
+        done = new CountDownLatch(1);
+        pending.incrementAndGet(); // held until every root has been scheduled
+        try {
+            for (String commit : commitRoots) {
+                schedule(commit.toLowerCase(), true);
+            }
+            finishTask();
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while marking reachable objects.", e);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return marked;
+    }
+
+    private void schedule(String sha, boolean isCommit) {
+        if (!marked.add(sha) || failure.get() != null) {
+            return;
+        }
+        pending.incrementAndGet();
+        pool.execute(() -> {
+            try {
+                if (tolerant && !Files.exists(ObjectLoader.objectPath(sha))) {
+                    missing.put(sha, isCommit ? "commit" : "tree");
+                } else if (isCommit) {
+                    visitCommit(sha);
+                } else {
+                    visitTree(sha);
+                }
+            } catch (IOException | RuntimeException e) {
+                if (tolerant) {
+                    broken.put(sha, (isCommit ? "commit: " : "tree: ") + e.getMessage());
+                } else {
+                    failure.compareAndSet(null, e instanceof IOException
+                            ? (IOException) e
+                            : new IOException("Failed to read object " + sha + ": " + e.getMessage(), e));
+                }
+            } finally {
+                finishTask();
+            }
+        });
+    }
+
+    private void finishTask() {
+        if (pending.decrementAndGet() == 0) {
+            done.countDown();
+        }
+    }
+
+    private void visitCommit(String sha) throws IOException {
+        CommitObject commit = ObjectLoader.loadCommit(sha);
+        schedule(commit.getTreeSha1().toLowerCase(), false);
+        for (String parent : commit.getParentSha1s()) {
+            schedule(parent.toLowerCase(), true);
+        }
+    }
+
+    private void visitTree(String sha) throws IOException {
+        TreeIterator tree = TreeIterator.forTree(sha);
+        TreeIterator previous = tolerant ? TreeIterator.forTree(sha) : null;
+        boolean first = true;
+        while (tree.next()) {
+            if (previous != null) {
+                // entries must be strictly sorted, which also rules out duplicate names
+                if (!first && TreeIterator.compareNames(previous, tree) >= 0) {
+                    throw new IOException("entries out of order at '" + tree.getName() + "'");
+                }
+                previous.next();
+                first = false;
+            }
+            if (tree.isTree()) {
+                schedule(tree.getObjectSha1Id(), false);
+            } else {
+                markBlob(tree.getObjectSha1Id());
+            }
+        }
+    }
+
+    private void markBlob(String sha) {
+        if (marked.add(sha) && tolerant && !Files.exists(ObjectLoader.objectPath(sha))) {
+            missing.put(sha, "blob");
+        }
+    }
+}
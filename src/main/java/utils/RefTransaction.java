@@ -0,0 +1,189 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A set of ref updates that are applied together or not at all.
+ *
+ * commit() locks every ref involved (in sorted order, so two transactions cannot deadlock), checks
+ * each expected old value while holding the locks, and then applies the updates:
+ *
+ * - a single update is written to the loose ref file and renamed into place;
+ * - several updates are written into one new packed-refs file, which is flushed to disk once and
+ *   renamed into place, so readers switch from all old values to all new values in one step.
+ *   Loose files of the refs involved would hide the packed values, so their current values are
+ *   folded into packed-refs first (this changes no ref) and the files are removed.
+ *
+ * Usage:
+ *   refManager.beginTransaction()
+ *       .update("refs/heads/feature", newSha, oldSha)
+ *       .delete("refs/heads/stale", null)
+ *       .commit();
+ */
+public class RefTransaction {
+
+    private static final String SHA_PATTERN = "[0-9a-fA-F]{40}";
+
+    private final ReferenceManager refManager;
+    private final Path litPath;
+    private final SortedMap<String, Update> updates = new TreeMap<>();
+    private boolean committed;
+
+    private static class Update {
+        final String newSha;      // null deletes the ref
+        final String expectedOld; // null skips the check, "" requires the ref to have no commit
+
+        Update(String newSha, String expectedOld) {
+            this.newSha = newSha;
+            this.expectedOld = expectedOld;
+        }
+    }
+
+    RefTransaction(ReferenceManager refManager, Path litPath) {
+        this.refManager = refManager;
+        this.litPath = litPath;
+    }
+
+    /**
+     * Points refName (e.g. "refs/heads/main") at newSha.
+     *
+     * @param expectedOldSha the value the ref must have when the transaction commits; null skips the
+     *                       check and an empty string requires that the ref has no commit yet
+     */
+    public RefTransaction update(String refName, String newSha, String expectedOldSha) {
+        if (newSha == null || !newSha.matches(SHA_PATTERN)) {
+            throw new IllegalArgumentException("Invalid commit SHA-1 for '" + refName + "': " + newSha);
+        }
+        return add(refName, new Update(newSha.toLowerCase(), expectedOldSha));
+    }
+
+    /**
+     * Creates refName, failing at commit time if it already points to a commit.
+     */
+    public RefTransaction create(String refName, String newSha) {
+        return update(refName, newSha, "");
+    }
+
+    /**
+     * Deletes refName, loose and packed.
+     */
+    public RefTransaction delete(String refName, String expectedOldSha) {
+        return add(refName, new Update(null, expectedOldSha));
+    }
+
+    private RefTransaction add(String refName, Update update) {
+        if (committed) {
+            throw new IllegalStateException("Transaction has already been committed.");
+        }
+        if (refName == null || !refName.startsWith("refs/") || refName.contains("..")
+                || refName.endsWith(".lock") || refName.contains(" ")) {
+            throw new IllegalArgumentException("Invalid ref name: " + refName);
+        }
+        if (updates.putIfAbsent(refName, update) != null) {
+            throw new IllegalArgumentException("Ref '" + refName + "' appears twice in one transaction.");
+        }
+        return this;
+    }
+
+    public int size() {
+        return updates.size();
+    }
+
+    /**
+     * Applies every update, or none of them if a lock cannot be taken or an old value does not match.
+     */
+    public void commit() throws IOException {
+        if (committed) {
+            throw new IllegalStateException("Transaction has already been committed.");
+        }
+        committed = true;
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        List<LockFile> locks = new ArrayList<>(updates.size());
+        try {
+            for (String refName : updates.keySet()) {
+                Path loose = litPath.resolve(refName);
+                Files.createDirectories(loose.getParent());
+                locks.add(LockFile.acquire(loose));
+            }
+
+            for (Map.Entry<String, Update> entry : updates.entrySet()) {
+                verifyOldValue(entry.getKey(), entry.getValue().expectedOld);
+            }
+
+            if (updates.size() == 1 && updates.values().iterator().next().newSha != null) {
+                LockFile lock = locks.get(0);
+                lock.write(updates.values().iterator().next().newSha.getBytes(StandardCharsets.UTF_8));
+                lock.commit();
+                return;
+            }
+            commitPacked();
+        } finally {
+            for (LockFile lock : locks) {
+                lock.close();
+            }
+        }
+    }
+
+    private void verifyOldValue(String refName, String expectedOld) throws IOException {
+        if (expectedOld == null) {
+            return;
+        }
+        String current = refManager.readRef(refName);
+        String actual = current == null ? "" : current;
+        if (!actual.equalsIgnoreCase(expectedOld)) {
+            throw new IOException("Cannot update '" + refName + "': expected "
+                    + (expectedOld.isEmpty() ? "no commit" : expectedOld) + " but found "
+                    + (actual.isEmpty() ? "no commit" : actual) + ".");
+        }
+    }
+
+    private void commitPacked() throws IOException {
+        // fold the loose values of the locked refs into packed-refs; no ref changes value here
+        Map<String, String> looseValues = new TreeMap<>();
+        List<Path> unbornFiles = new ArrayList<>();
+        for (String refName : updates.keySet()) {
+            Path loose = litPath.resolve(refName);
+            if (Files.isRegularFile(loose)) {
+                String sha = Files.readString(loose).trim();
+                if (sha.matches(SHA_PATTERN)) {
+                    looseValues.put(refName, sha.toLowerCase());
+                } else {
+                    unbornFiles.add(loose);
+                }
+            }
+        }
+        if (!looseValues.isEmpty()) {
+            PackedRefs.update(litPath, table -> table.putAll(looseValues));
+            for (String refName : looseValues.keySet()) {
+                Files.deleteIfExists(litPath.resolve(refName));
+            }
+        }
+
+        // the commit point: one write, one flush and one rename for every ref in the transaction
+        PackedRefs.update(litPath, table -> {
+            for (Map.Entry<String, Update> entry : updates.entrySet()) {
+                if (entry.getValue().newSha == null) {
+                    table.remove(entry.getKey());
+                } else {
+                    table.put(entry.getKey(), entry.getValue().newSha);
+                }
+            }
+        });
+
+        // an empty loose file does not hide a packed value, so these can go after the commit point
+        for (Path unborn : unbornFiles) {
+            Files.deleteIfExists(unborn);
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package utils;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.stream.Stream;
 
 public class ReferenceManager {
@@ -42,10 +48,9 @@ public class ReferenceManager {
 
         if (headContent.startsWith("ref: ")) {
             String refPathString = headContent.substring("ref: ".length());
-            Path branchFilePath = litPath.resolve(refPathString);
-            
-            if (Files.exists(branchFilePath)) {
-                String commitSha = Files.readString(branchFilePath).trim();
+            String commitSha = readRef(refPathString);
+
+            if (commitSha != null) {
                 if (commitSha.isEmpty()) {
                     return null; // Branch exists but points to no commit (e.g., after init, before first commit)
                 }
@@ -65,6 +70,14 @@ public class ReferenceManager {
     }
 
     public void updateHead(String newCommitSha) throws IOException, IllegalArgumentException {
+        updateHead(newCommitSha, null);
+    }
+
+    /**
+     * Moves HEAD (or the branch it points to) to newCommitSha, but only if it still points to
+     * expectedOldSha. A null expectedOldSha skips the check; an empty one means "no commit yet".
+     */
+    public void updateHead(String newCommitSha, String expectedOldSha) throws IOException, IllegalArgumentException {
         // Basic validation for SHA-1 format
         if (newCommitSha == null || !newCommitSha.matches("[0-9a-fA-F]{40}")) {
             throw new IllegalArgumentException("Invalid commit SHA-1: " + newCommitSha);
@@ -80,20 +93,26 @@ public class ReferenceManager {
         if (headContent.startsWith("ref: ")) {
             // HEAD points to a branch (e.g., "ref: refs/heads/main")
             String refPathString = headContent.substring("ref: ".length());
-            Path branchFilePath = litPath.resolve(refPathString);
 
-            // Ensure the branch file exists before attempting to write to it
-            if (!Files.exists(branchFilePath)) {
+            // Ensure the branch exists (loose or packed) before attempting to write to it
+            if (readRef(refPathString) == null) {
                 throw new IOException("Cannot update branch: '" + refPathString + "' does not exist.");
             }
 
-            // Write the new commit SHA-1 to the branch file
-            Files.writeString(branchFilePath, newCommitSha);
+            // A one-ref transaction: locked, checked against the expected value and renamed into place
+            beginTransaction().update(refPathString, newCommitSha, expectedOldSha).commit();
             System.out.println("Branch updated: " + refPathString + " now points to " + newCommitSha);
 
         } else if (headContent.matches("[0-9a-fA-F]{40}")) {
             // Detached HEAD, so write the new SHA-1 directly to the HEAD file
-            Files.writeString(headPath, newCommitSha);
+            try (LockFile lock = LockFile.acquire(headPath)) {
+                String current = Files.readString(headPath).trim();
+                if (expectedOldSha != null && !current.equalsIgnoreCase(expectedOldSha)) {
+                    throw new IOException("Cannot update HEAD: expected " + expectedOldSha + " but found " + current + ".");
+                }
+                lock.write(newCommitSha.getBytes(StandardCharsets.UTF_8));
+                lock.commit();
+            }
             System.out.println("Detached HEAD updated to: " + newCommitSha);
         } else {
             throw new IOException("Invalid content in .lit/HEAD file. Cannot update HEAD.");
@@ -102,8 +121,8 @@ public class ReferenceManager {
 
     public void createBranch(String branchName) throws IOException, IllegalArgumentException {
         // Basic validation for branch name
-        if (branchName == null || branchName.trim().isEmpty() || branchName.contains(" ") || branchName.contains("/") || branchName.equals("HEAD") || branchName.equals("main")) {
-            throw new IllegalArgumentException("Invalid branch name: " + branchName + ". Branch names cannot contain spaces, slashes, or be 'HEAD' or 'main'.");
+        if (branchName == null || branchName.trim().isEmpty() || branchName.contains(" ") || branchName.contains("/") || branchName.equals("HEAD") || branchName.equals("main") || branchName.endsWith(".lock")) {
+            throw new IllegalArgumentException("Invalid branch name: " + branchName + ". Branch names cannot contain spaces, slashes, end in '.lock', or be 'HEAD' or 'main'.");
         }
 
         // Ensure refs/heads directory exists
@@ -113,11 +132,6 @@ public class ReferenceManager {
 
         Path newBranchFilePath = refsHeadsPath.resolve(branchName);
 
-        // Check if branch already exists
-        if (Files.exists(newBranchFilePath)) {
-            throw new IOException("Branch '" + branchName + "' already exists.");
-        }
-
         // Get the SHA-1 of the current HEAD commit
         String headCommitSha = getHeadCommit();
 
@@ -125,8 +139,14 @@ public class ReferenceManager {
         // This is how Git behaves: it creates the file but it's empty.
         String contentToWrite = (headCommitSha != null) ? headCommitSha : "";
 
-        // Create the new branch file and write the HEAD commit SHA-1 (or empty string) to it
-        Files.writeString(newBranchFilePath, contentToWrite);
+        // Create the new branch file under its lock, so two concurrent creates cannot both succeed
+        try (LockFile lock = LockFile.acquire(newBranchFilePath)) {
+            if (getBranchCommit(branchName) != null) {
+                throw new IOException("Branch '" + branchName + "' already exists.");
+            }
+            lock.write(contentToWrite.getBytes(StandardCharsets.UTF_8));
+            lock.commit();
+        }
         System.out.println("Branch '" + branchName + "' created pointing to: " + (headCommitSha != null ? headCommitSha : "(initial commit)"));
     }
 
@@ -141,7 +161,7 @@ public class ReferenceManager {
             // Write "ref: refs/heads/<branchName>" to HEAD
             contentToWrite = "ref: refs/heads/" + targetReference;
             // Also ensure the branch file actually exists if we're setting HEAD to it
-            if (!Files.exists(refsHeadsPath.resolve(targetReference))) {
+            if (getBranchCommit(targetReference) == null) {
                 // This might indicate trying to switch to a non-existent branch
                 throw new IOException("Cannot set HEAD to non-existent branch: " + targetReference);
             }
@@ -152,32 +172,122 @@ public class ReferenceManager {
             }
             contentToWrite = targetReference;
         }
-        
-        Files.writeString(headPath, contentToWrite);
+
+        try (LockFile lock = LockFile.acquire(headPath)) {
+            lock.write(contentToWrite.getBytes(StandardCharsets.UTF_8));
+            lock.commit();
+        }
         System.out.println("HEAD is now at: " + targetReference);
     }
 
      //gets commit SHA-1 for branch name. basically takes name of branch and return SHA-1 of commit or null
+    //an existing branch with no commits yet returns an empty string
     public String getBranchCommit(String branchName) throws IOException {
-        Path branchPath = this.refsHeadsPath.resolve(branchName);
-        if (Files.exists(branchPath)) {
-            return Files.readString(branchPath).trim();
+        return readRef("refs/heads/" + branchName);
+    }
+
+    //resolves a full ref name like "refs/heads/main": a loose file with a SHA-1 wins, then the packed-refs table
+    //an empty loose file marks a branch with no commits yet, unless packed-refs has a value for it
+    String readRef(String refName) throws IOException {
+        Path loosePath = litPath.resolve(refName);
+        String loose = Files.isRegularFile(loosePath) ? Files.readString(loosePath).trim() : null;
+        if (loose != null && !loose.isEmpty()) {
+            return loose;
+        }
+        String packed = PackedRefs.load(litPath).lookup(refName);
+        return packed != null ? packed : loose;
+    }
+
+    /**
+     * Starts a transaction that updates several refs at once; see RefTransaction.
+     */
+    public RefTransaction beginTransaction() {
+        return new RefTransaction(this, litPath);
+    }
+
+    /**
+     * Moves every loose branch that points to a commit into packed-refs and deletes its loose file.
+     * Branches without a commit stay loose, since packed-refs only holds SHA-1s.
+     *
+     * @return the number of refs in the new packed-refs file
+     */
+    public int packRefs() throws IOException {
+        Map<String, String> packedLoose = new TreeMap<>();
+        List<LockFile> locks = new ArrayList<>();
+        try {
+            try (Stream<Path> stream = Files.list(this.refsHeadsPath)) {
+                for (Path loose : (Iterable<Path>) stream.filter(Files::isRegularFile)::iterator) {
+                    String name = loose.getFileName().toString();
+                    if (name.endsWith(".lock")) {
+                        continue;
+                    }
+                    LockFile lock;
+                    try {
+                        lock = LockFile.acquire(loose);
+                    } catch (IOException e) {
+                        continue; // being updated right now; leave it loose
+                    }
+                    locks.add(lock);
+                    String sha = Files.readString(loose).trim();
+                    if (sha.matches("[0-9a-fA-F]{40}")) {
+                        packedLoose.put("refs/heads/" + name, sha);
+                    }
+                }
+            }
+            PackedRefs packed = PackedRefs.update(litPath, table -> table.putAll(packedLoose));
+            for (String refName : packedLoose.keySet()) {
+                Files.delete(litPath.resolve(refName));
+            }
+            return packed.size();
+        } finally {
+            for (LockFile lock : locks) {
+                lock.close();
+            }
+        }
+    }
+
+    //returns the name of the branch HEAD points to, or null for a detached HEAD
+    public String getCurrentBranch() throws IOException {
+        String headContent = Files.readString(headPath).trim();
+        if (headContent.startsWith("ref: refs/heads/")) {
+            return headContent.substring("ref: refs/heads/".length());
         }
         return null;
     }
 
-     //returns list of all branch names where each string is a branch name
+    //returns every commit a branch or a detached HEAD points to, i.e. the roots of reachability
+    public Set<String> getAllCommitTips() throws IOException {
+        Set<String> tips = new LinkedHashSet<>();
+        for (String branch : getAllBranches()) {
+            String sha = getBranchCommit(branch);
+            if (sha != null && !sha.isEmpty()) {
+                tips.add(sha);
+            }
+        }
+        String head = getHeadCommit();
+        if (head != null) {
+            tips.add(head);
+        }
+        return tips;
+    }
+
+     //returns sorted list of all branch names, loose and packed, where each string is a branch name
     public List<String> getAllBranches() {
         if (!Files.exists(this.refsHeadsPath)) {
             return Collections.emptyList();
         }
+        Set<String> branches = new TreeSet<>();
         try (Stream<Path> stream = Files.list(this.refsHeadsPath)) {
-            return stream
-                    .map(path -> path.getFileName().toString())
-                    .collect(Collectors.toList());
+            stream.map(path -> path.getFileName().toString())
+                  .filter(name -> !name.endsWith(".lock"))
+                  .forEach(branches::add);
+            for (String refName : PackedRefs.load(litPath).namesWithPrefix("refs/heads/")) {
+                branches.add(refName.substring("refs/heads/".length()));
+            }
         } catch (IOException e) {
             System.err.println("Error listing branches: " + e.getMessage());
             return Collections.emptyList();
         }
+        return new ArrayList<>(branches);
     }
 }
\ No newline at end of file
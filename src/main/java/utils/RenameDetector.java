@@ -0,0 +1,415 @@
+package utils;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import objects.TreeEntry;
+
+/**
+ * Pairs up the deleted and added files of a tree diff that are really the same file moved to a
+ * new path, and optionally added files that are copies of an existing one.
+ *
+ * Files with identical content are matched first by blob SHA-1, which handles pure moves without
+ * reading any file. The remaining files are compared by content, without trying every pair:
+ *
+ * - each file is reduced to the hashes of its lines, and a MinHash signature of that set: for
+ *   each of 128 hash functions, the smallest hash of any line. Two files agree on a signature
+ *   slot with a probability equal to the share of distinct lines they have in common.
+ * - the signature is cut into 32 bands of 4 slots. Only files that agree on a whole band end up
+ *   in the same bucket and are compared. With these sizes a pair sharing 70% of its distinct
+ *   lines meets in some bucket almost surely and a pair sharing half of them 9 times out of 10,
+ *   while files that only share boilerplate lines rarely do.
+ * - each candidate pair gets an exact score: common lines as a percentage of the longer file.
+ *   Pairs at or above the threshold are matched greedily, best score first.
+ *
+ * When there are only a few files left on either side, every pair is scored and the buckets are
+ * skipped, so small changes never depend on the sketches.
+ *
+ * Reading the files and scoring the candidates run on a small thread pool.
+ */
+public class RenameDetector {
+
+    public static final int DEFAULT_THRESHOLD = 50;
+
+    private static final int HASHES = 128;
+    private static final int ROWS_PER_BAND = 4;
+    private static final int BANDS = HASHES / ROWS_PER_BAND;
+    private static final long[] SEEDS = new long[HASHES];
+    // below this many source/target pairs every pair is scored
+    private static final long EXHAUSTIVE_PAIRS = 4096;
+
+    static {
+        long seed = 0x5DEECE66DL;
+        for (int i = 0; i < HASHES; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            SEEDS[i] = mix(seed);
+        }
+    }
+
+    private final int threshold;
+    private final boolean findCopies;
+    private final int threads;
+
+    public RenameDetector() {
+        this(DEFAULT_THRESHOLD, false, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threshold  minimum similarity in percent for two different files to count as a rename
+     * @param findCopies also report added files that copy a deleted or modified file
+     * @param threads    number of threads used to read and compare files
+     */
+    public RenameDetector(int threshold, boolean findCopies, int threads) {
+        if (threshold < 0 || threshold > 100) {
+            throw new IllegalArgumentException("Rename threshold must be between 0 and 100: " + threshold);
+        }
+        this.threshold = threshold;
+        this.findCopies = findCopies;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Moves every detected rename or copy from the added (and, for renames, deleted) files of diff
+     * into its renamed files.
+     *
+     * @param oldTreeSha the tree diff was computed from; only read when copies are detected, to
+     *                   find the previous versions of modified files
+     */
+    public void detect(TreeDiffResult diff, String oldTreeSha) throws IOException {
+        List<TreeDiffResult.TreeEntryWithPath> deleted = diff.getDeletedFiles();
+        List<TreeDiffResult.TreeEntryWithPath> added = diff.getAddedFiles();
+        if (added.isEmpty() || (deleted.isEmpty() && !(findCopies && !diff.getModifiedFiles().isEmpty()))) {
+            return;
+        }
+
+        // copies can come from any file that existed before, but only deleted files can be renamed
+        List<TreeDiffResult.TreeEntryWithPath> copySources = new ArrayList<>();
+        if (findCopies) {
+            copySources.addAll(deleted);
+            for (TreeDiffResult.TreeEntryWithPath modified : diff.getModifiedFiles()) {
+                String oldSha = TreeIterator.findBlob(oldTreeSha, modified.getFullPath());
+                if (oldSha != null) {
+                    TreeEntry entry = modified.getEntry();
+                    copySources.add(new TreeDiffResult.TreeEntryWithPath(
+                            new TreeEntry(entry.getMode(), "blob", oldSha, entry.getName()), modified.getFullPath()));
+                }
+            }
+        }
+
+        List<TreeDiffResult.RenamedFile> found = new ArrayList<>();
+        Set<TreeDiffResult.TreeEntryWithPath> renamedSources = new HashSet<>();
+        List<TreeDiffResult.TreeEntryWithPath> unmatched = matchExact(deleted, added, copySources, found, renamedSources);
+        Set<TreeDiffResult.TreeEntryWithPath> deletedFiles = new HashSet<>(deleted);
+
+        List<TreeDiffResult.TreeEntryWithPath> sources = new ArrayList<>(findCopies ? copySources : deleted);
+        if (!findCopies) {
+            sources.removeAll(renamedSources);
+        }
+        if (!unmatched.isEmpty() && !sources.isEmpty()) {
+            matchSimilar(sources, unmatched, deletedFiles, found, renamedSources);
+        }
+
+        Set<TreeDiffResult.TreeEntryWithPath> matchedTargets = new HashSet<>();
+        for (TreeDiffResult.RenamedFile renamed : found) {
+            matchedTargets.add(renamed.getTarget());
+        }
+        added.removeAll(matchedTargets);
+        deleted.removeAll(renamedSources);
+        found.sort(Comparator.comparing(renamed -> renamed.getTarget().getFullPath()));
+        diff.getRenamedFiles().addAll(found);
+    }
+
+    // pairs files with the same blob SHA-1 and returns the added files left over
+    private List<TreeDiffResult.TreeEntryWithPath> matchExact(List<TreeDiffResult.TreeEntryWithPath> deleted,
+                                                             List<TreeDiffResult.TreeEntryWithPath> added,
+                                                             List<TreeDiffResult.TreeEntryWithPath> copySources,
+                                                             List<TreeDiffResult.RenamedFile> found,
+                                                             Set<TreeDiffResult.TreeEntryWithPath> renamedSources) {
+        Map<String, Deque<TreeDiffResult.TreeEntryWithPath>> deletedBySha = new HashMap<>();
+        for (TreeDiffResult.TreeEntryWithPath file : deleted) {
+            deletedBySha.computeIfAbsent(file.getEntry().getObjectSha1Id(), sha -> new ArrayDeque<>()).add(file);
+        }
+        Map<String, TreeDiffResult.TreeEntryWithPath> copySourceBySha = new HashMap<>();
+        for (TreeDiffResult.TreeEntryWithPath file : copySources) {
+            copySourceBySha.putIfAbsent(file.getEntry().getObjectSha1Id(), file);
+        }
+
+        List<TreeDiffResult.TreeEntryWithPath> unmatched = new ArrayList<>();
+        for (TreeDiffResult.TreeEntryWithPath target : added) {
+            String sha = target.getEntry().getObjectSha1Id();
+            Deque<TreeDiffResult.TreeEntryWithPath> candidates = deletedBySha.get(sha);
+            if (candidates != null && !candidates.isEmpty()) {
+                TreeDiffResult.TreeEntryWithPath source = takeSameName(candidates, target.getEntry().getName());
+                renamedSources.add(source);
+                found.add(new TreeDiffResult.RenamedFile(source, target, 100, false));
+            } else if (copySourceBySha.containsKey(sha)) {
+                found.add(new TreeDiffResult.RenamedFile(copySourceBySha.get(sha), target, 100, true));
+            } else {
+                unmatched.add(target);
+            }
+        }
+        return unmatched;
+    }
+
+    // among identical files, a file that kept its name is the most likely source of a move
+    private static TreeDiffResult.TreeEntryWithPath takeSameName(Deque<TreeDiffResult.TreeEntryWithPath> candidates, String name) {
+        Iterator<TreeDiffResult.TreeEntryWithPath> it = candidates.iterator();
+        while (it.hasNext()) {
+            TreeDiffResult.TreeEntryWithPath candidate = it.next();
+            if (candidate.getEntry().getName().equals(name)) {
+                it.remove();
+                return candidate;
+            }
+        }
+        return candidates.poll();
+    }
+
+    private static class Pair {
+        final int source;
+        final int target;
+        final int score;
+
+        Pair(int source, int target, int score) {
+            this.source = source;
+            this.target = target;
+            this.score = score;
+        }
+    }
+
+    private void matchSimilar(List<TreeDiffResult.TreeEntryWithPath> sources,
+                              List<TreeDiffResult.TreeEntryWithPath> targets,
+                              Set<TreeDiffResult.TreeEntryWithPath> deletedFiles,
+                              List<TreeDiffResult.RenamedFile> found,
+                              Set<TreeDiffResult.TreeEntryWithPath> renamedSources) throws IOException {
+        Sketch[] sourceSketches = new Sketch[sources.size()];
+        Sketch[] targetSketches = new Sketch[targets.size()];
+        parallelFor(sources.size() + targets.size(), i -> {
+            if (i < sources.size()) {
+                sourceSketches[i] = Sketch.of(ObjectLoader.loadBlob(sources.get(i).getEntry().getObjectSha1Id()));
+            } else {
+                int t = i - sources.size();
+                targetSketches[t] = Sketch.of(ObjectLoader.loadBlob(targets.get(t).getEntry().getObjectSha1Id()));
+            }
+        });
+
+        // bucket the sources by each band of their signature
+        boolean exhaustive = (long) sources.size() * targets.size() <= EXHAUSTIVE_PAIRS;
+        Map<Long, List<Integer>> buckets = new HashMap<>();
+        for (int s = 0; s < sourceSketches.length && !exhaustive; s++) {
+            if (sourceSketches[s].isEmpty()) {
+                continue; // empty files are only matched by SHA-1
+            }
+            for (int band = 0; band < BANDS; band++) {
+                buckets.computeIfAbsent(sourceSketches[s].bandKey(band), key -> new ArrayList<>()).add(s);
+            }
+        }
+
+        // score each target against the sources it shares a bucket with
+        List<List<Pair>> pairsByTarget = new ArrayList<>(Collections.nCopies(targets.size(), null));
+        parallelFor(targets.size(), t -> {
+            List<Pair> pairs = new ArrayList<>();
+            Sketch target = targetSketches[t];
+            if (!target.isEmpty() && exhaustive) {
+                for (int s = 0; s < sourceSketches.length; s++) {
+                    int score = sourceSketches[s].isEmpty() ? 0 : sourceSketches[s].similarity(target);
+                    if (score >= threshold) {
+                        pairs.add(new Pair(s, t, score));
+                    }
+                }
+            } else if (!target.isEmpty()) {
+                Set<Integer> seen = new HashSet<>();
+                for (int band = 0; band < BANDS; band++) {
+                    List<Integer> bucket = buckets.get(target.bandKey(band));
+                    if (bucket == null) {
+                        continue;
+                    }
+                    for (int s : bucket) {
+                        if (seen.add(s)) {
+                            int score = sourceSketches[s].similarity(target);
+                            if (score >= threshold) {
+                                pairs.add(new Pair(s, t, score));
+                            }
+                        }
+                    }
+                }
+            }
+            pairsByTarget.set(t, pairs);
+        });
+
+        List<Pair> pairs = new ArrayList<>();
+        for (List<Pair> targetPairs : pairsByTarget) {
+            pairs.addAll(targetPairs);
+        }
+        pairs.sort(Comparator.<Pair>comparingInt(pair -> -pair.score)
+                .thenComparing(pair -> targets.get(pair.target).getFullPath())
+                .thenComparing(pair -> sources.get(pair.source).getFullPath()));
+
+        boolean[] targetUsed = new boolean[targets.size()];
+        for (Pair pair : pairs) {
+            if (targetUsed[pair.target]) {
+                continue;
+            }
+            TreeDiffResult.TreeEntryWithPath source = sources.get(pair.source);
+            // a deleted file can be renamed once; any further match, or a match with a modified file, is a copy
+            boolean renamable = deletedFiles.contains(source) && !renamedSources.contains(source);
+            if (renamable) {
+                renamedSources.add(source);
+            } else if (!findCopies) {
+                continue;
+            }
+            targetUsed[pair.target] = true;
+            found.add(new TreeDiffResult.RenamedFile(source, targets.get(pair.target), pair.score, !renamable));
+        }
+    }
+
+    private interface IndexTask {
+        void run(int index) throws IOException;
+    }
+
+    // runs task for 0..count-1 on the pool; each worker pulls indexes off a shared cursor
+    private void parallelFor(int count, IndexTask task) throws IOException {
+        if (count == 0) {
+            return;
+        }
+        int workers = Math.min(threads, count);
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "lit-renames");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int w = 0; w < workers; w++) {
+                futures.add(pool.submit(() -> {
+                    int i;
+                    while ((i = next.getAndIncrement()) < count) {
+                        task.run(i);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while detecting renames.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Line hashes and MinHash signature of one file.
+     */
+    static class Sketch {
+        private final long[] lines;     // hash of every line, sorted, duplicates kept
+        private final long[] signature; // smallest hash of any line under each hash function
+
+        private Sketch(long[] lines, long[] signature) {
+            this.lines = lines;
+            this.signature = signature;
+        }
+
+        static Sketch of(byte[] content) {
+            List<Long> hashes = new ArrayList<>();
+            long hash = 0xcbf29ce484222325L; // FNV-1a
+            int start = 0;
+            for (int i = 0; i <= content.length; i++) {
+                if (i == content.length || content[i] == '\n') {
+                    if (i > start || i < content.length) {
+                        hashes.add(hash);
+                    }
+                    hash = 0xcbf29ce484222325L;
+                    start = i + 1;
+                } else {
+                    hash = (hash ^ (content[i] & 0xff)) * 0x100000001b3L;
+                }
+            }
+            long[] lines = new long[hashes.size()];
+            for (int i = 0; i < lines.length; i++) {
+                lines[i] = hashes.get(i);
+            }
+            Arrays.sort(lines);
+
+            long[] signature = new long[HASHES];
+            Arrays.fill(signature, Long.MAX_VALUE);
+            for (int i = 0; i < lines.length; i++) {
+                if (i > 0 && lines[i] == lines[i - 1]) {
+                    continue; // the signature describes the set of distinct lines
+                }
+                for (int h = 0; h < HASHES; h++) {
+                    long value = mix(lines[i] ^ SEEDS[h]);
+                    if (value < signature[h]) {
+                        signature[h] = value;
+                    }
+                }
+            }
+            return new Sketch(lines, signature);
+        }
+
+        boolean isEmpty() {
+            return lines.length == 0;
+        }
+
+        long bandKey(int band) {
+            long key = band;
+            for (int row = 0; row < ROWS_PER_BAND; row++) {
+                key = mix(key * 31 + signature[band * ROWS_PER_BAND + row]);
+            }
+            return key;
+        }
+
+        /**
+         * Lines the two files have in common, as a percentage of the longer file.
+         */
+        int similarity(Sketch other) {
+            int longest = Math.max(lines.length, other.lines.length);
+            if (longest == 0) {
+                return 100;
+            }
+            int i = 0;
+            int j = 0;
+            int common = 0;
+            while (i < lines.length && j < other.lines.length) {
+                if (lines[i] == other.lines[j]) {
+                    common++;
+                    i++;
+                    j++;
+                } else if (lines[i] < other.lines[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return (int) (100L * common / longest);
+        }
+    }
+
+    // SplitMix64 finalizer: spreads the bits of x over the whole word
+    private static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+}
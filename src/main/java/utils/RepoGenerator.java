@@ -0,0 +1,465 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import objects.CommitObject;
+import objects.TreeEntry;
+import objects.TreeObject;
+
+/**
+ * Builds a synthetic history in an empty repository, for scale tests and benchmarks, e.g.
+ * new RepoGenerator().seed(7).files(1_000_000).depth(3).fanOut(10).commits(1000).generate(null).
+ *
+ * Files are spread over a directory tree fanOut wide and depth deep: file i is
+ * dir(i % f)/dir(i / f % f)/.../file&lt;i&gt;.txt, so only the leaf directories hold files. Sizes
+ * follow a log-normal distribution around the median, and the content is source-like lines.
+ *
+ * The first commit adds every file. Each later commit changes churn * files of them: most are
+ * modified in a few lines, some are added and some deleted. With topic branches, every commit goes
+ * to main or to one of the topics, and a topic that has changes is merged into main instead with
+ * probability mergeRate; the merge takes the topic's version of the files both sides changed, and
+ * the topic carries on from the merge commit. Topics are named topic-1, topic-2 and so on.
+ *
+ * Everything, down to commit times, is derived from the seed, so the same options always produce
+ * the same SHA-1s. Objects are written through the object model, trees are edited in place with
+ * TreeBuilder.editTree, and the initial files are hashed and written on several threads.
+ */
+public class RepoGenerator {
+
+    private static final long PROGRESS_INTERVAL_MILLIS = 1000;
+    private static final long START_TIME = 1_600_000_000L; // the first commit's time, in seconds
+    private static final long COMMIT_INTERVAL = 600;
+    private static final String AUTHOR_NAME = "Generator";
+    private static final String AUTHOR_EMAIL = "generator@example.com";
+
+    public static class Result {
+        public String head;       // main's final commit
+        public int commits;
+        public int merges;
+        public int files;         // files in the first commit
+        public long changes;      // file changes in the later commits
+        public long millis;
+    }
+
+    /**
+     * Snapshot handed to the progress callback roughly once a second, for the files of the first
+     * commit and then for the commits.
+     */
+    public static class Progress {
+        public final String phase;
+        public final int done;
+        public final int total;
+        public final long elapsedMillis;
+
+        Progress(String phase, int done, int total, long elapsedMillis) {
+            this.phase = phase;
+            this.done = done;
+            this.total = total;
+            this.elapsedMillis = elapsedMillis;
+        }
+    }
+
+    private long seed = 1;
+    private int files = 1000;
+    private int depth = 2;
+    private int fanOut = 10;
+    private int medianSize = 2048;
+    private double sizeSpread = 1.0;
+    private int maxSize = 1024 * 1024;
+    private int commits = 100;
+    private int branches = 0;
+    private double mergeRate = 0.1;
+    private double churn = 0.01;
+    private boolean checkout = true;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    public RepoGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public RepoGenerator files(int files) {
+        if (files < 1) {
+            throw new IllegalArgumentException("The number of files must be at least 1: " + files);
+        }
+        this.files = files;
+        return this;
+    }
+
+    public RepoGenerator depth(int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("The directory depth cannot be negative: " + depth);
+        }
+        this.depth = depth;
+        return this;
+    }
+
+    public RepoGenerator fanOut(int fanOut) {
+        if (fanOut < 1) {
+            throw new IllegalArgumentException("The fan-out must be at least 1: " + fanOut);
+        }
+        this.fanOut = fanOut;
+        return this;
+    }
+
+    /**
+     * File sizes: the median in bytes, the standard deviation of their logarithm (0 makes every
+     * file the same size) and an upper bound.
+     */
+    public RepoGenerator fileSize(int median, double spread, int max) {
+        if (median < 0 || spread < 0 || max < median) {
+            throw new IllegalArgumentException("Invalid file size distribution: median " + median
+                    + ", spread " + spread + ", max " + max);
+        }
+        this.medianSize = median;
+        this.sizeSpread = spread;
+        this.maxSize = max;
+        return this;
+    }
+
+    public RepoGenerator commits(int commits) {
+        if (commits < 1) {
+            throw new IllegalArgumentException("The number of commits must be at least 1: " + commits);
+        }
+        this.commits = commits;
+        return this;
+    }
+
+    public RepoGenerator branches(int branches) {
+        if (branches < 0) {
+            throw new IllegalArgumentException("The number of branches cannot be negative: " + branches);
+        }
+        this.branches = branches;
+        return this;
+    }
+
+    /**
+     * Chance that a topic branch with unmerged changes is merged into main rather than committed to.
+     */
+    public RepoGenerator mergeRate(double mergeRate) {
+        if (mergeRate < 0 || mergeRate > 1) {
+            throw new IllegalArgumentException("The merge rate must be between 0 and 1: " + mergeRate);
+        }
+        this.mergeRate = mergeRate;
+        return this;
+    }
+
+    /**
+     * Share of the files that each commit after the first changes; at least one file always changes.
+     */
+    public RepoGenerator churn(double churn) {
+        if (churn < 0 || churn > 1) {
+            throw new IllegalArgumentException("The churn rate must be between 0 and 1: " + churn);
+        }
+        this.churn = churn;
+        return this;
+    }
+
+    /**
+     * Whether to check main out into the working directory and index at the end.
+     */
+    public RepoGenerator checkout(boolean checkout) {
+        this.checkout = checkout;
+        return this;
+    }
+
+    public RepoGenerator threads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * Generates the history into the repository in the working directory, which must not have any
+     * commits yet, and points main (and the topic branches) at it.
+     *
+     * @param progress called periodically and at the end of each phase; may be null
+     */
+    public Result generate(Consumer<Progress> progress) throws IOException {
+        ReferenceManager refManager = new ReferenceManager();
+        if (refManager.getHeadCommit() != null || !refManager.getAllCommitTips().isEmpty()) {
+            throw new IOException("A repository can only be generated into an empty repository.");
+        }
+        long leaves = 1;
+        for (int level = 0; level < depth; level++) {
+            leaves *= fanOut;
+            if (leaves > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many directories: fan-out " + fanOut + " at depth " + depth);
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        Result result = new Result();
+        result.files = files;
+        Random random = new Random(seed);
+
+        String rootTree = writeInitialTree((int) leaves, progress);
+        String[] heads = new String[branches + 1]; // main, then the topics
+        String[] trees = new String[branches + 1];
+        List<Map<String, TreeEntry>> unmerged = new ArrayList<>();
+        String root = commit(rootTree, Collections.emptyList(), "Add " + files + " files", 0);
+        for (int line = 0; line <= branches; line++) {
+            heads[line] = root;
+            trees[line] = rootTree;
+            unmerged.add(new HashMap<>());
+        }
+
+        int changesPerCommit = Math.max(1, (int) Math.round(churn * files));
+        long nextFile = files;
+        long version = 0;
+        long lastProgress = start;
+        for (int step = 1; step < commits; step++) {
+            int line = branches == 0 ? 0 : random.nextInt(branches + 1);
+            if (line > 0 && !unmerged.get(line).isEmpty() && random.nextDouble() < mergeRate) {
+                trees[0] = TreeBuilder.editTree(trees[0], unmerged.get(line));
+                heads[0] = commit(trees[0], List.of(heads[0], heads[line]), "Merge branch '" + topic(line) + "'", step);
+                heads[line] = heads[0];
+                trees[line] = trees[0];
+                unmerged.get(line).clear();
+                result.merges++;
+            } else {
+                Map<String, TreeEntry> changes = new HashMap<>();
+                for (int i = 0; i < changesPerCommit; i++) {
+                    int kind = random.nextInt(20);
+                    long file = kind < 2 ? nextFile++ : (long) (random.nextDouble() * nextFile);
+                    // one in twenty changes deletes a file, two add one and the rest modify one
+                    changes.put(path(file, (int) leaves), kind == 19 ? null : saveBlob(content(file, ++version), "file" + file + ".txt"));
+                }
+                trees[line] = TreeBuilder.editTree(trees[line], changes);
+                heads[line] = commit(trees[line], List.of(heads[line]), "Change " + changes.size() + " files", step);
+                if (line > 0) {
+                    unmerged.get(line).putAll(changes);
+                }
+                result.changes += changes.size();
+            }
+
+            long now = System.currentTimeMillis();
+            if (progress != null && now - lastProgress >= PROGRESS_INTERVAL_MILLIS) {
+                progress.accept(new Progress("commits", step + 1, commits, now - start));
+                lastProgress = now;
+            }
+        }
+        if (progress != null) {
+            progress.accept(new Progress("commits", commits, commits, System.currentTimeMillis() - start));
+        }
+
+        if (checkout) {
+            // with main still unborn, this writes every file; it leaves HEAD detached at the commit
+            CheckoutManager.checkout(heads[0], threads);
+        }
+        RefTransaction refs = refManager.beginTransaction().create("refs/heads/main", heads[0]);
+        for (int line = 1; line <= branches; line++) {
+            refs.create("refs/heads/" + topic(line), heads[line]);
+        }
+        refs.commit();
+        refManager.setHead("main", true);
+
+        result.head = heads[0];
+        result.commits = commits;
+        result.millis = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    private static String topic(int line) {
+        return "topic-" + line;
+    }
+
+    private String commit(String tree, List<String> parents, String message, int step) throws IOException {
+        CommitObject commit = new CommitObject(tree, parents, AUTHOR_NAME, AUTHOR_EMAIL, message,
+                START_TIME + step * COMMIT_INTERVAL, ZoneOffset.UTC);
+        Content.writeObject(commit.getSha1(), commit.serializeContentToBytes());
+        return commit.getSha1();
+    }
+
+    // the directories of file, top first, and its name
+    private String path(long file, int leaves) {
+        StringBuilder path = new StringBuilder();
+        long directory = file % leaves;
+        for (int level = 0; level < depth; level++) {
+            path.append("dir").append(directory % fanOut).append('/');
+            directory /= fanOut;
+        }
+        return path.append("file").append(file).append(".txt").toString();
+    }
+
+    /**
+     * Writes the files of the first commit and their trees, bottom up: the leaf directories are
+     * filled in parallel, then each level of directories is built from the one below it.
+     */
+    private String writeInitialTree(int leaves, Consumer<Progress> progress) throws IOException {
+        int filled = Math.min(leaves, files); // file i is in leaf i % leaves, so later leaves are empty
+        String[] level = new String[filled];
+        forEachLeaf(filled, progress, leaf -> {
+            List<TreeEntry> entries = new ArrayList<>();
+            for (long file = leaf; file < files; file += leaves) {
+                entries.add(saveBlob(content(file, 0), "file" + file + ".txt"));
+            }
+            level[leaf] = saveTree(entries);
+        });
+
+        // a directory at depth k is numbered by the file numbers modulo fanOut^k, like the leaves
+        String[] below = level;
+        long width = leaves;
+        for (int k = depth - 1; k >= 0; k--) {
+            width /= fanOut;
+            String[] above = new String[(int) Math.min(width, filled)];
+            for (int directory = 0; directory < above.length; directory++) {
+                List<TreeEntry> entries = new ArrayList<>();
+                for (int child = 0; child < fanOut; child++) {
+                    long index = directory + child * width;
+                    if (index < below.length && below[(int) index] != null) {
+                        entries.add(new TreeEntry("040000", "tree", below[(int) index], "dir" + child));
+                    }
+                }
+                above[directory] = entries.isEmpty() ? null : saveTree(entries);
+            }
+            below = above;
+        }
+        return below[0];
+    }
+
+    private interface LeafTask {
+        void fill(int leaf) throws IOException;
+    }
+
+    private void forEachLeaf(int leaves, Consumer<Progress> progress, LeafTask task) throws IOException {
+        long start = System.currentTimeMillis();
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "lit-generate");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<?>> workers = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                workers.add(pool.submit(() -> {
+                    int leaf;
+                    while ((leaf = next.getAndIncrement()) < leaves) {
+                        task.fill(leaf);
+                        done.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                while (true) {
+                    try {
+                        worker.get(PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                        break;
+                    } catch (TimeoutException e) {
+                        if (progress != null) {
+                            progress.accept(new Progress("files", filesIn(done.get(), leaves), files,
+                                    System.currentTimeMillis() - start));
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing files.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+        } finally {
+            pool.shutdownNow();
+        }
+        if (progress != null) {
+            progress.accept(new Progress("files", files, files, System.currentTimeMillis() - start));
+        }
+    }
+
+    // roughly how many files the first done leaves hold
+    private int filesIn(int done, int leaves) {
+        return (int) ((long) files * done / leaves);
+    }
+
+    // objects are written with Content.writeObject, which does not print a line for each of them
+    private static String saveTree(List<TreeEntry> entries) throws IOException {
+        TreeObject tree = new TreeObject(entries);
+        Content.writeObject(tree.getSha1Id(), tree.serializeContentToBytes());
+        return tree.getSha1Id();
+    }
+
+    private static TreeEntry saveBlob(byte[] content, String name) throws IOException {
+        String sha = sha1Hex(content);
+        Content.writeObject(sha, content);
+        return new TreeEntry("100644", "blob", sha, name);
+    }
+
+    /**
+     * The content of a file at a version. Version 0 is a function of the file alone; every later
+     * version replaces a few of its lines, so consecutive versions differ by small hunks.
+     */
+    private byte[] content(long file, long version) {
+        Random random = new Random(mix(seed, file));
+        double size = medianSize * Math.exp(sizeSpread * random.nextGaussian());
+        int bytes = (int) Math.min(maxSize, size);
+
+        List<String> lines = new ArrayList<>();
+        int length = 0;
+        while (length < bytes) {
+            String line = random.nextInt(8) == 0 ? "}"
+                    : "    value" + random.nextInt(1_000_000) + " = compute(" + random.nextInt(1000) + ");";
+            lines.add(line);
+            length += line.length() + 1;
+        }
+        if (version > 0) {
+            Random edits = new Random(mix(mix(seed, file), version));
+            int count = 1 + edits.nextInt(3);
+            for (int i = 0; i < count; i++) {
+                String line = "    changed" + version + " = compute(" + edits.nextInt(1000) + ");";
+                if (lines.isEmpty()) {
+                    lines.add(line);
+                } else {
+                    lines.set(edits.nextInt(lines.size()), line);
+                }
+            }
+        }
+
+        StringBuilder text = new StringBuilder(length + 64);
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // spreads nearby seeds apart, so the Randoms of neighbouring files are unrelated
+    private static long mix(long a, long b) {
+        long h = a * 0x9E3779B97F4A7C15L + b;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    private static String sha1Hex(byte[] content) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(content);
+            StringBuilder hex = new StringBuilder(40);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import objects.IndexEntry;
+
+/**
+ * Reuse of recorded conflict resolutions ("rerere"), kept in .lit/rr-cache.
+ *
+ * A conflicted file is identified by its conflict hunks alone: the two sides of every hunk, with
+ * the marker labels dropped and the sides put in a fixed order, are hashed into a preimage id.
+ * The same conflict therefore gets the same id in whichever direction two branches are merged,
+ * and however the rest of the file changed around it. rr-cache/<id>/preimage holds the normalized
+ * conflicted file and rr-cache/<id>/postimage the way it was resolved.
+ *
+ * During a merge every conflict without a recorded resolution is listed in .lit/MERGE_RR. When
+ * the resolved files are committed, their staged content becomes the postimage. A later merge that
+ * hits a conflict with a known id applies the change from preimage to postimage to its own
+ * conflicted file, as a three-way merge, so edits outside the hunks are kept.
+ */
+public class Rerere {
+
+    private final Path cacheDir;
+    private final Path pendingFile;
+
+    public Rerere(Path litPath) {
+        this.cacheDir = litPath.resolve("rr-cache");
+        this.pendingFile = litPath.resolve("MERGE_RR");
+    }
+
+    // a conflicted file with its markers normalized, and the id of its hunks
+    static final class Preimage {
+        final String text;
+        final String id;
+
+        Preimage(String text, String id) {
+            this.text = text;
+            this.id = id;
+        }
+    }
+
+    /**
+     * Normalizes conflicted content: marker labels are dropped and the sides of each hunk are put
+     * in lexicographic order.
+     *
+     * @return the normalized text and its preimage id, or null if content has no complete hunks
+     */
+    static Preimage normalize(String content) {
+        MessageDigest digest = sha1();
+        StringBuilder text = new StringBuilder(content.length());
+        StringBuilder ours = null;
+        StringBuilder theirs = null;
+        boolean found = false;
+
+        for (String line : LineInterner.splitLines(content)) {
+            if (ours == null) {
+                if (line.startsWith("<<<<<<<")) {
+                    ours = new StringBuilder();
+                } else {
+                    text.append(line);
+                }
+            } else if (theirs == null) {
+                if (line.equals("=======\n")) {
+                    theirs = new StringBuilder();
+                } else {
+                    ours.append(line);
+                }
+            } else if (line.startsWith(">>>>>>>")) {
+                String first = ours.toString();
+                String second = theirs.toString();
+                if (first.compareTo(second) > 0) {
+                    String swap = first;
+                    first = second;
+                    second = swap;
+                }
+                text.append("<<<<<<<\n").append(first).append("=======\n").append(second).append(">>>>>>>\n");
+                digest.update(first.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(second.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                found = true;
+                ours = null;
+                theirs = null;
+            } else {
+                theirs.append(line);
+            }
+        }
+        if (!found || ours != null) {
+            return null; // no conflicts, or markers that do not close
+        }
+        return new Preimage(text.toString(), toHex(digest.digest()));
+    }
+
+    /**
+     * Applies a recorded resolution to conflicted content. Only reads the cache, so it is safe to
+     * call from concurrent in-memory merges.
+     *
+     * @return the resolved content, or null if there is no recorded resolution that applies cleanly
+     */
+    public String resolve(String conflicted) throws IOException {
+        Preimage preimage = normalize(conflicted);
+        return preimage == null ? null : resolve(preimage);
+    }
+
+    private String resolve(Preimage preimage) throws IOException {
+        Path dir = cacheDir.resolve(preimage.id);
+        Path postimage = dir.resolve("postimage");
+        if (!Files.exists(postimage)) {
+            return null;
+        }
+        String recorded = Files.readString(dir.resolve("preimage"));
+        String resolution = Files.readString(postimage);
+        if (recorded.equals(preimage.text)) {
+            return resolution;
+        }
+        // the file changed outside the hunks since the resolution was recorded
+        LineMerger.Result merged = LineMerger.merge(recorded, preimage.text, resolution, "", "");
+        return merged.isClean() ? merged.getContent() : null;
+    }
+
+    /**
+     * Handles a file that a merge left with conflict markers in the working directory: rewrites
+     * it with the recorded resolution if there is one, otherwise records its preimage and lists it
+     * in MERGE_RR so that its resolution is recorded at the next commit.
+     *
+     * @return true if the file was resolved
+     */
+    public boolean resolveFile(Path root, String path) throws IOException {
+        Path file = root.resolve(path);
+        Preimage preimage = normalize(Files.readString(file));
+        if (preimage == null) {
+            return false;
+        }
+        String resolved = resolve(preimage);
+        if (resolved != null) {
+            Files.writeString(file, resolved);
+            return true;
+        }
+
+        Path dir = cacheDir.resolve(preimage.id);
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve("preimage"), preimage.text);
+        Files.writeString(pendingFile, preimage.id + "\t" + path + "\n",
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        return false;
+    }
+
+    /**
+     * Records the staged content of every file listed in MERGE_RR as its resolution, unless it
+     * still has conflict markers or was deleted, and empties the list. Called when the resolved
+     * merge is committed.
+     *
+     * @return the number of resolutions recorded
+     */
+    public int recordResolutions(IndexManager indexManager) throws IOException {
+        if (!Files.exists(pendingFile)) {
+            return 0;
+        }
+        int recorded = 0;
+        for (String line : Files.readAllLines(pendingFile)) {
+            int tab = line.indexOf('\t');
+            if (tab < 0) {
+                continue;
+            }
+            IndexEntry staged = indexManager.getEntryMap().get(line.substring(tab + 1));
+            if (staged == null || staged.isDeleted() || BinaryDetector.isBinaryBlob(staged.getSha1())) {
+                continue;
+            }
+            String content = new String(ObjectLoader.loadBlob(staged.getSha1()), StandardCharsets.UTF_8);
+            if (normalize(content) != null) {
+                continue; // committed with the markers still in
+            }
+            Path dir = cacheDir.resolve(line.substring(0, tab));
+            if (Files.exists(dir.resolve("preimage"))) {
+                Files.writeString(dir.resolve("postimage"), content);
+                recorded++;
+            }
+        }
+        Files.delete(pendingFile);
+        return recorded;
+    }
+
+    // forgets the conflicts of an earlier merge that was never committed
+    public void clearPending() throws IOException {
+        Files.deleteIfExists(pendingFile);
+    }
+
+    // ids of the conflicts waiting for a resolution, in the order they were hit
+    public List<String> getPending() throws IOException {
+        List<String> ids = new ArrayList<>();
+        if (Files.exists(pendingFile)) {
+            for (String line : Files.readAllLines(pendingFile)) {
+                int tab = line.indexOf('\t');
+                if (tab > 0) {
+                    ids.add(line.substring(0, tab));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] hash) {
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
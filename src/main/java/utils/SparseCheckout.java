@@ -0,0 +1,123 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Cone-mode sparse checkout, configured in .lit/info/sparse-checkout with one directory per line.
+ *
+ * A listed directory is checked out recursively. Files at the top level, and files directly inside
+ * the parents of a listed directory, are always checked out, so the paths leading to the cone stay
+ * browsable. Everything else stays out of the working directory and its index entries are flagged
+ * skip-worktree. For example, with "src/api" listed, src/api/** and src/build.gradle are checked
+ * out but src/web/** is not.
+ *
+ * Because the rules only look at directories, checking a path costs a few string comparisons per
+ * listed directory, and whole trees outside the cone can be skipped without reading their files.
+ */
+public class SparseCheckout {
+
+    private final List<String> cones; // normalized, no leading or trailing slash
+
+    private SparseCheckout(List<String> cones) {
+        this.cones = cones;
+    }
+
+    public static Path configPath(Path litPath) {
+        return litPath.resolve("info").resolve("sparse-checkout");
+    }
+
+    /**
+     * Loads the cone of the repository at litPath; without a config file everything is included.
+     */
+    public static SparseCheckout load(Path litPath) throws IOException {
+        Path config = configPath(litPath);
+        if (!Files.exists(config)) {
+            return new SparseCheckout(new ArrayList<>());
+        }
+        List<String> cones = new ArrayList<>();
+        for (String line : Files.readAllLines(config, StandardCharsets.UTF_8)) {
+            String cone = normalize(line);
+            if (!cone.isEmpty() && !cone.startsWith("#")) {
+                cones.add(cone);
+            }
+        }
+        return new SparseCheckout(cones);
+    }
+
+    /**
+     * Writes the given directories as the new cone, sorted and without duplicates.
+     */
+    public static void write(Path litPath, Collection<String> directories) throws IOException {
+        TreeSet<String> cones = new TreeSet<>();
+        for (String directory : directories) {
+            String cone = normalize(directory);
+            if (!cone.isEmpty()) {
+                cones.add(cone);
+            }
+        }
+        Path config = configPath(litPath);
+        Files.createDirectories(config.getParent());
+        try (LockFile lock = LockFile.acquire(config)) {
+            lock.write((String.join("\n", cones) + "\n").getBytes(StandardCharsets.UTF_8));
+            lock.commit();
+        }
+    }
+
+    public static void disable(Path litPath) throws IOException {
+        Files.deleteIfExists(configPath(litPath));
+    }
+
+    private static String normalize(String directory) {
+        String cone = directory.trim().replace('\\', '/');
+        while (cone.startsWith("/")) {
+            cone = cone.substring(1);
+        }
+        while (cone.endsWith("/")) {
+            cone = cone.substring(0, cone.length() - 1);
+        }
+        return cone;
+    }
+
+    public boolean isEnabled() {
+        return !cones.isEmpty();
+    }
+
+    public List<String> getCones() {
+        return cones;
+    }
+
+    /**
+     * Whether the file at path (relative, '/'-separated) belongs in the working directory.
+     */
+    public boolean includesFile(String path) {
+        int slash = path.lastIndexOf('/');
+        // files directly inside a directory are in the cone if the directory is inside a cone or leads to one
+        return slash < 0 || mayIncludeDirectory(path.substring(0, slash));
+    }
+
+    /**
+     * Whether any file below directory can be in the cone, i.e. whether the tree walk has to descend.
+     */
+    public boolean mayIncludeDirectory(String directory) {
+        if (!isEnabled()) {
+            return true;
+        }
+        for (String cone : cones) {
+            if (isSameOrBelow(directory, cone) || isSameOrBelow(cone, directory)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSameOrBelow(String path, String ancestor) {
+        return path.equals(ancestor) || (path.startsWith(ancestor) && path.charAt(ancestor.length()) == '/');
+    }
+}
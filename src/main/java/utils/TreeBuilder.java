@@ -5,9 +5,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.stream.Stream;
 
 import objects.BlobObject;
@@ -144,4 +147,85 @@ public class TreeBuilder {
         // Creates the TreeObject, which automatically sorts and calculates its own SHA-1.
         return new TreeObject(treeEntries);
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns a copy of the tree treeSha with entry placed at path, or with path removed if entry is
+     * null. Only the trees along the path are rewritten and saved; every other subtree keeps its
+     * SHA-1. Directories that end up empty are dropped.
+     *
+     * @param treeSha the tree to edit, or null for an empty tree
+     * @param path    '/'-separated path of the entry
+     * @return the SHA-1 of the edited tree
+     */
+    public static String editTree(String treeSha, String path, TreeEntry entry) throws IOException {
+        return editTree(treeSha, Collections.singletonMap(path, entry));
+    }
+
+    /**
+     * Applies several edits at once: each path is set to its entry, or removed if the entry is
+     * null. Every tree on the way to an edited path is rewritten and saved once, however many
+     * edits are below it, so a commit touching a thousand files writes each directory only once.
+     * The trees are written without printing a line for each.
+     *
+     * @param treeSha the tree to edit, or null for an empty tree
+     * @param edits   '/'-separated paths and their new entries
+     * @return the SHA-1 of the edited tree
+     */
+    public static String editTree(String treeSha, Map<String, TreeEntry> edits) throws IOException {
+        String edited = editTree(treeSha, new TreeMap<>(edits));
+        if (edited == null) {
+            TreeObject empty = new TreeObject(new ArrayList<>());
+            Content.writeObject(empty.getSha1Id(), empty.serializeContentToBytes());
+            return empty.getSha1Id();
+        }
+        return edited;
+    }
+
+    // edits are relative to this tree; returns null when the edited tree has no entries left
+    private static String editTree(String treeSha, SortedMap<String, TreeEntry> edits) throws IOException {
+        Map<String, TreeEntry> entries = new HashMap<>();
+        if (treeSha != null) {
+            for (TreeEntry existing : ObjectLoader.loadTree(treeSha).getEntries()) {
+                entries.put(existing.getName(), existing);
+            }
+        }
+
+        // edits of this tree's own entries apply directly, the rest are grouped by subdirectory
+        Map<String, SortedMap<String, TreeEntry>> below = new TreeMap<>();
+        for (Map.Entry<String, TreeEntry> edit : edits.entrySet()) {
+            String path = edit.getKey();
+            TreeEntry entry = edit.getValue();
+            int slash = path.indexOf('/');
+            if (slash >= 0) {
+                below.computeIfAbsent(path.substring(0, slash), k -> new TreeMap<>()).put(path.substring(slash + 1), entry);
+            } else if (entry == null) {
+                entries.remove(path);
+            } else {
+                entries.put(path, new TreeEntry(entry.getMode(), entry.getType(), entry.getObjectSha1Id(), path));
+            }
+        }
+
+        for (Map.Entry<String, SortedMap<String, TreeEntry>> directory : below.entrySet()) {
+            String name = directory.getKey();
+            TreeEntry existing = entries.get(name);
+            boolean onlyRemovals = directory.getValue().values().stream().allMatch(entry -> entry == null);
+            if (existing != null && existing.getType().equals("blob") && onlyRemovals) {
+                continue; // nothing to remove below a file
+            }
+            String subTree = existing != null && existing.getType().equals("tree") ? existing.getObjectSha1Id() : null;
+            String editedSubTree = editTree(subTree, directory.getValue());
+            if (editedSubTree != null) {
+                entries.put(name, new TreeEntry("040000", "tree", editedSubTree, name));
+            } else {
+                entries.remove(name);
+            }
+        }
+
+        if (entries.isEmpty()) {
+            return null;
+        }
+        TreeObject tree = new TreeObject(new ArrayList<>(entries.values()));
+        Content.writeObject(tree.getSha1Id(), tree.serializeContentToBytes());
+        return tree.getSha1Id();
+    }
+}
@@ -29,14 +29,51 @@ public class TreeDiffResult {
     }
 }
 
+    /**
+     * A file that was moved (or copied) to a new path, possibly with edits.
+     * The score is the share of lines the two versions have in common, in percent.
+     */
+    public static class RenamedFile {
+        private final TreeEntryWithPath source;
+        private final TreeEntryWithPath target;
+        private final int score;
+        private final boolean copy;
+
+        public RenamedFile(TreeEntryWithPath source, TreeEntryWithPath target, int score, boolean copy) {
+            this.source = source;
+            this.target = target;
+            this.score = score;
+            this.copy = copy;
+        }
+
+        public TreeEntryWithPath getSource() {
+            return source;
+        }
+
+        public TreeEntryWithPath getTarget() {
+            return target;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        // a copy leaves the source in place, a rename removes it
+        public boolean isCopy() {
+            return copy;
+        }
+    }
+
     private final List<TreeEntryWithPath> addedFiles;
     private final List<TreeEntryWithPath> deletedFiles;
     private final List<TreeEntryWithPath> modifiedFiles;
+    private final List<RenamedFile> renamedFiles;
 
     public TreeDiffResult() {
         this.addedFiles = new ArrayList<>();
         this.deletedFiles = new ArrayList<>();
         this.modifiedFiles = new ArrayList<>();
+        this.renamedFiles = new ArrayList<>();
     }
 
     // Getters for the lists
@@ -52,6 +89,11 @@ public class TreeDiffResult {
         return modifiedFiles;
     }
 
+    // filled in by RenameDetector, which takes the matched files out of the added and deleted lists
+    public List<RenamedFile> getRenamedFiles() {
+        return renamedFiles;
+    }
+
     // Methods to add entries to the appropriate list
     public void addAddedFile(TreeEntry entry, String fullPath) {
         this.addedFiles.add(new TreeEntryWithPath(entry, fullPath));
@@ -67,7 +109,7 @@ public class TreeDiffResult {
 
     // A helper method to check if there are any changes
     public boolean hasChanges() {
-        return !addedFiles.isEmpty() || !deletedFiles.isEmpty() || !modifiedFiles.isEmpty();
+        return !addedFiles.isEmpty() || !deletedFiles.isEmpty() || !modifiedFiles.isEmpty() || !renamedFiles.isEmpty();
     }
 
     // A nice toString() for easy debugging
@@ -76,7 +118,8 @@ public class TreeDiffResult {
         return "TreeDiffResult{\n" +
                "  added=" + addedFiles.size() + ",\n" +
                "  deleted=" + deletedFiles.size() + ",\n" +
-               "  modified=" + modifiedFiles.size() + "\n" +
+               "  modified=" + modifiedFiles.size() + ",\n" +
+               "  renamed=" + renamedFiles.size() + "\n" +
                '}';
     }
 
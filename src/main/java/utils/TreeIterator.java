@@ -0,0 +1,275 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import objects.TreeEntry;
+
+/**
+ * Cursor over the raw bytes of a tree object.
+ *
+ * Each call to {@link #next()} parses the following "mode SP name NUL sha" record in place and only
+ * remembers offsets into the buffer, so walking a tree does not allocate anything per entry. Names
+ * and ids are exposed as ranges of the underlying buffer; a String, hex SHA-1 or TreeEntry is only
+ * built when a caller actually asks for one.
+ *
+ * Names are compared as unsigned bytes of their UTF-8 encoding. This matches the order TreeObject
+ * sorts its entries in for every name made of characters from the Basic Multilingual Plane.
+ */
+public class TreeIterator {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int ID_LENGTH = 20;
+
+    private final byte[] buf;
+    private final String treeSha1; // only used for error messages
+
+    private int nextOffset;  // where the next record starts
+    private int entryOffset; // where the current record starts, -1 before the first next()
+    private int modeEnd;     // offset of the space after the mode
+    private int nameEnd;     // offset of the NUL after the name
+    private int mode;        // parsed octal mode of the current entry
+
+    private int[] entryOffsets; // built on the first seek(), one slot per entry
+
+    public TreeIterator(byte[] rawContent) {
+        this(rawContent, null);
+    }
+
+    private TreeIterator(byte[] rawContent, String treeSha1) {
+        this.buf = rawContent;
+        this.treeSha1 = treeSha1;
+        reset();
+    }
+
+    /**
+     * Reads the tree object with the given SHA-1 and positions a cursor before its first entry.
+     */
+    public static TreeIterator forTree(String treeSha1) throws IOException {
+        return new TreeIterator(ObjectLoader.readObject(treeSha1), treeSha1);
+    }
+
+    // moves the cursor back before the first entry
+    public void reset() {
+        nextOffset = 0;
+        entryOffset = -1;
+    }
+
+    /**
+     * Advances to the next entry.
+     *
+     * @return false once every entry has been visited
+     * @throws IOException if the record at the cursor is malformed
+     */
+    public boolean next() throws IOException {
+        if (nextOffset >= buf.length) {
+            entryOffset = -1;
+            return false;
+        }
+        parseAt(nextOffset);
+        return true;
+    }
+
+    private void parseAt(int offset) throws IOException {
+        int p = offset;
+        int parsedMode = 0;
+        while (p < buf.length && buf[p] != ' ') {
+            int digit = buf[p] - '0';
+            if (digit < 0 || digit > 7) {
+                throw malformed("Invalid mode byte");
+            }
+            parsedMode = (parsedMode << 3) | digit;
+            p++;
+        }
+        if (p == offset || p >= buf.length) {
+            throw malformed("Empty mode found");
+        }
+        int spaceAt = p++;
+        while (p < buf.length && buf[p] != 0x00) {
+            p++;
+        }
+        if (p == spaceAt + 1 || p >= buf.length) {
+            throw malformed("Empty name found");
+        }
+        if (p + 1 + ID_LENGTH > buf.length) {
+            throw malformed("Incomplete SHA-1 hash for entry");
+        }
+        this.entryOffset = offset;
+        this.modeEnd = spaceAt;
+        this.nameEnd = p;
+        this.mode = parsedMode;
+        this.nextOffset = p + 1 + ID_LENGTH;
+    }
+
+    private IOException malformed(String what) {
+        return new IOException("Malformed tree object: " + what + " for tree SHA-1 " + (treeSha1 != null ? treeSha1 : "<buffer>"));
+    }
+
+    public int getMode() {
+        return mode;
+    }
+
+    // same rule ObjectLoader has always used: "100xxx" modes are blobs, everything else is a tree
+    public boolean isBlob() {
+        return (mode >>> 9) == 0100;
+    }
+
+    public boolean isTree() {
+        return !isBlob();
+    }
+
+    public byte[] buffer() {
+        return buf;
+    }
+
+    public int nameOffset() {
+        return modeEnd + 1;
+    }
+
+    public int nameLength() {
+        return nameEnd - modeEnd - 1;
+    }
+
+    public int idOffset() {
+        return nameEnd + 1;
+    }
+
+    public boolean nameEquals(byte[] name) {
+        return compareName(name, 0, name.length) == 0;
+    }
+
+    /**
+     * Compares the current entry's name with the given byte range, as unsigned bytes.
+     */
+    public int compareName(byte[] other, int off, int len) {
+        return compareBytes(buf, nameOffset(), nameLength(), other, off, len);
+    }
+
+    // orders the current entries of two cursors by name
+    public static int compareNames(TreeIterator a, TreeIterator b) {
+        return compareBytes(a.buf, a.nameOffset(), a.nameLength(), b.buf, b.nameOffset(), b.nameLength());
+    }
+
+    public boolean idEquals(TreeIterator other) {
+        int a = idOffset();
+        int b = other.idOffset();
+        for (int i = 0; i < ID_LENGTH; i++) {
+            if (buf[a + i] != other.buf[b + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // true if both cursors point at the same object with the same kind (blob vs tree)
+    public boolean sameObject(TreeIterator other) {
+        return isTree() == other.isTree() && idEquals(other);
+    }
+
+    public String getName() {
+        return new String(buf, nameOffset(), nameLength(), StandardCharsets.UTF_8);
+    }
+
+    public String getModeString() {
+        return new String(buf, entryOffset, modeEnd - entryOffset, StandardCharsets.US_ASCII);
+    }
+
+    public String getObjectSha1Id() {
+        char[] hex = new char[ID_LENGTH * 2];
+        int start = idOffset();
+        for (int i = 0; i < ID_LENGTH; i++) {
+            int b = buf[start + i] & 0xff;
+            hex[i * 2] = HEX[b >>> 4];
+            hex[i * 2 + 1] = HEX[b & 0x0f];
+        }
+        return new String(hex);
+    }
+
+    public TreeEntry toTreeEntry() {
+        return new TreeEntry(getModeString(), isBlob() ? "blob" : "tree", getObjectSha1Id(), getName());
+    }
+
+    /**
+     * Positions the cursor on the entry with the given name using a binary search.
+     * The offsets of all entries are indexed once per cursor; later seeks reuse them.
+     *
+     * @return true if the entry exists; false leaves the cursor exhausted
+     */
+    public boolean seek(byte[] name) throws IOException {
+        if (entryOffsets == null) {
+            entryOffsets = indexEntries();
+        }
+        int low = 0;
+        int high = entryOffsets.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            parseAt(entryOffsets[mid]);
+            int cmp = compareName(name, 0, name.length);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        nextOffset = buf.length;
+        entryOffset = -1;
+        return false;
+    }
+
+    private int[] indexEntries() throws IOException {
+        int count = 0;
+        int[] offsets = new int[16];
+        reset();
+        while (next()) {
+            if (count == offsets.length) {
+                int[] grown = new int[count * 2];
+                System.arraycopy(offsets, 0, grown, 0, count);
+                offsets = grown;
+            }
+            offsets[count++] = entryOffset;
+        }
+        int[] exact = new int[count];
+        System.arraycopy(offsets, 0, exact, 0, count);
+        return exact;
+    }
+
+    /**
+     * Resolves a slash separated path inside a tree, descending one level at a time.
+     *
+     * @param treeSha1 the root tree to start from
+     * @param filePath a repository relative path such as "src/main/App.java"
+     * @return the SHA-1 of the blob at that path, or null if there is no blob there
+     */
+    public static String findBlob(String treeSha1, String filePath) throws IOException {
+        String[] parts = filePath.split("/");
+        TreeIterator tree = forTree(treeSha1);
+        for (int i = 0; i < parts.length; i++) {
+            if (!tree.seek(parts[i].getBytes(StandardCharsets.UTF_8))) {
+                return null;
+            }
+            boolean last = i == parts.length - 1;
+            if (last) {
+                return tree.isBlob() ? tree.getObjectSha1Id() : null;
+            }
+            if (!tree.isTree()) {
+                return null;
+            }
+            tree = forTree(tree.getObjectSha1Id());
+        }
+        return null;
+    }
+
+    private static int compareBytes(byte[] a, int aOff, int aLen, byte[] b, int bOff, int bLen) {
+        int n = Math.min(aLen, bLen);
+        for (int i = 0; i < n; i++) {
+            int x = a[aOff + i] & 0xff;
+            int y = b[bOff + i] & 0xff;
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return aLen - bLen;
+    }
+}
@@ -0,0 +1,242 @@
+package utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import objects.TreeEntry;
+import objects.TreeObject;
+
+/**
+ * Three-way merge of trees, done as one simultaneous walk over the base, ours and theirs trees.
+ *
+ * The three cursors advance in name order. Whenever two sides have the same object at a name the
+ * outcome is known without reading it: if ours and theirs agree, or theirs still has the base
+ * version, the result is ours; if ours still has the base version, the result is theirs. Only
+ * directories that all three sides disagree on are opened, so the cost of a merge follows the
+ * size of the changes rather than the size of the repository.
+ *
+ * The result is reported relative to ours, which is what the working directory holds during a
+ * merge: the listener hears about every file that has to change to theirs and about every path
+ * the two sides changed in different ways.
+ *
+ * With buildTree set, the merger also writes the merged tree to the object database, level by
+ * level on the way back up; directories taken whole from one side keep their SHA-1 and are
+ * reported to the listener as one entry instead of file by file. Nothing but the listener sees
+ * the working directory or the index, so a merger that builds trees can run alongside others.
+ */
+public class TreeMerger {
+
+    public interface Listener {
+        /**
+         * The merged result has theirs at path where ours has something else.
+         *
+         * @param ours   ours' file at path, or null if ours has none
+         * @param theirs theirs' file at path, or null if the merge deletes it
+         */
+        void takeTheirs(String path, TreeEntry ours, TreeEntry theirs) throws IOException;
+
+        /**
+         * Both sides changed path in different ways. Entries are null where a side has nothing at
+         * path; they are all blobs unless one side has a file where the other has a directory.
+         *
+         * @return the entry the merged tree gets at path (null for none); only used with buildTree
+         */
+        TreeEntry conflict(String path, TreeEntry base, TreeEntry ours, TreeEntry theirs) throws IOException;
+    }
+
+    private final Listener listener;
+    private final boolean buildTree;
+    private int treesRead;
+
+    public TreeMerger(Listener listener) {
+        this(listener, false);
+    }
+
+    public TreeMerger(Listener listener, boolean buildTree) {
+        this.listener = listener;
+        this.buildTree = buildTree;
+    }
+
+    /**
+     * Merges the changes from baseTree to theirsTree into oursTree. A null SHA-1 stands for an
+     * empty tree.
+     *
+     * @return the SHA-1 of the merged tree if buildTree is set, otherwise null
+     */
+    public String merge(String baseTree, String oursTree, String theirsTree) throws IOException {
+        List<TreeEntry> merged = walk(baseTree, oursTree, theirsTree, "");
+        return merged == null ? null : writeTree(merged);
+    }
+
+    // number of tree objects opened so far, which is what the short-circuiting saves
+    public int getTreesRead() {
+        return treesRead;
+    }
+
+    // returns the entries of the merged directory when building trees, otherwise null
+    private List<TreeEntry> walk(String baseTree, String oursTree, String theirsTree, String prefix) throws IOException {
+        List<TreeEntry> merged = buildTree ? new ArrayList<>() : null;
+        TreeIterator base = open(baseTree);
+        // when taking theirs, base and ours are the same tree, which only has to be read once
+        TreeIterator ours = oursTree != null && oursTree.equals(baseTree) ? new TreeIterator(base.buffer()) : open(oursTree);
+        TreeIterator theirs = open(theirsTree);
+        boolean hasBase = base.next();
+        boolean hasOurs = ours.next();
+        boolean hasTheirs = theirs.next();
+
+        while (hasBase || hasOurs || hasTheirs) {
+            TreeIterator first = hasBase ? base : hasOurs ? ours : theirs;
+            if (hasOurs && TreeIterator.compareNames(ours, first) < 0) {
+                first = ours;
+            }
+            if (hasTheirs && TreeIterator.compareNames(theirs, first) < 0) {
+                first = theirs;
+            }
+            TreeIterator b = hasBase && TreeIterator.compareNames(base, first) == 0 ? base : null;
+            TreeIterator o = hasOurs && TreeIterator.compareNames(ours, first) == 0 ? ours : null;
+            TreeIterator t = hasTheirs && TreeIterator.compareNames(theirs, first) == 0 ? theirs : null;
+
+            // nothing to do when both sides agree or theirs did not touch the entry
+            if (!same(o, t) && !same(b, t)) {
+                resolve(prefix + first.getName(), entry(b), entry(o), entry(t), merged);
+            } else if (merged != null && o != null) {
+                merged.add(o.toTreeEntry());
+            }
+
+            if (b != null) {
+                hasBase = base.next();
+            }
+            if (o != null) {
+                hasOurs = ours.next();
+            }
+            if (t != null) {
+                hasTheirs = theirs.next();
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Resolves one name that theirs changed. A name can be a file on one side and a directory on
+     * another, so the file and the directory at the name are resolved separately.
+     */
+    private void resolve(String path, TreeEntry base, TreeEntry ours, TreeEntry theirs,
+                         List<TreeEntry> merged) throws IOException {
+        TreeEntry baseFile = blob(base);
+        TreeEntry ourFile = blob(ours);
+        TreeEntry theirFile = blob(theirs);
+        TreeEntry baseDir = tree(base);
+        TreeEntry ourDir = tree(ours);
+        TreeEntry theirDir = tree(theirs);
+
+        boolean fileChanged = !sameEntry(ourFile, theirFile) && !sameEntry(baseFile, theirFile);
+        boolean fileConflict = fileChanged && !sameEntry(baseFile, ourFile);
+        boolean dirChanged = !sameEntry(ourDir, theirDir) && !sameEntry(baseDir, theirDir);
+        boolean dirTakesTheirs = dirChanged && sameEntry(baseDir, ourDir);
+
+        boolean fileInResult = !fileChanged ? ourFile != null
+                : fileConflict ? ourFile != null || theirFile != null
+                : theirFile != null;
+        boolean dirInResult = !dirChanged ? ourDir != null
+                : dirTakesTheirs ? theirDir != null
+                : ourDir != null || theirDir != null;
+
+        if (fileInResult && dirInResult) {
+            // a file on one side and a directory on the other can only be sorted out by hand
+            listener.conflict(path, base, ours, theirs);
+            add(merged, ours); // the merged tree keeps ours
+            return;
+        }
+
+        // remove whatever ours has at the name before the other kind is written there
+        if (ourDir != null) {
+            add(merged, resolveDirectory(path, baseDir, ourDir, theirDir, dirChanged, dirTakesTheirs));
+            add(merged, resolveFile(path, baseFile, ourFile, theirFile, fileChanged, fileConflict));
+        } else {
+            add(merged, resolveFile(path, baseFile, ourFile, theirFile, fileChanged, fileConflict));
+            add(merged, resolveDirectory(path, baseDir, ourDir, theirDir, dirChanged, dirTakesTheirs));
+        }
+    }
+
+    private TreeEntry resolveFile(String path, TreeEntry baseFile, TreeEntry ourFile, TreeEntry theirFile,
+                                  boolean changed, boolean conflict) throws IOException {
+        if (!changed) {
+            return ourFile;
+        }
+        if (conflict) {
+            return listener.conflict(path, baseFile, ourFile, theirFile);
+        }
+        listener.takeTheirs(path, ourFile, theirFile);
+        return theirFile;
+    }
+
+    private TreeEntry resolveDirectory(String path, TreeEntry baseDir, TreeEntry ourDir, TreeEntry theirDir,
+                                       boolean changed, boolean takesTheirs) throws IOException {
+        if (!changed) {
+            return ourDir;
+        }
+        if (takesTheirs && buildTree) {
+            // the merged tree can point at theirs' directory as it is
+            listener.takeTheirs(path, ourDir, theirDir);
+            return theirDir;
+        }
+        // taking theirs is a merge with ours as the base: every difference resolves to theirs
+        List<TreeEntry> entries = walk(takesTheirs ? sha(ourDir) : sha(baseDir), sha(ourDir), sha(theirDir), path + "/");
+        if (entries == null || entries.isEmpty()) {
+            return null; // directories only exist as long as they have files
+        }
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        return new TreeEntry("040000", "tree", writeTree(entries), name);
+    }
+
+    private static String writeTree(List<TreeEntry> entries) {
+        TreeObject tree = new TreeObject(entries);
+        tree.save();
+        return tree.getSha1Id();
+    }
+
+    private static void add(List<TreeEntry> merged, TreeEntry entry) {
+        if (merged != null && entry != null) {
+            merged.add(entry);
+        }
+    }
+
+    private TreeIterator open(String treeSha) throws IOException {
+        if (treeSha == null) {
+            return new TreeIterator(new byte[0]);
+        }
+        treesRead++;
+        return TreeIterator.forTree(treeSha);
+    }
+
+    private static boolean same(TreeIterator a, TreeIterator b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.sameObject(b) && a.getMode() == b.getMode();
+    }
+
+    private static TreeEntry entry(TreeIterator cursor) {
+        return cursor == null ? null : cursor.toTreeEntry();
+    }
+
+    private static TreeEntry blob(TreeEntry entry) {
+        return entry != null && entry.getType().equals("blob") ? entry : null;
+    }
+
+    private static TreeEntry tree(TreeEntry entry) {
+        return entry != null && entry.getType().equals("tree") ? entry : null;
+    }
+
+    private static String sha(TreeEntry entry) {
+        return entry == null ? null : entry.getObjectSha1Id();
+    }
+
+    private static boolean sameEntry(TreeEntry a, TreeEntry b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.getObjectSha1Id().equals(b.getObjectSha1Id()) && a.getMode().equals(b.getMode());
+    }
+}
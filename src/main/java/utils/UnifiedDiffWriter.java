@@ -0,0 +1,133 @@
+package utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes diffs in the unified format, straight from the edit ranges of a DiffResult:
+ *
+ *   diff --lit a/src/App.java b/src/App.java
+ *   --- a/src/App.java
+ *   +++ b/src/App.java
+ *   @@ -10,7 +10,8 @@
+ *
+ * Edits closer together than twice the context are joined into one hunk. Lines are copied from
+ * the original texts into the writer, which should be buffered, so no line is ever turned into a
+ * string of its own.
+ */
+public class UnifiedDiffWriter {
+
+    private final Writer out;
+    private final int context;
+
+    public UnifiedDiffWriter(Writer out, int context) {
+        this.out = out;
+        this.context = context;
+    }
+
+    /**
+     * Writes the header that starts the diff of a file, followed by the extended header lines
+     * that say how the file changed (new, deleted, renamed or copied).
+     */
+    public void writeFileHeader(DiffEntry entry) throws IOException {
+        String oldPath = entry.getOldPath() != null ? entry.getOldPath() : entry.getNewPath();
+        String newPath = entry.getNewPath() != null ? entry.getNewPath() : entry.getOldPath();
+        out.write("diff --lit a/" + oldPath + " b/" + newPath + "\n");
+        switch (entry.getStatus()) {
+            case ADDED:
+                out.write("new file mode " + entry.getNewMode() + "\n");
+                break;
+            case DELETED:
+                out.write("deleted file mode " + entry.getOldMode() + "\n");
+                break;
+            case RENAMED:
+            case COPIED:
+                String kind = entry.getStatus() == DiffEntry.Status.RENAMED ? "rename" : "copy";
+                out.write("similarity index " + entry.getScore() + "%\n");
+                out.write(kind + " from " + entry.getOldPath() + "\n");
+                out.write(kind + " to " + entry.getNewPath() + "\n");
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Writes the "---" and "+++" lines and the hunks of a file's diff; nothing if it has no changes.
+     * Added and deleted files are compared against /dev/null.
+     */
+    public void writeHunks(DiffEntry entry, DiffResult diff) throws IOException {
+        List<Edit> edits = diff.getEdits();
+        if (edits.isEmpty()) {
+            return;
+        }
+        out.write("--- " + (entry.getOldPath() == null ? "/dev/null" : "a/" + entry.getOldPath()) + "\n");
+        out.write("+++ " + (entry.getNewPath() == null ? "/dev/null" : "b/" + entry.getNewPath()) + "\n");
+
+        RawText a = diff.getOriginal();
+        RawText b = diff.getRevised();
+        int first = 0;
+        while (first < edits.size()) {
+            int last = first;
+            while (last + 1 < edits.size() && edits.get(last + 1).beginA - edits.get(last).endA <= 2 * context) {
+                last++;
+            }
+            Edit head = edits.get(first);
+            Edit tail = edits.get(last);
+            // outside the edits both sides have the same lines, so the context shifts them equally
+            int aStart = Math.max(0, head.beginA - context);
+            int bStart = head.beginB - (head.beginA - aStart);
+            int aEnd = Math.min(a.size(), tail.endA + context);
+            int bEnd = tail.endB + (aEnd - tail.endA);
+
+            out.write("@@ -" + range(aStart, aEnd - aStart) + " +" + range(bStart, bEnd - bStart) + " @@\n");
+            int position = aStart;
+            for (int k = first; k <= last; k++) {
+                Edit edit = edits.get(k);
+                writeLines(' ', a, position, edit.beginA);
+                writeLines('-', a, edit.beginA, edit.endA);
+                writeLines('+', b, edit.beginB, edit.endB);
+                position = edit.endA;
+            }
+            writeLines(' ', a, position, aEnd);
+            first = last + 1;
+        }
+    }
+
+    // takes the place of the hunks for a file that is binary on either side
+    public void writeBinary(DiffEntry entry) throws IOException {
+        out.write("Binary files " + (entry.getOldPath() == null ? "/dev/null" : "a/" + entry.getOldPath())
+                + " and " + (entry.getNewPath() == null ? "/dev/null" : "b/" + entry.getNewPath()) + " differ\n");
+    }
+
+    // a line of text outside any file diff, e.g. a notice
+    public void println(String line) throws IOException {
+        out.write(line);
+        out.write('\n');
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    // hunk ranges count from 1; an empty range names the line before it
+    private static String range(int start, int length) {
+        if (length == 1) {
+            return String.valueOf(start + 1);
+        }
+        return (length == 0 ? start : start + 1) + "," + length;
+    }
+
+    private void writeLines(char prefix, RawText text, int from, int to) throws IOException {
+        String content = text.getContent();
+        for (int line = from; line < to; line++) {
+            out.write(prefix);
+            out.write(content, text.start(line), text.end(line) - text.start(line));
+            out.write('\n');
+            if (line == text.size() - 1 && !text.endsWithNewline()) {
+                out.write("\\ No newline at end of file\n");
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package utils;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
@@ -18,13 +19,22 @@ public class WorkingDirManager {
      * Writes the content of a blob object to a specific file path in the working directory.
      * It will create any necessary parent directories if they do not already exist.
      *
+     * Objects are stored raw, so the object file is copied channel to channel with transferTo.
+     * The kernel moves the bytes directly (copy_file_range/sendfile on Linux) and memory use stays
+     * constant no matter how large the blob is.
+     *
      * @param blobSha1 The SHA-1 hash of the blob object to read.
      * @param targetFilePath The destination path in the working directory where the file should be written.
      * @throws IOException If there's an error reading the blob or writing the file.
      */
     public static void writeBlobToWorkingDir(String blobSha1, Path targetFilePath) throws IOException {
-        // Assume ObjectLoader.loadBlob returns the raw byte content of the blob.
-        byte[] blobContent = ObjectLoader.loadBlob(blobSha1);
+        if (blobSha1 == null || !blobSha1.matches("[0-9a-fA-F]{40}")) {
+            throw new IllegalArgumentException("Invalid SHA-1 hash format: " + blobSha1);
+        }
+        Path objectFilePath = ObjectLoader.objectPath(blobSha1.toLowerCase());
+        if (!Files.exists(objectFilePath)) {
+            throw new IOException("Object not found: " + blobSha1 + " at " + objectFilePath.toAbsolutePath());
+        }
 
         // Ensure the parent directory for the target file exists.
         // For example, if targetFilePath is "src/com/app/Main.java", this creates "src/com/app".
@@ -33,9 +43,21 @@ public class WorkingDirManager {
             Files.createDirectories(parentDir);
         }
 
-        // Write the blob's content to the target file.
+        // Copy the blob's content to the target file.
         // If the file already exists, it will be overwritten.
-        Files.write(targetFilePath, blobContent, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        try (FileChannel source = FileChannel.open(objectFilePath, StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(targetFilePath, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = source.size();
+            long position = 0;
+            while (position < size) {
+                long copied = source.transferTo(position, size - position, target);
+                if (copied <= 0) {
+                    throw new IOException("Short copy of object " + blobSha1 + " to " + targetFilePath);
+                }
+                position += copied;
+            }
+        }
     }
 
     /**
@@ -48,6 +70,25 @@ public class WorkingDirManager {
         Files.deleteIfExists(filePath);
     }
 
+    /**
+     * Deletes dir and then each of its parents for as long as they are empty, stopping at root.
+     * Used after removing a file so that checkouts do not leave empty directories behind.
+     *
+     * @param dir The directory the deleted file lived in.
+     * @param root The working directory root, which is never deleted.
+     */
+    public static void deleteEmptyParents(Path dir, Path root) throws IOException {
+        while (dir != null && !dir.equals(root) && dir.startsWith(root) && Files.isDirectory(dir)) {
+            try (Stream<Path> entries = Files.list(dir)) {
+                if (entries.findAny().isPresent()) {
+                    return;
+                }
+            }
+            Files.delete(dir);
+            dir = dir.getParent();
+        }
+    }
+
     /**
      * Recursively deletes a directory and all of its contents.
      * If the directory does not exist, this method does nothing.
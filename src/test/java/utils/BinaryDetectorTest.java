@@ -0,0 +1,113 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static utils.TestOutput.captureOut;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("BinaryDetector Tests")
+class BinaryDetectorTest {
+
+    private static final byte[] BASE = {(byte) 0x89, 'P', 'N', 'G', 0, 1, 2, 3};
+    private static final byte[] OURS = {(byte) 0x89, 'P', 'N', 'G', 0, 1, 2, 4};
+    private static final byte[] THEIRS = {(byte) 0x89, 'P', 'N', 'G', 0, 1, 2, 5};
+
+    @BeforeEach
+    void setup() throws Exception {
+        cleanup();
+        CommandHandler.handleInit();
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        cleanup();
+    }
+
+    @Test
+    @DisplayName("Should find NUL bytes and invalid UTF-8, but not a character cut off by the limit")
+    void testIsBinary() {
+        byte[] text = "plain text, d\u00e9j\u00e0 vu\n".getBytes(StandardCharsets.UTF_8);
+        assertFalse(BinaryDetector.isBinary(text, text.length));
+        assertTrue(BinaryDetector.isBinary(BASE, BASE.length));
+        assertTrue(BinaryDetector.isBinary(new byte[] {'a', (byte) 0xFF, 'b'}, 3));
+
+        // "\u00e9" is two bytes; sniffing stops between them
+        byte[] cut = "abc\u00e9".getBytes(StandardCharsets.UTF_8);
+        assertFalse(BinaryDetector.isBinary(cut, cut.length - 1));
+    }
+
+    @Test
+    @DisplayName("Should report binary files instead of diffing their lines")
+    void testDiffBinary() throws Exception {
+        Files.write(Paths.get("image.png"), BASE);
+        CommandHandler.handleAdd("image.png");
+        CommandHandler.handleCommit("C1");
+        String first = new ReferenceManager().getHeadCommit();
+        Files.write(Paths.get("image.png"), OURS);
+        CommandHandler.handleAdd("image.png");
+        CommandHandler.handleCommit("C2");
+        String second = new ReferenceManager().getHeadCommit();
+
+        String patch = captureOut(() -> CommandHandler.handleDiffCommits(first, second));
+        assertTrue(patch.contains("diff --lit a/image.png b/image.png\nBinary files a/image.png and b/image.png differ\n"));
+        assertFalse(patch.contains("@@"));
+
+        String stat = captureOut(() -> CommandHandler.handleDiffCommits(first, second,
+                new DiffOptions().format(DiffOptions.Format.STAT)));
+        assertEquals(" image.png | Bin 8 -> 8 bytes\n 1 file changed, 0 insertions(+), 0 deletions(-)\n", stat);
+    }
+
+    @Test
+    @DisplayName("Should keep our version of a binary file that both sides changed")
+    void testMergeBinary() throws Exception {
+        Files.write(Paths.get("image.png"), BASE);
+        CommandHandler.handleAdd("image.png");
+        CommandHandler.handleCommit("Base");
+        String baseSha = new ReferenceManager().getHeadCommit();
+
+        Files.write(Paths.get("image.png"), OURS);
+        CommandHandler.handleAdd("image.png");
+        CommandHandler.handleCommit("Ours");
+        String oursSha = new ReferenceManager().getHeadCommit();
+
+        CommandHandler.handleSwitch(baseSha);
+        CommandHandler.handleBranch("feature");
+        Files.write(Paths.get("image.png"), THEIRS);
+        CommandHandler.handleAdd("image.png");
+        CommandHandler.handleCommit("Theirs");
+        String theirsSha = new ReferenceManager().getHeadCommit();
+
+        MergeResult inMemory = MergeUtils.mergeInMemory(oursSha, theirsSha, "main", "feature");
+        assertEquals(1, inMemory.getConflicts().size());
+
+        CommandHandler.handleSwitch("main");
+        MergeResult result = MergeUtils.merge(oursSha, theirsSha, "feature");
+        assertEquals(1, result.getConflictedFiles().size());
+        assertArrayEquals(OURS, Files.readAllBytes(Paths.get("image.png")), "No conflict markers in a binary file");
+        assertTrue(new IndexManager().getConflictedPaths().contains("image.png"));
+    }
+
+    private void cleanup() throws IOException {
+        Path litDir = Paths.get(".lit");
+        if (Files.exists(litDir)) {
+            Files.walk(litDir)
+                 .sorted(Comparator.reverseOrder())
+                 .map(Path::toFile)
+                 .forEach(File::delete);
+        }
+        Files.deleteIfExists(Paths.get("image.png"));
+    }
+}
@@ -0,0 +1,121 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CheckoutManagerTest {
+
+    private static final Path ROOT = Paths.get("co-root");
+
+    @BeforeEach
+    public void setup() throws Exception {
+        cleanup();
+        CommandHandler.handleInit();
+    }
+
+    @AfterEach
+    public void teardown() throws IOException {
+        cleanup();
+    }
+
+    @Test
+    public void testSwitchOnlyTouchesChangedPaths() throws Exception {
+        Files.createDirectories(ROOT.resolve("lib"));
+        Files.writeString(ROOT.resolve("same.txt"), "unchanged");
+        Files.writeString(ROOT.resolve("edit.txt"), "main version");
+        CommandHandler.handleAdd("co-root/same.txt");
+        CommandHandler.handleAdd("co-root/edit.txt");
+        CommandHandler.handleCommit("C1");
+        CommandHandler.handleBranch("feature");
+        CommandHandler.handleSwitch("feature");
+
+        Files.writeString(ROOT.resolve("edit.txt"), "feature version");
+        Files.writeString(ROOT.resolve("lib/added.txt"), "only on feature");
+        CommandHandler.handleAdd("co-root/edit.txt");
+        CommandHandler.handleAdd("co-root/lib/added.txt");
+        CommandHandler.handleCommit("C2");
+
+        FileTime old = FileTime.fromMillis(1_000_000_000_000L);
+        Files.setLastModifiedTime(ROOT.resolve("same.txt"), old);
+        Files.writeString(Paths.get("co-untracked.txt"), "not tracked");
+
+        CommandHandler.handleSwitch("main");
+        assertEquals("main version", Files.readString(ROOT.resolve("edit.txt")));
+        assertFalse(Files.exists(ROOT.resolve("lib")), "Directories emptied by the switch are removed.");
+        assertEquals(old, Files.getLastModifiedTime(ROOT.resolve("same.txt")), "Unchanged files are not rewritten.");
+        assertTrue(Files.exists(Paths.get("co-untracked.txt")), "Untracked files are left alone.");
+        assertEquals(2, new IndexManager().getIndexEntries().size());
+
+        CommandHandler.handleSwitch("feature");
+        assertEquals("only on feature", Files.readString(ROOT.resolve("lib/added.txt")));
+        assertEquals(3, new IndexManager().getIndexEntries().size());
+    }
+
+    @Test
+    public void testLocalChangesBlockTheSwitch() throws Exception {
+        Files.createDirectories(ROOT);
+        Files.writeString(ROOT.resolve("edit.txt"), "v1");
+        CommandHandler.handleAdd("co-root/edit.txt");
+        CommandHandler.handleCommit("C1");
+        CommandHandler.handleBranch("feature");
+        Files.writeString(ROOT.resolve("edit.txt"), "v2");
+        CommandHandler.handleAdd("co-root/edit.txt");
+        CommandHandler.handleCommit("C2");
+
+        Files.writeString(ROOT.resolve("edit.txt"), "uncommitted work");
+        assertThrows(IOException.class, () -> CommandHandler.handleSwitch("feature"));
+        assertEquals("uncommitted work", Files.readString(ROOT.resolve("edit.txt")));
+        assertEquals("main", new ReferenceManager().getCurrentBranch());
+    }
+
+    @Test
+    public void testParallelSwitchWritesEveryFile() throws Exception {
+        Files.createDirectories(ROOT);
+        Files.writeString(ROOT.resolve("base.txt"), "base");
+        CommandHandler.handleAdd("co-root/base.txt");
+        CommandHandler.handleCommit("C1");
+        CommandHandler.handleBranch("wide");
+        CommandHandler.handleSwitch("wide");
+
+        for (int i = 0; i < 300; i++) {
+            Path file = ROOT.resolve("d" + (i % 7)).resolve("f" + i + ".txt");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, "content " + i);
+            CommandHandler.handleAdd(file.toString());
+        }
+        CommandHandler.handleCommit("C2");
+        CommandHandler.handleSwitch("main");
+        assertFalse(Files.exists(ROOT.resolve("d0")));
+
+        CommandHandler.handleSwitch("wide", 4);
+        for (int i = 0; i < 300; i++) {
+            assertEquals("content " + i, Files.readString(ROOT.resolve("d" + (i % 7)).resolve("f" + i + ".txt")));
+        }
+        assertEquals(301, new IndexManager().getIndexEntries().size());
+    }
+
+    private void cleanup() throws IOException {
+        for (Path dir : new Path[] {Paths.get(".lit"), ROOT}) {
+            if (Files.exists(dir)) {
+                Files.walk(dir)
+                     .sorted(Comparator.reverseOrder())
+                     .map(Path::toFile)
+                     .forEach(File::delete);
+            }
+        }
+        Files.deleteIfExists(Paths.get("co-untracked.txt"));
+    }
+}
@@ -6,6 +6,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Comparator;
+import java.util.List;
 
 import org.junit.jupiter.api.AfterEach;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -15,6 +16,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import objects.IndexEntry;
+
 public class ConflictHandlerTest {
     
     @BeforeEach
@@ -432,6 +435,107 @@ public class ConflictHandlerTest {
         assertFalse(Files.exists(Paths.get("config/settings.txt")), "Deleted file should not exist");
     }
     
+    @Test
+    @DisplayName("Test that edits to different lines of the same file merge cleanly")
+    public void testNonOverlappingEditsMergeCleanly() throws Exception {
+        // Create base commit
+        Files.writeString(Paths.get("conflict.txt"), "header\nline a\nline b\nline c\nfooter\n");
+        CommandHandler.handleAdd("conflict.txt");
+        CommandHandler.handleCommit("Base commit");
+        String baseCommitSha = new ReferenceManager().getHeadCommit();
+        
+        // Main edits the top of the file
+        Files.writeString(Paths.get("conflict.txt"), "HEADER\nline a\nline b\nline c\nfooter\n");
+        CommandHandler.handleAdd("conflict.txt");
+        CommandHandler.handleCommit("Main edits header");
+        String mainCommitSha = new ReferenceManager().getHeadCommit();
+        
+        // Feature edits the bottom of the file
+        CommandHandler.handleSwitch(baseCommitSha);
+        CommandHandler.handleBranch("feature-lines");
+        CommandHandler.handleSwitch("feature-lines");
+        Files.writeString(Paths.get("conflict.txt"), "header\nline a\nline b\nline c\nFOOTER\n");
+        CommandHandler.handleAdd("conflict.txt");
+        CommandHandler.handleCommit("Feature edits footer");
+        String featureCommitSha = new ReferenceManager().getHeadCommit();
+        
+        // Switch back to main and merge
+        CommandHandler.handleSwitch("main");
+        MergeResult result = MergeUtils.merge(mainCommitSha, featureCommitSha, "feature-lines");
+        
+        // Both edits are kept and the merged file is staged
+        assertTrue(result.isSuccess(), "Merge should succeed");
+        String merged = "HEADER\nline a\nline b\nline c\nFOOTER\n";
+        assertEquals(merged, Files.readString(Paths.get("conflict.txt")));
+        String stagedSha = new IndexManager().getEntryMap().get("conflict.txt").getSha1();
+        assertEquals(merged, new String(ObjectLoader.loadBlob(stagedSha)));
+    }
+
+    @Test
+    @DisplayName("Test that conflicts are recorded as index stages until the file is added")
+    public void testConflictStagesInIndex() throws Exception {
+        // Create base commit
+        Files.writeString(Paths.get("conflict.txt"), "Original content\n");
+        Files.writeString(Paths.get("delete-conflict.txt"), "File to be deleted\n");
+        CommandHandler.handleAdd("conflict.txt");
+        CommandHandler.handleAdd("delete-conflict.txt");
+        CommandHandler.handleCommit("Base commit");
+        String baseCommitSha = new ReferenceManager().getHeadCommit();
+        String baseBlob = new IndexManager().getEntryMap().get("conflict.txt").getSha1();
+        
+        // Main modifies both files
+        Files.writeString(Paths.get("conflict.txt"), "Modified by main\n");
+        Files.writeString(Paths.get("delete-conflict.txt"), "Modified content\n");
+        CommandHandler.handleAdd("conflict.txt");
+        CommandHandler.handleAdd("delete-conflict.txt");
+        CommandHandler.handleCommit("Main modification");
+        String mainCommitSha = new ReferenceManager().getHeadCommit();
+        String mainBlob = new IndexManager().getEntryMap().get("conflict.txt").getSha1();
+        
+        // Feature modifies one file and deletes the other
+        CommandHandler.handleSwitch(baseCommitSha);
+        CommandHandler.handleBranch("feature-stages");
+        CommandHandler.handleSwitch("feature-stages");
+        Files.writeString(Paths.get("conflict.txt"), "Modified by feature\n");
+        CommandHandler.handleAdd("conflict.txt");
+        CommandHandler.handleRm("delete-conflict.txt");
+        CommandHandler.handleCommit("Feature modification");
+        String featureCommitSha = new ReferenceManager().getHeadCommit();
+        String featureBlob = new IndexManager().getEntryMap().get("conflict.txt").getSha1();
+        
+        CommandHandler.handleSwitch("main");
+        MergeUtils.merge(mainCommitSha, featureCommitSha, "feature-stages");
+        
+        // Both paths are unmerged, with one stage per version that exists
+        IndexManager index = new IndexManager();
+        assertTrue(ConflictHandler.hasUnresolvedConflicts());
+        assertEquals(List.of("conflict.txt", "delete-conflict.txt"), index.getConflictedPaths());
+        IndexEntry[] stages = index.getConflictStages("conflict.txt");
+        assertEquals(baseBlob, stages[0].getSha1());
+        assertEquals(mainBlob, stages[1].getSha1());
+        assertEquals(featureBlob, stages[2].getSha1());
+        assertEquals(IndexEntry.STAGE_THEIRS, stages[2].getStage());
+        assertEquals(null, index.getConflictStages("delete-conflict.txt")[2], "Feature deleted the file");
+        assertFalse(index.getEntryMap().containsKey("conflict.txt"));
+        assertTrue(Files.readString(Paths.get(".lit", "index")).contains("+2 100644 " + mainBlob + " conflict.txt"));
+        
+        // Committing is refused while stages remain
+        CommandHandler.handleCommit("Too early");
+        assertEquals(mainCommitSha, new ReferenceManager().getHeadCommit());
+        
+        // Adding and removing the files resolves them
+        Files.writeString(Paths.get("conflict.txt"), "Resolved\n");
+        CommandHandler.handleAdd("conflict.txt");
+        assertTrue(ConflictHandler.hasUnresolvedConflicts(), "One path is still unmerged");
+        CommandHandler.handleRm("delete-conflict.txt");
+        assertFalse(ConflictHandler.hasUnresolvedConflicts());
+        
+        CommandHandler.handleCommit("Resolved merge");
+        String resolvedTree = ObjectLoader.loadCommit(new ReferenceManager().getHeadCommit()).getTreeSha1();
+        assertEquals("Resolved\n", new String(ObjectLoader.loadBlob(TreeIterator.findBlob(resolvedTree, "conflict.txt"))));
+        assertEquals(null, TreeIterator.findBlob(resolvedTree, "delete-conflict.txt"));
+    }
+    
     
     private void cleanup() throws IOException {
         Path litDir = Paths.get(".lit");
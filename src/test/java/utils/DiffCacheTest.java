@@ -0,0 +1,114 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("DiffCache Tests")
+class DiffCacheTest {
+
+    private static final Path LIT = Paths.get(".lit");
+
+    @BeforeEach
+    void setup() throws Exception {
+        cleanup();
+        CommandHandler.handleInit();
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        cleanup();
+    }
+
+    @Test
+    @DisplayName("Should store edits compactly and read them back")
+    void testEncodeDecode() {
+        List<Edit> edits = Arrays.asList(new Edit(0, 0, 0, 2), new Edit(10, 11, 12, 12), new Edit(300, 900, 301, 1000));
+        byte[] data = DiffCache.encode(edits);
+        assertEquals(edits, DiffCache.decode(data));
+        assertEquals(1 + 4 + 4 + 8, data.length, "Small offsets take one byte each");
+    }
+
+    @Test
+    @DisplayName("Should serve a repeated diff from the cache")
+    void testFileDifferUsesCache() {
+        StringBuilder original = new StringBuilder();
+        for (int i = 0; i < DiffCache.MIN_LINES; i++) {
+            original.append("line ").append(i).append('\n');
+        }
+        String revised = original.toString().replace("line 7\n", "line seven\n");
+        String oldSha = "a".repeat(40);
+        String newSha = "b".repeat(40);
+        DiffCache cache = new DiffCache(LIT);
+        FileDiffer differ = new FileDiffer(DiffAlgorithm.MYERS, cache);
+
+        List<Edit> computed = differ.calculateDiff(oldSha, original.toString(), newSha, revised).getEdits();
+        assertEquals(Arrays.asList(new Edit(7, 8, 7, 8)), computed);
+        assertEquals(computed, cache.get(oldSha, newSha, "myers"));
+        assertNull(cache.get(oldSha, newSha, "histogram"), "The algorithm is part of the key");
+
+        // a planted entry proves the second diff is read rather than computed
+        cache.put(oldSha, newSha, "myers", Arrays.asList(new Edit(1, 2, 1, 2)));
+        assertEquals(Arrays.asList(new Edit(1, 2, 1, 2)),
+                differ.calculateDiff(oldSha, original.toString(), newSha, revised).getEdits());
+    }
+
+    @Test
+    @DisplayName("Should not read entries written in an older format")
+    void testOlderFormatIsMissed() throws IOException {
+        String sha = "c".repeat(40);
+        Path unversioned = LIT.resolve("cache").resolve("diff").resolve("cc").resolve(sha + "-" + sha + "-myers");
+        Files.createDirectories(unversioned.getParent());
+        Files.write(unversioned, DiffCache.encode(Arrays.asList(new Edit(0, 1, 0, 1))));
+        assertNull(new DiffCache(LIT).get(sha, sha, "myers"));
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used entries when over its size")
+    void testEviction() throws IOException {
+        List<Edit> edits = Arrays.asList(new Edit(0, 1, 0, 1)); // 5 bytes per entry
+        DiffCache cache = new DiffCache(LIT, 20);
+        String[] shas = {"1".repeat(40), "2".repeat(40), "3".repeat(40), "4".repeat(40)};
+        long time = System.currentTimeMillis() - 100_000;
+        for (String sha : shas) {
+            cache.put(sha, sha, "myers", edits);
+            setUsed(sha, time += 1000);
+        }
+        // reading the first entry makes it the most recently used
+        assertNotNull(cache.get(shas[0], shas[0], "myers"));
+
+        cache.put("5".repeat(40), "5".repeat(40), "myers", edits);
+        assertNotNull(cache.get(shas[0], shas[0], "myers"));
+        assertNull(cache.get(shas[1], shas[1], "myers"));
+        assertNull(cache.get(shas[2], shas[2], "myers"));
+        assertNotNull(cache.get(shas[3], shas[3], "myers"));
+    }
+
+    private static void setUsed(String sha, long millis) throws IOException {
+        Path entry = LIT.resolve("cache").resolve("diff").resolve(DiffCache.FORMAT_VERSION).resolve(sha.substring(0, 2)).resolve(sha + "-" + sha + "-myers");
+        Files.setLastModifiedTime(entry, FileTime.fromMillis(millis));
+    }
+
+    private void cleanup() throws IOException {
+        if (Files.exists(LIT)) {
+            Files.walk(LIT)
+                 .sorted(Comparator.reverseOrder())
+                 .map(Path::toFile)
+                 .forEach(File::delete);
+        }
+    }
+}
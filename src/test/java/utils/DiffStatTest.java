@@ -0,0 +1,114 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import objects.IndexEntry;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static utils.TestOutput.captureOut;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("DiffStat Tests")
+class DiffStatTest {
+
+    @BeforeEach
+    void setup() throws Exception {
+        cleanup();
+        CommandHandler.handleInit();
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        cleanup();
+    }
+
+    @Test
+    @DisplayName("Should count inserted and deleted lines without a line diff")
+    void testCountLines() {
+        assertArrayEquals(new int[] {1, 1}, DiffStat.countLines("a\nb\nc\n", "a\nB\nc\n"));
+        assertArrayEquals(new int[] {2, 0}, DiffStat.countLines("a\n", "a\na\nb\n"));
+        assertArrayEquals(new int[] {0, 3}, DiffStat.countLines("x\ny\nz", ""));
+        // moved lines count as unchanged
+        assertArrayEquals(new int[] {0, 0}, DiffStat.countLines("a\nb\n", "b\na\n"));
+    }
+
+    @Test
+    @DisplayName("Should align names and scale long bars")
+    void testWrite() throws IOException {
+        DiffStat stat = new DiffStat();
+        stat.add(DiffEntry.modified("src/App.java", "100644", "100644", null, null), 3, 1);
+        stat.add(new DiffEntry(DiffEntry.Status.RENAMED, "a.txt", "b.txt", "100644", "100644", null, null, 100), 0, 0);
+        stat.add(DiffEntry.added("big.txt", "100644", null), 100, 0);
+        StringWriter out = new StringWriter();
+        stat.write(out);
+
+        assertEquals(" src/App.java   |   4 +-\n"
+                + " a.txt => b.txt |   0\n"
+                + " big.txt        | 100 " + "+".repeat(50) + "\n"
+                + " 3 files changed, 103 insertions(+), 1 deletion(-)\n", out.toString());
+    }
+
+    @Test
+    @DisplayName("Should list changed files without reading any blob")
+    void testNameStatusReadsNoBlobs() throws Exception {
+        Files.writeString(Paths.get("kept.txt"), "same\n");
+        Files.writeString(Paths.get("edited.txt"), "one\n");
+        CommandHandler.handleAdd("kept.txt");
+        CommandHandler.handleAdd("edited.txt");
+        CommandHandler.handleCommit("C1");
+        List<String> blobs = new ArrayList<>(stagedShas());
+        String first = new ReferenceManager().getHeadCommit();
+
+        Files.writeString(Paths.get("edited.txt"), "two\n");
+        Files.writeString(Paths.get("added.txt"), "new\n");
+        CommandHandler.handleAdd("edited.txt");
+        CommandHandler.handleAdd("added.txt");
+        CommandHandler.handleCommit("C2");
+        blobs.addAll(stagedShas());
+        String second = new ReferenceManager().getHeadCommit();
+
+        // drop every blob; only commits and trees are left to read
+        for (String sha : blobs) {
+            Files.deleteIfExists(Paths.get(".lit", "objects", sha.substring(0, 2), sha.substring(2)));
+        }
+
+        String output = captureOut(() -> CommandHandler.handleDiffCommits(first, second,
+                new DiffOptions().format(DiffOptions.Format.NAME_STATUS)));
+        assertEquals("A\tadded.txt\nM\tedited.txt\n", output);
+        assertEquals("added.txt\nedited.txt\n", captureOut(() -> CommandHandler.handleDiffCommits(first, second,
+                new DiffOptions().format(DiffOptions.Format.NAME_ONLY))));
+    }
+
+    private static List<String> stagedShas() throws IOException {
+        List<String> shas = new ArrayList<>();
+        for (IndexEntry entry : new IndexManager().getIndexEntries()) {
+            shas.add(entry.getSha1());
+        }
+        return shas;
+    }
+
+    private void cleanup() throws IOException {
+        Path litDir = Paths.get(".lit");
+        if (Files.exists(litDir)) {
+            Files.walk(litDir)
+                 .sorted(Comparator.reverseOrder())
+                 .map(Path::toFile)
+                 .forEach(File::delete);
+        }
+        Files.deleteIfExists(Paths.get("kept.txt"));
+        Files.deleteIfExists(Paths.get("edited.txt"));
+        Files.deleteIfExists(Paths.get("added.txt"));
+    }
+}
@@ -0,0 +1,98 @@
+package utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("EwahBitmap Tests")
+class EwahBitmapTest {
+
+    // mixes long clean runs (zeros and ones) with sparse literal words
+    private static BitSet randomBits(Random random, int size) {
+        BitSet bits = new BitSet(size);
+        int i = 0;
+        while (i < size) {
+            int length = 1 + random.nextInt(500);
+            int kind = random.nextInt(3);
+            for (int j = i; j < Math.min(size, i + length); j++) {
+                if (kind == 1 || (kind == 2 && random.nextInt(7) == 0)) {
+                    bits.set(j);
+                }
+            }
+            i += length;
+        }
+        return bits;
+    }
+
+    @Test
+    @DisplayName("Should match BitSet for and, or and andNot")
+    void testOperationsMatchBitSet() {
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            BitSet a = randomBits(random, 5000 + random.nextInt(5000));
+            BitSet b = randomBits(random, 5000 + random.nextInt(5000));
+            EwahBitmap ea = EwahBitmap.fromBitSet(a);
+            EwahBitmap eb = EwahBitmap.fromBitSet(b);
+
+            BitSet and = (BitSet) a.clone();
+            and.and(b);
+            BitSet or = (BitSet) a.clone();
+            or.or(b);
+            BitSet andNot = (BitSet) a.clone();
+            andNot.andNot(b);
+
+            assertEquals(and, ea.and(eb).toBitSet());
+            assertEquals(or, ea.or(eb).toBitSet());
+            assertEquals(andNot, ea.andNot(eb).toBitSet());
+            assertEquals(or.cardinality(), ea.or(eb).cardinality());
+        }
+    }
+
+    @Test
+    @DisplayName("Should compress long runs")
+    void testCompressesRuns() {
+        EwahBitmap bitmap = new EwahBitmap();
+        for (int i = 64_000; i < 128_000; i++) {
+            bitmap.set(i);
+        }
+        bitmap.set(1_000_000);
+        assertEquals(64_001, bitmap.cardinality());
+        assertTrue(bitmap.sizeInWords() < 10, "Clean runs should collapse into marker words.");
+        assertTrue(bitmap.get(100_000));
+        assertFalse(bitmap.get(500_000));
+        assertTrue(bitmap.get(1_000_000));
+    }
+
+    @Test
+    @DisplayName("Should round-trip through serialization")
+    void testSerialization() throws IOException {
+        BitSet bits = randomBits(new Random(7), 20_000);
+        EwahBitmap bitmap = EwahBitmap.fromBitSet(bits);
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        bitmap.serialize(new DataOutputStream(buffer));
+        EwahBitmap loaded = EwahBitmap.deserialize(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())));
+
+        assertEquals(bits, loaded.toBitSet());
+        assertEquals(bitmap.sizeInBits(), loaded.sizeInBits());
+    }
+
+    @Test
+    @DisplayName("Should reject bits set out of order")
+    void testOutOfOrder() {
+        EwahBitmap bitmap = new EwahBitmap();
+        bitmap.set(10);
+        assertThrows(IllegalArgumentException.class, () -> bitmap.set(5));
+    }
+}
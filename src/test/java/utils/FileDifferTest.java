@@ -49,9 +49,28 @@ class FileDifferTest {
         String contentA = "line 1\nline 2";
         String contentB = "line 1\nline 2\nline 3";
         DiffResult result = differ.calculateDiff(contentA, contentB);
-        assertEquals(1, result.getDiffLines().size());
-        assertEquals(ChangeType.ADDED, result.getDiffLines().get(0).type);
-        assertEquals("line 3", result.getDiffLines().get(0).text);
+        // "line 2" gains the newline it lacked, so it is replaced as well
+        assertEquals(3, result.getDiffLines().size());
+        assertEquals(ChangeType.DELETED, result.getDiffLines().get(0).type);
+        assertEquals("line 2", result.getDiffLines().get(0).text);
+        assertEquals(ChangeType.ADDED, result.getDiffLines().get(1).type);
+        assertEquals("line 2", result.getDiffLines().get(1).text);
+        assertEquals(ChangeType.ADDED, result.getDiffLines().get(2).type);
+        assertEquals("line 3", result.getDiffLines().get(2).text);
+    }
+
+    @Test
+    @DisplayName("Should detect a change of the final newline alone")
+    void testFinalNewline() {
+        List<DiffLine> added = differ.calculateDiff("a\nb", "a\nb\n").getDiffLines();
+        assertEquals(2, added.size());
+        assertEquals(ChangeType.DELETED, added.get(0).type);
+        assertEquals("b", added.get(0).text);
+        assertEquals(ChangeType.ADDED, added.get(1).type);
+        assertEquals("b", added.get(1).text);
+
+        assertEquals(2, differ.calculateDiff("a\nb\n", "a\nb").getDiffLines().size());
+        assertTrue(differ.calculateDiff("a\nb", "a\nb").getDiffLines().isEmpty());
     }
 
     @Test
@@ -88,7 +107,8 @@ class FileDifferTest {
         DiffResult result = differ.calculateDiff(contentA, contentB);
         List<DiffLine> diffs = result.getDiffLines();
 
-        assertEquals(4, diffs.size(), "Should detect all 4 changes.");
+        // the last line of each side has no newline, so "line 4" moving off the end is a change too
+        assertEquals(6, diffs.size(), "Should detect all 4 changes and the moved last line.");
 
         // Change on line 1
         assertEquals(ChangeType.DELETED, diffs.get(0).type);
@@ -100,8 +120,91 @@ class FileDifferTest {
         assertEquals(ChangeType.DELETED, diffs.get(2).type);
         assertEquals("line 3 (to be deleted)", diffs.get(2).text);
 
+        assertEquals(ChangeType.DELETED, diffs.get(3).type);
+        assertEquals("line 4", diffs.get(3).text);
+        assertEquals(ChangeType.ADDED, diffs.get(4).type);
+        assertEquals("line 4", diffs.get(4).text);
+
         // Addition of line 5
-        assertEquals(ChangeType.ADDED, diffs.get(3).type);
-        assertEquals("line 5 (added)", diffs.get(3).text);
+        assertEquals(ChangeType.ADDED, diffs.get(5).type);
+        assertEquals("line 5 (added)", diffs.get(5).text);
+    }
+
+    @Test
+    @DisplayName("Should keep blank lines and ignore only the final newline")
+    void testBlankLines() {
+        DiffResult result = differ.calculateDiff("a\n\nb\n", "a\n\nb\n\n");
+        assertEquals(1, result.getDiffLines().size());
+        assertEquals(ChangeType.ADDED, result.getDiffLines().get(0).type);
+        assertEquals("", result.getDiffLines().get(0).text);
+        assertFalse(differ.calculateDiff("a\nb", "a\nb").hasChanges());
+    }
+
+    @Test
+    @DisplayName("Should produce edit scripts that turn one file into the other with both algorithms")
+    void testAlgorithmsProduceValidScripts() {
+        java.util.Random random = new java.util.Random(42);
+        for (int round = 0; round < 300; round++) {
+            StringBuilder a = new StringBuilder();
+            StringBuilder b = new StringBuilder();
+            int lines = random.nextInt(60);
+            for (int i = 0; i < lines; i++) {
+                String line = "line " + random.nextInt(12) + "\n";
+                int op = random.nextInt(10);
+                if (op != 0) {
+                    a.append(line); // kept or changed
+                }
+                if (op == 1) {
+                    b.append("changed ").append(random.nextInt(5)).append('\n');
+                } else if (op != 2) {
+                    b.append(line); // kept or added
+                }
+            }
+            for (DiffAlgorithm algorithm : DiffAlgorithm.values()) {
+                DiffResult result = new FileDiffer(algorithm).calculateDiff(a.toString(), b.toString());
+                assertEquals(b.toString(), apply(result), algorithm + " in round " + round);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should diff large files with scattered changes quickly")
+    void testLargeFile() {
+        StringBuilder a = new StringBuilder();
+        StringBuilder b = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            String line = "    value" + i + " = compute(" + (i % 97) + ");\n";
+            a.append(line);
+            b.append(i % 1000 == 0 ? "    // generated\n" : line);
+        }
+        long start = System.nanoTime();
+        DiffResult result = differ.calculateDiff(a.toString(), b.toString());
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        assertEquals(200, result.getEdits().size());
+        assertEquals(200, result.getAddedLineCount());
+        assertEquals(200, result.getDeletedLineCount());
+        assertTrue(millis < 2000, "Diff took " + millis + " ms");
+    }
+
+    // rebuilds the revised text from the original and the edits
+    private static String apply(DiffResult result) {
+        RawText original = result.getOriginal();
+        RawText revised = result.getRevised();
+        StringBuilder out = new StringBuilder();
+        int position = 0;
+        for (Edit edit : result.getEdits()) {
+            assertTrue(edit.beginA >= position, "Edits must be in order");
+            for (int i = position; i < edit.beginA; i++) {
+                out.append(original.line(i)).append('\n');
+            }
+            for (int i = edit.beginB; i < edit.endB; i++) {
+                out.append(revised.line(i)).append('\n');
+            }
+            position = edit.endA;
+        }
+        for (int i = position; i < original.size(); i++) {
+            out.append(original.line(i)).append('\n');
+        }
+        return out.toString();
     }
-}
\ No newline at end of file
+}
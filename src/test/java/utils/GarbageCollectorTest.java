@@ -0,0 +1,99 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import objects.BlobObject;
+
+public class GarbageCollectorTest {
+
+    @BeforeEach
+    public void setup() throws Exception {
+        cleanup();
+        CommandHandler.handleInit();
+    }
+
+    @AfterEach
+    public void teardown() throws IOException {
+        cleanup();
+    }
+
+    private static Path objectPath(String sha) {
+        return Paths.get(".lit", "objects", sha.substring(0, 2), sha.substring(2));
+    }
+
+    @Test
+    public void testPrunesOnlyUnreachableObjects() throws Exception {
+        Files.writeString(Paths.get("gc-kept.txt"), "committed");
+        CommandHandler.handleAdd("gc-kept.txt");
+        CommandHandler.handleCommit("C1");
+        String keptSha = new BlobObject("gc-kept.txt").getSha1();
+
+        // staged and then replaced before committing, so nothing refers to it any more
+        Files.writeString(Paths.get("gc-staged.txt"), "first version");
+        CommandHandler.handleAdd("gc-staged.txt");
+        String orphanSha = new BlobObject("gc-staged.txt").getSha1();
+        Files.writeString(Paths.get("gc-staged.txt"), "second version");
+        CommandHandler.handleAdd("gc-staged.txt");
+        String stagedSha = new BlobObject("gc-staged.txt").getSha1();
+
+        // inside the grace period nothing is deleted
+        GarbageCollector.Result recent = GarbageCollector.collect(GarbageCollector.DEFAULT_GRACE_SECONDS, 2, false);
+        assertEquals(0, recent.pruned);
+        assertEquals(1, recent.keptRecent);
+        assertTrue(Files.exists(objectPath(orphanSha)));
+
+        GarbageCollector.Result result = GarbageCollector.collect(0, 2, false);
+        assertEquals(1, result.pruned, "Only the replaced blob should be pruned.");
+        assertFalse(Files.exists(objectPath(orphanSha)));
+        assertTrue(Files.exists(objectPath(keptSha)), "Committed blobs must survive.");
+        assertTrue(Files.exists(objectPath(stagedSha)), "Blobs referenced by the index must survive.");
+    }
+
+    @Test
+    public void testPrunesAbandonedTemporaryFiles() throws Exception {
+        Files.writeString(Paths.get("gc-kept.txt"), "committed");
+        CommandHandler.handleAdd("gc-kept.txt");
+        CommandHandler.handleCommit("C1");
+        String keptSha = new BlobObject("gc-kept.txt").getSha1();
+
+        // what an object write interrupted before its rename leaves behind
+        Path abandoned = objectPath(keptSha).resolveSibling(keptSha.substring(2) + "5f3a9c.tmp");
+        Files.writeString(abandoned, "partial");
+        // count-objects lists loose objects the same way: the blob, the tree and the commit
+        assertEquals(3, GarbageCollector.listObjectFiles().size(), "A temporary file is not an object.");
+
+        GarbageCollector.Result recent = GarbageCollector.collect(GarbageCollector.DEFAULT_GRACE_SECONDS, 2, false);
+        assertEquals(0, recent.prunedTemporary);
+        assertTrue(Files.exists(abandoned), "A recent temporary file may still be written.");
+
+        GarbageCollector.Result result = GarbageCollector.collect(0, 2, false);
+        assertEquals(1, result.prunedTemporary);
+        assertEquals(0, result.pruned);
+        assertFalse(Files.exists(abandoned));
+        assertTrue(Files.exists(objectPath(keptSha)));
+    }
+
+    private void cleanup() throws IOException {
+        Path litDir = Paths.get(".lit");
+        if (Files.exists(litDir)) {
+            Files.walk(litDir)
+                 .sorted(Comparator.reverseOrder())
+                 .map(Path::toFile)
+                 .forEach(File::delete);
+        }
+        Files.deleteIfExists(Paths.get("gc-kept.txt"));
+        Files.deleteIfExists(Paths.get("gc-staged.txt"));
+    }
+}
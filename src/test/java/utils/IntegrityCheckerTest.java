@@ -0,0 +1,81 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import objects.BlobObject;
+
+public class IntegrityCheckerTest {
+
+    @BeforeEach
+    public void setup() throws Exception {
+        cleanup();
+        CommandHandler.handleInit();
+    }
+
+    @AfterEach
+    public void teardown() throws IOException {
+        cleanup();
+    }
+
+    @Test
+    public void testCleanRepository() throws Exception {
+        Files.writeString(Paths.get("fsck-a.txt"), "alpha");
+        CommandHandler.handleAdd("fsck-a.txt");
+        CommandHandler.handleCommit("C1");
+
+        IntegrityChecker.Result result = IntegrityChecker.check(2, null);
+        assertFalse(result.hasErrors());
+        assertEquals(3, result.objects, "One blob, one tree and one commit.");
+        assertTrue(result.dangling.isEmpty());
+    }
+
+    @Test
+    public void testReportsCorruptMissingAndDanglingObjects() throws Exception {
+        Files.writeString(Paths.get("fsck-a.txt"), "alpha");
+        Files.writeString(Paths.get("fsck-b.txt"), "beta");
+        CommandHandler.handleAdd("fsck-a.txt");
+        CommandHandler.handleAdd("fsck-b.txt");
+        String aSha = new BlobObject("fsck-a.txt").getSha1();
+        String bSha = new BlobObject("fsck-b.txt").getSha1();
+
+        // replaced before committing, so the first version of b is left dangling
+        Files.writeString(Paths.get("fsck-b.txt"), "beta, revised");
+        CommandHandler.handleAdd("fsck-b.txt");
+        CommandHandler.handleCommit("C1");
+
+        Files.writeString(ObjectLoader.objectPath(aSha), "bit rot");
+        Files.delete(ObjectLoader.objectPath(new BlobObject("fsck-b.txt").getSha1()));
+
+        IntegrityChecker.Result result = IntegrityChecker.check(2, null);
+        assertTrue(result.hasErrors());
+        assertTrue(result.corrupt.containsKey(aSha));
+        assertEquals(1, result.missing.size());
+        assertEquals("blob", result.missing.values().iterator().next());
+        assertEquals(List.of(bSha), result.dangling);
+    }
+
+    private void cleanup() throws IOException {
+        Path litDir = Paths.get(".lit");
+        if (Files.exists(litDir)) {
+            Files.walk(litDir)
+                 .sorted(Comparator.reverseOrder())
+                 .map(Path::toFile)
+                 .forEach(File::delete);
+        }
+        Files.deleteIfExists(Paths.get("fsck-a.txt"));
+        Files.deleteIfExists(Paths.get("fsck-b.txt"));
+    }
+}
@@ -0,0 +1,111 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class LineMergerTest {
+
+    private static final String BASE = "one\ntwo\nthree\nfour\nfive\nsix\nseven\n";
+
+    @Test
+    @DisplayName("Edits to different lines merge without conflicts")
+    public void testNonOverlappingEditsMergeCleanly() {
+        String ours = "ONE\ntwo\nthree\nfour\nfive\nsix\nseven\n";
+        String theirs = "one\ntwo\nthree\nfour\nfive\nsix\nSEVEN\neight\n";
+
+        LineMerger.Result result = LineMerger.merge(BASE, ours, theirs, "HEAD", "feature");
+
+        assertTrue(result.isClean());
+        assertEquals("ONE\ntwo\nthree\nfour\nfive\nsix\nSEVEN\neight\n", result.getContent());
+    }
+
+    @Test
+    @DisplayName("Only the overlapping region is wrapped in conflict markers")
+    public void testOverlappingEditsConflictLocally() {
+        String ours = "ONE\ntwo\nthree\nFOUR\nfive\nsix\nseven\n";
+        String theirs = "one\ntwo\nthree\n4\nfive\nsix\nSEVEN\n";
+
+        LineMerger.Result result = LineMerger.merge(BASE, ours, theirs, "HEAD", "feature");
+
+        assertFalse(result.isClean());
+        assertEquals(1, result.getConflictCount());
+        assertEquals("ONE\ntwo\nthree\n"
+                + "<<<<<<< HEAD\nFOUR\n=======\n4\n>>>>>>> feature\n"
+                + "five\nsix\nSEVEN\n", result.getContent());
+    }
+
+    @Test
+    @DisplayName("The same change on both sides is taken once")
+    public void testIdenticalEditsOnBothSides() {
+        String both = "one\ntwo\nTHREE\nfour\nfive\nsix\nseven\n";
+
+        LineMerger.Result result = LineMerger.merge(BASE, both, both, "HEAD", "feature");
+
+        assertTrue(result.isClean());
+        assertEquals(both, result.getContent());
+    }
+
+    @Test
+    @DisplayName("A missing final newline does not run into the conflict markers")
+    public void testMissingTrailingNewlineInConflict() {
+        LineMerger.Result result = LineMerger.merge("a\n", "b", "c", "HEAD", "feature");
+
+        assertEquals("<<<<<<< HEAD\nb\n=======\nc\n>>>>>>> feature\n", result.getContent());
+    }
+
+    @Test
+    @DisplayName("Myers diff produces a minimal edit script that turns A into B")
+    public void testMyersDiffMatchesLcs() {
+        Random random = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            int[] a = randomSequence(random);
+            int[] b = randomSequence(random);
+
+            List<Edit> edits = MyersDiff.diff(a, b);
+
+            // applying the edits to A gives B, and the lines outside the edits match
+            int posA = 0;
+            int posB = 0;
+            int changed = 0;
+            for (Edit edit : edits) {
+                assertEquals(edit.beginA - posA, edit.beginB - posB);
+                for (int k = 0; k < edit.beginA - posA; k++) {
+                    assertEquals(a[posA + k], b[posB + k]);
+                }
+                changed += edit.lengthA() + edit.lengthB();
+                posA = edit.endA;
+                posB = edit.endB;
+            }
+            assertEquals(a.length - posA, b.length - posB);
+            for (int k = 0; k < a.length - posA; k++) {
+                assertEquals(a[posA + k], b[posB + k]);
+            }
+            assertEquals(a.length + b.length - 2 * lcsLength(a, b), changed);
+        }
+    }
+
+    private static int[] randomSequence(Random random) {
+        int[] sequence = new int[random.nextInt(30)];
+        for (int i = 0; i < sequence.length; i++) {
+            sequence[i] = random.nextInt(4);
+        }
+        return sequence;
+    }
+
+    private static int lcsLength(int[] a, int[] b) {
+        int[][] table = new int[a.length + 1][b.length + 1];
+        for (int i = a.length - 1; i >= 0; i--) {
+            for (int j = b.length - 1; j >= 0; j--) {
+                table[i][j] = a[i] == b[j] ? table[i + 1][j + 1] + 1 : Math.max(table[i + 1][j], table[i][j + 1]);
+            }
+        }
+        return table[0][0];
+    }
+}
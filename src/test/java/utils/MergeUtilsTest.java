@@ -5,8 +5,13 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.jupiter.api.AfterEach;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -164,5 +169,142 @@ public class MergeUtilsTest {
         List<IndexEntry> entries = indexManager.getIndexEntries();
         assertEquals(2, entries.size(), "Index should contain two files.");
         assertTrue(entries.stream().anyMatch(e -> e.getFilePath().equals("new_file.txt")), "Index should include new_file.txt.");
-    }   
-}
\ No newline at end of file
+    }
+
+    @Test
+    public void testMergeInMemory() throws Exception {
+        // C1: Base commit
+        Files.writeString(Paths.get("file.txt"), "top\nmiddle\nbottom\n");
+        Files.writeString(Paths.get("file1.txt"), "shared\n");
+        CommandHandler.handleAdd("file.txt");
+        CommandHandler.handleAdd("file1.txt");
+        CommandHandler.handleCommit("C1");
+        String ancestorSha = new ReferenceManager().getHeadCommit();
+
+        // C2 on main: edits the top line and file1.txt
+        Files.writeString(Paths.get("file.txt"), "TOP\nmiddle\nbottom\n");
+        Files.writeString(Paths.get("file1.txt"), "main\n");
+        CommandHandler.handleAdd("file.txt");
+        CommandHandler.handleAdd("file1.txt");
+        CommandHandler.handleCommit("C2 on main");
+        String mainSha = new ReferenceManager().getHeadCommit();
+
+        // C3 on feature: edits the bottom line, file1.txt and adds a file
+        CommandHandler.handleSwitch(ancestorSha);
+        CommandHandler.handleBranch("feature");
+        CommandHandler.handleSwitch("feature");
+        Files.writeString(Paths.get("file.txt"), "top\nmiddle\nBOTTOM\n");
+        Files.writeString(Paths.get("file1.txt"), "feature\n");
+        Files.writeString(Paths.get("new_file.txt"), "from feature\n");
+        CommandHandler.handleAdd("file.txt");
+        CommandHandler.handleAdd("file1.txt");
+        CommandHandler.handleAdd("new_file.txt");
+        CommandHandler.handleCommit("C3 on feature");
+        String featureSha = new ReferenceManager().getHeadCommit();
+
+        String indexBefore = Files.readString(Paths.get(".lit", "index"));
+
+        // merge the branches many times at once
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<MergeResult>> merges = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            merges.add(pool.submit(() -> MergeUtils.mergeInMemory(mainSha, featureSha, "main", "feature")));
+        }
+        MergeResult result = merges.get(0).get();
+        for (Future<MergeResult> merge : merges) {
+            assertEquals(result.getTreeSha(), merge.get().getTreeSha(), "Concurrent merges should agree.");
+        }
+        pool.shutdown();
+
+        // the merged tree has both line edits, the new file and a conflicted file1.txt
+        assertEquals("TOP\nmiddle\nBOTTOM\n", new String(ObjectLoader.loadBlob(TreeIterator.findBlob(result.getTreeSha(), "file.txt"))));
+        assertEquals("from feature\n", new String(ObjectLoader.loadBlob(TreeIterator.findBlob(result.getTreeSha(), "new_file.txt"))));
+        assertEquals("<<<<<<< main\nmain\n=======\nfeature\n>>>>>>> feature\n",
+                new String(ObjectLoader.loadBlob(TreeIterator.findBlob(result.getTreeSha(), "file1.txt"))));
+        assertEquals(1, result.getConflicts().size());
+        assertEquals("file1.txt", result.getConflicts().get(0).getPath());
+        assertEquals(MergeConflict.Type.CONTENT, result.getConflicts().get(0).getType());
+
+        // the working directory and the index still hold the feature branch
+        assertEquals("top\nmiddle\nBOTTOM\n", Files.readString(Paths.get("file.txt")));
+        assertEquals("feature\n", Files.readString(Paths.get("file1.txt")));
+        assertEquals(indexBefore, Files.readString(Paths.get(".lit", "index")));
+    }
+
+    @Test
+    public void testMergeFollowsRename() throws Exception {
+        String lines = "one\ntwo\nthree\nfour\nfive\nsix\nseven\neight\n";
+
+        // C1: Base commit
+        Files.writeString(Paths.get("file.txt"), lines);
+        CommandHandler.handleAdd("file.txt");
+        CommandHandler.handleCommit("C1");
+        String ancestorSha = new ReferenceManager().getHeadCommit();
+
+        // C2 on main: moves file.txt to new_file.txt
+        Files.writeString(Paths.get("new_file.txt"), lines);
+        CommandHandler.handleRm("file.txt");
+        CommandHandler.handleAdd("new_file.txt");
+        CommandHandler.handleCommit("C2 on main");
+        String mainSha = new ReferenceManager().getHeadCommit();
+
+        // C3 on feature: edits file.txt at its old path
+        CommandHandler.handleSwitch(ancestorSha);
+        CommandHandler.handleBranch("feature");
+        CommandHandler.handleSwitch("feature");
+        Files.writeString(Paths.get("file.txt"), lines.replace("five", "FIVE"));
+        CommandHandler.handleAdd("file.txt");
+        CommandHandler.handleCommit("C3 on feature");
+        String featureSha = new ReferenceManager().getHeadCommit();
+
+        MergeResult inMemory = MergeUtils.mergeInMemory(mainSha, featureSha, "main", "feature");
+        assertTrue(inMemory.getConflicts().isEmpty(), "The edit should follow the rename.");
+        assertEquals(lines.replace("five", "FIVE"),
+                new String(ObjectLoader.loadBlob(TreeIterator.findBlob(inMemory.getTreeSha(), "new_file.txt"))));
+        assertEquals(null, TreeIterator.findBlob(inMemory.getTreeSha(), "file.txt"));
+
+        CommandHandler.handleSwitch("main");
+        MergeResult result = MergeUtils.merge(mainSha, featureSha, "feature");
+        assertTrue(result.isSuccess(), "Merge should be successful.");
+        assertEquals(lines.replace("five", "FIVE"), Files.readString(Paths.get("new_file.txt")));
+        assertTrue(!Files.exists(Paths.get("file.txt")), "The old path should not come back.");
+    }
+
+    @Test
+    public void testMergeMovesOurEditToTheirRename() throws Exception {
+        String lines = "one\ntwo\nthree\nfour\n";
+
+        // C1: Base commit
+        Files.writeString(Paths.get("file.txt"), lines);
+        CommandHandler.handleAdd("file.txt");
+        CommandHandler.handleCommit("C1");
+        String ancestorSha = new ReferenceManager().getHeadCommit();
+
+        // C2 on main: moves file.txt to new_file.txt without changing it
+        Files.writeString(Paths.get("new_file.txt"), lines);
+        CommandHandler.handleRm("file.txt");
+        CommandHandler.handleAdd("new_file.txt");
+        CommandHandler.handleCommit("C2 on main");
+        String mainSha = new ReferenceManager().getHeadCommit();
+
+        // C3 on feature: edits file.txt at its old path
+        CommandHandler.handleSwitch(ancestorSha);
+        CommandHandler.handleBranch("feature");
+        CommandHandler.handleSwitch("feature");
+        Files.writeString(Paths.get("file.txt"), lines.replace("three", "THREE"));
+        CommandHandler.handleAdd("file.txt");
+        CommandHandler.handleCommit("C3 on feature");
+        String featureSha = new ReferenceManager().getHeadCommit();
+
+        // merging main into feature: the rename comes from theirs, the edit is ours
+        MergeResult result = MergeUtils.merge(featureSha, mainSha, "main");
+        assertTrue(result.isSuccess(), "Merge should be successful.");
+        assertEquals(lines.replace("three", "THREE"), Files.readString(Paths.get("new_file.txt")));
+        assertTrue(!Files.exists(Paths.get("file.txt")), "The old path should not come back.");
+
+        Map<String, IndexEntry> index = new IndexManager().getEntryMap();
+        assertEquals(null, index.get("file.txt"));
+        assertEquals(TreeIterator.findBlob(MergeUtils.mergeInMemory(featureSha, mainSha, "feature", "main").getTreeSha(),
+                "new_file.txt"), index.get("new_file.txt").getSha1());
+    }
+}
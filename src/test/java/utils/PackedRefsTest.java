@@ -0,0 +1,88 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class PackedRefsTest {
+
+    private static final Path HEADS = Paths.get(".lit", "refs", "heads");
+
+    @BeforeEach
+    public void setup() throws Exception {
+        cleanup();
+        CommandHandler.handleInit();
+    }
+
+    @AfterEach
+    public void teardown() throws IOException {
+        cleanup();
+    }
+
+    @Test
+    public void testPackedRefsResolveAndLooseRefsOverride() throws Exception {
+        Files.writeString(Paths.get("packed-a.txt"), "one");
+        CommandHandler.handleAdd("packed-a.txt");
+        CommandHandler.handleCommit("C1");
+
+        ReferenceManager refManager = new ReferenceManager();
+        String first = refManager.getHeadCommit();
+        refManager.createBranch("zeta");
+        refManager.createBranch("alpha");
+
+        assertEquals(3, refManager.packRefs());
+        assertFalse(Files.exists(HEADS.resolve("main")), "Packed loose refs should be deleted.");
+        assertFalse(Files.exists(HEADS.resolve("alpha")));
+
+        assertEquals(List.of("alpha", "main", "zeta"), refManager.getAllBranches());
+        assertEquals(first, refManager.getBranchCommit("alpha"));
+        assertEquals(first, refManager.getHeadCommit());
+        assertNull(refManager.getBranchCommit("missing"));
+
+        // committing on a packed branch writes a loose ref, which wins over the packed entry
+        Files.writeString(Paths.get("packed-a.txt"), "two");
+        CommandHandler.handleAdd("packed-a.txt");
+        CommandHandler.handleCommit("C2");
+        String second = refManager.getHeadCommit();
+        assertFalse(first.equals(second));
+        assertTrue(Files.exists(HEADS.resolve("main")));
+        assertEquals(first, PackedRefs.load(Paths.get(".lit").toAbsolutePath()).lookup("refs/heads/main"));
+        assertEquals(second, refManager.getBranchCommit("main"));
+
+        // repacking picks up the new value and rewrites the cached table
+        refManager.packRefs();
+        assertEquals(second, PackedRefs.load(Paths.get(".lit").toAbsolutePath()).lookup("refs/heads/main"));
+        assertEquals(second, refManager.getBranchCommit("main"));
+    }
+
+    @Test
+    public void testUnbornBranchStaysLoose() throws Exception {
+        ReferenceManager refManager = new ReferenceManager();
+        assertEquals(0, refManager.packRefs());
+        assertTrue(Files.exists(HEADS.resolve("main")));
+        assertEquals("", refManager.getBranchCommit("main"));
+    }
+
+    private void cleanup() throws IOException {
+        Path litDir = Paths.get(".lit");
+        if (Files.exists(litDir)) {
+            Files.walk(litDir)
+                 .sorted(Comparator.reverseOrder())
+                 .map(Path::toFile)
+                 .forEach(File::delete);
+        }
+        Files.deleteIfExists(Paths.get("packed-a.txt"));
+    }
+}
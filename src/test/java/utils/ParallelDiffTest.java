@@ -0,0 +1,136 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static utils.TestOutput.captureOut;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("ParallelDiff Tests")
+class ParallelDiffTest {
+
+    private static final Path DIR = Paths.get("parallel");
+
+    @BeforeEach
+    void setup() throws Exception {
+        cleanup();
+        CommandHandler.handleInit();
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        cleanup();
+    }
+
+    @Test
+    @DisplayName("Should hand results back in order and never hold more than the budget")
+    void testOrderAndBudget() throws IOException {
+        List<DiffEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            entries.add(DiffEntry.added(String.format("f%03d", i), "100644", null));
+        }
+        Random random = new Random(7);
+        int[] delays = new int[entries.size()];
+        for (int i = 0; i < delays.length; i++) {
+            delays[i] = random.nextInt(3);
+        }
+        AtomicInteger finished = new AtomicInteger();
+        AtomicInteger mostWaiting = new AtomicInteger();
+        List<String> seen = Collections.synchronizedList(new ArrayList<>());
+
+        // a budget of one result: workers stop taking files once more than one finished result waits
+        new ParallelDiff(4, 1).run(entries, entry -> {
+            int index = Integer.parseInt(entry.getPath().substring(1));
+            LockSupport.parkNanos(delays[index] * 1_000_000L);
+            mostWaiting.accumulateAndGet(finished.incrementAndGet() - seen.size(), Math::max);
+            return entry.getPath();
+        }, path -> 1, (entry, path) -> {
+            assertEquals(entry.getPath(), path);
+            seen.add(path);
+        });
+
+        assertEquals(entries.size(), seen.size());
+        for (int i = 0; i < seen.size(); i++) {
+            assertEquals(entries.get(i).getPath(), seen.get(i));
+        }
+        // the two results over the budget, plus the files the other workers were still on
+        assertTrue(mostWaiting.get() <= 2 + 3, "at most " + mostWaiting.get() + " results waited");
+    }
+
+    @Test
+    @DisplayName("Should report the failure of a worker to the caller")
+    void testFailure() {
+        List<DiffEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            entries.add(DiffEntry.added("f" + i, "100644", null));
+        }
+        IOException e = assertThrows(IOException.class, () -> new ParallelDiff(4).run(entries, entry -> {
+            if (entry.getPath().equals("f17")) {
+                throw new IOException("cannot read f17");
+            }
+            return entry.getPath();
+        }, String::length, (entry, path) -> { }));
+        assertEquals("cannot read f17", e.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should print the same diff of many files on one thread and on several")
+    void testSameOutputAnyThreads() throws Exception {
+        Files.createDirectories(DIR);
+        for (int i = 0; i < 60; i++) {
+            StringBuilder content = new StringBuilder();
+            for (int line = 0; line < 40; line++) {
+                content.append("file ").append(i).append(" line ").append(line).append('\n');
+            }
+            Files.writeString(DIR.resolve("f" + i + ".txt"), content.toString());
+            CommandHandler.handleAdd(DIR.resolve("f" + i + ".txt").toString());
+        }
+        CommandHandler.handleCommit("C1");
+        String first = new ReferenceManager().getHeadCommit();
+
+        for (int i = 0; i < 60; i += 2) {
+            Path file = DIR.resolve("f" + i + ".txt");
+            Files.writeString(file, Files.readString(file).replace("line 20\n", "line twenty\n") + "tail\n");
+            CommandHandler.handleAdd(file.toString());
+        }
+        CommandHandler.handleCommit("C2");
+        String second = new ReferenceManager().getHeadCommit();
+
+        for (DiffOptions.Format format : new DiffOptions.Format[] {DiffOptions.Format.PATCH, DiffOptions.Format.STAT}) {
+            String serial = captureOut(() -> CommandHandler.handleDiffCommits(first, second,
+                    new DiffOptions().format(format).threads(1)));
+            String parallel = captureOut(() -> CommandHandler.handleDiffCommits(first, second,
+                    new DiffOptions().format(format).threads(8)));
+            assertEquals(serial, parallel);
+        }
+        assertTrue(captureOut(() -> CommandHandler.handleDiffCommits(first, second, new DiffOptions().threads(8)))
+                .contains("-file 10 line 20\n+file 10 line twenty\n"));
+    }
+
+    private void cleanup() throws IOException {
+        for (Path dir : new Path[] {Paths.get(".lit"), DIR}) {
+            if (Files.exists(dir)) {
+                Files.walk(dir)
+                     .sorted(Comparator.reverseOrder())
+                     .map(Path::toFile)
+                     .forEach(File::delete);
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static utils.TestOutput.captureOut;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Pathspec Tests")
+class PathspecTest {
+
+    private static final Path SRC = Paths.get("src-tree");
+
+    @BeforeEach
+    void setup() throws Exception {
+        cleanup();
+        CommandHandler.handleInit();
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        cleanup();
+    }
+
+    @Test
+    @DisplayName("Should match directories by prefix and globs by component")
+    void testMatches() {
+        Pathspec directory = Pathspec.parse(Collections.singletonList("./src/api/"));
+        assertTrue(directory.matches("src/api"));
+        assertTrue(directory.matches("src/api/v1/User.java"));
+        assertFalse(directory.matches("src/apiary/Bee.java"));
+        assertTrue(directory.mayMatchDirectory("src"));
+        assertFalse(directory.mayMatchDirectory("src/web"));
+
+        Pathspec globs = Pathspec.parse(Arrays.asList("docs/*.md", "src/**/*.java"));
+        assertTrue(globs.matches("docs/README.md"));
+        assertFalse(globs.matches("docs/guide/intro.md"), "'*' stays within one directory");
+        assertTrue(globs.matches("src/App.java"));
+        assertTrue(globs.matches("src/a/b/App.java"));
+        assertFalse(globs.matches("lib/App.java"));
+        assertTrue(globs.mayMatchDirectory("src/a/b"));
+        assertFalse(globs.mayMatchDirectory("lib"));
+
+        assertTrue(Pathspec.parse(Collections.singletonList(".")).isAll());
+    }
+
+    @Test
+    @DisplayName("Should take bracket sets literally and reject invalid ones")
+    void testBracketSets() {
+        Pathspec sets = Pathspec.parse(Arrays.asList("file[0-9].txt", "x[[]", "a[]b]", "n[!.-]m", "q[&&^]"));
+        assertTrue(sets.matches("file7.txt"));
+        assertFalse(sets.matches("filex.txt"));
+        assertTrue(sets.matches("x["), "A '[' inside a set is a member");
+        assertTrue(sets.matches("a]"), "A ']' right after '[' is a member");
+        assertTrue(sets.matches("nxm"));
+        assertFalse(sets.matches("n-m"), "A '-' at the end of a set is a member, not a range");
+        assertTrue(sets.matches("q&") && sets.matches("q^"));
+
+        assertTrue(Pathspec.parse(Collections.singletonList("a[]b")).matches("a[]b"), "An unclosed set is literal");
+        assertThrows(IllegalArgumentException.class, () -> Pathspec.parse(Collections.singletonList("file[z-a]")));
+    }
+
+    @Test
+    @DisplayName("Should limit status, diff and add to the pathspec")
+    void testScopedCommands() throws Exception {
+        write("api/User.java", "user\n");
+        write("web/Page.java", "page\n");
+        CommandHandler.handleAdd(Collections.singletonList(SRC.toString()));
+        CommandHandler.handleCommit("C1");
+        String first = new ReferenceManager().getHeadCommit();
+
+        write("api/User.java", "user v2\n");
+        write("web/Page.java", "page v2\n");
+        write("api/Role.java", "role\n");
+        Pathspec api = Pathspec.parse(Collections.singletonList(SRC + "/api"));
+
+        String status = captureOut(() -> CommandHandler.handleStatus(api));
+        assertTrue(status.contains("modified:   src-tree/api/User.java"));
+        assertTrue(status.contains("  src-tree/api/Role.java"));
+        assertFalse(status.contains("Page.java"));
+
+        String diff = captureOut(() -> CommandHandler.handleDiffCommitAndWorkingDir(first,
+                new DiffOptions().format(DiffOptions.Format.NAME_ONLY).pathspec(api)));
+        assertEquals("src-tree/api/User.java\n", diff);
+
+        CommandHandler.handleAdd(Collections.singletonList(SRC + "/**/*.java"));
+        CommandHandler.handleCommit("C2");
+        String second = new ReferenceManager().getHeadCommit();
+        assertEquals("A\tsrc-tree/api/Role.java\nM\tsrc-tree/api/User.java\nM\tsrc-tree/web/Page.java\n",
+                captureOut(() -> CommandHandler.handleDiffCommits(first, second,
+                        new DiffOptions().format(DiffOptions.Format.NAME_STATUS))));
+
+        // with the web subtrees gone, a diff scoped to api still works as it never reads them
+        deleteSubtree(first, "web");
+        deleteSubtree(second, "web");
+        assertEquals("A\tsrc-tree/api/Role.java\nM\tsrc-tree/api/User.java\n",
+                captureOut(() -> CommandHandler.handleDiffCommits(first, second,
+                        new DiffOptions().format(DiffOptions.Format.NAME_STATUS).renameDetector(null).pathspec(api))));
+    }
+
+    // deletes the object of src-tree/<name> in the commit's tree
+    private static void deleteSubtree(String commit, String name) throws IOException {
+        String root = ObjectLoader.loadCommit(commit).getTreeSha1();
+        String src = null;
+        TreeIterator tree = TreeIterator.forTree(root);
+        while (tree.next()) {
+            if (tree.getName().equals(SRC.toString())) {
+                src = tree.getObjectSha1Id();
+            }
+        }
+        tree = TreeIterator.forTree(src);
+        while (tree.next()) {
+            if (tree.getName().equals(name)) {
+                Files.deleteIfExists(ObjectLoader.objectPath(tree.getObjectSha1Id()));
+            }
+        }
+    }
+
+    private static void write(String path, String content) throws IOException {
+        Path file = SRC.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private void cleanup() throws IOException {
+        for (Path dir : new Path[] {Paths.get(".lit"), SRC}) {
+            if (Files.exists(dir)) {
+                Files.walk(dir)
+                     .sorted(Comparator.reverseOrder())
+                     .map(Path::toFile)
+                     .forEach(File::delete);
+            }
+        }
+    }
+}
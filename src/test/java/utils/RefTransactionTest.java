@@ -0,0 +1,108 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class RefTransactionTest {
+
+    private static final Path HEADS = Paths.get(".lit", "refs", "heads");
+
+    private String first;
+    private String second;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        cleanup();
+        CommandHandler.handleInit();
+        Files.writeString(Paths.get("tx-a.txt"), "one");
+        CommandHandler.handleAdd("tx-a.txt");
+        CommandHandler.handleCommit("C1");
+        first = new ReferenceManager().getHeadCommit();
+        Files.writeString(Paths.get("tx-a.txt"), "two");
+        CommandHandler.handleAdd("tx-a.txt");
+        CommandHandler.handleCommit("C2");
+        second = new ReferenceManager().getHeadCommit();
+    }
+
+    @AfterEach
+    public void teardown() throws IOException {
+        cleanup();
+    }
+
+    @Test
+    public void testBulkUpdateIsAppliedTogether() throws Exception {
+        ReferenceManager refManager = new ReferenceManager();
+        RefTransaction transaction = refManager.beginTransaction();
+        for (int i = 0; i < 50; i++) {
+            transaction.create("refs/heads/ci-" + i, first);
+        }
+        transaction.update("refs/heads/main", first, second);
+        transaction.commit();
+
+        assertEquals(51, refManager.getAllBranches().size());
+        assertEquals(first, refManager.getBranchCommit("ci-7"));
+        assertEquals(first, refManager.getHeadCommit());
+        assertFalse(Files.exists(HEADS.resolve("main")), "Loose values are folded into packed-refs.");
+
+        refManager.beginTransaction()
+                  .delete("refs/heads/ci-7", first)
+                  .update("refs/heads/ci-8", second, first)
+                  .commit();
+        assertNull(refManager.getBranchCommit("ci-7"));
+        assertEquals(second, refManager.getBranchCommit("ci-8"));
+    }
+
+    @Test
+    public void testStaleExpectationChangesNothing() throws Exception {
+        ReferenceManager refManager = new ReferenceManager();
+        RefTransaction transaction = refManager.beginTransaction()
+                .create("refs/heads/feature", first)
+                .update("refs/heads/main", second, first); // main is at second, not first
+        assertThrows(IOException.class, transaction::commit);
+
+        assertNull(refManager.getBranchCommit("feature"));
+        assertEquals(second, refManager.getHeadCommit());
+        assertEquals(List.of("main"), refManager.getAllBranches(), "Locks must be released.");
+    }
+
+    @Test
+    public void testLockedRefFailsTheTransaction() throws Exception {
+        ReferenceManager refManager = new ReferenceManager();
+        LockFile held = LockFile.acquire(HEADS.resolve("main").toAbsolutePath());
+        try {
+            RefTransaction transaction = refManager.beginTransaction()
+                    .create("refs/heads/feature", first)
+                    .update("refs/heads/main", first, null);
+            assertThrows(IOException.class, transaction::commit);
+            assertThrows(IOException.class, () -> refManager.updateHead(first));
+        } finally {
+            held.close();
+        }
+        assertNull(refManager.getBranchCommit("feature"));
+        assertEquals(second, refManager.getHeadCommit());
+    }
+
+    private void cleanup() throws IOException {
+        Path litDir = Paths.get(".lit");
+        if (Files.exists(litDir)) {
+            Files.walk(litDir)
+                 .sorted(Comparator.reverseOrder())
+                 .map(Path::toFile)
+                 .forEach(File::delete);
+        }
+        Files.deleteIfExists(Paths.get("tx-a.txt"));
+    }
+}
@@ -0,0 +1,161 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import objects.TreeEntry;
+import objects.TreeObject;
+
+@DisplayName("RenameDetector Tests")
+public class RenameDetectorTest {
+
+    @BeforeEach
+    public void setup() throws Exception {
+        cleanup();
+        CommandHandler.handleInit();
+    }
+
+    @AfterEach
+    public void teardown() throws IOException {
+        cleanup();
+    }
+
+    private static TreeEntry file(String name, String content) throws Exception {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        StringBuilder sha = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-1").digest(bytes)) {
+            sha.append(String.format("%02x", b));
+        }
+        Content.saveObject(sha.toString(), bytes);
+        return new TreeEntry("100644", "blob", sha.toString(), name);
+    }
+
+    private static TreeEntry dir(String name, TreeEntry... entries) {
+        return new TreeEntry("040000", "tree", tree(entries), name);
+    }
+
+    private static String tree(TreeEntry... entries) {
+        TreeObject tree = new TreeObject(new ArrayList<>(Arrays.asList(entries)));
+        tree.save();
+        return tree.getSha1Id();
+    }
+
+    private static String source(int seed, int lines) {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            content.append("line ").append(seed).append('-').append(i).append('\n');
+        }
+        return content.toString();
+    }
+
+    @Test
+    @DisplayName("Should pair moved files by SHA-1 and edited files by similarity")
+    public void testExactAndSimilarRenames() throws Exception {
+        String edited = source(2, 20).replace("line 2-5\n", "changed\n");
+        String oldTree = tree(dir("old", file("A.java", source(1, 20)), file("B.java", source(2, 20))),
+                              file("gone.txt", source(3, 20)));
+        String newTree = tree(dir("new", file("A.java", source(1, 20)), file("B.java", edited)),
+                              file("fresh.txt", source(4, 20)));
+
+        TreeDiffResult diff = MergeUtils.diffTrees(oldTree, newTree);
+        new RenameDetector().detect(diff, oldTree);
+
+        List<TreeDiffResult.RenamedFile> renamed = diff.getRenamedFiles();
+        assertEquals(2, renamed.size());
+        assertEquals("old/A.java", renamed.get(0).getSource().getFullPath());
+        assertEquals("new/A.java", renamed.get(0).getTarget().getFullPath());
+        assertEquals(100, renamed.get(0).getScore());
+        assertEquals("old/B.java", renamed.get(1).getSource().getFullPath());
+        assertEquals(95, renamed.get(1).getScore());
+        assertFalse(renamed.get(1).isCopy());
+
+        // unrelated files stay deleted and added
+        assertEquals("gone.txt", diff.getDeletedFiles().get(0).getFullPath());
+        assertEquals("fresh.txt", diff.getAddedFiles().get(0).getFullPath());
+    }
+
+    @Test
+    @DisplayName("Should respect the similarity threshold")
+    public void testThreshold() throws Exception {
+        String half = source(1, 10) + source(2, 10);
+        String oldTree = tree(file("a.txt", source(1, 20)));
+        String newTree = tree(file("b.txt", half));
+
+        TreeDiffResult strict = MergeUtils.diffTrees(oldTree, newTree);
+        new RenameDetector(80, false, 2).detect(strict, oldTree);
+        assertTrue(strict.getRenamedFiles().isEmpty());
+
+        TreeDiffResult lenient = MergeUtils.diffTrees(oldTree, newTree);
+        new RenameDetector(40, false, 2).detect(lenient, oldTree);
+        assertEquals(1, lenient.getRenamedFiles().size());
+        assertEquals(50, lenient.getRenamedFiles().get(0).getScore());
+    }
+
+    @Test
+    @DisplayName("Should report copies of modified files when asked to")
+    public void testCopies() throws Exception {
+        String oldTree = tree(file("Main.java", source(1, 20)));
+        String newTree = tree(file("Main.java", source(1, 21)), file("Copy.java", source(1, 20)));
+
+        TreeDiffResult diff = MergeUtils.diffTrees(oldTree, newTree);
+        new RenameDetector(50, true, 2).detect(diff, oldTree);
+
+        assertEquals(1, diff.getRenamedFiles().size());
+        assertTrue(diff.getRenamedFiles().get(0).isCopy());
+        assertEquals("Main.java", diff.getRenamedFiles().get(0).getSource().getFullPath());
+        assertEquals(1, diff.getModifiedFiles().size());
+    }
+
+    @Test
+    @DisplayName("Should pair thousands of moved and edited files")
+    public void testLargeMove() throws Exception {
+        int count = 3000;
+        List<TreeEntry> before = new ArrayList<>();
+        List<TreeEntry> after = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String content = source(i, 30);
+            before.add(file("F" + i + ".java", content));
+            // every third file is also edited while being moved
+            after.add(file("F" + i + ".java", i % 3 == 0 ? content + "// moved\n" : content));
+        }
+        String oldTree = tree(dir("src", before.toArray(new TreeEntry[0])));
+        String newTree = tree(dir("lib", after.toArray(new TreeEntry[0])));
+
+        TreeDiffResult diff = MergeUtils.diffTrees(oldTree, newTree);
+        new RenameDetector().detect(diff, oldTree);
+
+        assertEquals(count, diff.getRenamedFiles().size());
+        assertTrue(diff.getAddedFiles().isEmpty());
+        assertTrue(diff.getDeletedFiles().isEmpty());
+        for (TreeDiffResult.RenamedFile renamed : diff.getRenamedFiles()) {
+            assertEquals(renamed.getSource().getEntry().getName(), renamed.getTarget().getEntry().getName());
+        }
+    }
+
+    private void cleanup() throws IOException {
+        Path litDir = Paths.get(".lit");
+        if (Files.exists(litDir)) {
+            Files.walk(litDir)
+                 .sorted(Comparator.reverseOrder())
+                 .map(Path::toFile)
+                 .forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static utils.TestOutput.captureOut;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import objects.CommitObject;
+import objects.TreeEntry;
+
+@DisplayName("RepoGenerator Tests")
+class RepoGeneratorTest {
+
+    @BeforeEach
+    void setup() throws Exception {
+        cleanup();
+        CommandHandler.handleInit();
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        cleanup();
+    }
+
+    private static RepoGenerator generator(long seed) {
+        return new RepoGenerator().seed(seed).files(60).depth(2).fanOut(3).fileSize(200, 0.5, 1000)
+                .commits(40).branches(2).mergeRate(0.5).churn(0.05).checkout(false).threads(2);
+    }
+
+    @Test
+    @DisplayName("Should generate the same history from the same seed")
+    void testDeterministic() throws Exception {
+        RepoGenerator.Result first = generator(7).generate(null);
+        String topic = new ReferenceManager().getBranchCommit("topic-1");
+
+        cleanup();
+        CommandHandler.handleInit();
+        RepoGenerator.Result again = generator(7).generate(null);
+        assertEquals(first.head, again.head);
+        assertEquals(topic, new ReferenceManager().getBranchCommit("topic-1"));
+        assertTrue(again.merges > 0);
+        assertEquals(40, again.commits);
+
+        cleanup();
+        CommandHandler.handleInit();
+        String[] head = new String[1];
+        String printed = captureOut(() -> head[0] = generator(8).generate(null).head);
+        assertNotEquals(first.head, head[0]);
+        assertFalse(printed.contains("Saved object"), "Objects are written without a line each:\n" + printed);
+
+        // a repository with history is never overwritten
+        assertThrows(IOException.class, () -> generator(7).generate(null));
+    }
+
+    @Test
+    @DisplayName("Should lay the files out by depth and fan-out and check main out")
+    void testLayoutAndCheckout() throws Exception {
+        RepoGenerator.Result result = new RepoGenerator().seed(3).files(30).depth(2).fanOut(3)
+                .fileSize(100, 0, 100).commits(5).churn(0.1).threads(2).generate(null);
+
+        assertEquals(result.head, new ReferenceManager().getHeadCommit());
+        assertEquals("main", new ReferenceManager().getCurrentBranch());
+        CommitObject head = ObjectLoader.loadCommit(result.head);
+        assertEquals(1_600_000_000L + 4 * 600, head.getAuthorTimestamp());
+
+        Map<String, TreeEntry> files = MergeUtils.listFiles(head.getTreeSha1(), Pathspec.ALL);
+        assertTrue(files.containsKey("dir0/dir0/file0.txt"));
+        assertTrue(files.containsKey("dir2/dir1/file5.txt"), "File 5 is in directory 5 % 3, then 5 / 3 % 3");
+        for (String path : files.keySet()) {
+            assertEquals(3, path.split("/").length, path);
+        }
+
+        assertEquals(files.size(), new IndexManager().getIndexEntries().size());
+        for (String path : files.keySet()) {
+            assertTrue(Files.isRegularFile(Paths.get(path)), path);
+        }
+        String status = captureOut(() -> CommandHandler.handleStatus(Pathspec.ALL));
+        assertFalse(status.matches("(?s).*\\bdir\\d/.*"), "No generated file is changed or untracked:\n" + status);
+    }
+
+    private void cleanup() throws IOException {
+        for (Path dir : new Path[] {Paths.get(".lit"), Paths.get("dir0"), Paths.get("dir1"), Paths.get("dir2")}) {
+            if (Files.exists(dir)) {
+                Files.walk(dir)
+                     .sorted(Comparator.reverseOrder())
+                     .map(Path::toFile)
+                     .forEach(File::delete);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Rerere Tests")
+public class RerereTest {
+
+    @BeforeEach
+    public void setup() throws Exception {
+        cleanup();
+        CommandHandler.handleInit();
+    }
+
+    @AfterEach
+    public void teardown() throws IOException {
+        cleanup();
+    }
+
+    @Test
+    @DisplayName("Should identify a conflict by its hunks, whatever the labels and side order")
+    public void testPreimageId() {
+        Rerere.Preimage first = Rerere.normalize("top\n<<<<<<< HEAD\nmain\n=======\nfeature\n>>>>>>> feature\nbottom\n");
+        Rerere.Preimage swapped = Rerere.normalize("TOP\n<<<<<<< feature\nfeature\n=======\nmain\n>>>>>>> HEAD\nbottom\n");
+        assertNotNull(first);
+        assertEquals(first.id, swapped.id);
+        assertEquals("top\n<<<<<<<\nfeature\n=======\nmain\n>>>>>>>\nbottom\n", first.text);
+
+        assertNull(Rerere.normalize("no conflicts here\n"));
+        assertNull(Rerere.normalize("<<<<<<< HEAD\nnever closed\n"));
+    }
+
+    @Test
+    @DisplayName("Should record a resolution at commit and reuse it in later merges")
+    public void testReuseResolution() throws Exception {
+        // Base commit
+        Files.writeString(Paths.get("conflict.txt"), "top\nspacer\nmiddle\nbottom\n");
+        CommandHandler.handleAdd("conflict.txt");
+        CommandHandler.handleCommit("Base commit");
+        String baseCommitSha = new ReferenceManager().getHeadCommit();
+
+        // Main and feature change the same line
+        Files.writeString(Paths.get("conflict.txt"), "top\nspacer\nmain\nbottom\n");
+        CommandHandler.handleAdd("conflict.txt");
+        CommandHandler.handleCommit("Main change");
+        String mainCommitSha = new ReferenceManager().getHeadCommit();
+
+        CommandHandler.handleSwitch(baseCommitSha);
+        CommandHandler.handleBranch("feature");
+        CommandHandler.handleSwitch("feature");
+        Files.writeString(Paths.get("conflict.txt"), "top\nspacer\nfeature\nbottom\n");
+        CommandHandler.handleAdd("conflict.txt");
+        CommandHandler.handleCommit("Feature change");
+        String featureCommitSha = new ReferenceManager().getHeadCommit();
+
+        // The first merge conflicts and is resolved by hand
+        CommandHandler.handleSwitch("main");
+        MergeResult first = MergeUtils.merge(mainCommitSha, featureCommitSha, "feature");
+        assertFalse(first.isSuccess());
+        Rerere rerere = new Rerere(Paths.get(".lit"));
+        assertEquals(1, rerere.getPending().size());
+        Files.writeString(Paths.get("conflict.txt"), "top\nspacer\nmain and feature\nbottom\n");
+        CommandHandler.handleAdd("conflict.txt");
+
+        // a commit that does not land records nothing and keeps the conflicts pending
+        LockFile held = LockFile.acquire(Paths.get(".lit", "refs", "heads", "main").toAbsolutePath());
+        try {
+            assertThrows(IOException.class, () -> CommandHandler.handleCommit("Resolve conflict"));
+        } finally {
+            held.close();
+        }
+        assertEquals(1, rerere.getPending().size());
+
+        CommandHandler.handleCommit("Resolve conflict");
+        assertTrue(rerere.getPending().isEmpty());
+
+        // A downstream branch that also changed another line hits the same conflict
+        CommandHandler.handleSwitch(mainCommitSha);
+        CommandHandler.handleBranch("downstream");
+        CommandHandler.handleSwitch("downstream");
+        Files.writeString(Paths.get("conflict.txt"), "TOP\nspacer\nmain\nbottom\n");
+        CommandHandler.handleAdd("conflict.txt");
+        CommandHandler.handleCommit("Downstream change");
+        String downstreamSha = new ReferenceManager().getHeadCommit();
+
+        MergeResult second = MergeUtils.merge(downstreamSha, featureCommitSha, "feature");
+        assertTrue(second.isSuccess(), "The recorded resolution should be applied");
+        assertEquals("TOP\nspacer\nmain and feature\nbottom\n", Files.readString(Paths.get("conflict.txt")));
+        assertFalse(ConflictHandler.hasUnresolvedConflicts());
+
+        // Merging the other way round in memory gives the same hunks with the sides swapped
+        MergeResult inMemory = MergeUtils.mergeInMemory(featureCommitSha, mainCommitSha, "feature", "main");
+        assertTrue(inMemory.getConflicts().isEmpty());
+        assertEquals("top\nspacer\nmain and feature\nbottom\n",
+                new String(ObjectLoader.loadBlob(TreeIterator.findBlob(inMemory.getTreeSha(), "conflict.txt"))));
+    }
+
+    private void cleanup() throws IOException {
+        Path litDir = Paths.get(".lit");
+        if (Files.exists(litDir)) {
+            Files.walk(litDir)
+                 .sorted(Comparator.reverseOrder())
+                 .map(Path::toFile)
+                 .forEach(File::delete);
+        }
+        Files.deleteIfExists(Paths.get("conflict.txt"));
+    }
+}
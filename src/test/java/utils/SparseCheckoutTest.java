@@ -0,0 +1,111 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static utils.TestOutput.captureOut;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import objects.IndexEntry;
+
+public class SparseCheckoutTest {
+
+    private static final Path ROOT = Paths.get("sparse-root");
+
+    @BeforeEach
+    public void setup() throws Exception {
+        cleanup();
+        CommandHandler.handleInit();
+        write("sparse-root/top.txt", "top");
+        write("sparse-root/api/Api.java", "api");
+        write("sparse-root/api/v1/Old.java", "old api");
+        write("sparse-root/web/index.html", "web");
+        for (String path : List.of("sparse-root/top.txt", "sparse-root/api/Api.java",
+                "sparse-root/api/v1/Old.java", "sparse-root/web/index.html")) {
+            CommandHandler.handleAdd(path);
+        }
+        CommandHandler.handleCommit("C1");
+    }
+
+    @AfterEach
+    public void teardown() throws IOException {
+        cleanup();
+    }
+
+    @Test
+    public void testConeRules() throws Exception {
+        SparseCheckout.write(Paths.get(".lit"), List.of("/src/api/"));
+        SparseCheckout sparse = SparseCheckout.load(Paths.get(".lit"));
+        assertTrue(sparse.includesFile("README.md"));
+        assertTrue(sparse.includesFile("src/build.gradle"), "Files in parents of a cone are included.");
+        assertTrue(sparse.includesFile("src/api/v1/Handler.java"));
+        assertFalse(sparse.includesFile("src/web/index.html"));
+        assertFalse(sparse.includesFile("src/apifoo/x.txt"));
+        assertTrue(sparse.mayIncludeDirectory("src"));
+        assertFalse(sparse.mayIncludeDirectory("docs"));
+    }
+
+    @Test
+    public void testSetSwitchAndDisable() throws Exception {
+        CommandHandler.handleSparseCheckout("set", List.of("sparse-root/api"), 2);
+        assertFalse(Files.exists(ROOT.resolve("web")), "Directories outside the cone are removed.");
+        assertTrue(Files.exists(ROOT.resolve("api/v1/Old.java")));
+        assertTrue(Files.exists(ROOT.resolve("top.txt")));
+        Map<String, IndexEntry> index = new IndexManager().getEntryMap();
+        assertTrue(index.get("sparse-root/web/index.html").isSkipWorktree());
+        assertFalse(index.get("sparse-root/api/Api.java").isSkipWorktree());
+
+        // skipped entries are neither staged changes nor deletions
+        String status = captureOut(CommandHandler::handleStatus);
+        assertFalse(status.contains("index.html"), status);
+
+        // a commit made on another branch that touches both sides of the cone
+        CommandHandler.handleBranch("feature");
+        CommandHandler.handleSwitch("feature");
+        write("sparse-root/web/index.html", "web v2");
+        CommandHandler.handleAdd("sparse-root/web/index.html"); // refused, outside the cone
+        assertEquals(index.get("sparse-root/web/index.html").getSha1(),
+                new IndexManager().getEntryMap().get("sparse-root/web/index.html").getSha1());
+        Files.delete(ROOT.resolve("web/index.html"));
+        Files.delete(ROOT.resolve("web"));
+
+        write("sparse-root/api/Api.java", "api v2");
+        CommandHandler.handleAdd("sparse-root/api/Api.java");
+        CommandHandler.handleCommit("C2");
+        CommandHandler.handleSwitch("main");
+        assertEquals("api", Files.readString(ROOT.resolve("api/Api.java")));
+        assertFalse(Files.exists(ROOT.resolve("web")));
+
+        CommandHandler.handleSparseCheckout("disable", List.of(), 2);
+        assertEquals("web", Files.readString(ROOT.resolve("web/index.html")));
+        assertFalse(new IndexManager().getEntryMap().get("sparse-root/web/index.html").isSkipWorktree());
+    }
+
+    private static void write(String path, String content) throws IOException {
+        Path file = Paths.get(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private void cleanup() throws IOException {
+        for (Path dir : new Path[] {Paths.get(".lit"), ROOT}) {
+            if (Files.exists(dir)) {
+                Files.walk(dir)
+                     .sorted(Comparator.reverseOrder())
+                     .map(Path::toFile)
+                     .forEach(File::delete);
+            }
+        }
+    }
+}
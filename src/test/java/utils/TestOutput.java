@@ -0,0 +1,29 @@
+package utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+/**
+ * Captures what a command prints on System.out, for tests that check the output of CommandHandler.
+ */
+final class TestOutput {
+
+    private TestOutput() {
+    }
+
+    interface Action {
+        void run() throws Exception;
+    }
+
+    static String captureOut(Action action) throws Exception {
+        PrintStream original = System.out;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buffer));
+        try {
+            action.run();
+        } finally {
+            System.setOut(original);
+        }
+        return buffer.toString();
+    }
+}
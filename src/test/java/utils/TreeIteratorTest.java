@@ -0,0 +1,91 @@
+package utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import objects.TreeEntry;
+
+@DisplayName("TreeIterator Tests")
+class TreeIteratorTest {
+
+    private static final String SHA_A = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+    private static final String SHA_B = "0123456789abcdef0123456789abcdef01234567";
+
+    // builds raw tree bytes the same way TreeObject serializes them
+    private static byte[] rawTree(String... modeNameSha) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < modeNameSha.length; i += 3) {
+            out.write(modeNameSha[i].getBytes(StandardCharsets.US_ASCII));
+            out.write(' ');
+            out.write(modeNameSha[i + 1].getBytes(StandardCharsets.UTF_8));
+            out.write(0);
+            String sha = modeNameSha[i + 2];
+            for (int j = 0; j < 40; j += 2) {
+                out.write(Integer.parseInt(sha.substring(j, j + 2), 16));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Should walk entries and materialize them on demand")
+    void testIterate() throws IOException {
+        TreeIterator it = new TreeIterator(rawTree("100644", "a.txt", SHA_A, "040000", "src", SHA_B));
+
+        assertTrue(it.next());
+        assertTrue(it.isBlob());
+        assertEquals("a.txt", it.getName());
+        assertEquals(SHA_A, it.getObjectSha1Id());
+
+        assertTrue(it.next());
+        assertTrue(it.isTree());
+        TreeEntry entry = it.toTreeEntry();
+        assertEquals("040000", entry.getMode());
+        assertEquals("tree", entry.getType());
+        assertEquals(SHA_B, entry.getObjectSha1Id());
+
+        assertFalse(it.next());
+    }
+
+    @Test
+    @DisplayName("Should decode non-ASCII names as UTF-8")
+    void testUtf8Name() throws IOException {
+        TreeIterator it = new TreeIterator(rawTree("100644", "r\u00e9sum\u00e9.txt", SHA_A));
+        assertTrue(it.next());
+        assertEquals("r\u00e9sum\u00e9.txt", it.getName());
+    }
+
+    @Test
+    @DisplayName("Should find entries with a binary search")
+    void testSeek() throws IOException {
+        TreeIterator it = new TreeIterator(rawTree(
+            "100644", "a", SHA_A, "100644", "b", SHA_B, "040000", "c", SHA_A, "100644", "d", SHA_B));
+
+        assertTrue(it.seek("c".getBytes(StandardCharsets.UTF_8)));
+        assertTrue(it.isTree());
+        assertTrue(it.next());
+        assertEquals("d", it.getName());
+
+        assertTrue(it.seek("a".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(SHA_A, it.getObjectSha1Id());
+        assertFalse(it.seek("bb".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    @DisplayName("Should reject a truncated entry")
+    void testTruncated() throws IOException {
+        byte[] raw = rawTree("100644", "a.txt", SHA_A);
+        byte[] truncated = new byte[raw.length - 5];
+        System.arraycopy(raw, 0, truncated, 0, truncated.length);
+        TreeIterator it = new TreeIterator(truncated);
+        assertThrows(IOException.class, it::next);
+    }
+}
@@ -0,0 +1,139 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import objects.TreeEntry;
+import objects.TreeObject;
+
+@DisplayName("TreeMerger Tests")
+public class TreeMergerTest {
+
+    private static final String SHA_A = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+    private static final String SHA_B = "bbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbbb";
+    private static final String SHA_C = "cccccccccccccccccccccccccccccccccccccccc";
+
+    private final List<String> events = new ArrayList<>();
+
+    private final TreeMerger.Listener recorder = new TreeMerger.Listener() {
+        @Override
+        public void takeTheirs(String path, TreeEntry ours, TreeEntry theirs) {
+            events.add((theirs == null ? "delete " : ours == null ? "add " : "modify ") + path);
+        }
+
+        @Override
+        public TreeEntry conflict(String path, TreeEntry base, TreeEntry ours, TreeEntry theirs) {
+            events.add("conflict " + path);
+            return ours;
+        }
+    };
+
+    @BeforeEach
+    public void setup() throws Exception {
+        cleanup();
+        CommandHandler.handleInit();
+    }
+
+    @AfterEach
+    public void teardown() throws IOException {
+        cleanup();
+    }
+
+    private static TreeEntry file(String name, String sha) {
+        return new TreeEntry("100644", "blob", sha, name);
+    }
+
+    private static TreeEntry dir(String name, String treeSha) {
+        return new TreeEntry("040000", "tree", treeSha, name);
+    }
+
+    private static String tree(TreeEntry... entries) {
+        TreeObject tree = new TreeObject(new ArrayList<>(Arrays.asList(entries)));
+        tree.save();
+        return tree.getSha1Id();
+    }
+
+    @Test
+    @DisplayName("Should only open the directories that changed on both sides")
+    public void testUnchangedSubtreesAreNotRead() throws IOException {
+        List<TreeEntry> shared = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            shared.add(dir("module" + i, tree(file("Main.java", SHA_A), dir("res", tree(file("x", SHA_B))))));
+        }
+        String base = tree(shared.toArray(new TreeEntry[0]));
+
+        List<TreeEntry> oursEntries = new ArrayList<>(shared);
+        oursEntries.set(3, dir("module3", tree(file("Main.java", SHA_B), dir("res", tree(file("x", SHA_B))))));
+        String ours = tree(oursEntries.toArray(new TreeEntry[0]));
+
+        List<TreeEntry> theirsEntries = new ArrayList<>(shared);
+        theirsEntries.set(7, dir("module7", tree(file("Main.java", SHA_C), dir("res", tree(file("x", SHA_B))))));
+        theirsEntries.add(file("README", SHA_C));
+        String theirs = tree(theirsEntries.toArray(new TreeEntry[0]));
+
+        TreeMerger merger = new TreeMerger(recorder);
+        merger.merge(base, ours, theirs);
+
+        assertEquals(List.of("add README", "modify module7/Main.java"), events);
+        // the three roots, plus module7 on the base and ours side to take theirs' version
+        assertEquals(5, merger.getTreesRead());
+    }
+
+    @Test
+    @DisplayName("Should report files changed on both sides as conflicts")
+    public void testBothSidesChanged() throws IOException {
+        String base = tree(file("a.txt", SHA_A), file("b.txt", SHA_A), dir("src", tree(file("x", SHA_A))));
+        String ours = tree(file("a.txt", SHA_B), file("b.txt", SHA_B), dir("src", tree(file("x", SHA_B))));
+        String theirs = tree(file("a.txt", SHA_C), file("b.txt", SHA_B), dir("src", tree(file("x", SHA_C), file("y", SHA_C))));
+
+        new TreeMerger(recorder).merge(base, ours, theirs);
+
+        assertEquals(List.of("conflict a.txt", "conflict src/x", "add src/y"), events);
+    }
+
+    @Test
+    @DisplayName("Should delete a directory before writing a file in its place")
+    public void testDirectoryReplacedByFile() throws IOException {
+        String base = tree(dir("docs", tree(file("a", SHA_A), file("b", SHA_A))));
+        String theirs = tree(file("docs", SHA_C));
+
+        new TreeMerger(recorder).merge(base, base, theirs);
+
+        assertEquals(List.of("delete docs/a", "delete docs/b", "add docs"), events);
+    }
+
+    @Test
+    @DisplayName("Should report a file on one side and a changed directory on the other")
+    public void testFileDirectoryConflict() throws IOException {
+        String base = tree(dir("docs", tree(file("a", SHA_A))));
+        String ours = tree(file("docs", SHA_B));
+        String theirs = tree(dir("docs", tree(file("a", SHA_C))));
+
+        new TreeMerger(recorder).merge(base, ours, theirs);
+
+        assertEquals(List.of("conflict docs"), events);
+    }
+
+    private void cleanup() throws IOException {
+        Path litDir = Paths.get(".lit");
+        if (Files.exists(litDir)) {
+            Files.walk(litDir)
+                 .sorted(Comparator.reverseOrder())
+                 .map(Path::toFile)
+                 .forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package utils;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("UnifiedDiffWriter Tests")
+class UnifiedDiffWriterTest {
+
+    private static String lines(int from, int to) {
+        StringBuilder text = new StringBuilder();
+        for (int i = from; i <= to; i++) {
+            text.append(i).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static String write(DiffEntry entry, String a, String b, int context) throws IOException {
+        StringWriter out = new StringWriter();
+        UnifiedDiffWriter writer = new UnifiedDiffWriter(out, context);
+        writer.writeFileHeader(entry);
+        writer.writeHunks(entry, new FileDiffer().calculateDiff(a, b));
+        writer.flush();
+        return out.toString();
+    }
+
+    @Test
+    @DisplayName("Should join nearby changes into one hunk and split distant ones")
+    void testHunks() throws IOException {
+        String a = lines(1, 20);
+        String b = ("\n" + a).replace("\n3\n", "\nthree\n").replace("\n8\n", "\neight\n")
+                .replace("\n18\n", "\neighteen\n").substring(1);
+        DiffEntry entry = DiffEntry.modified("n.txt", "100644", "100644", null, null);
+
+        assertEquals("diff --lit a/n.txt b/n.txt\n"
+                + "--- a/n.txt\n"
+                + "+++ b/n.txt\n"
+                + "@@ -1,11 +1,11 @@\n"
+                + " 1\n 2\n-3\n+three\n 4\n 5\n 6\n 7\n-8\n+eight\n 9\n 10\n 11\n"
+                + "@@ -15,6 +15,6 @@\n"
+                + " 15\n 16\n 17\n-18\n+eighteen\n 19\n 20\n",
+                write(entry, a, b, 3));
+
+        assertEquals("diff --lit a/n.txt b/n.txt\n"
+                + "--- a/n.txt\n"
+                + "+++ b/n.txt\n"
+                + "@@ -3 +3 @@\n-3\n+three\n"
+                + "@@ -8 +8 @@\n-8\n+eight\n"
+                + "@@ -18 +18 @@\n-18\n+eighteen\n",
+                write(entry, a, b, 0));
+    }
+
+    @Test
+    @DisplayName("Should show pure insertions and deletions with empty ranges")
+    void testEmptyRanges() throws IOException {
+        DiffEntry entry = DiffEntry.modified("n.txt", "100644", "100644", null, null);
+        assertEquals("diff --lit a/n.txt b/n.txt\n--- a/n.txt\n+++ b/n.txt\n@@ -2,0 +3 @@\n+new\n",
+                write(entry, lines(1, 4), "1\n2\nnew\n3\n4\n", 0));
+        assertEquals("diff --lit a/n.txt b/n.txt\n--- a/n.txt\n+++ b/n.txt\n@@ -3 +2,0 @@\n-3\n",
+                write(entry, lines(1, 4), "1\n2\n4\n", 0));
+    }
+
+    @Test
+    @DisplayName("Should write headers for added files and mark a missing final newline")
+    void testAddedFile() throws IOException {
+        DiffEntry entry = DiffEntry.added("docs/new.md", "100644", null);
+        assertEquals("diff --lit a/docs/new.md b/docs/new.md\n"
+                + "new file mode 100644\n"
+                + "--- /dev/null\n"
+                + "+++ b/docs/new.md\n"
+                + "@@ -0,0 +1,2 @@\n"
+                + "+title\n"
+                + "+no newline\n"
+                + "\\ No newline at end of file\n",
+                write(entry, "", "title\nno newline", 3));
+    }
+
+    @Test
+    @DisplayName("Should mark the side without a final newline when only one side has it")
+    void testFinalNewlineOnOneSide() throws IOException {
+        DiffEntry entry = DiffEntry.modified("n.txt", "100644", "100644", null, null);
+        String header = "diff --lit a/n.txt b/n.txt\n--- a/n.txt\n+++ b/n.txt\n";
+        assertEquals(header + "@@ -1,2 +1,2 @@\n-a\n-b\n+x\n+b\n\\ No newline at end of file\n",
+                write(entry, "a\nb\n", "x\nb", 3));
+        assertEquals(header + "@@ -1,2 +1,2 @@\n-a\n-b\n\\ No newline at end of file\n+x\n+b\n",
+                write(entry, "a\nb", "x\nb\n", 3));
+
+        // a last line that lacks the newline on both sides stays context and is marked once
+        assertEquals(header + "@@ -1,2 +1,2 @@\n-a\n+x\n b\n\\ No newline at end of file\n",
+                write(entry, "a\nb", "x\nb", 3));
+    }
+
+    @Test
+    @DisplayName("Should keep a shared last line as context when a line is appended")
+    void testAppendAfterLastLine() throws IOException {
+        DiffEntry entry = DiffEntry.modified("n.txt", "100644", "100644", null, null);
+        String header = "diff --lit a/n.txt b/n.txt\n--- a/n.txt\n+++ b/n.txt\n";
+        assertEquals(header + "@@ -1 +1,2 @@\n x\n+y\n\\ No newline at end of file\n",
+                write(entry, "x\n", "x\ny", 3));
+        assertEquals(header + "@@ -1 +1,2 @@\n x\n+y\n", write(entry, "x\n", "x\ny\n", 3));
+    }
+
+    @Test
+    @DisplayName("Should write rename headers")
+    void testRename() throws IOException {
+        DiffEntry entry = new DiffEntry(DiffEntry.Status.RENAMED, "old.txt", "new.txt", "100644", "100644", null, null, 90);
+        assertEquals("diff --lit a/old.txt b/new.txt\n"
+                + "similarity index 90%\n"
+                + "rename from old.txt\n"
+                + "rename to new.txt\n"
+                + "--- a/old.txt\n"
+                + "+++ b/new.txt\n"
+                + "@@ -1,3 +1,3 @@\n 1\n-2\n+two\n 3\n",
+                write(entry, lines(1, 3), "1\ntwo\n3\n", 3));
+    }
+}